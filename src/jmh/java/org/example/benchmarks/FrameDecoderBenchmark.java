@@ -0,0 +1,96 @@
+package org.example.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.example.handlers.DeduplicationHandler;
+import org.example.handlers.NineDigitFrameDecoder;
+import org.example.handlers.TerminateConnRequestHandler;
+import org.example.metrics.MetricsCollector;
+import org.example.output.TextOutputFormat;
+import org.example.server.ShutdownManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Benchmarks the fused chain, as a connection runs it: {@link NineDigitFrameDecoder} finds, validates, parses and
+ * deduplicates every frame of a chunk in a single pass, and writes the unique ones into its output.
+ *
+ * A chunk holds {@link #FRAMES} frames, the count a 4 KB socket read holds, and an operation is a single frame, so that
+ * the time and the bytes allocated per number compare with {@link HandlerBenchmark#chain}. As there, the digits of the
+ * next numbers are written into the chunk first, which {@link #writeDigits()} measures alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class FrameDecoderBenchmark {
+
+    /**
+     * Count of frames per chunk.
+     */
+    public static final int FRAMES = 409;
+
+    @Param({"ttl", "generational", "bitmap"})
+    public String strategy;
+
+    @Param("1")
+    public int expirySecs;
+
+    private final Workload workload = new Workload();
+    private final Buffer chunk = Buffer.buffer(FRAMES * NineDigitFrameDecoder.FRAME_SIZE);
+    private NineDigitFrameDecoder decoder;
+
+    /**
+     * Creates the decoder over the store named by "strategy", and the chunk with its delimiters.
+     */
+    @Setup
+    public void setUp() {
+        final DeduplicationHandler deduplicationHandler = new DeduplicationHandler(
+                new MetricsCollector(), Workload.newStore(this.strategy, this.expirySecs));
+        this.decoder = new NineDigitFrameDecoder(
+                new TerminateConnRequestHandler(new ShutdownManager(null)), deduplicationHandler, new TextOutputFormat());
+        for (int i = 0; i < FRAMES; i++) {
+            this.chunk.setByte(i * NineDigitFrameDecoder.FRAME_SIZE + Workload.DIGITS, (byte)'\n');
+        }
+    }
+
+    /**
+     * Decodes a chunk of new numbers.
+     *
+     * @return The unique numbers.
+     */
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public Buffer decode() {
+        this.writeDigits();
+        return this.decoder.decode(this.chunk);
+    }
+
+    /**
+     * Writes the digits of the next numbers into the chunk, as {@link #decode()} does.
+     *
+     * @return The chunk.
+     */
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public Buffer writeDigits() {
+        for (int i = 0; i < FRAMES; i++) {
+            Workload.writeDigits(this.chunk, i * NineDigitFrameDecoder.FRAME_SIZE, this.workload.next());
+        }
+        return this.chunk;
+    }
+}
@@ -0,0 +1,170 @@
+package org.example.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.example.dedup.DeduplicationStore;
+import org.example.handlers.BasicMessageSanityHandler;
+import org.example.handlers.DeduplicationHandler;
+import org.example.handlers.TerminateConnRequestHandler;
+import org.example.metrics.MetricsCollector;
+import org.example.server.ShutdownManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.vertx.reactivex.core.buffer.Buffer;
+
+/**
+ * Benchmarks the handlers of a single message, each on its own, then chained as a message used to go through them.
+ *
+ * Every benchmark handles one number per operation, hence reports the time and, with the "gc" profiler, the bytes
+ * allocated per number. {@link #chain(Deduplication)} writes the digits of the next number into its message first, so
+ * that the store keeps seeing new numbers. {@link #writeDigits(Deduplication)} measures that alone, to be subtracted.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class HandlerBenchmark {
+
+    private static final int RADIX = 10;
+    private static final int LATENCY_MICROS = 1500;
+
+    private final Buffer message = Buffer.buffer("123456789");
+    private final BasicMessageSanityHandler sanityHandler = new BasicMessageSanityHandler();
+    private final TerminateConnRequestHandler terminateHandler = new TerminateConnRequestHandler(new ShutdownManager(null));
+    private final MetricsCollector metricsCollector = new MetricsCollector();
+
+    /**
+     * Checks a message is a 9 digit number.
+     *
+     * @return The message.
+     */
+    @Benchmark
+    public Buffer sanity() {
+        return this.sanityHandler.handle(this.message);
+    }
+
+    /**
+     * Checks a message is not "terminate".
+     *
+     * @return The message.
+     */
+    @Benchmark
+    public Buffer terminate() {
+        return this.terminateHandler.handle(this.message);
+    }
+
+    /**
+     * Deduplicates the next number, and counts it.
+     *
+     * @param deduplication The handler and its numbers.
+     * @return {@code true} if unique.
+     */
+    @Benchmark
+    public boolean deduplicate(final Deduplication deduplication) {
+        return deduplication.handler.handle(deduplication.workload.next());
+    }
+
+    /**
+     * Counts a unique number.
+     */
+    @Benchmark
+    public void recordUnique() {
+        this.metricsCollector.recordUnique(1);
+    }
+
+    /**
+     * Counts a unique number from 4 threads at once, into the same collector.
+     *
+     * @param shared The collector of all the threads.
+     */
+    @Benchmark
+    @Threads(4)
+    public void recordUniqueShared(final SharedMetrics shared) {
+        shared.metricsCollector.recordUnique(1);
+    }
+
+    /**
+     * Records an end to end latency.
+     */
+    @Benchmark
+    public void recordEndToEnd() {
+        this.metricsCollector.recordEndToEnd(LATENCY_MICROS);
+    }
+
+    /**
+     * Writes the digits of the next number into the message, as {@link #chain(Deduplication)} does.
+     *
+     * @param deduplication The handler and its numbers.
+     * @return The message.
+     */
+    @Benchmark
+    public Buffer writeDigits(final Deduplication deduplication) {
+        Workload.writeDigits(this.message.getDelegate(), 0, deduplication.workload.next());
+        return this.message;
+    }
+
+    /**
+     * Passes the next number through the sanity, terminate and deduplication handlers, parsing it in between.
+     *
+     * @param deduplication The handler and its numbers.
+     * @return {@code true} if unique.
+     */
+    @Benchmark
+    public boolean chain(final Deduplication deduplication) {
+        Workload.writeDigits(this.message.getDelegate(), 0, deduplication.workload.next());
+        final Buffer event = this.terminateHandler.handle(this.sanityHandler.handle(this.message));
+        int number = 0;
+        for (int i = 0; i < Workload.DIGITS; i++) {
+            number = number * RADIX + event.getByte(i) - '0';
+        }
+        return deduplication.handler.handle(number);
+    }
+
+    /**
+     * A {@link DeduplicationHandler} over the store named by "strategy", with the numbers of a single thread.
+     * The IDs are remembered for "expirySecs" only, so that the stores which forget them do not grow for the whole run.
+     */
+    @State(Scope.Thread)
+    public static class Deduplication {
+
+        @Param({"ttl", "generational", "bitmap"})
+        public String strategy;
+
+        @Param("1")
+        public int expirySecs;
+
+        private final Workload workload = new Workload();
+        private DeduplicationHandler handler;
+
+        /**
+         * Creates the store.
+         */
+        @Setup
+        public void setUp() {
+            final DeduplicationStore store = Workload.newStore(this.strategy, this.expirySecs);
+            this.handler = new DeduplicationHandler(new MetricsCollector(), store);
+        }
+    }
+
+    /**
+     * A {@link MetricsCollector} shared by all the threads.
+     */
+    @State(Scope.Benchmark)
+    public static class SharedMetrics {
+
+        private final MetricsCollector metricsCollector = new MetricsCollector();
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.benchmarks;
+
+import org.example.dedup.BitmapDeduplicationStore;
+import org.example.dedup.DeduplicationStore;
+import org.example.dedup.GenerationalDeduplicationStore;
+import org.example.dedup.TtlDeduplicationStore;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * The numbers sent by the clients, as seen by the benchmarks.
+ *
+ * Successive numbers step over the whole 9 digit range, so that the deduplication store keeps seeing new ones, as it
+ * would in production, instead of a small set it quickly remembers. Every 4th number repeats the one before, as a
+ * client retrying a send would, hence a quarter of the numbers are duplicates.
+ *
+ * An instance is used by a single benchmark thread.
+ */
+final class Workload {
+
+    /**
+     * Size in bytes of a number, without the delimiter.
+     */
+    static final int DIGITS = 9;
+
+    private static final int MAX_NUMBER = 1_000_000_000;
+    // Coprime with 10^9, hence visits every number before repeating any
+    private static final int STEP = 387_420_489;
+    private static final int DUPLICATE_EVERY = 4;
+    private static final int RADIX = 10;
+    private static final int GENERATIONS = 10;
+
+    private int number;
+    private int count;
+
+    /**
+     * Returns the next number.
+     *
+     * @return A 9 digit number.
+     */
+    int next() {
+        this.count++;
+        if (this.count % DUPLICATE_EVERY != 0) {
+            this.number = (int)((this.number + (long)STEP) % MAX_NUMBER);
+        }
+        return this.number;
+    }
+
+    /**
+     * Writes the 9 digits of a number, padded with zeros, into a buffer in place.
+     *
+     * @param buffer The buffer to write into.
+     * @param offset Position of the first digit.
+     * @param number A 9 digit number.
+     */
+    static void writeDigits(final Buffer buffer, final int offset, final int number) {
+        int remaining = number;
+        for (int i = DIGITS - 1; i >= 0; i--) {
+            buffer.setByte(offset + i, (byte)('0' + remaining % RADIX));
+            remaining /= RADIX;
+        }
+    }
+
+    /**
+     * Creates the deduplication store named as by "deduplication.strategy".
+     *
+     * @param strategy One of "ttl", "generational" or "bitmap".
+     * @param expirySecs Time an ID is remembered for, by the stores which forget them.
+     * @return DeduplicationStore
+     */
+    static DeduplicationStore newStore(final String strategy, final int expirySecs) {
+        switch (strategy) {
+        case "ttl":
+            return new TtlDeduplicationStore(expirySecs);
+        case "generational":
+            return new GenerationalDeduplicationStore(expirySecs, GENERATIONS);
+        case "bitmap":
+            return new BitmapDeduplicationStore();
+        default:
+            throw new IllegalArgumentException("Unknown deduplication strategy " + strategy);
+        }
+    }
+}
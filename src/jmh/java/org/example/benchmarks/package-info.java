@@ -0,0 +1,4 @@
+/**
+ * Package containing the JMH benchmarks of the message handling hot path, run with the "jmh" Maven profile.
+ */
+package org.example.benchmarks;
@@ -0,0 +1,213 @@
+package org.example.admission;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.example.metrics.Histogram;
+import org.example.metrics.MetricsCollector;
+import org.example.model.ConnectionInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sheds load once the output file can no longer keep up, so that an overloaded server fails fast instead of queueing
+ * until it runs out of memory.
+ *
+ * It watches:
+ *   - The latency from reading a chunk on the socket to the output file acknowledging it, as recorded by
+ *     {@link MetricsCollector#recordEndToEnd(long)}. Under load the connections are paused rather than queued, hence
+ *     the time a chunk waits while its connection is paused is included, as it is where an overload shows first.
+ *   - The bytes handed over to the output file and not written yet, through the stream returned by
+ *     {@link #track(WriteStream)}.
+ *
+ * It is evaluated every "admission.evaluation.interval.ms", 100 ms by default. The server is overloaded as long as the
+ * 99th percentile of the latencies over the last interval exceeds "admission.slo.write.latency.ms", 1000 ms by
+ * default, or as long as more than "admission.max.pending.bytes" are pending, 16 MB by default. The latter is below
+ * the 20 MB at which the {@link org.example.handlers.BackpressureCoordinator} pauses the connections, as the bytes
+ * pending could otherwise never grow past it. Meanwhile:
+ *   - New connections are rejected, right after checking the max connections.
+ *   - The connections from the hosts listed in "admission.low.priority.hosts", such as "10.0.0.1,10.0.0.2", are closed
+ *     as soon as they send anything. None is listed by default.
+ *
+ * Every decision is counted in the {@link MetricsCollector}, along with the latencies. Deciding is a single volatile
+ * read, the percentiles are only computed by the evaluation.
+ */
+@Slf4j
+@Component
+public class AdmissionController implements Handler<Long> {
+
+    private static final double TAIL = 99.0;
+
+    private final MetricsCollector metricsCollector;
+    private final long sloMicros;
+    private final long maxPendingBytes;
+    private final long evaluationIntervalMillis;
+    private final Set<String> lowPriorityHosts;
+
+    // The latencies drained by the last evaluation, touched by the evaluation only
+    private final Histogram evaluatedLatencies = new Histogram();
+    private final LongAdder pendingBytes = new LongAdder();
+
+    private volatile boolean overloaded;
+
+    @Autowired
+    public AdmissionController(
+            final MetricsCollector metricsCollector,
+            @Value("${admission.slo.write.latency.ms:1000}") final long sloMillis,
+            @Value("${admission.max.pending.bytes:16777216}") final long maxPendingBytes,
+            @Value("${admission.evaluation.interval.ms:100}") final long evaluationIntervalMillis,
+            @Value("${admission.low.priority.hosts:}") final String lowPriorityHosts) {
+
+        Preconditions.checkArgument(Objects.nonNull(metricsCollector), "Metrics collector cannot be null");
+        Preconditions.checkArgument(sloMillis > 0, "Write latency SLO must be positive");
+        Preconditions.checkArgument(maxPendingBytes > 0, "Max pending bytes must be positive");
+        Preconditions.checkArgument(evaluationIntervalMillis > 0, "Evaluation interval must be positive");
+        Preconditions.checkArgument(Objects.nonNull(lowPriorityHosts), "Low priority hosts cannot be null");
+
+        this.metricsCollector = metricsCollector;
+        this.sloMicros = TimeUnit.MILLISECONDS.toMicros(sloMillis);
+        this.maxPendingBytes = maxPendingBytes;
+        this.evaluationIntervalMillis = evaluationIntervalMillis;
+        this.lowPriorityHosts = ImmutableSet.copyOf(
+                Splitter.on(',').trimResults().omitEmptyStrings().split(lowPriorityHosts));
+    }
+
+    /**
+     * Watches the writes to the given stream.
+     *
+     * @param writeStream The stream writing to the output file.
+     * @return The stream to write to instead.
+     */
+    public WriteStream<Buffer> track(final WriteStream<Buffer> writeStream) {
+        return new TrackingWriteStream(writeStream, this);
+    }
+
+    /**
+     * Returns the interval at which {@link #handle(Long)} is to be called.
+     *
+     * @return long
+     */
+    public long getEvaluationIntervalMillis() {
+        return this.evaluationIntervalMillis;
+    }
+
+    /**
+     * Decides whether a new connection is admitted.
+     *
+     * @param connectionInfo The connection.
+     * @return {@code false} if the server is overloaded, in which case the connection is to be closed.
+     */
+    public boolean admit(final ConnectionInfo connectionInfo) {
+        if (this.overloaded) {
+            log.warn("Server is overloaded, rejecting connection {}", connectionInfo.getConnectionId());
+            this.metricsCollector.recordRejected();
+            return false;
+        }
+        this.metricsCollector.recordAdmitted();
+        return true;
+    }
+
+    /**
+     * Tells whether the connection is shed first, when the server is overloaded.
+     *
+     * @param connectionInfo The connection.
+     * @return boolean
+     */
+    public boolean isLowPriority(final ConnectionInfo connectionInfo) {
+        return this.lowPriorityHosts.contains(connectionInfo.getRemoteHostName());
+    }
+
+    /**
+     * Decides whether a low priority connection is to be shed, every time it sends something.
+     *
+     * @param connectionInfo The connection.
+     * @return {@code true} if the server is overloaded, in which case the connection is to be closed.
+     */
+    public boolean shed(final ConnectionInfo connectionInfo) {
+        if (!this.overloaded) {
+            return false;
+        }
+        log.warn("Server is overloaded, shedding connection {}", connectionInfo.getConnectionId());
+        this.metricsCollector.recordShed();
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if the server is overloaded, as of the last evaluation.
+     *
+     * @return boolean
+     */
+    public boolean isOverloaded() {
+        return this.overloaded;
+    }
+
+    /**
+     * Returns count of bytes handed over to the output file, and not written yet.
+     *
+     * @return long
+     */
+    public long getPendingBytes() {
+        return this.pendingBytes.sum();
+    }
+
+    /**
+     * Evaluates whether the server is overloaded, from the writes since the last evaluation.
+     *
+     * @param event Id of the periodic timer.
+     */
+    @Override
+    public void handle(final Long event) {
+        // Drained rather than read then reset, which would miss the latencies recorded in between
+        this.metricsCollector.getAdmissionLatencyRecorder().drainTo(this.evaluatedLatencies);
+        final long latencyMicros = this.evaluatedLatencies.getValueAtPercentile(TAIL);
+        this.evaluatedLatencies.reset();
+        final long pending = this.pendingBytes.sum();
+
+        final boolean breached = latencyMicros > this.sloMicros || pending > this.maxPendingBytes;
+        if (breached != this.overloaded) {
+            if (breached) {
+                log.warn("Server is overloaded, end to end latency p99: {} us, pending: {} bytes", latencyMicros, pending);
+            } else {
+                log.info("Server is no longer overloaded, end to end latency p99: {} us, pending: {} bytes", latencyMicros, pending);
+            }
+            this.overloaded = breached;
+            this.metricsCollector.recordOverloaded(breached);
+        }
+    }
+
+    /**
+     * Records a write handed over to the output file.
+     *
+     * @param bytes Size of the write.
+     * @return Time at which the write started, to be given back once written.
+     */
+    long writeStarted(final int bytes) {
+        this.pendingBytes.add(bytes);
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a write written to the output file, or failed. Its latency is only reported as a metric, as it leaves out
+     * the time the chunk waited before being handed over.
+     *
+     * @param bytes Size of the write.
+     * @param startNanos Time at which the write started.
+     */
+    void writeCompleted(final int bytes, final long startNanos) {
+        this.pendingBytes.add(-bytes);
+        this.metricsCollector.recordWrite(Math.max(0, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos)));
+    }
+}
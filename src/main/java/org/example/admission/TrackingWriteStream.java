@@ -0,0 +1,87 @@
+package org.example.admission;
+
+import java.util.Objects;
+
+import com.google.common.base.Preconditions;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+/**
+ * Reports every write to the {@link AdmissionController}, when it is handed over to the actual stream and once it is
+ * written. Everything else is left to the actual stream.
+ *
+ * The time from handing a write over until it is written is the latency of the output file alone. The time a chunk
+ * waits before being handed over, such as while its connection is paused, is not included. Hence it is only reported
+ * as a metric, the admission control relying on the end to end latency instead.
+ */
+class TrackingWriteStream implements WriteStream<Buffer> {
+
+    private final WriteStream<Buffer> writeStream;
+    private final AdmissionController admissionController;
+
+    /**
+     * Wraps the given stream.
+     *
+     * @param writeStream The stream writing to the output file.
+     * @param admissionController The controller to report the writes to.
+     */
+    TrackingWriteStream(final WriteStream<Buffer> writeStream, final AdmissionController admissionController) {
+        Preconditions.checkArgument(Objects.nonNull(writeStream), "Write stream cannot be null");
+        Preconditions.checkArgument(Objects.nonNull(admissionController), "Admission controller cannot be null");
+
+        this.writeStream = writeStream;
+        this.admissionController = admissionController;
+    }
+
+    @Override
+    public TrackingWriteStream exceptionHandler(final Handler<Throwable> handler) {
+        this.writeStream.exceptionHandler(handler);
+        return this;
+    }
+
+    @Override
+    public Future<Void> write(final Buffer data) {
+        final int bytes = data.length();
+        final long startNanos = this.admissionController.writeStarted(bytes);
+        return this.writeStream.write(data)
+                .onComplete(result -> this.admissionController.writeCompleted(bytes, startNanos));
+    }
+
+    @Override
+    public void write(final Buffer data, final Handler<AsyncResult<Void>> handler) {
+        final int bytes = data.length();
+        final long startNanos = this.admissionController.writeStarted(bytes);
+        this.writeStream.write(data, result -> {
+            this.admissionController.writeCompleted(bytes, startNanos);
+            if (handler != null) {
+                handler.handle(result);
+            }
+        });
+    }
+
+    @Override
+    public void end(final Handler<AsyncResult<Void>> handler) {
+        this.writeStream.end(handler);
+    }
+
+    @Override
+    public TrackingWriteStream setWriteQueueMaxSize(final int maxSize) {
+        this.writeStream.setWriteQueueMaxSize(maxSize);
+        return this;
+    }
+
+    @Override
+    public boolean writeQueueFull() {
+        return this.writeStream.writeQueueFull();
+    }
+
+    @Override
+    public TrackingWriteStream drainHandler(final Handler<Void> handler) {
+        this.writeStream.drainHandler(handler);
+        return this;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Package containing the admission control, which sheds load once the server is overloaded.
+ */
+package org.example.admission;
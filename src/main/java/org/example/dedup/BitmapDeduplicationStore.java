@@ -0,0 +1,90 @@
+package org.example.dedup;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Preconditions;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Remembers every event ever seen, with one bit per possible event.
+ *
+ * Events are 9 digit numbers, so there are only 10^9 of them. A bitmap of 10^9 bits needs 125 MB, no matter how many
+ * unique events arrive. Compare that with the cache used by {@link TtlDeduplicationStore}, which needs an object per
+ * event. The bitmap is allocated off heap, so the garbage collector never has to scan it.
+ *
+ * The bits are grouped in 64 bit words. Setting a bit is a single compare-and-set on its word, retried only if another
+ * event loop changed a different bit of the same word in the meantime. No locks are involved.
+ *
+ * Counting the bits set would mean scanning the whole bitmap, hence the events added are counted as they are, with a
+ * {@link LongAdder}.
+ *
+ * Unlike the cache, events never expire. Chosen when "deduplication.strategy" is "bitmap".
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "deduplication.strategy", havingValue = "bitmap")
+public class BitmapDeduplicationStore implements DeduplicationStore {
+
+    private static final int MAX_NINE_DIGIT_EVENTS = 1_000_000_000;
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+    private static final int BITS_PER_WORD = 1 << ADDRESS_BITS_PER_WORD;
+    private static final VarHandle WORDS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final int capacity;
+    private final ByteBuffer bitmap;
+    private final LongAdder size = new LongAdder();
+
+    public BitmapDeduplicationStore() {
+        this(MAX_NINE_DIGIT_EVENTS);
+    }
+
+    /**
+     * Allocates a bitmap large enough to hold the events from 0 until the given capacity.
+     *
+     * @param capacity Count of events the bitmap can hold.
+     */
+    public BitmapDeduplicationStore(final int capacity) {
+        Preconditions.checkArgument(capacity > 0, "Capacity must be positive");
+
+        this.capacity = capacity;
+        final int words = (capacity + BITS_PER_WORD - 1) >>> ADDRESS_BITS_PER_WORD;
+        this.bitmap = ByteBuffer.allocateDirect(words * Long.BYTES).order(ByteOrder.nativeOrder());
+        log.info("Allocated {} bytes off heap for deduplication bitmap", this.bitmap.capacity());
+    }
+
+    @Override
+    public boolean add(final int event) {
+        Preconditions.checkArgument(event >= 0 && event < this.capacity, "Event is out of range");
+
+        final int index = (event >>> ADDRESS_BITS_PER_WORD) * Long.BYTES;
+        final long mask = 1L << event;
+        long word = (long)WORDS.getVolatile(this.bitmap, index);
+        while ((word & mask) == 0) {
+            final long witness = (long)WORDS.compareAndExchange(this.bitmap, index, word, word | mask);
+            if (witness == word) {
+                this.size.increment();
+                return true;
+            }
+            word = witness;
+        }
+        return false;
+    }
+
+    @Override
+    public long size() {
+        return this.size.sum();
+    }
+
+    @Override
+    public long getMemoryBytes() {
+        return this.bitmap.capacity();
+    }
+}
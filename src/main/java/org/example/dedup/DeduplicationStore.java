@@ -0,0 +1,34 @@
+package org.example.dedup;
+
+/**
+ * Remembers the events seen so far, so that a duplicate event can be detected.
+ * Events are the 9 digit numbers sent by the clients, hence represented as a non negative {@code int}.
+ *
+ * The implementation to be used is chosen with the property "deduplication.strategy".
+ * Implementations are invoked concurrently from all the event loops and must be thread safe.
+ */
+public interface DeduplicationStore {
+
+    /**
+     * Records the event and tells whether it was seen before. The check and the insert must happen as one atomic
+     * operation, so that the same event sent twice at the same time is reported as unique only once.
+     *
+     * @param event A non negative number representing the event.
+     * @return {@code true} if the event was not seen before, {@code false} if its a duplicate.
+     */
+    boolean add(int event);
+
+    /**
+     * Returns count of events currently remembered. Read while events are being added, it may be slightly off.
+     *
+     * @return long
+     */
+    long size();
+
+    /**
+     * Returns an estimate of the memory held to remember the events, in bytes.
+     *
+     * @return long
+     */
+    long getMemoryBytes();
+}
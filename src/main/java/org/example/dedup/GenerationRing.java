@@ -0,0 +1,92 @@
+package org.example.dedup;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A ring of generations, each one an {@link IntHashSet} holding the events added while that generation was current.
+ * The generation of an epoch sits at {@code epoch % generations.length}. Epochs are supplied by the caller, which
+ * decides how long a generation lasts.
+ *
+ * An event is a duplicate if any generation of the ring holds it. Moving to a newer epoch clears the generations
+ * that fall out of the ring, each as a whole.
+ *
+ * This class is not thread safe. Callers are expected to guard it or to confine it to a single thread.
+ */
+public final class GenerationRing {
+
+    private static final int INITIAL_GENERATION_SIZE = 1024;
+
+    private final IntHashSet[] generations;
+    private long epoch;
+
+    /**
+     * Creates a ring with the given count of generations, starting at the given epoch.
+     *
+     * @param generationCount Count of generations, including the current one.
+     * @param epoch The current epoch.
+     */
+    public GenerationRing(final int generationCount, final long epoch) {
+        Preconditions.checkArgument(generationCount > 0, "Generations must be positive");
+
+        this.generations = new IntHashSet[generationCount];
+        for (int i = 0; i < generationCount; i++) {
+            this.generations[i] = new IntHashSet(INITIAL_GENERATION_SIZE);
+        }
+        this.epoch = epoch;
+    }
+
+    /**
+     * Adds the event to the current generation, unless any generation already holds it.
+     *
+     * @param event A non negative number representing the event.
+     * @param currentEpoch The current epoch. Epochs older than the latest one seen are treated as the latest one.
+     * @return {@code true} if the event was not seen before, {@code false} if its a duplicate.
+     */
+    public boolean add(final int event, final long currentEpoch) {
+        this.rotate(currentEpoch);
+
+        final int current = (int)(this.epoch % this.generations.length);
+        for (int i = 0; i < this.generations.length; i++) {
+            // Start from the current generation, as duplicates tend to arrive close to each other
+            final int index = (current - i + this.generations.length) % this.generations.length;
+            if (this.generations[index].contains(event)) {
+                return false;
+            }
+        }
+        return this.generations[current].add(event);
+    }
+
+    /**
+     * Returns count of events held by all the generations.
+     *
+     * @return long
+     */
+    public long size() {
+        long size = 0;
+        for (final IntHashSet generation : this.generations) {
+            size += generation.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the memory held by the backing arrays of all the generations, in bytes.
+     *
+     * @return long
+     */
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (final IntHashSet generation : this.generations) {
+            bytes += generation.getMemoryBytes();
+        }
+        return bytes;
+    }
+
+    private void rotate(final long currentEpoch) {
+        final long expired = Math.min(currentEpoch - this.epoch, this.generations.length);
+        for (long i = 1; i <= expired; i++) {
+            this.generations[(int)((this.epoch + i) % this.generations.length)].clear();
+        }
+        this.epoch = Math.max(this.epoch, currentEpoch);
+    }
+}
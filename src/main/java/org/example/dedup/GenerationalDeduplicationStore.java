@@ -0,0 +1,106 @@
+package org.example.dedup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Remembers the events for a limited time, like {@link TtlDeduplicationStore}, but without tracking the expiry of
+ * every single event.
+ *
+ * Time is split into generations, each one {@code ttl / generations} long. An event is added to the set of the current
+ * generation and is a duplicate if any live generation holds it. Once a generation is older than the time to live, its
+ * whole set is cleared at once, so no per-event expiry bookkeeping, removal callbacks or garbage is involved. The sets
+ * are {@link IntHashSet}, holding the events as primitives. Refer {@link GenerationRing} for more details.
+ *
+ * As a generation expires as a whole, an event is remembered for at least the time to live specified by
+ * "deduplication.expiry.time.interval.secs", and at most one generation longer. Like the cache, seeing the same event
+ * again does not extend its life.
+ *
+ * Events are spread across stripes, each with its own ring of generations and its own lock. Hence event loops rarely
+ * wait for each other. The generations are rotated lazily by whichever event touches a stripe first.
+ *
+ * Chosen when "deduplication.strategy" is "generational".
+ */
+@Component
+@ConditionalOnProperty(name = "deduplication.strategy", havingValue = "generational")
+public class GenerationalDeduplicationStore implements DeduplicationStore {
+
+    private static final int STRIPES = 64;
+    private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+    private final long generationIntervalMillis;
+    private final LongSupplier clock;
+    private final GenerationRing[] stripes;
+
+    @Autowired
+    public GenerationalDeduplicationStore(
+            @Value("${deduplication.expiry.time.interval.secs:300}") final int deDupExpiryTimeIntervalInSecs,
+            @Value("${deduplication.generations:10}") final int generations) {
+        this(TimeUnit.SECONDS.toMillis(deDupExpiryTimeIntervalInSecs), generations, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a store with the given clock.
+     *
+     * @param ttlMillis Minimum time in millis for which an event is remembered.
+     * @param generations Count of generations the time to live is split into.
+     * @param clock Returns the current time in millis.
+     */
+    GenerationalDeduplicationStore(final long ttlMillis, final int generations, final LongSupplier clock) {
+        Preconditions.checkArgument(generations > 0, "Generations must be positive");
+        Preconditions.checkArgument(ttlMillis >= generations, "Time to live must be at least a milli per generation");
+
+        this.generationIntervalMillis = ttlMillis / generations;
+        this.clock = clock;
+        this.stripes = new GenerationRing[STRIPES];
+        final long epoch = this.currentEpoch();
+        for (int i = 0; i < STRIPES; i++) {
+            // One more than needed, to hold the current generation which is still being filled
+            this.stripes[i] = new GenerationRing(generations + 1, epoch);
+        }
+    }
+
+    @Override
+    public boolean add(final int event) {
+        Preconditions.checkArgument(event >= 0, "Event cannot be negative");
+
+        final GenerationRing stripe = this.stripes[(event * GOLDEN_RATIO) & (STRIPES - 1)];
+        final long epoch = this.currentEpoch();
+        synchronized (stripe) {
+            return stripe.add(event, epoch);
+        }
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (final GenerationRing stripe : this.stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (final GenerationRing stripe : this.stripes) {
+            synchronized (stripe) {
+                bytes += stripe.getMemoryBytes();
+            }
+        }
+        return bytes;
+    }
+
+    private long currentEpoch() {
+        return this.clock.getAsLong() / this.generationIntervalMillis;
+    }
+}
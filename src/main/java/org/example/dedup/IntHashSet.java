@@ -0,0 +1,162 @@
+package org.example.dedup;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A set of non negative {@code int} values, backed by a single primitive array.
+ *
+ * It uses open addressing with linear probing, so adding a value never allocates an entry object nor boxes the value.
+ * The array only grows, and {@link #clear()} keeps it for reuse. Hence once warmed up, the set creates no garbage.
+ *
+ * Each slot holds the value along with the stamp of the generation which added it, and only the slots of the current
+ * stamp are occupied. Clearing the set only moves to the next stamp, hence takes the same time whatever its capacity.
+ * The array is filled again only once the stamps wrap around, after 2^32 clears.
+ *
+ * This class is not thread safe. Callers are expected to guard it or to confine it to a single thread.
+ */
+public final class IntHashSet {
+
+    private static final int VALUE_BITS = Integer.SIZE;
+    private static final long VALUE_MASK = 0xFFFFFFFFL;
+    private static final int MIN_CAPACITY = 16;
+    private static final int GOLDEN_RATIO = 0x9E3779B9;
+    private static final int LOAD_FACTOR_PERCENT = 75;
+    private static final int PERCENT = 100;
+
+    private long[] slots;
+    private int stamp = 1;
+    private int mask;
+    private int shift;
+    private int size;
+    private int resizeThreshold;
+
+    /**
+     * Creates a set large enough to hold the expected number of values without growing.
+     *
+     * @param expectedSize Count of values expected to be added.
+     */
+    public IntHashSet(final int expectedSize) {
+        Preconditions.checkArgument(expectedSize >= 0, "Expected size cannot be negative");
+
+        final int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize * PERCENT / LOAD_FACTOR_PERCENT) * 2 - 1);
+        this.allocate(capacity);
+    }
+
+    /**
+     * Adds the value, unless its already present.
+     *
+     * @param value A non negative value.
+     * @return {@code true} if the value was added, {@code false} if it was already present.
+     */
+    public boolean add(final int value) {
+        Preconditions.checkArgument(value >= 0, "Value cannot be negative");
+
+        final long slot = this.slotOf(value);
+        int index = this.indexOf(value);
+        while (this.isOccupied(this.slots[index])) {
+            if (this.slots[index] == slot) {
+                return false;
+            }
+            index = (index + 1) & this.mask;
+        }
+        this.slots[index] = slot;
+        if (++this.size > this.resizeThreshold) {
+            this.grow();
+        }
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if the value is present.
+     *
+     * @param value The value to look for.
+     * @return boolean
+     */
+    public boolean contains(final int value) {
+        final long slot = this.slotOf(value);
+        int index = this.indexOf(value);
+        while (this.isOccupied(this.slots[index])) {
+            if (this.slots[index] == slot) {
+                return true;
+            }
+            index = (index + 1) & this.mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes all the values at once, by moving to the next stamp. The backing array is kept for reuse.
+     */
+    public void clear() {
+        if (this.size > 0) {
+            // Stamp 0 marks the slots never used. Once the stamps wrap around, stale slots would carry the new stamps.
+            if (++this.stamp == 0) {
+                Arrays.fill(this.slots, 0L);
+                this.stamp = 1;
+            }
+            this.size = 0;
+        }
+    }
+
+    /**
+     * Returns count of values present.
+     *
+     * @return int
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns count of slots in the backing array.
+     *
+     * @return int
+     */
+    public int capacity() {
+        return this.slots.length;
+    }
+
+    /**
+     * Returns the memory held by the backing array, in bytes.
+     *
+     * @return long
+     */
+    public long getMemoryBytes() {
+        return (long)this.slots.length * Long.BYTES;
+    }
+
+    private int indexOf(final int value) {
+        return (value * GOLDEN_RATIO) >>> this.shift;
+    }
+
+    private long slotOf(final int value) {
+        return ((long)this.stamp << VALUE_BITS) | value;
+    }
+
+    private boolean isOccupied(final long slot) {
+        return (int)(slot >>> VALUE_BITS) == this.stamp;
+    }
+
+    private void allocate(final int capacity) {
+        this.slots = new long[capacity];
+        this.mask = capacity - 1;
+        this.shift = Integer.numberOfLeadingZeros(capacity) + 1;
+        this.resizeThreshold = (int)((long)capacity * LOAD_FACTOR_PERCENT / PERCENT);
+    }
+
+    private void grow() {
+        final long[] oldSlots = this.slots;
+        this.allocate(oldSlots.length * 2);
+        for (final long slot : oldSlots) {
+            if (this.isOccupied(slot)) {
+                int index = this.indexOf((int)(slot & VALUE_MASK));
+                while (this.isOccupied(this.slots[index])) {
+                    index = (index + 1) & this.mask;
+                }
+                this.slots[index] = slot;
+            }
+        }
+    }
+}
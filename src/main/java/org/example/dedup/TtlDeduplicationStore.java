@@ -0,0 +1,67 @@
+package org.example.dedup;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Remembers the events for a limited time only, using an in memory, non-distributed, cache provided by {@link Cache}.
+ * Each entry has a time to live specified by {@link #deDupExpiryTimeIntervalInSecs}. It is by default 5 mins.
+ * This number is based on how other messaging systems handle deduplication (eg: AWS SQS). Override this number as
+ * appropriate to the business case. After the time to live, the event id will be discarded from the cache.
+ *
+ * Each event costs a cache entry, a boxed key and a slot of the hash table, roughly {@link #ENTRY_BYTES} in all, which
+ * is what {@link #getMemoryBytes()} estimates.
+ *
+ * This is the default strategy, chosen when "deduplication.strategy" is "ttl" or not set at all.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "deduplication.strategy", havingValue = "ttl", matchIfMissing = true)
+public class TtlDeduplicationStore implements DeduplicationStore {
+
+    private static final long ENTRY_BYTES = 96;
+
+    private final int deDupExpiryTimeIntervalInSecs;
+    private final Cache<Integer, Boolean> cache;
+
+    @Autowired
+    public TtlDeduplicationStore(
+            @Value("${deduplication.expiry.time.interval.secs:300}") final int deDupExpiryTimeIntervalInSecs) {
+
+        this.deDupExpiryTimeIntervalInSecs = deDupExpiryTimeIntervalInSecs;
+        this.cache = CacheBuilder.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(this.deDupExpiryTimeIntervalInSecs))
+            .removalListener(this::checkRemovedEntries)
+            .build();
+    }
+
+    @Override
+    public boolean add(final int event) {
+        return Objects.isNull(this.cache.asMap().putIfAbsent(event, Boolean.TRUE));
+    }
+
+    @Override
+    public long size() {
+        return this.cache.size();
+    }
+
+    @Override
+    public long getMemoryBytes() {
+        return this.cache.size() * ENTRY_BYTES;
+    }
+
+    private void checkRemovedEntries(final RemovalNotification<Integer, Boolean> notification) {
+        log.debug("Event {} was removed post expiry.", notification);
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Packing containing the storage engines used to detect duplicate events.
+ */
+package org.example.dedup;
@@ -0,0 +1,32 @@
+package org.example.handlers;
+
+/**
+ * The outcome of admitting a new connection, as returned by {@link TcpConnectionHandler#handle}.
+ */
+public enum AdmissionResult {
+
+    /**
+     * The connection was admitted, and holds a slot until removed.
+     */
+    ADMITTED,
+
+    /**
+     * The connection was rejected, as the server holds "max.allowed.tcp.connections" already.
+     */
+    MAX_CONNECTIONS_REACHED,
+
+    /**
+     * The connection was rejected, as its remote host holds "max.allowed.tcp.connections.per.host" already.
+     */
+    MAX_HOST_CONNECTIONS_REACHED,
+
+    /**
+     * The connection was rejected, as another one with the same id is open already.
+     */
+    DUPLICATE_CONNECTION,
+
+    /**
+     * The connection was rejected, as the server is overloaded. Refer {@link org.example.admission.AdmissionController}.
+     */
+    OVERLOADED
+}
@@ -0,0 +1,270 @@
+package org.example.handlers;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Preconditions;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pauses all the connections while the shared write stream is full, and resumes them fairly once it drains.
+ *
+ * The write stream shared by all the connections has a single drain handler, which is called once and then forgotten.
+ * Were every connection to register its own, only the last one would ever be resumed, and the others would stall. The
+ * coordinator hence owns that drain handler, and every connection joins it as a {@link Participant} instead.
+ *
+ * The queue of the write stream is full once it holds "backpressure.write.queue.max.bytes", 20 MB by default, which was
+ * tuned to achieve 2M events in 10 secs. It drains once half of it is written. In between, the connections stay
+ * paused, even though the queue is no longer full. That hysteresis keeps them from flapping between paused and resumed
+ * at every write.
+ *
+ * A paused connection waits in a single FIFO queue. Once the write stream drains, the connections are resumed in the
+ * order they were paused, "backpressure.resume.batch" at a time. The next ones are resumed only after the event loop
+ * of the last one resumed got to run, and only if the queue did not fill up again meanwhile. Otherwise they stay first
+ * in line for the next drain. Hence, under disk pressure, every connection gets its turn and throughput degrades
+ * evenly, rather than a few connections taking it all.
+ */
+@Slf4j
+@Component
+public class BackpressureCoordinator {
+
+    private final int maxWriteQueueSize;
+    private final int resumeBatchSize;
+    private final Queue<Participant> paused = new ConcurrentLinkedQueue<>();
+
+    private volatile WriteStream<Buffer> writeStream;
+    private volatile boolean throttled;
+
+    @Autowired
+    public BackpressureCoordinator(
+            @Value("${backpressure.write.queue.max.bytes:20971520}") final int maxWriteQueueSize,
+            @Value("${backpressure.resume.batch:8}") final int resumeBatchSize) {
+
+        Preconditions.checkArgument(maxWriteQueueSize > 0, "Max write queue size must be positive");
+        Preconditions.checkArgument(resumeBatchSize > 0, "Resume batch size must be positive");
+
+        this.maxWriteQueueSize = maxWriteQueueSize;
+        this.resumeBatchSize = resumeBatchSize;
+    }
+
+    /**
+     * Coordinates the writes to the given stream. Must be called before any connection joins.
+     *
+     * @param writeStream The stream shared by all the connections.
+     */
+    public void attach(final WriteStream<Buffer> writeStream) {
+        Preconditions.checkArgument(Objects.nonNull(writeStream), "Write stream cannot be null");
+
+        writeStream.setWriteQueueMaxSize(this.maxWriteQueueSize);
+        this.writeStream = writeStream;
+    }
+
+    /**
+     * Joins a connection. Must be called on the event loop serving the connection.
+     *
+     * @param pauser Pauses reading from the connection.
+     * @param resumer Resumes reading from the connection.
+     * @return Participant
+     */
+    public Participant join(final Runnable pauser, final Runnable resumer) {
+        Preconditions.checkArgument(Objects.nonNull(pauser), "Pauser cannot be null");
+        Preconditions.checkArgument(Objects.nonNull(resumer), "Resumer cannot be null");
+        Preconditions.checkState(Objects.nonNull(this.writeStream), "No write stream attached");
+
+        return new Participant(Vertx.currentContext(), pauser, resumer);
+    }
+
+    /**
+     * Returns count of connections waiting to be resumed.
+     *
+     * @return int
+     */
+    public int getPausedCount() {
+        return this.paused.size();
+    }
+
+    /**
+     * Tells whether the connections are to stay paused, between the moment the queue is full and the moment it drains.
+     *
+     * @return boolean
+     */
+    boolean isThrottled() {
+        if (this.throttled) {
+            return true;
+        }
+        if (!this.writeStream.writeQueueFull()) {
+            return false;
+        }
+        this.throttled = true;
+        log.info("Write queue is full, pausing the connections until it drains");
+        this.writeStream.drainHandler(event -> this.onDrained());
+        return true;
+    }
+
+    private void onDrained() {
+        this.throttled = false;
+        log.info("Write queue drained, resuming {} connections", this.paused.size());
+        this.resumeNext();
+    }
+
+    private void resumeNext() {
+        Participant last = null;
+        for (int i = 0; i < this.resumeBatchSize; i++) {
+            if (this.isThrottled()) {
+                return;
+            }
+            final Participant participant = this.paused.poll();
+            if (participant == null) {
+                return;
+            }
+            participant.resume();
+            last = participant;
+        }
+        if (this.paused.isEmpty()) {
+            return;
+        }
+        if (last.context != null) {
+            // Let the connections just resumed write first, so that a full queue is seen before resuming the next ones
+            last.context.runOnContext(event -> this.resumeNext());
+        } else {
+            this.resumeNext();
+        }
+    }
+
+    /**
+     * The view of a single connection on the shared write stream.
+     *
+     * The connection writes through it, and is paused through it. It reports the write queue as full as long as the
+     * connections are to stay paused, and its drain handler is called once the connection gets its turn to resume.
+     * Ending it does not end the shared write stream.
+     */
+    public final class Participant implements WriteStream<Buffer> {
+
+        private final Context context;
+        private final Runnable pauser;
+        private final Runnable resumer;
+        private final AtomicBoolean queued = new AtomicBoolean();
+
+        private volatile Handler<Void> drainHandler;
+        private volatile boolean left;
+
+        // Touched by the event loop of the connection only
+        private boolean readingPaused;
+
+        private Participant(final Context context, final Runnable pauser, final Runnable resumer) {
+            this.context = context;
+            this.pauser = pauser;
+            this.resumer = resumer;
+        }
+
+        /**
+         * Pauses reading from the connection, if the connections are to stay paused. Called for every chunk read.
+         */
+        public void pauseIfThrottled() {
+            if (!this.readingPaused && isThrottled()) {
+                this.readingPaused = true;
+                this.pauser.run();
+                this.enqueue();
+            }
+        }
+
+        /**
+         * Leaves the coordinator, once the connection is closed. The connection is then never resumed.
+         */
+        public void leave() {
+            this.left = true;
+        }
+
+        @Override
+        public Participant exceptionHandler(final Handler<Throwable> handler) {
+            // Failures are reported to the exception handler of the shared write stream
+            return this;
+        }
+
+        @Override
+        public Future<Void> write(final Buffer data) {
+            return writeStream.write(data);
+        }
+
+        @Override
+        public void write(final Buffer data, final Handler<AsyncResult<Void>> handler) {
+            writeStream.write(data, handler);
+        }
+
+        @Override
+        public void end(final Handler<AsyncResult<Void>> handler) {
+            if (handler != null) {
+                handler.handle(Future.succeededFuture());
+            }
+        }
+
+        @Override
+        public Participant setWriteQueueMaxSize(final int maxSize) {
+            // The size of the queue is shared, hence set by the coordinator only
+            return this;
+        }
+
+        @Override
+        public boolean writeQueueFull() {
+            return isThrottled();
+        }
+
+        @Override
+        public Participant drainHandler(final Handler<Void> handler) {
+            this.drainHandler = handler;
+            if (handler != null) {
+                this.enqueue();
+            }
+            return this;
+        }
+
+        private void enqueue() {
+            if (this.queued.compareAndSet(false, true)) {
+                paused.offer(this);
+                // The queue could have drained right before this connection got in line, with nobody left to resume it
+                if (!throttled) {
+                    resumeNext();
+                }
+            }
+        }
+
+        private void resume() {
+            this.queued.set(false);
+            if (this.context != null) {
+                this.context.runOnContext(event -> this.resumeReading());
+            } else {
+                this.resumeReading();
+            }
+        }
+
+        private void resumeReading() {
+            if (this.left) {
+                return;
+            }
+            if (this.readingPaused) {
+                this.readingPaused = false;
+                this.resumer.run();
+            }
+            final Handler<Void> handler = this.drainHandler;
+            this.drainHandler = null;
+            if (handler != null) {
+                handler.handle(null);
+            }
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package org.example.handlers;
 
 import java.util.Objects;
-import java.util.regex.Pattern;
 
 import org.springframework.stereotype.Component;
 
@@ -15,12 +14,15 @@ import lombok.extern.slf4j.Slf4j;
  * It checks for the sanity of the incoming event.
  * Basically if the event is anything other than a 9 digit decimal, it simply rejects them.
  * If the message event is good, it proceeds further.
+ *
+ * The check walks the bytes of the event in place instead of matching a regular expression against its
+ * {@link String} form. The same rule is applied on the streaming path by {@link NineDigitFrameDecoder}.
  */
 @Component
 @Slf4j
 public class BasicMessageSanityHandler {
 
-    private static final Pattern NINE_DIGITS_REGEX = Pattern.compile("^\\d{9}$");
+    static final int NUM_OF_DIGITS = 9;
 
     /**
      * If the incoming message is not a 9 digit decimal, it will close the connection without writing any message to
@@ -32,10 +34,25 @@ public class BasicMessageSanityHandler {
     public Buffer handle(final Buffer event) {
         Preconditions.checkArgument(Objects.nonNull(event), "Buffer event cannot be null");
 
-        log.trace("Validating basic sanity of the incoming message {}", event.toString());
-        if (!NINE_DIGITS_REGEX.matcher(event.toString()).matches()) {
+        log.trace("Validating basic sanity of the incoming message {}", event);
+        if (event.length() != NUM_OF_DIGITS) {
             throw new InvalidMessageException("Only 9 digit numbers are allowed");
         }
+        for (int i = 0; i < NUM_OF_DIGITS; i++) {
+            if (!isDigit(event.getByte(i))) {
+                throw new InvalidMessageException("Only 9 digit numbers are allowed");
+            }
+        }
         return event;
     }
+
+    /**
+     * Returns {@code true} if the given byte is an ASCII decimal digit.
+     *
+     * @param value The byte to be checked.
+     * @return boolean
+     */
+    static boolean isDigit(final byte value) {
+        return value >= '0' && value <= '9';
+    }
 }
@@ -2,29 +2,44 @@ package org.example.handlers;
 
 import java.util.Objects;
 
+import org.example.jfr.ConnectionClosedEvent;
+import org.example.metrics.ConnectionStatsRegistry;
+import org.example.metrics.MetricsCollector;
 import org.example.model.ConnectionInfo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.google.common.base.Preconditions;
 
+import io.vertx.reactivex.core.net.NetSocket;
+
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * A handler to listen to any connection closer requests.
  * This handler is invoked, if the client closes the connection, network disruption close TCP connection or the
  * server itself closes the connection.
- * It invokes {@link TcpConnectionManager} to remove the connection metadata that caused the closure.
+ * It invokes {@link TcpConnectionManager} to remove the connection metadata that caused the closure, and drops its
+ * stats from the {@link ConnectionStatsRegistry}.
+ * It also closes the connections reaped by the server, as idle or too slow.
+ * A {@link ConnectionClosedEvent} is emitted once per connection, whether it is reaped, closed, or both.
  */
 @Component
 @Slf4j
 public class CloseConnectionHandler {
 
     private TcpConnectionManager tcpConnectionManager;
+    private MetricsCollector metricsCollector;
+    private ConnectionStatsRegistry connectionStatsRegistry;
 
     @Autowired
-    public CloseConnectionHandler(final TcpConnectionManager tcpConnectionManager) {
+    public CloseConnectionHandler(
+            final TcpConnectionManager tcpConnectionManager,
+            final MetricsCollector metricsCollector,
+            final ConnectionStatsRegistry connectionStatsRegistry) {
         this.tcpConnectionManager = tcpConnectionManager;
+        this.metricsCollector = metricsCollector;
+        this.connectionStatsRegistry = connectionStatsRegistry;
     }
 
     /**
@@ -36,6 +51,30 @@ public class CloseConnectionHandler {
         Preconditions.checkArgument(Objects.nonNull(connectionInfo), "Connection info cannot be null");
 
         log.trace("Connection is being closed for {}", connectionInfo.getConnectionId());
-        this.tcpConnectionManager.remove(connectionInfo);
+        if (this.tcpConnectionManager.remove(connectionInfo)) {
+            ConnectionClosedEvent.emit(connectionInfo.getConnectionId(), "closed");
+        }
+        this.connectionStatsRegistry.remove(connectionInfo);
+    }
+
+    /**
+     * Closes a connection reaped by the server. Its slot is released at once, rather than once the close completes, so
+     * that a new connection can take it. It is counted in {@link MetricsCollector#getReapedConnectionCount()}.
+     *
+     * @param netSocket The connection.
+     * @param connectionInfo An instance of {@link ConnectionInfo} representing the connection metadata
+     * @param reason Why the connection is reaped.
+     */
+    public void reap(final NetSocket netSocket, final ConnectionInfo connectionInfo, final String reason) {
+        Preconditions.checkArgument(Objects.nonNull(netSocket), "Net socket cannot be null");
+        Preconditions.checkArgument(Objects.nonNull(connectionInfo), "Connection info cannot be null");
+
+        log.info("Reaping connection {}, as it is {}", connectionInfo.getConnectionId(), reason);
+        this.metricsCollector.recordReaped();
+        if (this.tcpConnectionManager.remove(connectionInfo)) {
+            ConnectionClosedEvent.emit(connectionInfo.getConnectionId(), reason);
+        }
+        this.connectionStatsRegistry.remove(connectionInfo);
+        netSocket.close();
     }
 }
@@ -0,0 +1,33 @@
+package org.example.handlers;
+
+/**
+ * Receives the numbers decoded by {@link NineDigitFrameDecoder}.
+ * The decoder is driven by a single event loop, hence so is an implementation handed to a single decoder.
+ */
+public interface DecodedNumberHandler {
+
+    /**
+     * Handles a decoded number.
+     *
+     * @param number The 9 digit number representing the incoming message.
+     * @return {@code true} if the number should be written out along with the chunk it was decoded from.
+     */
+    boolean handle(int number);
+
+    /**
+     * Tells whether the handler writes the numbers it keeps on its own, in which case it never asks for any to be
+     * written along with the chunk, and no output buffer is needed for it.
+     *
+     * @return boolean
+     */
+    default boolean writesOnItsOwn() {
+        return false;
+    }
+
+    /**
+     * Invoked once all the numbers of a chunk have been handled.
+     */
+    default void endOfChunk() {
+        // Nothing to do by default.
+    }
+}
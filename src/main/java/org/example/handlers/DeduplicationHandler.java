@@ -1,23 +1,17 @@
 package org.example.handlers;
 
-import java.time.Duration;
 import java.util.Objects;
 
-import org.example.metrics.EventType;
+import org.example.dedup.BitmapDeduplicationStore;
+import org.example.dedup.DeduplicationStore;
+import org.example.dedup.GenerationalDeduplicationStore;
+import org.example.dedup.TtlDeduplicationStore;
+import org.example.metrics.ConnectionStats;
 import org.example.metrics.MetricsCollector;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.util.ObjectUtils;
 
 import com.google.common.base.Preconditions;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.cache.RemovalNotification;
-
-import io.vertx.reactivex.core.buffer.Buffer;
-import io.vertx.reactivex.core.eventbus.EventBus;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -36,7 +30,8 @@ import lombok.extern.slf4j.Slf4j;
  * validate against previous hashes saved. But here we have to process, event by event and the event itself is a
  * simple 9 digit number. We could use the hash of its {@link String} representation, or run a hashing algorithm to
  * find the hash. As you know, the default {@link String#hashCode()} could give same value for two different strings.
- * For simplicity, we will use the String value itself as a "unique Id" of the event.
+ * Since any 9 digit number fits in an {@code int}, the number parsed by {@link NineDigitFrameDecoder} is itself used as
+ * the "unique Id" of the event. There is no need to turn the event into a {@link String} at all.
  *
  * Now in reality, when events are being streamed, it is not feasible to hold all the unique IDs in some distributed
  * storage. Even if we have high performant IO, in-memory, distributed storage, that will keep growing and it will be a
@@ -50,73 +45,94 @@ import lombok.extern.slf4j.Slf4j;
  * Hence typical event handling systems, introduce time-to-live for each ID and remove it from memory when the
  * time-to-live expires.
  *
- * With that in mind, for simplicity, we are using a in memory, non-distributed, cache provided by {@link CacheLoader}.
- * Each entry has a time to live specified by {@link #deDupExpiryTimeIntervalInSecs}. It is by default 5 mins.
- * This number is based on how other messaging systems handle deduplication (eg: AWS SQS). Override this number as
- * appropriate to the business case. After the time to live, the event id will be discarded from the cache.
+ * With that in mind, the unique IDs are kept by a {@link DeduplicationStore}. By default its a {@link TtlDeduplicationStore},
+ * where each ID lives for 5 mins. {@link GenerationalDeduplicationStore} offers the same time to live at a lower cost
+ * for millions of IDs. Since the IDs are limited to 10^9 values, one could instead choose to remember all of them
+ * forever, using {@link BitmapDeduplicationStore}. Refer to their documentation for more details.
+ *
+ * If the same event arrives while its still remembered by the store, it is marked as duplicate and is not sent for
+ * further processing. The check and the insert happen as one atomic operation, so two connections sending the same
+ * number at the same time cannot both see it as unique.
  *
- * If during the time interval, if the same event arrives, it is marked as duplicate and is not sent for further
- * processing.
+ * All the event loops share this handler and hence the store. To give each event loop its own share of the IDs instead,
+ * refer {@link PartitionedDeduplicationHandler}.
  *
- * In addition, it publishes two events to {@link MetricsCollector} via {@link EventBus}.
- * One event if its a unique message. And the other, if its a duplicate event. Both these events are pubished
- * asynchronously for further processing.
+ * In addition, it counts the unique and the duplicate events in {@link MetricsCollector}. The handler returned by
+ * {@link #newConnectionHandler(ConnectionStats)} also counts the duplicates of a single connection in its
+ * {@link ConnectionStats}.
  */
 @Slf4j
 @Component
-public class DeduplicationHandler {
+public class DeduplicationHandler implements DecodedNumberHandler {
 
-    private final int deDupExpiryTimeIntervalInSecs;
-    private final EventBus eventBus;
-    private final LoadingCache<String, String> cacheLoader;
+    private final MetricsCollector metricsCollector;
+    private final DeduplicationStore deduplicationStore;
 
     @Autowired
-    public DeduplicationHandler(
-            final EventBus eventBus,
-            @Value("${deduplication.expiry.time.interval.secs:300}") final int deDupExpiryTimeIntervalInSecs) {
-
-        this.eventBus = eventBus;
-        this.deDupExpiryTimeIntervalInSecs = deDupExpiryTimeIntervalInSecs;
-        final CacheLoader<String, String> cache = new CacheLoader<String, String>() {
-            @Override
-            public String load(final String key) {
-                return key;
-            }
-        };
-
-        this.cacheLoader = CacheBuilder.<String, String>newBuilder()
-            .expireAfterWrite(Duration.ofSeconds(this.deDupExpiryTimeIntervalInSecs))
-            .removalListener(this::checkRemovedEntries)
-            .build(cache);
+    public DeduplicationHandler(final MetricsCollector metricsCollector, final DeduplicationStore deduplicationStore) {
+        this.metricsCollector = metricsCollector;
+        this.deduplicationStore = deduplicationStore;
     }
 
-    private void checkRemovedEntries(final RemovalNotification<Object, Object> notification) {
-        log.debug("Event {} was removed post expiry.", notification);
+    /**
+     * Tries to remove the duplicate events that are already processed.
+     *
+     * @param event The 9 digit number representing the incoming message.
+     * @return {@code true} if the event is unique and should be processed further, {@code false} if its a duplicate.
+     */
+    @Override
+    public boolean handle(final int event) {
+        Preconditions.checkArgument(event >= 0, "Message event cannot be negative");
+
+        if (this.deduplicationStore.add(event)) {
+            this.metricsCollector.recordUnique(1);
+            return true;
+        }
+
+        this.metricsCollector.recordDuplicate(1);
+        log.debug("Duplicate event found with hash {}", event);
+        return false;
     }
 
     /**
-     * Tries to remove the duplicate events that are already processed.
+     * Creates a handler for the numbers decoded from a single connection, which counts its duplicates.
      *
-     * @param event An instance of {@link Buffer}.
+     * @param connectionStats The stats of the connection.
+     * @return DecodedNumberHandler
+     */
+    public DecodedNumberHandler newConnectionHandler(final ConnectionStats connectionStats) {
+        Preconditions.checkArgument(Objects.nonNull(connectionStats), "Connection stats cannot be null");
+
+        return new ConnectionHandler(connectionStats);
+    }
+
+    /**
+     * Counts the duplicates of a chunk, and adds them to the stats of the connection once the chunk ends.
      */
-    public Buffer handle(final Buffer event) {
-        Preconditions.checkArgument(Objects.nonNull(event), "Message event cannot be null");
-        Preconditions.checkArgument(event.length() > 0, "Message event cannot be empty");
+    private final class ConnectionHandler implements DecodedNumberHandler {
 
-        final String evenHash = event.toString();
+        private final ConnectionStats connectionStats;
+        private long duplicates;
 
-        if (ObjectUtils.isEmpty(this.cacheLoader.getIfPresent(evenHash))) {
-            this.cacheLoader.put(evenHash, evenHash);
+        private ConnectionHandler(final ConnectionStats connectionStats) {
+            this.connectionStats = connectionStats;
+        }
 
-            // Publish an event stating a unique event was found
-            //this.eventBus.publish(MetricsCollector.name(), JsonUtils.toJson(new EventMetadata(EventType.NEW)));
-            this.eventBus.publish(MetricsCollector.name(), EventType.NEW.name());
-            return event;
+        @Override
+        public boolean handle(final int number) {
+            if (DeduplicationHandler.this.handle(number)) {
+                return true;
+            }
+            this.duplicates++;
+            return false;
         }
 
-        // Publish an event stating a duplicate event was found
-        this.eventBus.publish(MetricsCollector.name(), EventType.DUPLICATE.name());
-        log.debug("Duplicate event found with hash {}", evenHash);
-        return Buffer.buffer();
+        @Override
+        public void endOfChunk() {
+            if (this.duplicates > 0) {
+                this.connectionStats.recordDuplicates(this.duplicates);
+                this.duplicates = 0;
+            }
+        }
     }
 }
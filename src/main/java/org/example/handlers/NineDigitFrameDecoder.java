@@ -0,0 +1,175 @@
+package org.example.handlers;
+
+import java.util.Objects;
+
+import org.example.output.OutputFormat;
+
+import com.google.common.base.Preconditions;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ByteProcessor;
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Splits the raw TCP byte stream into 9 digit number frames.
+ *
+ * Parsing with {@link io.vertx.core.parsetools.RecordParser} copies every line into its own {@link Buffer}, and each
+ * handler in the chain then converts that line into a {@link String} again. This decoder instead walks the bytes of
+ * every incoming chunk in place using {@link ByteBuf#forEachByte(ByteProcessor)}. In that single pass it finds the
+ * '\n' delimiter, validates the frame as defined by {@link BasicMessageSanityHandler} and accumulates its numeric value.
+ * A frame which straddles two chunks needs no copying either, as the partially parsed value is simply carried over.
+ *
+ * Each complete number is handed to a {@link DecodedNumberHandler}, typically the {@link DeduplicationHandler}. The
+ * numbers it keeps are appended as records of the {@link OutputFormat} into a single output buffer per incoming chunk,
+ * hence are written out as they are. A frame
+ * reading "terminate" is handed to {@link TerminateConnRequestHandler}. A handler which writes the numbers on its own,
+ * as told by {@link DecodedNumberHandler#writesOnItsOwn()}, gets no output buffer at all, and an empty one is returned.
+ *
+ * Decoding stops at the first invalid frame. The frames decoded before it are still returned, and the failure is
+ * raised by {@link #checkFrames()}, so that the caller can first write them out and only then close the connection.
+ *
+ * An instance holds the parsing state of a single connection and must not be shared across connections.
+ * Vert.x always serves a socket from the same event loop, hence no synchronization is needed.
+ */
+public class NineDigitFrameDecoder implements ByteProcessor {
+
+    /**
+     * Size in bytes of a number as received, including the delimiter.
+     */
+    public static final int FRAME_SIZE = BasicMessageSanityHandler.NUM_OF_DIGITS + 1;
+
+    private static final byte DELIMITER = '\n';
+    private static final int RADIX = 10;
+    private static final Buffer NOTHING_TO_WRITE = Buffer.buffer(0);
+
+    private final TerminateConnRequestHandler terminateConnRequestHandler;
+    private final DecodedNumberHandler decodedNumberHandler;
+    private final OutputFormat outputFormat;
+    private final boolean writesOnItsOwn;
+
+    private Buffer output;
+    private int number;
+    private int length;
+    private boolean digitsOnly = true;
+    private boolean terminateMsg = true;
+    private boolean invalid;
+    private long decodedFrames;
+    private long acceptedFrames;
+
+    public NineDigitFrameDecoder(
+            final TerminateConnRequestHandler terminateConnRequestHandler,
+            final DecodedNumberHandler decodedNumberHandler,
+            final OutputFormat outputFormat) {
+        this.terminateConnRequestHandler = terminateConnRequestHandler;
+        this.decodedNumberHandler = decodedNumberHandler;
+        this.outputFormat = outputFormat;
+        this.writesOnItsOwn = decodedNumberHandler.writesOnItsOwn();
+    }
+
+    /**
+     * Decodes all the complete frames available in the given chunk.
+     *
+     * @param chunk An instance of {@link Buffer} as read from the socket.
+     * @return The records of the numbers kept by the handler. Could be empty.
+     */
+    public Buffer decode(final Buffer chunk) {
+        Preconditions.checkArgument(Objects.nonNull(chunk), "Chunk cannot be null");
+
+        this.output = this.writesOnItsOwn
+                ? NOTHING_TO_WRITE
+                : Buffer.buffer(chunk.length() + BasicMessageSanityHandler.NUM_OF_DIGITS);
+        if (!this.invalid) {
+            chunk.getByteBuf().forEachByte(this);
+            this.decodedNumberHandler.endOfChunk();
+        }
+        final Buffer decoded = this.output;
+        this.output = null;
+        return decoded;
+    }
+
+    /**
+     * Throws {@link InvalidMessageException}, if an invalid frame was seen by {@link #decode(Buffer)}.
+     */
+    public void checkFrames() {
+        if (this.invalid) {
+            throw new InvalidMessageException("Only 9 digit numbers are allowed");
+        }
+    }
+
+    /**
+     * Tells whether an invalid frame was seen, after which nothing more is decoded.
+     *
+     * @return boolean
+     */
+    public boolean isInvalid() {
+        return this.invalid;
+    }
+
+    /**
+     * Returns count of all the numbers decoded so far, whether kept by the handler or not.
+     *
+     * @return long
+     */
+    public long getDecodedFrames() {
+        return this.decodedFrames;
+    }
+
+    /**
+     * Returns count of all the numbers kept by the handler so far.
+     *
+     * @return long
+     */
+    public long getAcceptedFrames() {
+        return this.acceptedFrames;
+    }
+
+    /**
+     * Invoked by {@link ByteBuf#forEachByte(ByteProcessor)} for every byte of the chunk.
+     *
+     * @param value The byte to be processed.
+     * @return {@code false} to stop scanning as soon as an invalid frame is detected.
+     */
+    @Override
+    public boolean process(final byte value) {
+        if (value == DELIMITER) {
+            return this.completeFrame();
+        }
+        if (this.length == BasicMessageSanityHandler.NUM_OF_DIGITS) {
+            // Neither a number nor the terminate message can be longer than that.
+            return this.markInvalid();
+        }
+        if (this.digitsOnly && BasicMessageSanityHandler.isDigit(value)) {
+            this.number = this.number * RADIX + (value - '0');
+        } else {
+            this.digitsOnly = false;
+        }
+        this.terminateMsg = this.terminateMsg && TerminateConnRequestHandler.isTerminateByte(this.length, value);
+        this.length++;
+
+        return this.digitsOnly || this.terminateMsg || this.markInvalid();
+    }
+
+    private boolean completeFrame() {
+        if (this.digitsOnly && this.length == BasicMessageSanityHandler.NUM_OF_DIGITS) {
+            this.decodedFrames++;
+            if (this.decodedNumberHandler.handle(this.number)) {
+                this.outputFormat.appendRecord(this.output, this.number);
+                this.acceptedFrames++;
+            }
+        } else if (this.terminateMsg && this.length == TerminateConnRequestHandler.terminateMsgLength()) {
+            this.terminateConnRequestHandler.initiateTermination();
+        } else {
+            return this.markInvalid();
+        }
+        this.number = 0;
+        this.length = 0;
+        this.digitsOnly = true;
+        this.terminateMsg = true;
+        return true;
+    }
+
+    private boolean markInvalid() {
+        this.invalid = true;
+        return false;
+    }
+}
@@ -0,0 +1,371 @@
+package org.example.handlers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.PostConstruct;
+
+import org.example.dedup.GenerationRing;
+import org.example.memory.MemoryBudget;
+import org.example.metrics.ConnectionStats;
+import org.example.metrics.MetricsCollector;
+import org.example.output.OutputFormat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Preconditions;
+
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.EventExecutor;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.impl.VertxInternal;
+import io.vertx.core.streams.WriteStream;
+import io.vertx.reactivex.core.Context;
+import io.vertx.reactivex.core.Vertx;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tries to remove the duplicate events, like {@link DeduplicationHandler}, but without sharing any state across the
+ * event loops.
+ *
+ * With {@link DeduplicationHandler}, every event loop checks and updates the same store, and they keep contending for
+ * it. Here instead the IDs are split into partitions, by default one per event loop. Each partition is owned by a
+ * single Vert.x {@link Context}, which alone touches its {@link GenerationRing}. Hence no locks nor atomic operations
+ * are needed, and the ring stays in the caches of that event loop's core. The contexts of the partitions are bound to
+ * the event loops in turns, hence the partitions are spread across them, and so is the work of deduplicating.
+ *
+ * The connection's event loop hands its numbers to the owning partitions. The numbers decoded from a chunk are first
+ * grouped by partition, and each group is then handed over as a single task via {@link Context#runOnContext}. The task
+ * queue of a Vert.x event loop is lock free, so no lock is taken on this path either. The partition writes the unique
+ * numbers on its own, as records of the {@link OutputFormat}, through the view of the connection on the shared write
+ * stream, hence they are never written along with the chunk. A failed write is logged, the shared write stream reporting it to its exception handler too.
+ *
+ * As the writes do not go through the {@link io.vertx.core.streams.Pump} of the connection, the connection is paused by
+ * the {@link BackpressureCoordinator} when it reads its next chunk, while the numbers already handed over are still
+ * written. To bound them, a connection holds its reads paused with {@link ReadPauses} once more than
+ * "deduplication.partitions.max.pending.numbers" of its numbers are waiting for their partitions, and resumes once half
+ * of them were deduplicated.
+ *
+ * The arrays holding the numbers of a group are handed back by the partition once deduplicated, and reused for the
+ * next chunk, hence a connection does not allocate them for every chunk.
+ *
+ * The numbers handed over wait in the task queue of their partition, and are charged against the {@link MemoryBudget}
+ * until they are deduplicated. The partition counts the duplicates of a connection in its {@link ConnectionStats}.
+ * The numbers are stamped when handed over, right after their chunk is read, and the time until the output file
+ * acknowledges them is recorded by {@link MetricsCollector#recordEndToEnd(long)}.
+ *
+ * The time to live of the IDs is specified by "deduplication.expiry.time.interval.secs", like other stores. As the IDs
+ * expire, the "deduplication.strategy" must be "ttl" or "generational", the server failing to start otherwise.
+ * Chosen when "deduplication.mode" is "partitioned".
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "deduplication.mode", havingValue = "partitioned")
+public class PartitionedDeduplicationHandler {
+
+    private static final int INITIAL_BATCH_SIZE = 64;
+    private static final Set<String> EXPIRING_STRATEGIES = Set.of("ttl", "generational");
+
+    private final Vertx vertx;
+    private final MetricsCollector metricsCollector;
+    private final MemoryBudget memoryBudget;
+    private final OutputFormat outputFormat;
+    private final long generationIntervalMillis;
+    private final int generations;
+    private final int maxPendingNumbers;
+    private final Partition[] partitions;
+
+    @Autowired
+    public PartitionedDeduplicationHandler(
+            final Vertx vertx,
+            final MetricsCollector metricsCollector,
+            final MemoryBudget memoryBudget,
+            final OutputFormat outputFormat,
+            @Value("${deduplication.partitions:${vertx.event-loop-pool-size:16}}") final int partitionCount,
+            @Value("${deduplication.expiry.time.interval.secs:300}") final int deDupExpiryTimeIntervalInSecs,
+            @Value("${deduplication.generations:10}") final int generations,
+            @Value("${deduplication.partitions.max.pending.numbers:16384}") final int maxPendingNumbers,
+            @Value("${deduplication.strategy:ttl}") final String strategy) {
+
+        Preconditions.checkArgument(partitionCount > 0, "Partitions must be positive");
+        Preconditions.checkArgument(generations > 0, "Generations must be positive");
+        Preconditions.checkArgument(maxPendingNumbers > 0, "Max pending numbers must be positive");
+        Preconditions.checkArgument(EXPIRING_STRATEGIES.contains(strategy),
+                "Partitioned deduplication expires the IDs, hence does not support the %s strategy", strategy);
+
+        this.vertx = vertx;
+        this.metricsCollector = metricsCollector;
+        this.memoryBudget = memoryBudget;
+        this.outputFormat = outputFormat;
+        this.generationIntervalMillis = Math.max(1, TimeUnit.SECONDS.toMillis(deDupExpiryTimeIntervalInSecs) / generations);
+        this.generations = generations;
+        this.maxPendingNumbers = maxPendingNumbers;
+        this.partitions = new Partition[partitionCount];
+    }
+
+    /**
+     * Creates the partitions. Each one is bound to a new context on the next event loop, in turns, hence the partitions
+     * are spread across the event loops. {@link Vertx#getOrCreateContext()} would not do, as it returns the same context
+     * every time it is called outside of Vert.x.
+     */
+    @PostConstruct
+    public void createPartitions() {
+        final long epoch = this.currentEpoch();
+        final VertxInternal vertxInternal = (VertxInternal)this.vertx.getDelegate();
+        final List<EventLoop> eventLoops = new ArrayList<>();
+        for (final EventExecutor eventLoop : vertxInternal.getEventLoopGroup()) {
+            eventLoops.add((EventLoop)eventLoop);
+        }
+        for (int i = 0; i < this.partitions.length; i++) {
+            final Context context = Context.newInstance(vertxInternal.createEventLoopContext(
+                    eventLoops.get(i % eventLoops.size()), null, Thread.currentThread().getContextClassLoader()));
+            // One more than needed, to hold the current generation which is still being filled
+            this.partitions[i] = new Partition(context, new GenerationRing(this.generations + 1, epoch));
+        }
+        log.info("Deduplication is split across {} partitions", this.partitions.length);
+    }
+
+    /**
+     * Creates a handler for the numbers decoded from a single connection. Must be called on the event loop serving the
+     * connection.
+     *
+     * @param writeStream The view of the connection on the stream where the unique numbers are written.
+     * @param connectionStats The stats of the connection.
+     * @param readPauses The pauses of the connection, held while too many of its numbers are pending.
+     * @return DecodedNumberHandler
+     */
+    public DecodedNumberHandler newConnectionHandler(
+            final WriteStream<Buffer> writeStream,
+            final ConnectionStats connectionStats,
+            final ReadPauses readPauses) {
+
+        Preconditions.checkArgument(Objects.nonNull(writeStream), "Write stream cannot be null");
+        Preconditions.checkArgument(Objects.nonNull(connectionStats), "Connection stats cannot be null");
+        Preconditions.checkArgument(Objects.nonNull(readPauses), "Read pauses cannot be null");
+
+        return new ConnectionHandler(writeStream, connectionStats, readPauses);
+    }
+
+    /**
+     * Creates a handler for numbers recovered from the output file. The numbers are only remembered by their partitions,
+     * they are neither written nor counted. As the recovery completes before any connection is accepted, the partitions
+     * remember them before handling any number sent by the clients.
+     *
+     * @return DecodedNumberHandler
+     */
+    public DecodedNumberHandler newRecoveryHandler() {
+        return new ConnectionHandler(null, null, null);
+    }
+
+    /**
+     * Returns count of IDs remembered by all the partitions. As it is read outside of the partitions, it may be slightly
+     * behind.
+     *
+     * @return long
+     */
+    public long size() {
+        long size = 0;
+        for (final Partition partition : this.partitions) {
+            size += partition.ring.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the memory held by all the partitions to remember the IDs, in bytes.
+     *
+     * @return long
+     */
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (final Partition partition : this.partitions) {
+            bytes += partition.ring.getMemoryBytes();
+        }
+        return bytes;
+    }
+
+    private long currentEpoch() {
+        return System.currentTimeMillis() / this.generationIntervalMillis;
+    }
+
+    private void seed(final Partition partition, final int[] events, final int count) {
+        final long epoch = this.currentEpoch();
+        for (int i = 0; i < count; i++) {
+            partition.ring.add(events[i], epoch);
+        }
+        this.memoryBudget.release(count * Integer.BYTES);
+    }
+
+    private void deduplicate(
+            final Partition partition,
+            final int[] events,
+            final int count,
+            final WriteStream<Buffer> writeStream,
+            final ConnectionStats connectionStats,
+            final long readNanos) {
+
+        final Buffer buffer = Buffer.buffer(count * this.outputFormat.getRecordSize());
+        final long epoch = this.currentEpoch();
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (partition.ring.add(events[i], epoch)) {
+                this.outputFormat.appendRecord(buffer, events[i]);
+                unique++;
+            } else {
+                log.debug("Duplicate event found with hash {}", events[i]);
+            }
+        }
+        this.metricsCollector.recordUnique(unique);
+        this.metricsCollector.recordDuplicate(count - unique);
+        if (unique < count) {
+            connectionStats.recordDuplicates(count - unique);
+        }
+        // Released before writing, as the write stream charges what it writes on its own
+        this.memoryBudget.release(count * Integer.BYTES);
+        if (buffer.length() > 0) {
+            final int written = unique;
+            writeStream.write(buffer).onComplete(result -> {
+                if (result.succeeded()) {
+                    this.metricsCollector.recordEndToEnd(
+                            Math.max(0, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - readNanos)));
+                } else {
+                    log.error("Unable to write {} unique numbers into file", written, result.cause());
+                }
+            });
+        }
+    }
+
+    /**
+     * A share of the IDs, touched only by its own context.
+     */
+    private static final class Partition {
+
+        private final Context context;
+        private final GenerationRing ring;
+
+        private Partition(final Context context, final GenerationRing ring) {
+            this.context = context;
+            this.ring = ring;
+        }
+    }
+
+    /**
+     * Groups the numbers of a chunk by partition and hands each group over once the chunk ends.
+     * Without a write stream, the numbers are only remembered, as done while recovering.
+     *
+     * A partition hands the array of a group back into its spare slot once done with it. The slot is read on the event
+     * loop of the connection and written on the one of the partition, hence is atomic. A chunk finding the slot empty, as
+     * the previous group of that partition is still queued, allocates a new array.
+     *
+     * The numbers handed over are counted until deduplicated, by the partitions as well, hence atomically. The reads are
+     * held paused and released on the event loop of the connection only, as required by {@link ReadPauses}. A partition
+     * bringing the count down to half the limit asks that event loop to release them, which it does if still in order.
+     */
+    private final class ConnectionHandler implements DecodedNumberHandler {
+
+        private final WriteStream<Buffer> writeStream;
+        private final ConnectionStats connectionStats;
+        private final ReadPauses readPauses;
+        private final io.vertx.core.Context context;
+        private final int[][] batches;
+        private final int[] counts;
+        private final AtomicReferenceArray<int[]> spares;
+        private final AtomicInteger pendingNumbers = new AtomicInteger();
+
+        // Touched by the event loop of the connection only
+        private boolean held;
+
+        private ConnectionHandler(
+                final WriteStream<Buffer> writeStream,
+                final ConnectionStats connectionStats,
+                final ReadPauses readPauses) {
+
+            this.writeStream = writeStream;
+            this.connectionStats = connectionStats;
+            this.readPauses = readPauses;
+            this.context = io.vertx.core.Vertx.currentContext();
+            this.batches = new int[partitions.length][INITIAL_BATCH_SIZE];
+            this.counts = new int[partitions.length];
+            this.spares = new AtomicReferenceArray<>(partitions.length);
+        }
+
+        @Override
+        public boolean writesOnItsOwn() {
+            return this.writeStream != null;
+        }
+
+        @Override
+        public boolean handle(final int number) {
+            final int partition = number % this.batches.length;
+            if (this.counts[partition] == this.batches[partition].length) {
+                this.batches[partition] = Arrays.copyOf(this.batches[partition], this.counts[partition] * 2);
+            }
+            this.batches[partition][this.counts[partition]++] = number;
+            return false;
+        }
+
+        @Override
+        public void endOfChunk() {
+            final long readNanos = System.nanoTime();
+            for (int i = 0; i < this.batches.length; i++) {
+                final int count = this.counts[i];
+                if (count > 0) {
+                    final int index = i;
+                    final int[] events = this.batches[i];
+                    final Partition partition = partitions[i];
+                    memoryBudget.charge(count * Integer.BYTES);
+                    if (this.writeStream == null) {
+                        partition.context.runOnContext(v -> {
+                            seed(partition, events, count);
+                            this.spares.lazySet(index, events);
+                        });
+                    } else {
+                        this.pendingNumbers.addAndGet(count);
+                        partition.context.runOnContext(v -> {
+                            deduplicate(partition, events, count, this.writeStream, this.connectionStats, readNanos);
+                            this.spares.lazySet(index, events);
+                            this.deduplicated(count);
+                        });
+                    }
+
+                    // The batch now belongs to the partition, start afresh with the one it handed back if any
+                    final int[] spare = this.spares.getAndSet(i, null);
+                    this.batches[i] = spare != null ? spare : new int[events.length];
+                    this.counts[i] = 0;
+                }
+            }
+            if (this.readPauses != null && !this.held && this.pendingNumbers.get() > maxPendingNumbers) {
+                this.held = true;
+                this.readPauses.hold();
+            }
+        }
+
+        private void deduplicated(final int count) {
+            final int pending = this.pendingNumbers.addAndGet(-count);
+            final int resumeAt = maxPendingNumbers / 2;
+            if (pending <= resumeAt && pending + count > resumeAt) {
+                if (this.context != null) {
+                    this.context.runOnContext(v -> this.releaseIfHeld());
+                } else {
+                    this.releaseIfHeld();
+                }
+            }
+        }
+
+        private void releaseIfHeld() {
+            if (this.held && this.pendingNumbers.get() <= maxPendingNumbers / 2) {
+                this.held = false;
+                this.readPauses.release();
+            }
+        }
+    }
+}
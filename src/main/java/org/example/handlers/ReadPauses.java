@@ -0,0 +1,64 @@
+package org.example.handlers;
+
+import java.util.Objects;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Pauses reading from a connection for as long as any of its holders wants it paused.
+ *
+ * A connection may be paused for several reasons at once, such as a full write queue and an exceeded rate limit. Each
+ * reason holds the connection paused, and it is resumed only once all of them released it. Otherwise, the first
+ * reason to go away would resume the connection while the others still apply.
+ *
+ * An instance serves a single connection, and is only used from the event loop serving it.
+ */
+public class ReadPauses {
+
+    private final Runnable pauser;
+    private final Runnable resumer;
+
+    private int holds;
+
+    /**
+     * Creates the pauses of a connection, which is reading.
+     *
+     * @param pauser Pauses reading from the connection.
+     * @param resumer Resumes reading from the connection.
+     */
+    public ReadPauses(final Runnable pauser, final Runnable resumer) {
+        Preconditions.checkArgument(Objects.nonNull(pauser), "Pauser cannot be null");
+        Preconditions.checkArgument(Objects.nonNull(resumer), "Resumer cannot be null");
+
+        this.pauser = pauser;
+        this.resumer = resumer;
+    }
+
+    /**
+     * Holds the connection paused, pausing it if it was reading.
+     */
+    public void hold() {
+        if (this.holds++ == 0) {
+            this.pauser.run();
+        }
+    }
+
+    /**
+     * Releases a hold, resuming the connection if it was the last one.
+     */
+    public void release() {
+        Preconditions.checkState(this.holds > 0, "Connection is not paused");
+        if (--this.holds == 0) {
+            this.resumer.run();
+        }
+    }
+
+    /**
+     * Tells whether the connection is paused.
+     *
+     * @return boolean
+     */
+    public boolean isPaused() {
+        return this.holds > 0;
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.handlers;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.example.metrics.MetricsCollector;
+
+import com.google.common.base.Preconditions;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+/**
+ * The writes of a single connection, each one stamped with the time its chunk was read from the socket. Once the
+ * output file acknowledges a write, the time elapsed since then is recorded by
+ * {@link MetricsCollector#recordEndToEnd(long)}. Everything else is left to the actual stream.
+ *
+ * A chunk may wait between the moment it is read and the moment it is written, while the connection is paused. Hence
+ * the time it was read, remembered by {@link #read(long)}, is queued by {@link #stamp()} once the chunk is decoded, and
+ * taken back by the write of the chunk. Only the chunks left with something to write are to be stamped. The chunks are
+ * written in the order they are read, so a queue is enough to match them. It is a ring of primitive values, grown when
+ * needed, which never allocates once large enough.
+ *
+ * An instance serves a single connection, and is only used from the event loop serving it.
+ */
+final class ReadStampedWriteStream implements WriteStream<Buffer> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final WriteStream<Buffer> writeStream;
+    private final MetricsCollector metricsCollector;
+
+    private long readNanos;
+    private long[] stamps = new long[INITIAL_CAPACITY];
+    private int head;
+    private int size;
+
+    /**
+     * Wraps the given stream.
+     *
+     * @param writeStream The stream of the connection.
+     * @param metricsCollector The collector to record the latencies into.
+     */
+    ReadStampedWriteStream(final WriteStream<Buffer> writeStream, final MetricsCollector metricsCollector) {
+        Preconditions.checkArgument(Objects.nonNull(writeStream), "Write stream cannot be null");
+        Preconditions.checkArgument(Objects.nonNull(metricsCollector), "Metrics collector cannot be null");
+
+        this.writeStream = writeStream;
+        this.metricsCollector = metricsCollector;
+    }
+
+    /**
+     * Remembers the time at which the last chunk was read.
+     *
+     * @param nowNanos Current time, as given by {@link System#nanoTime()}.
+     */
+    void read(final long nowNanos) {
+        this.readNanos = nowNanos;
+    }
+
+    /**
+     * Stamps the next chunk to be written with the time at which the last chunk was read.
+     */
+    void stamp() {
+        if (this.size == this.stamps.length) {
+            final long[] grown = new long[this.stamps.length * 2];
+            for (int i = 0; i < this.size; i++) {
+                grown[i] = this.stamps[(this.head + i) % this.stamps.length];
+            }
+            this.stamps = grown;
+            this.head = 0;
+        }
+        this.stamps[(this.head + this.size) % this.stamps.length] = this.readNanos;
+        this.size++;
+    }
+
+    /**
+     * Returns count of the chunks stamped, but not written yet.
+     *
+     * @return int
+     */
+    int getPendingCount() {
+        return this.size;
+    }
+
+    @Override
+    public ReadStampedWriteStream exceptionHandler(final Handler<Throwable> handler) {
+        this.writeStream.exceptionHandler(handler);
+        return this;
+    }
+
+    @Override
+    public Future<Void> write(final Buffer data) {
+        final long stamp = this.takeStamp();
+        return this.writeStream.write(data).onSuccess(result -> this.recordSince(stamp));
+    }
+
+    @Override
+    public void write(final Buffer data, final Handler<AsyncResult<Void>> handler) {
+        final long stamp = this.takeStamp();
+        this.writeStream.write(data, result -> {
+            if (result.succeeded()) {
+                this.recordSince(stamp);
+            }
+            if (handler != null) {
+                handler.handle(result);
+            }
+        });
+    }
+
+    @Override
+    public void end(final Handler<AsyncResult<Void>> handler) {
+        this.writeStream.end(handler);
+    }
+
+    @Override
+    public ReadStampedWriteStream setWriteQueueMaxSize(final int maxSize) {
+        this.writeStream.setWriteQueueMaxSize(maxSize);
+        return this;
+    }
+
+    @Override
+    public boolean writeQueueFull() {
+        return this.writeStream.writeQueueFull();
+    }
+
+    @Override
+    public ReadStampedWriteStream drainHandler(final Handler<Void> handler) {
+        this.writeStream.drainHandler(handler);
+        return this;
+    }
+
+    private long takeStamp() {
+        if (this.size == 0) {
+            // Not stamped, such as a write which does not come from the socket
+            return System.nanoTime();
+        }
+        final long stamp = this.stamps[this.head];
+        this.head = (this.head + 1) % this.stamps.length;
+        this.size--;
+        return stamp;
+    }
+
+    private void recordSince(final long stamp) {
+        this.metricsCollector.recordEndToEnd(Math.max(0, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - stamp)));
+    }
+}
@@ -1,9 +1,18 @@
 package org.example.handlers;
 
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
+import org.example.admission.AdmissionController;
+import org.example.jfr.ConnectionAcceptedEvent;
+import org.example.metrics.ConnectionStats;
+import org.example.metrics.ConnectionStatsRegistry;
+import org.example.metrics.MetricsCollector;
 import org.example.model.ConnectionInfo;
+import org.example.output.OutputFormat;
+import org.example.ratelimit.RateLimiter;
+import org.example.reaper.ConnectionReaper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -13,39 +22,49 @@ import com.google.common.base.Preconditions;
 import io.reactivex.Flowable;
 import io.vertx.reactivex.core.Vertx;
 import io.vertx.reactivex.core.buffer.Buffer;
-import io.vertx.reactivex.core.file.AsyncFile;
 import io.vertx.reactivex.core.net.NetSocket;
-import io.vertx.reactivex.core.parsetools.RecordParser;
 import io.vertx.reactivex.core.streams.Pump;
+import io.vertx.reactivex.core.streams.WriteStream;
 
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * A handler to tackle incoming server TCP connections.
  * This handler is invoked, whenever is TCP connection is made.
- * It checks if the max TCP connections represented by {@link TcpConnectionManager#isMaxConnReached()} is satisfied.
- * If so, it immediately terminates that connection.
+ * It reserves a slot for the connection with {@link TcpConnectionManager#tryAdd(ConnectionInfo)}. If none is left, it
+ * immediately terminates that connection. It does the same if the {@link AdmissionController} tells the server is
+ * overloaded, and closes a low priority connection as soon as it sends anything while it is. A rejection is returned
+ * as an {@link AdmissionResult} rather than thrown, as it is expected under load. Once admitted, the connection is
+ * watched by the {@link ConnectionReaper}, which closes it if it stays idle or sends too slowly. Its bytes, events,
+ * duplicates, invalid frames and pause time are counted in its {@link ConnectionStats}, registered with the
+ * {@link ConnectionStatsRegistry}. The time from reading each chunk to the output file acknowledging it is recorded by
+ * {@link MetricsCollector#recordEndToEnd(long)}. Every connection emits a {@link ConnectionAcceptedEvent}, whether it is
+ * admitted or not.
  *
  * Since incoming messages could be streamed, we need a proper mechanism which can asynchronously separate each events.
  * That is, lets say the incoming buffer(events or messages) is streaming and delimited by '\n' and the input was the
  * following:
  * <p>
  * <pre>
- * buffer1:HELLO\nHOW ARE Y
- * buffer2:OU?\nI AM
- * buffer3: DOING OK
+ * buffer1:123456789\n98765
+ * buffer2:4321\n55555
+ * buffer3:5555
  * buffer4:\n
  * </pre>
  * For us to process, the output needs to be:<p>
  * <pre>
- * buffer1:HELLO
- * buffer2:HOW ARE YOU?
- * buffer3:I AM DOING OK
+ * buffer1:123456789
+ * buffer2:987654321
+ * buffer3:555555555
  * </pre>
  *
- * This is achieved by using {@link RecordParser}. Refer its documentation for more details.
+ * This is achieved by using {@link NineDigitFrameDecoder}, which also validates, parses and deduplicates each event
+ * while scanning the bytes, and lays out the unique ones as set by the {@link OutputFormat}. Refer its documentation
+ * for more details.
  * It also makes use of Vertx reactive stream, to pump the incoming messages, handle backpressure, reduce data loss.
- * Refer {@link Pump} and {@link Flowable} for more details.
+ * Refer {@link Pump} and {@link Flowable} for more details. The connection joins the {@link BackpressureCoordinator},
+ * which pauses it while the shared write stream is full, and resumes it in turn with the other connections. It is also
+ * paused for as long as it exceeds the limits of the {@link RateLimiter}.
  *
  * In addition, this handler attaches seperate handlers for exception event, connection closure event.
  *
@@ -54,42 +73,53 @@ import lombok.extern.slf4j.Slf4j;
 @Component
 public class TcpConnectionHandler {
 
-    private static final String NEWLINE = "\n";
-
-    // This number is optimized to achieve 2M events in 10 secs
-    private static final int MAX_WRITE_QUEUE_SIZE = 20480 * 1024;
-    private static final int TIME_INTERVAL_PUMP_STATS = 10000;
-    private static final AtomicLong EVENT_COUNT = new AtomicLong();
-
     private final CloseConnectionHandler closeConnectionHandler;
     private final ErrorHandler errorHandler;
     private final TcpConnectionManager tcpConnectionManager;
 
-    private final BasicMessageSanityHandler basicMessageSanityHandler;
     private final DeduplicationHandler deduplicationHandler;
+    private final Optional<PartitionedDeduplicationHandler> partitionedDeduplicationHandler;
     private final TerminateConnRequestHandler terminateConnRequestHandler;
+    private final OutputFormat outputFormat;
+    private final BackpressureCoordinator backpressureCoordinator;
+    private final RateLimiter rateLimiter;
+    private final AdmissionController admissionController;
+    private final ConnectionReaper connectionReaper;
+    private final ConnectionStatsRegistry connectionStatsRegistry;
+    private final MetricsCollector metricsCollector;
     private final Vertx vertx;
 
-    @Value("${enable.additional.stats:false}")
-    private boolean enableAdditionalStats;
-
     @Autowired
     public TcpConnectionHandler(
             final CloseConnectionHandler closeConnectionHandler,
             final ErrorHandler errorHandler,
             final TcpConnectionManager tcpConnectionManager,
-            final BasicMessageSanityHandler basicMessageSanityHandler,
             final DeduplicationHandler deduplicationHandler,
+            final Optional<PartitionedDeduplicationHandler> partitionedDeduplicationHandler,
             final TerminateConnRequestHandler terminateConnRequestHandler,
+            final OutputFormat outputFormat,
+            final BackpressureCoordinator backpressureCoordinator,
+            final RateLimiter rateLimiter,
+            final AdmissionController admissionController,
+            final ConnectionReaper connectionReaper,
+            final ConnectionStatsRegistry connectionStatsRegistry,
+            final MetricsCollector metricsCollector,
             final Vertx vertx,
             @Value("${dest.file.absolute.path:/tmp/numbers.log}") final String destAbsoluteFilePath) {
 
         this.closeConnectionHandler = closeConnectionHandler;
         this.errorHandler = errorHandler;
         this.tcpConnectionManager = tcpConnectionManager;
-        this.basicMessageSanityHandler = basicMessageSanityHandler;
         this.deduplicationHandler = deduplicationHandler;
+        this.partitionedDeduplicationHandler = partitionedDeduplicationHandler;
         this.terminateConnRequestHandler = terminateConnRequestHandler;
+        this.outputFormat = outputFormat;
+        this.backpressureCoordinator = backpressureCoordinator;
+        this.rateLimiter = rateLimiter;
+        this.admissionController = admissionController;
+        this.connectionReaper = connectionReaper;
+        this.connectionStatsRegistry = connectionStatsRegistry;
+        this.metricsCollector = metricsCollector;
         this.vertx = vertx;
     }
 
@@ -97,13 +127,12 @@ public class TcpConnectionHandler {
      * Handles incoming connections.
      *
      * @param connectionEvent connectionEvent
-     * @param asyncFile AsyncFile
+     * @param writeStream The stream where the unique numbers are written.
+     * @return {@link AdmissionResult#ADMITTED} if the connection is handled, else the reason why it was closed.
      */
-    public void handle(final NetSocket connectionEvent, final AsyncFile asyncFile) {
+    public AdmissionResult handle(final NetSocket connectionEvent, final WriteStream<io.vertx.core.buffer.Buffer> writeStream) {
         Preconditions.checkArgument(Objects.nonNull(connectionEvent), "Netsocket event cannot be null");
-        Preconditions.checkArgument(Objects.nonNull(asyncFile), "Async file cannot be null");
-
-        final AtomicLong eventCountForConn = new AtomicLong();
+        Preconditions.checkArgument(Objects.nonNull(writeStream), "Write stream cannot be null");
 
         final ConnectionInfo connectionInfo = ConnectionInfo.builder()
                 .remoteHostName(connectionEvent.remoteAddress().host())
@@ -112,74 +141,117 @@ public class TcpConnectionHandler {
                 .build();
 
         log.trace("A connection has been initiated by :{}", connectionInfo.getConnectionId());
-        if (tcpConnectionManager.isMaxConnReached()) {
-            log.error("Max connection reached. Closing connection {}", connectionInfo.getConnectionId());
+        final AdmissionResult admissionResult = this.tcpConnectionManager.tryAdd(connectionInfo);
+        if (admissionResult != AdmissionResult.ADMITTED) {
+            log.warn("Connection {} rejected: {}", connectionInfo.getConnectionId(), admissionResult);
+            ConnectionAcceptedEvent.emit(connectionInfo.getConnectionId(), admissionResult.name());
             connectionEvent.close();
-            throw new MaxTcpConnectionsReachedException(String.format("Max active connections of reached"));
+            return admissionResult;
         }
-        this.tcpConnectionManager.add(connectionInfo);
+        if (!this.admissionController.admit(connectionInfo)) {
+            this.tcpConnectionManager.remove(connectionInfo);
+            ConnectionAcceptedEvent.emit(connectionInfo.getConnectionId(), AdmissionResult.OVERLOADED.name());
+            connectionEvent.close();
+            return AdmissionResult.OVERLOADED;
+        }
+
+        ConnectionAcceptedEvent.emit(connectionInfo.getConnectionId(), AdmissionResult.ADMITTED.name());
+        final ConnectionStats connectionStats = this.connectionStatsRegistry.register(connectionInfo);
+
+        // The connection is paused while the write queue is full, as well as while it exceeds its rate limits
+        final ReadPauses readPauses = new ReadPauses(
+                () -> {
+                    connectionStats.paused(System.nanoTime());
+                    connectionEvent.pause();
+                },
+                () -> {
+                    connectionStats.resumed(System.nanoTime());
+                    connectionEvent.resume();
+                });
+        final BackpressureCoordinator.Participant participant = this.backpressureCoordinator.join(
+                readPauses::hold, readPauses::release);
+        final RateLimiter.ConnectionLimit connectionLimit = this.rateLimiter.open(connectionInfo);
+        final ConnectionReaper.Watch watch = this.connectionReaper.watch(connectionEvent, connectionInfo, readPauses);
 
         // Attach all the required handlers.
         connectionEvent
-                .closeHandler(closeEvent -> this.closeConnectionHandler.handle(connectionInfo))
+                .closeHandler(closeEvent -> {
+                    participant.leave();
+                    connectionLimit.close();
+                    watch.close();
+                    this.closeConnectionHandler.handle(connectionInfo);
+                })
                 .exceptionHandler(errorEvent -> this.errorHandler.handle(connectionEvent, errorEvent));
 
         /*
          * It parses the incoming buffer and stream lines it in a manner so that one can consume each unqiue message
-         * separately.
+         * separately. The decoder holds the state of a partially received message, hence one per connection.
          */
-        final RecordParser parser = RecordParser.newDelimited("\n", connectionEvent);
+        final DecodedNumberHandler decodedNumberHandler = this.partitionedDeduplicationHandler
+                .map(handler -> handler.newConnectionHandler(participant, connectionStats, readPauses))
+                .orElseGet(() -> this.deduplicationHandler.newConnectionHandler(connectionStats));
+        final NineDigitFrameDecoder decoder = new NineDigitFrameDecoder(
+                this.terminateConnRequestHandler, decodedNumberHandler, this.outputFormat);
+
+        // Each chunk left to write is stamped with the time it was read, until the output file acknowledges it
+        final ReadStampedWriteStream stampedStream = new ReadStampedWriteStream(participant, this.metricsCollector);
 
         // Apply all the required filters, so that only validated messages flow through.
-        final Flowable flowable = parser.toFlowable()
-                .map(this.terminateConnRequestHandler::handle)
-                .map(this.basicMessageSanityHandler::handle)
-                .map(this.deduplicationHandler::handle)
-                .filter(this::isNonEmptyBuffer)
-                .map(buffer -> buffer.getDelegate())
-                .map(buffer -> io.vertx.core.buffer.Buffer.buffer().appendBuffer(buffer).appendString(NEWLINE))
+        final boolean lowPriority = this.admissionController.isLowPriority(connectionInfo);
+        final Flowable flowable = connectionEvent.toFlowable()
+                .doOnNext(chunk -> {
+                    stampedStream.read(System.nanoTime());
+                    watch.onRead(chunk.length());
+                    connectionStats.recordRead(chunk.length());
+                })
+                .filter(chunk -> !lowPriority || this.isNotShed(connectionEvent, connectionInfo))
+                .map(chunk -> this.decode(decoder, chunk, connectionLimit, readPauses, connectionStats))
+                .doAfterNext(buffer -> decoder.checkFrames())
                 .doOnError(throwable -> errorHandler.handle(connectionEvent, throwable))
-                .filter(buffer -> this.isQueueDrained(asyncFile, parser))
-                .map(buffer -> {
-                    EVENT_COUNT.incrementAndGet();
-                    eventCountForConn.incrementAndGet();
-                    return buffer;
-                });
+                .doOnNext(buffer -> participant.pauseIfThrottled())
+                .filter(this::isNonEmptyBuffer)
+                .doOnNext(buffer -> stampedStream.stamp());
 
-        // Start streaming the events from TCP socket to the file.
-        final Pump pump = Pump.pump(flowable, asyncFile);
-        pump.setWriteQueueMaxSize(MAX_WRITE_QUEUE_SIZE);
+        // Start streaming the events from TCP socket to the file, through the view of this connection.
+        final Pump pump = Pump.pump(flowable, WriteStream.newInstance(stampedStream));
         pump.start();
+        return AdmissionResult.ADMITTED;
+    }
 
-        // Lets print some stats in the console to correlate the numbers
-        if (this.enableAdditionalStats) {
-            this.vertx.setPeriodic(TIME_INTERVAL_PUMP_STATS, event -> {
-                log.info("Event count so far before sending to write stream {}", EVENT_COUNT.get());
-            });
+    private io.vertx.core.buffer.Buffer decode(
+            final NineDigitFrameDecoder decoder,
+            final Buffer chunk,
+            final RateLimiter.ConnectionLimit connectionLimit,
+            final ReadPauses readPauses,
+            final ConnectionStats connectionStats) {
 
-            this.vertx.setPeriodic(TIME_INTERVAL_PUMP_STATS, event -> {
-                log.info("Event count so far for connection {} before sending to write stream {}", connectionInfo.getConnectionId(), eventCountForConn.get());
-            });
+        final long decodedFrames = decoder.getDecodedFrames();
+        final boolean invalid = decoder.isInvalid();
+        final io.vertx.core.buffer.Buffer buffer = decoder.decode(chunk.getDelegate());
+        final long frames = decoder.getDecodedFrames() - decodedFrames;
+        connectionStats.recordEvents(frames);
+        if (decoder.isInvalid() && !invalid) {
+            connectionStats.recordInvalid();
+        }
 
-            this.vertx.setPeriodic(TIME_INTERVAL_PUMP_STATS, event -> {
-                log.info("Pumped event count for client connection {} to write stream so far {}", connectionInfo.getConnectionId(), pump.numberPumped());
-            });
+        final long pauseNanos = connectionLimit.acquire(frames, chunk.length(), System.nanoTime());
+        if (pauseNanos > 0) {
+            // Whatever was read is still written, the connection only stops reading until back within its limits
+            readPauses.hold();
+            this.vertx.setTimer(Math.max(1, TimeUnit.NANOSECONDS.toMillis(pauseNanos)), timerId -> readPauses.release());
         }
+        return buffer;
     }
 
-    private boolean isQueueDrained(final AsyncFile asyncFile, final RecordParser parser) {
-        if (asyncFile.writeQueueFull()) {
-            log.info("Seems like write queue is full... pausing");
-            parser.pause();
-            asyncFile.drainHandler(ev -> {
-                log.info("Resuming now....");
-                parser.resume();
-            });
+    private boolean isNotShed(final NetSocket connectionEvent, final ConnectionInfo connectionInfo) {
+        if (this.admissionController.shed(connectionInfo)) {
+            connectionEvent.close();
+            return false;
         }
         return true;
     }
 
-    private boolean isNonEmptyBuffer(final Buffer buffer) {
+    private boolean isNonEmptyBuffer(final io.vertx.core.buffer.Buffer buffer) {
         return buffer.length() > 0;
     }
 }
@@ -2,29 +2,51 @@ package org.example.handlers;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.example.model.ConnectionInfo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.google.common.base.Preconditions;
+
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * A simple helper class to maintain connection metadata information.
  * Its mainly used to track how many connections have been provided by the server.
+ *
+ * A connection is admitted by reserving a slot, with a compare and swap on the count of connections, before it is
+ * added. Hence the event loops accepting connections at once can never overshoot "max.allowed.tcp.connections", as
+ * they would by checking the count and then adding. Each remote host also gets at most
+ * "max.allowed.tcp.connections.per.host" slots, no limit by default. No lock is taken to reserve nor to release a slot.
+ *
+ * The count of a host is dropped once it reaches zero. It is then retired, so that a connection racing to reserve a
+ * slot from it looks up a fresh count instead.
  */
 @Component
 @Slf4j
 public class TcpConnectionManager {
 
+    private static final int RETIRED = -1;
+
     private final Map<String, ConnectionInfo> connectionMap = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> hostConnectionCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
 
     private int maxAllowedTcoConnections;
+    private int maxAllowedTcpConnectionsPerHost;
 
     @Autowired
-    public TcpConnectionManager(@Value("${max.allowed.tcp.connections:5}") final int maxAllowedTcoConnections) {
+    public TcpConnectionManager(
+            @Value("${max.allowed.tcp.connections:5}") final int maxAllowedTcoConnections,
+            @Value("${max.allowed.tcp.connections.per.host:0}") final int maxAllowedTcpConnectionsPerHost) {
+
+        Preconditions.checkArgument(maxAllowedTcpConnectionsPerHost >= 0, "Max connections per host cannot be negative");
+
         this.maxAllowedTcoConnections = maxAllowedTcoConnections;
+        this.maxAllowedTcpConnectionsPerHost = maxAllowedTcpConnectionsPerHost;
     }
 
     /**
@@ -33,24 +55,91 @@ public class TcpConnectionManager {
      * @return boolean
      */
     public boolean isMaxConnReached() {
-        return this.connectionMap.size() >= this.maxAllowedTcoConnections;
+        return this.connectionCount.get() >= this.maxAllowedTcoConnections;
     }
 
     /**
-     * Adds the connection info.
+     * Adds the connection info, if a slot is left for it.
      *
      * @param connectionInfo An instance of {@link ConnectionInfo}.
+     * @return {@link AdmissionResult#ADMITTED} if added, else the reason why it was not.
      */
-    public void add(final ConnectionInfo connectionInfo) {
-        this.connectionMap.put(connectionInfo.getConnectionId(), connectionInfo);
+    public AdmissionResult tryAdd(final ConnectionInfo connectionInfo) {
+        if (!reserve(this.connectionCount, this.maxAllowedTcoConnections)) {
+            return AdmissionResult.MAX_CONNECTIONS_REACHED;
+        }
+        if (this.maxAllowedTcpConnectionsPerHost > 0 && !this.reserveHost(connectionInfo.getRemoteHostName())) {
+            this.connectionCount.decrementAndGet();
+            return AdmissionResult.MAX_HOST_CONNECTIONS_REACHED;
+        }
+        if (this.connectionMap.putIfAbsent(connectionInfo.getConnectionId(), connectionInfo) != null) {
+            this.release(connectionInfo);
+            return AdmissionResult.DUPLICATE_CONNECTION;
+        }
+        return AdmissionResult.ADMITTED;
     }
 
     /**
-     * Removes the connection info.
+     * Removes the connection info, releasing its slot. Does nothing if it was not added.
      *
      * @param connectionInfo An instance of {@link ConnectionInfo}.
+     * @return {@code true} if it was added, and is now removed.
      */
-    public void remove(final ConnectionInfo connectionInfo) {
-        this.connectionMap.remove(connectionInfo.getConnectionId());
+    public boolean remove(final ConnectionInfo connectionInfo) {
+        if (this.connectionMap.remove(connectionInfo.getConnectionId(), connectionInfo)) {
+            this.release(connectionInfo);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns count of connections added.
+     *
+     * @return int
+     */
+    public int getConnectionCount() {
+        return this.connectionCount.get();
+    }
+
+    private boolean reserveHost(final String host) {
+        while (true) {
+            final AtomicInteger count = this.hostConnectionCounts.computeIfAbsent(host, key -> new AtomicInteger());
+            final int current = count.get();
+            if (current == RETIRED) {
+                // Dropped meanwhile, look up the fresh count
+                this.hostConnectionCounts.remove(host, count);
+                continue;
+            }
+            if (current >= this.maxAllowedTcpConnectionsPerHost) {
+                return false;
+            }
+            if (count.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void release(final ConnectionInfo connectionInfo) {
+        this.connectionCount.decrementAndGet();
+        if (this.maxAllowedTcpConnectionsPerHost > 0) {
+            final String host = connectionInfo.getRemoteHostName();
+            final AtomicInteger count = this.hostConnectionCounts.get(host);
+            if (count.decrementAndGet() == 0 && count.compareAndSet(0, RETIRED)) {
+                this.hostConnectionCounts.remove(host, count);
+            }
+        }
+    }
+
+    private static boolean reserve(final AtomicInteger count, final int max) {
+        while (true) {
+            final int current = count.get();
+            if (current >= max) {
+                return false;
+            }
+            if (count.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
     }
 }
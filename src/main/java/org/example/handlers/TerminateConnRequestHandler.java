@@ -1,5 +1,6 @@
 package org.example.handlers;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 import org.example.server.ShutdownManager;
@@ -22,7 +23,7 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class TerminateConnRequestHandler {
 
-    private static final String TERMINATE_MSG = "terminate";
+    private static final byte[] TERMINATE_MSG = "terminate".getBytes(StandardCharsets.US_ASCII);
     private static final int NORMAL_EXIT_CODE = 0;
 
     private final ShutdownManager shutdownManager;
@@ -41,11 +42,51 @@ public class TerminateConnRequestHandler {
         Preconditions.checkArgument(Objects.nonNull(event), "Message event cannot be null");
         Preconditions.checkArgument(event.length() > 0, "Message event cannot be empty");
 
-        if (event.toString().equals(TERMINATE_MSG)) {
-            log.info("Shutdown Initiated");
-            this.shutdownManager.initiateShutdown(NORMAL_EXIT_CODE);
+        if (isTerminateRequest(event)) {
+            this.initiateTermination();
             return Buffer.buffer();
         }
         return event;
     }
+
+    /**
+     * Initiates the server shutdown. Used by {@link NineDigitFrameDecoder}, which recognises the "terminate" message
+     * while scanning the raw bytes.
+     */
+    public void initiateTermination() {
+        log.info("Shutdown Initiated");
+        this.shutdownManager.initiateShutdown(NORMAL_EXIT_CODE);
+    }
+
+    /**
+     * Returns the length of the "terminate" message.
+     *
+     * @return int
+     */
+    static int terminateMsgLength() {
+        return TERMINATE_MSG.length;
+    }
+
+    /**
+     * Returns {@code true} if the byte at the given position matches the "terminate" message.
+     *
+     * @param position Position of the byte within the message.
+     * @param value The byte to be compared.
+     * @return boolean
+     */
+    static boolean isTerminateByte(final int position, final byte value) {
+        return position < TERMINATE_MSG.length && TERMINATE_MSG[position] == value;
+    }
+
+    private static boolean isTerminateRequest(final Buffer event) {
+        if (event.length() != TERMINATE_MSG.length) {
+            return false;
+        }
+        for (int i = 0; i < TERMINATE_MSG.length; i++) {
+            if (!isTerminateByte(i, event.getByte(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -0,0 +1,51 @@
+package org.example.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Spans the write of a batch to the output file. Only writes of 1 ms or more are recorded by default.
+ */
+@Name("org.example.BatchFlush")
+@Label("Batch Flush")
+@Category({"Simple TCP Server", "Output"})
+@Description("A batch of chunks was written to the output file")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class BatchFlushEvent extends Event {
+
+    @Label("Chunks")
+    private int chunks;
+
+    @Label("Bytes")
+    @DataAmount
+    private long bytes;
+
+    /**
+     * Starts timing a write.
+     */
+    public BatchFlushEvent() {
+        this.begin();
+    }
+
+    /**
+     * Ends the write, and emits it if recorded.
+     *
+     * @param chunkCount Count of chunks in the batch.
+     * @param byteCount Count of bytes in the batch.
+     */
+    public void commit(final int chunkCount, final long byteCount) {
+        this.end();
+        if (this.shouldCommit()) {
+            this.chunks = chunkCount;
+            this.bytes = byteCount;
+            this.commit();
+        }
+    }
+}
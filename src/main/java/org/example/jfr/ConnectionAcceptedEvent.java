@@ -0,0 +1,44 @@
+package org.example.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted once a connection is accepted, along with whether it was admitted or why it was closed at once.
+ */
+@Name("org.example.ConnectionAccepted")
+@Label("Connection Accepted")
+@Category({"Simple TCP Server", "Connections"})
+@Description("A connection was accepted, and admitted or closed at once")
+@StackTrace(false)
+public final class ConnectionAcceptedEvent extends Event {
+
+    @Label("Connection ID")
+    private String connectionId;
+
+    @Label("Admission Result")
+    private String result;
+
+    private ConnectionAcceptedEvent() {
+        // Created by emit only.
+    }
+
+    /**
+     * Emits the event, if recorded.
+     *
+     * @param connectionId ID of the connection.
+     * @param result Name of the {@link org.example.handlers.AdmissionResult} of the connection.
+     */
+    public static void emit(final String connectionId, final String result) {
+        final ConnectionAcceptedEvent event = new ConnectionAcceptedEvent();
+        if (event.shouldCommit()) {
+            event.connectionId = connectionId;
+            event.result = result;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted once an admitted connection is closed, by the client, the network or the server.
+ */
+@Name("org.example.ConnectionClosed")
+@Label("Connection Closed")
+@Category({"Simple TCP Server", "Connections"})
+@Description("An admitted connection was closed")
+@StackTrace(false)
+public final class ConnectionClosedEvent extends Event {
+
+    @Label("Connection ID")
+    private String connectionId;
+
+    @Label("Reason")
+    private String reason;
+
+    private ConnectionClosedEvent() {
+        // Created by emit only.
+    }
+
+    /**
+     * Emits the event, if recorded.
+     *
+     * @param connectionId ID of the connection.
+     * @param reason Why the connection was closed.
+     */
+    public static void emit(final String connectionId, final String reason) {
+        final ConnectionClosedEvent event = new ConnectionClosedEvent();
+        if (event.shouldCommit()) {
+            event.connectionId = connectionId;
+            event.reason = reason;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted once per chunk of a connection holding duplicates, rather than once per duplicate.
+ */
+@Name("org.example.DuplicatesFound")
+@Label("Duplicates Found")
+@Category({"Simple TCP Server", "Deduplication"})
+@Description("Numbers of a chunk were found to be duplicates")
+@StackTrace(false)
+public final class DuplicatesFoundEvent extends Event {
+
+    @Label("Connection ID")
+    private String connectionId;
+
+    @Label("Duplicates")
+    private long duplicates;
+
+    private DuplicatesFoundEvent() {
+        // Created by emit only.
+    }
+
+    /**
+     * Emits the event, if recorded.
+     *
+     * @param connectionId ID of the connection.
+     * @param duplicates Count of duplicates in the chunk.
+     */
+    public static void emit(final String connectionId, final long duplicates) {
+        final DuplicatesFoundEvent event = new DuplicatesFoundEvent();
+        if (event.shouldCommit()) {
+            event.connectionId = connectionId;
+            event.duplicates = duplicates;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Spans forcing the output file to the storage device. Only forces of 5 ms or more are recorded by default, which is
+ * beyond what a healthy device takes.
+ */
+@Name("org.example.Force")
+@Label("Force")
+@Category({"Simple TCP Server", "Output"})
+@Description("The output file was forced to the storage device")
+@StackTrace(false)
+@Threshold("5 ms")
+public final class ForceEvent extends Event {
+
+    @Label("Bytes")
+    @DataAmount
+    private long bytes;
+
+    /**
+     * Starts timing a force.
+     */
+    public ForceEvent() {
+        this.begin();
+    }
+
+    /**
+     * Ends the force, and emits it if recorded.
+     *
+     * @param byteCount Count of bytes written since the previous force, if known, else zero.
+     */
+    public void commit(final long byteCount) {
+        this.end();
+        if (this.shouldCommit()) {
+            this.bytes = byteCount;
+            this.commit();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Spans the time reading from a connection was paused, from the pause to the resume. Only pauses of 10 ms or more
+ * are recorded by default, as short pauses are routine under backpressure.
+ */
+@Name("org.example.ReadPause")
+@Label("Read Pause")
+@Category({"Simple TCP Server", "Connections"})
+@Description("Reading from a connection was paused, as the write queue was full or the connection exceeded its rate")
+@StackTrace(false)
+@Threshold("10 ms")
+public final class ReadPauseEvent extends Event {
+
+    @Label("Connection ID")
+    private String connectionId;
+
+    /**
+     * Starts timing a pause.
+     */
+    public ReadPauseEvent() {
+        this.begin();
+    }
+
+    /**
+     * Ends the pause, and emits it if recorded.
+     *
+     * @param id ID of the connection.
+     */
+    public void commit(final String id) {
+        this.end();
+        if (this.shouldCommit()) {
+            this.connectionId = id;
+            this.commit();
+        }
+    }
+}
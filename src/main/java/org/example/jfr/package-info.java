@@ -0,0 +1,4 @@
+/**
+ * Package containing the JDK Flight Recorder events emitted by the stages of the pipeline.
+ */
+package org.example.jfr;
@@ -0,0 +1,90 @@
+package org.example.memory;
+
+import java.util.Objects;
+
+import com.google.common.base.Preconditions;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+/**
+ * Charges every write against the {@link MemoryBudget} until it is written, and reports the queue as full while the
+ * budget is exhausted. Everything else is left to the actual stream.
+ *
+ * Its drain handler is called once both the queue of the actual stream drained and the budget is available again.
+ */
+class BudgetedWriteStream implements WriteStream<Buffer> {
+
+    private final WriteStream<Buffer> writeStream;
+    private final MemoryBudget memoryBudget;
+
+    /**
+     * Wraps the given stream.
+     *
+     * @param writeStream The stream writing to the output file.
+     * @param memoryBudget The budget to charge the writes against.
+     */
+    BudgetedWriteStream(final WriteStream<Buffer> writeStream, final MemoryBudget memoryBudget) {
+        Preconditions.checkArgument(Objects.nonNull(writeStream), "Write stream cannot be null");
+        Preconditions.checkArgument(Objects.nonNull(memoryBudget), "Memory budget cannot be null");
+
+        this.writeStream = writeStream;
+        this.memoryBudget = memoryBudget;
+    }
+
+    @Override
+    public BudgetedWriteStream exceptionHandler(final Handler<Throwable> handler) {
+        this.writeStream.exceptionHandler(handler);
+        return this;
+    }
+
+    @Override
+    public Future<Void> write(final Buffer data) {
+        final int bytes = data.length();
+        this.memoryBudget.charge(bytes);
+        return this.writeStream.write(data).onComplete(result -> this.memoryBudget.release(bytes));
+    }
+
+    @Override
+    public void write(final Buffer data, final Handler<AsyncResult<Void>> handler) {
+        final int bytes = data.length();
+        this.memoryBudget.charge(bytes);
+        this.writeStream.write(data, result -> {
+            this.memoryBudget.release(bytes);
+            if (handler != null) {
+                handler.handle(result);
+            }
+        });
+    }
+
+    @Override
+    public void end(final Handler<AsyncResult<Void>> handler) {
+        this.writeStream.end(handler);
+    }
+
+    @Override
+    public BudgetedWriteStream setWriteQueueMaxSize(final int maxSize) {
+        this.writeStream.setWriteQueueMaxSize(maxSize);
+        return this;
+    }
+
+    @Override
+    public boolean writeQueueFull() {
+        return this.memoryBudget.isExhausted() || this.writeStream.writeQueueFull();
+    }
+
+    @Override
+    public BudgetedWriteStream drainHandler(final Handler<Void> handler) {
+        if (handler == null) {
+            this.writeStream.drainHandler(null);
+        } else if (this.writeStream.writeQueueFull()) {
+            this.writeStream.drainHandler(event -> this.memoryBudget.whenAvailable(handler));
+        } else {
+            this.memoryBudget.whenAvailable(handler);
+        }
+        return this;
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.memory;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Preconditions;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+/**
+ * Charges every byte held in memory between reading it and writing it against a single budget, shared by all the
+ * connections, so that the heap stays bounded however bursty the load.
+ *
+ * The bytes are charged by the stages holding them:
+ *   - The write queue of the output file, through the stream returned by {@link #account(WriteStream)}.
+ *   - The numbers handed over to the partitions of the deduplication, until they are deduplicated.
+ *
+ * The chunks are decoded as soon as they are read, and a partial line is parsed in place rather than buffered, hence
+ * neither holds anything worth charging.
+ *
+ * The budget is "memory.budget.bytes", 64 MB by default. Once it is exhausted, the accounted write stream reports its
+ * queue as full, hence the {@link org.example.handlers.BackpressureCoordinator} pauses all the connections. They are
+ * resumed once at most half of the budget is in use, which keeps them from flapping at every write.
+ *
+ * Charging and releasing is a single atomic addition, and never allocates.
+ */
+@Component
+public class MemoryBudget {
+
+    private final long budgetBytes;
+    private final long lowWatermarkBytes;
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final Queue<Handler<Void>> waiting = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    public MemoryBudget(@Value("${memory.budget.bytes:67108864}") final long budgetBytes) {
+        Preconditions.checkArgument(budgetBytes > 0, "Memory budget must be positive");
+
+        this.budgetBytes = budgetBytes;
+        this.lowWatermarkBytes = budgetBytes / 2;
+    }
+
+    /**
+     * Charges the bytes written to the given stream, until they are written.
+     *
+     * @param writeStream The stream writing to the output file.
+     * @return The stream to write to instead.
+     */
+    public WriteStream<Buffer> account(final WriteStream<Buffer> writeStream) {
+        return new BudgetedWriteStream(writeStream, this);
+    }
+
+    /**
+     * Charges bytes now held in memory. They are charged even when the budget is exhausted, as they are already held.
+     *
+     * @param bytes Count of bytes.
+     */
+    public void charge(final long bytes) {
+        this.usedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Releases bytes no longer held in memory, calling the handlers waiting for the budget if enough was released.
+     *
+     * @param bytes Count of bytes.
+     */
+    public void release(final long bytes) {
+        if (this.usedBytes.addAndGet(-bytes) <= this.lowWatermarkBytes && !this.waiting.isEmpty()) {
+            this.callWaiting();
+        }
+    }
+
+    /**
+     * Tells whether the budget is exhausted, in which case the connections are to be paused.
+     *
+     * @return boolean
+     */
+    public boolean isExhausted() {
+        return this.usedBytes.get() >= this.budgetBytes;
+    }
+
+    /**
+     * Calls the given handler once at most half of the budget is in use. It is called at once if it already is, else
+     * on the thread releasing enough bytes.
+     *
+     * @param handler The handler.
+     */
+    public void whenAvailable(final Handler<Void> handler) {
+        Preconditions.checkArgument(Objects.nonNull(handler), "Handler cannot be null");
+
+        if (this.usedBytes.get() <= this.lowWatermarkBytes) {
+            handler.handle(null);
+            return;
+        }
+        this.waiting.offer(handler);
+        // Enough could have been released right before the handler was queued, with nobody left to call it
+        if (this.usedBytes.get() <= this.lowWatermarkBytes) {
+            this.callWaiting();
+        }
+    }
+
+    /**
+     * Returns count of bytes charged and not released yet.
+     *
+     * @return long
+     */
+    public long getUsedBytes() {
+        return this.usedBytes.get();
+    }
+
+    /**
+     * Returns the budget, in bytes.
+     *
+     * @return long
+     */
+    public long getBudgetBytes() {
+        return this.budgetBytes;
+    }
+
+    private void callWaiting() {
+        Handler<Void> handler = this.waiting.poll();
+        while (handler != null) {
+            handler.handle(null);
+            handler = this.waiting.poll();
+        }
+    }
+}
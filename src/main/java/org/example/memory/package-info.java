@@ -0,0 +1,4 @@
+/**
+ * Package containing the accounting of the bytes held in memory across all the connections.
+ */
+package org.example.memory;
@@ -0,0 +1,162 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import org.example.jfr.DuplicatesFoundEvent;
+import org.example.jfr.ReadPauseEvent;
+
+/**
+ * The statistics of a single connection, kept in primitive fields and never allocating once created.
+ *
+ * The event loop serving the connection is the only one to write most of the fields, hence they are updated without
+ * any atomic operation. They are volatile, so that {@link ConnectionStatsRegistry} can read them from any thread. The
+ * duplicates may also be counted by the event loops deduplicating the numbers of the connection, hence they are added
+ * atomically.
+ *
+ * The pauses and the duplicates are also emitted as JDK Flight Recorder events, a {@link ReadPauseEvent} spanning each
+ * pause, and a {@link DuplicatesFoundEvent} for each chunk holding duplicates. A pause allocates its event only while
+ * it is recorded.
+ */
+public final class ConnectionStats {
+
+    private static final AtomicLongFieldUpdater<ConnectionStats> DUPLICATES =
+            AtomicLongFieldUpdater.newUpdater(ConnectionStats.class, "duplicates");
+
+    private final String connectionId;
+
+    private volatile long bytesIn;
+    private volatile long events;
+    private volatile long duplicates;
+    private volatile long invalids;
+    private volatile long pausedNanos;
+    private volatile long pausedSinceNanos;
+
+    // Only touched by the event loop serving the connection
+    private ReadPauseEvent pauseEvent;
+
+    ConnectionStats(final String connectionId) {
+        this.connectionId = connectionId;
+    }
+
+    /**
+     * Returns the ID of the connection.
+     *
+     * @return String
+     */
+    public String getConnectionId() {
+        return this.connectionId;
+    }
+
+    /**
+     * Accounts for a chunk read from the connection.
+     *
+     * @param byteCount Count of bytes in the chunk.
+     */
+    public void recordRead(final long byteCount) {
+        this.bytesIn = this.bytesIn + byteCount;
+    }
+
+    /**
+     * Accounts for the numbers decoded from the connection.
+     *
+     * @param eventCount Count of numbers decoded.
+     */
+    public void recordEvents(final long eventCount) {
+        this.events = this.events + eventCount;
+    }
+
+    /**
+     * Accounts for the numbers of the connection found to be duplicates. Can be called from any thread.
+     *
+     * @param duplicateCount Count of duplicate numbers.
+     */
+    public void recordDuplicates(final long duplicateCount) {
+        DUPLICATES.addAndGet(this, duplicateCount);
+        DuplicatesFoundEvent.emit(this.connectionId, duplicateCount);
+    }
+
+    /**
+     * Accounts for an invalid frame sent by the connection.
+     */
+    public void recordInvalid() {
+        this.invalids = this.invalids + 1;
+    }
+
+    /**
+     * Records that reading from the connection was paused.
+     *
+     * @param nowNanos Current time, as given by {@link System#nanoTime()}.
+     */
+    public void paused(final long nowNanos) {
+        this.pausedSinceNanos = nowNanos;
+        final ReadPauseEvent event = new ReadPauseEvent();
+        if (event.isEnabled()) {
+            this.pauseEvent = event;
+        }
+    }
+
+    /**
+     * Records that reading from the connection was resumed, adding the time it was paused to its pause time.
+     *
+     * @param nowNanos Current time, as given by {@link System#nanoTime()}.
+     */
+    public void resumed(final long nowNanos) {
+        final long since = this.pausedSinceNanos;
+        if (since != 0) {
+            this.pausedNanos = this.pausedNanos + nowNanos - since;
+            this.pausedSinceNanos = 0;
+        }
+        final ReadPauseEvent event = this.pauseEvent;
+        if (event != null) {
+            this.pauseEvent = null;
+            event.commit(this.connectionId);
+        }
+    }
+
+    /**
+     * Returns count of bytes read from the connection.
+     *
+     * @return long
+     */
+    public long getBytesIn() {
+        return this.bytesIn;
+    }
+
+    /**
+     * Returns count of numbers decoded from the connection.
+     *
+     * @return long
+     */
+    public long getEvents() {
+        return this.events;
+    }
+
+    /**
+     * Returns count of the numbers of the connection found to be duplicates.
+     *
+     * @return long
+     */
+    public long getDuplicates() {
+        return this.duplicates;
+    }
+
+    /**
+     * Returns count of invalid frames sent by the connection.
+     *
+     * @return long
+     */
+    public long getInvalids() {
+        return this.invalids;
+    }
+
+    /**
+     * Returns the time reading from the connection was paused, including the ongoing pause if any.
+     *
+     * @param nowNanos Current time, as given by {@link System#nanoTime()}.
+     * @return Nano seconds.
+     */
+    public long getPausedNanos(final long nowNanos) {
+        final long since = this.pausedSinceNanos;
+        return this.pausedNanos + (since != 0 ? nowNanos - since : 0);
+    }
+}
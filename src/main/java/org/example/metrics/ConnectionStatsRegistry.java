@@ -0,0 +1,128 @@
+package org.example.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.example.model.ConnectionInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Preconditions;
+
+import io.vertx.core.Handler;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the {@link ConnectionStats} of every open connection, and reports them all from a single periodic timer.
+ *
+ * A connection registers its stats once admitted, and updates them from its own event loop. They are removed once it
+ * closes, by {@link org.example.handlers.CloseConnectionHandler}. Hence the registry only ever holds the open
+ * connections, and the cost of the stats does not grow with the connections seen over time.
+ *
+ * With "enable.additional.stats", the registry is scheduled every "stats.report.interval.ms", 10 secs by default. It
+ * then prints the totals of the open connections, along with the stats of each one of them. Otherwise, the stats are
+ * still kept, but never printed.
+ */
+@Slf4j
+@Component
+public class ConnectionStatsRegistry implements Handler<Long> {
+
+    private final boolean enabled;
+    private final long reportIntervalMillis;
+    private final Map<String, ConnectionStats> stats = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ConnectionStatsRegistry(
+            @Value("${enable.additional.stats:false}") final boolean enabled,
+            @Value("${stats.report.interval.ms:10000}") final long reportIntervalMillis) {
+
+        Preconditions.checkArgument(reportIntervalMillis > 0, "Report interval must be positive");
+
+        this.enabled = enabled;
+        this.reportIntervalMillis = reportIntervalMillis;
+    }
+
+    /**
+     * Registers the stats of a new connection.
+     *
+     * @param connectionInfo The connection.
+     * @return ConnectionStats
+     */
+    public ConnectionStats register(final ConnectionInfo connectionInfo) {
+        Preconditions.checkArgument(Objects.nonNull(connectionInfo), "Connection info cannot be null");
+
+        final ConnectionStats connectionStats = new ConnectionStats(connectionInfo.getConnectionId());
+        this.stats.put(connectionInfo.getConnectionId(), connectionStats);
+        return connectionStats;
+    }
+
+    /**
+     * Removes the stats of a closed connection. Does nothing if they were already removed.
+     *
+     * @param connectionInfo The connection.
+     */
+    public void remove(final ConnectionInfo connectionInfo) {
+        Preconditions.checkArgument(Objects.nonNull(connectionInfo), "Connection info cannot be null");
+
+        this.stats.remove(connectionInfo.getConnectionId());
+    }
+
+    /**
+     * Returns the stats of the open connections.
+     *
+     * @return An unmodifiable view, updated as connections open and close.
+     */
+    public Collection<ConnectionStats> getStats() {
+        return Collections.unmodifiableCollection(this.stats.values());
+    }
+
+    /**
+     * Tells whether the stats are to be printed periodically.
+     *
+     * @return boolean
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Returns the time between two reports.
+     *
+     * @return long
+     */
+    public long getReportIntervalMillis() {
+        return this.reportIntervalMillis;
+    }
+
+    @Override
+    public void handle(final Long event) {
+        final long now = System.nanoTime();
+        long bytesIn = 0;
+        long events = 0;
+        long duplicates = 0;
+        long invalids = 0;
+        long pausedNanos = 0;
+        for (final ConnectionStats connectionStats : this.stats.values()) {
+            bytesIn += connectionStats.getBytesIn();
+            events += connectionStats.getEvents();
+            duplicates += connectionStats.getDuplicates();
+            invalids += connectionStats.getInvalids();
+            pausedNanos += connectionStats.getPausedNanos(now);
+            log.info("Connection {} sent {} bytes, {} events, {} duplicates, {} invalids. Paused for {} ms",
+                    connectionStats.getConnectionId(),
+                    connectionStats.getBytesIn(),
+                    connectionStats.getEvents(),
+                    connectionStats.getDuplicates(),
+                    connectionStats.getInvalids(),
+                    TimeUnit.NANOSECONDS.toMillis(connectionStats.getPausedNanos(now)));
+        }
+        log.info("{} open connections sent {} bytes, {} events, {} duplicates, {} invalids. Paused for {} ms",
+                this.stats.size(), bytesIn, events, duplicates, invalids, TimeUnit.NANOSECONDS.toMillis(pausedNanos));
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.spi.metrics.EventBusMetrics;
+
+/**
+ * Counts the messages going through the Vert.x event bus, as reported by Vert.x.
+ *
+ * Messages are counted as they are sent or published, received by the handlers of an address, delivered to a
+ * handler, or discarded as a handler had too many pending. The counts are kept in {@link LongAdder}s, as messages
+ * are sent from every event loop. The handlers need no state of their own, hence none is returned when one registers.
+ */
+public final class EventBusMessageMetrics implements EventBusMetrics<Void> {
+
+    private final LongAdder registeredCounter = new LongAdder();
+    private final LongAdder unregisteredCounter = new LongAdder();
+    private final LongAdder sentCounter = new LongAdder();
+    private final LongAdder receivedCounter = new LongAdder();
+    private final LongAdder deliveredCounter = new LongAdder();
+    private final LongAdder discardedCounter = new LongAdder();
+    private final LongAdder replyFailureCounter = new LongAdder();
+
+    EventBusMessageMetrics() {
+        // Nothing to do.
+    }
+
+    @Override
+    public Void handlerRegistered(final String address, final String repliedAddress) {
+        this.registeredCounter.increment();
+        return null;
+    }
+
+    @Override
+    public void handlerUnregistered(final Void handler) {
+        this.unregisteredCounter.increment();
+    }
+
+    @Override
+    public void discardMessage(final Void handler, final boolean local, final Message<?> msg) {
+        this.discardedCounter.increment();
+    }
+
+    @Override
+    public void messageDelivered(final Void handler, final boolean local) {
+        this.deliveredCounter.increment();
+    }
+
+    @Override
+    public void messageSent(final String address, final boolean publish, final boolean local, final boolean remote) {
+        this.sentCounter.increment();
+    }
+
+    @Override
+    public void messageReceived(final String address, final boolean publish, final boolean local, final int handlers) {
+        this.receivedCounter.increment();
+    }
+
+    @Override
+    public void replyFailure(final String address, final ReplyFailure failure) {
+        this.replyFailureCounter.increment();
+    }
+
+    /**
+     * Returns count of handlers currently registered.
+     *
+     * @return long
+     */
+    public long getHandlerCount() {
+        return this.registeredCounter.sum() - this.unregisteredCounter.sum();
+    }
+
+    /**
+     * Returns count of messages sent or published since the start.
+     *
+     * @return long
+     */
+    public long getSentCount() {
+        return this.sentCounter.sum();
+    }
+
+    /**
+     * Returns count of messages received since the start.
+     *
+     * @return long
+     */
+    public long getReceivedCount() {
+        return this.receivedCounter.sum();
+    }
+
+    /**
+     * Returns count of messages delivered to a handler since the start.
+     *
+     * @return long
+     */
+    public long getDeliveredCount() {
+        return this.deliveredCounter.sum();
+    }
+
+    /**
+     * Returns count of messages discarded since the start.
+     *
+     * @return long
+     */
+    public long getDiscardedCount() {
+        return this.discardedCounter.sum();
+    }
+
+    /**
+     * Returns count of requests which got no reply since the start.
+     *
+     * @return long
+     */
+    public long getReplyFailureCount() {
+        return this.replyFailureCounter.sum();
+    }
+}
@@ -0,0 +1,307 @@
+package org.example.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Preconditions;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.vertx.core.Handler;
+import io.vertx.reactivex.core.Vertx;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Watches every event loop, to tell which ones are hot or blocked.
+ *
+ * Every "event.loop.probe.interval.ms", a probe task is queued on each event loop. The time from queueing it to it
+ * running is the scheduling lag of that loop, which any task queued at the same time would have waited too. The lags
+ * are recorded into a {@link Histogram} per loop, in micro seconds. A probe still waiting when the next one is due is
+ * not queued again. Its lag keeps growing instead, so that a blocked loop shows up at once, and never piles up probes.
+ *
+ * The busy time of a loop is the CPU time of its thread, found out by its first probe. The share of each probe interval
+ * a loop was busy is its utilization, recorded as a percentage into a {@link Histogram} per loop. Time spent blocked
+ * in a system call is not busy time, which does not matter for loops which never block.
+ *
+ * The loops are imbalanced once the busiest one is both over {@link #HOT_UTILIZATION} busy and more than
+ * "event.loop.imbalance.ratio" times as busy as the average loop. Connections are then piling onto a few loops, as
+ * each connection sticks to the loop which accepted it.
+ *
+ * The probe interval is 0 by default, which disables the monitor. Otherwise, it is scheduled by the server, and
+ * reported every "event.loop.report.interval.ms", 10 secs by default.
+ */
+@Slf4j
+@Component
+public class EventLoopMonitor implements Handler<Long> {
+
+    /**
+     * Utilization above which the busiest loop may be flagged as imbalanced.
+     */
+    public static final double HOT_UTILIZATION = 0.5;
+
+    private static final double MEDIAN = 50.0;
+    private static final double TAIL = 99.0;
+    private static final double PERCENT = 100.0;
+
+    private final long probeIntervalMillis;
+    private final long reportIntervalMillis;
+    private final double imbalanceRatio;
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final Loop[] loops;
+    // The lags and utilizations of a loop drained by the report, touched by the report only
+    private final Histogram lags = new Histogram();
+    private final Histogram utilizations = new Histogram();
+
+    private volatile boolean imbalanced;
+
+    @Autowired
+    public EventLoopMonitor(
+            final Vertx vertx,
+            @Value("${event.loop.probe.interval.ms:0}") final long probeIntervalMillis,
+            @Value("${event.loop.report.interval.ms:10000}") final long reportIntervalMillis,
+            @Value("${event.loop.imbalance.ratio:2.0}") final double imbalanceRatio) {
+
+        Preconditions.checkArgument(probeIntervalMillis >= 0, "Probe interval cannot be negative");
+        Preconditions.checkArgument(reportIntervalMillis > 0, "Report interval must be positive");
+        Preconditions.checkArgument(imbalanceRatio > 1, "Imbalance ratio must be above 1");
+
+        this.probeIntervalMillis = probeIntervalMillis;
+        this.reportIntervalMillis = reportIntervalMillis;
+        this.imbalanceRatio = imbalanceRatio;
+
+        final List<Loop> eventLoops = new ArrayList<>();
+        if (probeIntervalMillis > 0) {
+            for (final EventExecutor executor : vertx.getDelegate().nettyEventLoopGroup()) {
+                eventLoops.add(new Loop(executor));
+            }
+        }
+        this.loops = eventLoops.toArray(new Loop[0]);
+    }
+
+    /**
+     * Tells whether the event loops are to be probed.
+     *
+     * @return boolean
+     */
+    public boolean isEnabled() {
+        return this.probeIntervalMillis > 0;
+    }
+
+    /**
+     * Returns the time between two probes.
+     *
+     * @return long
+     */
+    public long getProbeIntervalMillis() {
+        return this.probeIntervalMillis;
+    }
+
+    /**
+     * Returns the time between two reports.
+     *
+     * @return long
+     */
+    public long getReportIntervalMillis() {
+        return this.reportIntervalMillis;
+    }
+
+    /**
+     * Returns count of event loops probed.
+     *
+     * @return int
+     */
+    public int getLoopCount() {
+        return this.loops.length;
+    }
+
+    /**
+     * Returns the lag of the latest probe of a loop, including the probe still waiting if any.
+     *
+     * @param loop Index of the loop.
+     * @return Lag in micro seconds.
+     */
+    public long getLag(final int loop) {
+        return this.loops[loop].getLagMicros(System.nanoTime());
+    }
+
+    /**
+     * Returns the lags of the probes of a loop, in micro seconds.
+     *
+     * @param loop Index of the loop.
+     * @return Histogram
+     */
+    public Histogram getLagHistogram(final int loop) {
+        return this.loops[loop].lagHistogram;
+    }
+
+    /**
+     * Returns the share of the latest probe interval a loop was busy.
+     *
+     * @param loop Index of the loop.
+     * @return Between 0 and 1.
+     */
+    public double getUtilization(final int loop) {
+        return this.loops[loop].utilization;
+    }
+
+    /**
+     * Returns the utilizations of a loop, as percentages.
+     *
+     * @param loop Index of the loop.
+     * @return Histogram
+     */
+    public Histogram getUtilizationHistogram(final int loop) {
+        return this.loops[loop].utilizationHistogram;
+    }
+
+    /**
+     * Returns the time a loop was busy since its first probe.
+     *
+     * @param loop Index of the loop.
+     * @return Busy time in nano seconds.
+     */
+    public long getBusyNanos(final int loop) {
+        return this.loops[loop].busyNanos;
+    }
+
+    /**
+     * Tells whether the event loops were imbalanced as of the latest probe.
+     *
+     * @return boolean
+     */
+    public boolean isImbalanced() {
+        return this.imbalanced;
+    }
+
+    /**
+     * Samples the busy time of every loop since the previous probe, and queues a new probe on each of them.
+     *
+     * @param event ID of the timer.
+     */
+    @Override
+    public void handle(final Long event) {
+        final long now = System.nanoTime();
+        double total = 0;
+        double max = 0;
+        for (final Loop loop : this.loops) {
+            loop.sample(this.threadMXBean, now);
+            total += loop.utilization;
+            max = Math.max(max, loop.utilization);
+            loop.probe(now);
+        }
+        this.imbalanced = isImbalanced(max, total, this.loops.length, this.imbalanceRatio);
+    }
+
+    /**
+     * Prints the lag and the utilization of every loop, and starts a new reporting interval.
+     */
+    public void report() {
+        final long now = System.nanoTime();
+        for (int i = 0; i < this.loops.length; i++) {
+            final Loop loop = this.loops[i];
+            // Drained rather than read then reset, which would miss the probes recorded in between
+            loop.lagHistogram.drainIntervalTo(this.lags);
+            loop.utilizationHistogram.drainIntervalTo(this.utilizations);
+            log.info("Event loop {} lag: {} us, p50: {}, p99: {}, max: {} us. Utilization p50: {}%, p99: {}%",
+                    i,
+                    loop.getLagMicros(now),
+                    this.lags.getValueAtPercentile(MEDIAN),
+                    this.lags.getValueAtPercentile(TAIL),
+                    this.lags.getMax(),
+                    this.utilizations.getValueAtPercentile(MEDIAN),
+                    this.utilizations.getValueAtPercentile(TAIL));
+            this.lags.reset();
+            this.utilizations.reset();
+        }
+        if (this.imbalanced) {
+            log.warn("Event loops are imbalanced, connections are piling onto the busiest ones");
+        }
+    }
+
+    /**
+     * Tells whether the busiest loop is hot, and much busier than the average loop.
+     *
+     * @param max Utilization of the busiest loop.
+     * @param total Sum of the utilizations of all the loops.
+     * @param count Count of loops.
+     * @param ratio Ratio of the busiest loop to the average loop, above which they are imbalanced.
+     * @return boolean
+     */
+    static boolean isImbalanced(final double max, final double total, final int count, final double ratio) {
+        return count > 1 && max > HOT_UTILIZATION && max > ratio * total / count;
+    }
+
+    /**
+     * The probes of a single event loop. The probe itself runs on the loop, while the rest runs on the timer.
+     */
+    private static final class Loop implements Runnable {
+
+        private final EventExecutor executor;
+        private final Histogram lagHistogram = new Histogram();
+        private final Histogram utilizationHistogram = new Histogram();
+
+        // Written by the probe, read by the timer
+        private volatile long queuedNanos;
+        private volatile long lagNanos;
+        private volatile long threadId = -1;
+
+        // Only touched by the timer, yet read by the scrapes
+        private volatile long busyNanos;
+        private volatile double utilization;
+        private long lastCpuNanos = -1;
+        private long lastSampleNanos;
+
+        private Loop(final EventExecutor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void run() {
+            final long lag = System.nanoTime() - this.queuedNanos;
+            this.lagHistogram.record(TimeUnit.NANOSECONDS.toMicros(lag));
+            this.lagNanos = lag;
+            this.threadId = Thread.currentThread().getId();
+            this.queuedNanos = 0;
+        }
+
+        private void probe(final long nowNanos) {
+            if (this.queuedNanos == 0) {
+                this.queuedNanos = nowNanos;
+                this.executor.execute(this);
+            }
+        }
+
+        private void sample(final ThreadMXBean threadMXBean, final long nowNanos) {
+            final long id = this.threadId;
+            if (id < 0) {
+                return;
+            }
+            final long cpuNanos = threadMXBean.getThreadCpuTime(id);
+            if (cpuNanos < 0) {
+                // Not supported, or the thread is gone
+                return;
+            }
+            if (this.lastCpuNanos >= 0 && nowNanos > this.lastSampleNanos) {
+                final long busy = cpuNanos - this.lastCpuNanos;
+                this.busyNanos = this.busyNanos + busy;
+                this.utilization = Math.min(1.0, (double)busy / (nowNanos - this.lastSampleNanos));
+                this.utilizationHistogram.record(Math.round(this.utilization * PERCENT));
+            }
+            this.lastCpuNanos = cpuNanos;
+            this.lastSampleNanos = nowNanos;
+        }
+
+        private long getLagMicros(final long nowNanos) {
+            final long queued = this.queuedNanos;
+            final long lag = queued == 0 ? this.lagNanos : Math.max(this.lagNanos, nowNanos - queued);
+            return TimeUnit.NANOSECONDS.toMicros(lag);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package org.example.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Preconditions;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.metrics.MetricsOptions;
+import io.vertx.core.net.NetServerOptions;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.core.spi.VertxMetricsFactory;
+import io.vertx.core.spi.metrics.EventBusMetrics;
+import io.vertx.core.spi.metrics.PoolMetrics;
+import io.vertx.core.spi.metrics.TCPMetrics;
+import io.vertx.core.spi.metrics.VertxMetrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Plugs into the Vert.x metrics SPI, to see what happens inside the framework, without any metrics library.
+ *
+ * With "vertx.metrics.enabled", it is the {@link MetricsOptions} picked up by
+ * {@link org.example.server.boot.VertxBeansBase}, and the factory Vert.x asks for its {@link VertxMetrics}. It then
+ * tracks:
+ *   - The connections, bytes and errors of the TCP servers, per address listened on, with {@link NetServerMetrics}.
+ *   - The messages sent, received and delivered by the event bus, with {@link EventBusMessageMetrics}.
+ *   - The tasks pending in the queue of each event loop, read from Netty whenever reported.
+ *   - The time the tasks of the worker pools waited and ran, with {@link WorkerPoolMetrics}. Those pools run the
+ *     blocking file operations and {@link io.vertx.core.Vertx#executeBlocking(Handler, Handler)}.
+ *
+ * All of them count with {@link LongAdder}s and {@link Histogram}s, as the application metrics do, hence rarely
+ * contend on the hot path. The metrics Vert.x offers to track, and which are not listed above, are not.
+ *
+ * It is scheduled every "vertx.metrics.report.interval.ms", 10 secs by default, to print the metrics along with the
+ * rate of the event bus messages since the last report.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "vertx.metrics.enabled", havingValue = "true")
+public class FrameworkMetrics extends MetricsOptions implements VertxMetricsFactory, VertxMetrics, Handler<Long> {
+
+    private static final double MEDIAN = 50.0;
+    private static final double TAIL = 99.0;
+    private static final long MILLIS_PER_SECOND = TimeUnit.SECONDS.toMillis(1);
+
+    private final long reportIntervalMillis;
+    private final Map<String, NetServerMetrics> netServerMetrics = new ConcurrentHashMap<>();
+    private final Map<String, WorkerPoolMetrics> workerPoolMetrics = new ConcurrentHashMap<>();
+    private final EventBusMessageMetrics eventBusMetrics = new EventBusMessageMetrics();
+    // The latencies of a pool drained by the report, touched by the report only
+    private final Histogram queued = new Histogram();
+    private final Histogram ran = new Histogram();
+
+    private volatile EventLoopGroup eventLoopGroup;
+
+    // Only touched by the report timer
+    private long lastSentCount;
+    private long lastDeliveredCount;
+
+    @Autowired
+    public FrameworkMetrics(@Value("${vertx.metrics.report.interval.ms:10000}") final long reportIntervalMillis) {
+        Preconditions.checkArgument(reportIntervalMillis > 0, "Report interval must be positive");
+
+        this.reportIntervalMillis = reportIntervalMillis;
+        this.setEnabled(true);
+        this.setFactory(this);
+    }
+
+    @Override
+    public VertxMetrics metrics(final VertxOptions options) {
+        return this;
+    }
+
+    @Override
+    public boolean isMetricsEnabled() {
+        return true;
+    }
+
+    @Override
+    public void vertxCreated(final Vertx vertx) {
+        this.eventLoopGroup = vertx.nettyEventLoopGroup();
+    }
+
+    @Override
+    public TCPMetrics<?> createNetServerMetrics(final NetServerOptions options, final SocketAddress localAddress) {
+        return this.netServerMetrics.computeIfAbsent(String.valueOf(localAddress), NetServerMetrics::new);
+    }
+
+    @Override
+    public EventBusMetrics<?> createEventBusMetrics() {
+        return this.eventBusMetrics;
+    }
+
+    @Override
+    public PoolMetrics<?> createPoolMetrics(final String poolType, final String poolName, final int maxPoolSize) {
+        return this.workerPoolMetrics.computeIfAbsent(poolName, name -> new WorkerPoolMetrics(name, maxPoolSize));
+    }
+
+    /**
+     * Returns the metrics of the TCP servers, one per address listened on.
+     *
+     * @return An unmodifiable view, updated as servers listen.
+     */
+    public Collection<NetServerMetrics> getNetServerMetrics() {
+        return Collections.unmodifiableCollection(this.netServerMetrics.values());
+    }
+
+    /**
+     * Returns the metrics of the worker pools.
+     *
+     * @return An unmodifiable view, updated as pools are created.
+     */
+    public Collection<WorkerPoolMetrics> getWorkerPoolMetrics() {
+        return Collections.unmodifiableCollection(this.workerPoolMetrics.values());
+    }
+
+    /**
+     * Returns the metrics of the event bus.
+     *
+     * @return EventBusMessageMetrics
+     */
+    public EventBusMessageMetrics getEventBusMetrics() {
+        return this.eventBusMetrics;
+    }
+
+    /**
+     * Returns count of tasks pending in the queue of each event loop, as of now.
+     *
+     * @return One count per event loop. Empty until Vert.x is created.
+     */
+    public List<Integer> getPendingTasks() {
+        final EventLoopGroup group = this.eventLoopGroup;
+        if (group == null) {
+            return Collections.emptyList();
+        }
+        final List<Integer> pendingTasks = new ArrayList<>();
+        for (final EventExecutor executor : group) {
+            if (executor instanceof SingleThreadEventExecutor) {
+                pendingTasks.add(((SingleThreadEventExecutor)executor).pendingTasks());
+            }
+        }
+        return pendingTasks;
+    }
+
+    /**
+     * Returns the time between two reports.
+     *
+     * @return long
+     */
+    public long getReportIntervalMillis() {
+        return this.reportIntervalMillis;
+    }
+
+    @Override
+    public void handle(final Long event) {
+        for (final NetServerMetrics server : this.netServerMetrics.values()) {
+            log.info("Server at {} has {} connections open, {} accepted. Read {} bytes, wrote {} bytes, {} errors",
+                    server.getAddress(),
+                    server.getOpenCount(),
+                    server.getConnectedCount(),
+                    server.getBytesRead(),
+                    server.getBytesWritten(),
+                    server.getErrorCount());
+        }
+
+        final long sent = this.eventBusMetrics.getSentCount();
+        final long delivered = this.eventBusMetrics.getDeliveredCount();
+        log.info("Event bus sent {} messages per sec, delivered {} per sec. {} handlers, {} discarded, {} reply failures",
+                (sent - this.lastSentCount) * MILLIS_PER_SECOND / this.reportIntervalMillis,
+                (delivered - this.lastDeliveredCount) * MILLIS_PER_SECOND / this.reportIntervalMillis,
+                this.eventBusMetrics.getHandlerCount(),
+                this.eventBusMetrics.getDiscardedCount(),
+                this.eventBusMetrics.getReplyFailureCount());
+        this.lastSentCount = sent;
+        this.lastDeliveredCount = delivered;
+
+        log.info("Event loops have tasks pending: {}", this.getPendingTasks());
+
+        for (final WorkerPoolMetrics pool : this.workerPoolMetrics.values()) {
+            // Drained rather than read then reset, which would miss the latencies recorded in between
+            pool.getQueueLatencyHistogram().drainIntervalTo(this.queued);
+            pool.getExecutionLatencyHistogram().drainIntervalTo(this.ran);
+            if (this.ran.getCount() > 0 || pool.getPendingCount() > 0) {
+                log.info("Pool {} ran {} tasks, {} running, {} pending. Queued p50: {}, p99: {}, max: {} us. "
+                        + "Ran p50: {}, p99: {}, max: {} us",
+                        pool.getName(), this.ran.getCount(), pool.getRunningCount(), pool.getPendingCount(),
+                        this.queued.getValueAtPercentile(MEDIAN), this.queued.getValueAtPercentile(TAIL),
+                        this.queued.getMax(),
+                        this.ran.getValueAtPercentile(MEDIAN), this.ran.getValueAtPercentile(TAIL), this.ran.getMax());
+            }
+            this.queued.reset();
+            this.ran.reset();
+        }
+    }
+}
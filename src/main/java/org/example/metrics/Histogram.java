@@ -0,0 +1,245 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Records the distribution of non negative values, such as latencies or sizes, in a fixed amount of memory.
+ *
+ * Values are counted in buckets, in the manner of HdrHistogram. Each power of two range is split into 8 buckets of
+ * equal width, while values below 8 get a bucket each. Hence any recorded value is reported back with an error of at
+ * most 12.5%, whatever its magnitude. Recording is a few atomic increments, and never allocates.
+ *
+ * The counts are never cleared. {@link #reset()} only starts a new interval, by remembering the counts seen so far.
+ * The count and the percentiles are those of the current interval, while the totals since the histogram was created
+ * stay available to those, such as a Prometheus scrape, which expect them to only ever grow. Reading an interval then
+ * resetting it misses the values recorded in between, which {@link #drainIntervalTo(Histogram)} does not.
+ *
+ * A histogram can be recorded into from many threads at once. Reading it while values are being recorded may observe
+ * some of those values only partially, which is acceptable for reporting.
+ */
+public final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final double MAX_PERCENTILE = 100.0;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalSum = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    // The counts as of the start of the current interval
+    private final AtomicLongArray intervalStartCounts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong intervalStartCount = new AtomicLong();
+    private final AtomicLong intervalStartSum = new AtomicLong();
+
+    /**
+     * Records a value.
+     *
+     * @param value A non negative value.
+     */
+    public void record(final long value) {
+        Preconditions.checkArgument(value >= 0, "Value cannot be negative");
+
+        this.counts.incrementAndGet(bucketOf(value));
+        this.totalCount.incrementAndGet();
+        this.totalSum.addAndGet(value);
+        if (value > this.maxValue.get()) {
+            this.maxValue.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Returns count of values recorded in the current interval.
+     *
+     * @return long
+     */
+    public long getCount() {
+        // Draining may count a value from its bucket before it is added to the total
+        return Math.max(0, this.totalCount.get() - this.intervalStartCount.get());
+    }
+
+    /**
+     * Returns the largest value recorded in the current interval, or zero if none was.
+     *
+     * @return long
+     */
+    public long getMax() {
+        return this.maxValue.get();
+    }
+
+    /**
+     * Returns the value below which the given percentage of the values recorded in the current interval fall.
+     *
+     * @param percentile A percentile between 0 and 100.
+     * @return The highest value of the matching bucket, never above {@link #getMax()}. Zero if nothing was recorded.
+     */
+    public long getValueAtPercentile(final double percentile) {
+        Preconditions.checkArgument(percentile >= 0 && percentile <= MAX_PERCENTILE, "Percentile must be within 0 and 100");
+
+        final long total = this.getCount();
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long)Math.ceil(percentile / MAX_PERCENTILE * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts.get(i) - this.intervalStartCounts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), this.getMax());
+            }
+        }
+        return this.getMax();
+    }
+
+    /**
+     * Returns count of values recorded since the histogram was created.
+     *
+     * @return long
+     */
+    public long getTotalCount() {
+        return this.totalCount.get();
+    }
+
+    /**
+     * Returns the sum of the values recorded since the histogram was created.
+     *
+     * @return long
+     */
+    public long getTotalSum() {
+        return this.totalSum.get();
+    }
+
+    /**
+     * Counts the values recorded since the histogram was created, which are at or below each of the given bounds.
+     * A bucket straddling a bound is not counted for it, hence a count may be short of the values at most 12.5% below
+     * its bound.
+     *
+     * @param bounds Upper bounds, in increasing order.
+     * @param totalCounts Receives the count of each bound, at the same index.
+     */
+    public void getTotalCountsAtOrBelow(final long[] bounds, final long[] totalCounts) {
+        Preconditions.checkArgument(bounds.length == totalCounts.length, "There must be a count per bound");
+
+        long seen = 0;
+        int bound = 0;
+        for (int i = 0; i < BUCKETS && bound < bounds.length; i++) {
+            while (bound < bounds.length && highestValueOf(i) > bounds[bound]) {
+                totalCounts[bound++] = seen;
+            }
+            seen += this.counts.get(i);
+        }
+        while (bound < bounds.length) {
+            totalCounts[bound++] = seen;
+        }
+    }
+
+    /**
+     * Adds the values recorded by another histogram in its current interval to this one, as if they had been recorded
+     * here.
+     *
+     * @param other The histogram to be added.
+     */
+    public void add(final Histogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            final long count = other.counts.get(i) - other.intervalStartCounts.get(i);
+            if (count > 0) {
+                this.counts.addAndGet(i, count);
+            }
+        }
+        this.totalCount.addAndGet(other.getCount());
+        this.totalSum.addAndGet(other.totalSum.get() - other.intervalStartSum.get());
+        this.maxValue.accumulateAndGet(other.getMax(), Math::max);
+    }
+
+    /**
+     * Adds all the values ever recorded by another histogram to this one, as if they had been recorded here.
+     *
+     * @param other The histogram to be added.
+     */
+    public void addTotal(final Histogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            final long count = other.counts.get(i);
+            if (count > 0) {
+                this.counts.addAndGet(i, count);
+            }
+        }
+        this.totalCount.addAndGet(other.getTotalCount());
+        this.totalSum.addAndGet(other.getTotalSum());
+        this.maxValue.accumulateAndGet(other.getMax(), Math::max);
+    }
+
+    /**
+     * Moves the values recorded in the current interval to another histogram, and starts a new interval right after
+     * them. A value recorded meanwhile is either moved, or left to the next interval, hence is never lost. Its sum or
+     * its max may be moved an interval apart from its count, which is acceptable for reporting.
+     *
+     * Only a single thread may drain or reset the histogram at once, while any may record into it.
+     *
+     * @param target The histogram to move the values to.
+     */
+    public void drainIntervalTo(final Histogram target) {
+        long moved = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            final long current = this.counts.get(i);
+            final long count = current - this.intervalStartCounts.get(i);
+            if (count > 0) {
+                target.counts.addAndGet(i, count);
+                this.intervalStartCounts.set(i, current);
+                moved += count;
+            }
+        }
+        final long sum = this.totalSum.get();
+        target.totalCount.addAndGet(moved);
+        target.totalSum.addAndGet(sum - this.intervalStartSum.get());
+        target.maxValue.accumulateAndGet(this.maxValue.getAndSet(0), Math::max);
+        this.intervalStartCount.addAndGet(moved);
+        this.intervalStartSum.set(sum);
+    }
+
+    /**
+     * Starts a new interval, forgetting the values recorded in the current one. Their totals are kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.intervalStartCounts.set(i, this.counts.get(i));
+        }
+        this.intervalStartSum.set(this.totalSum.get());
+        this.intervalStartCount.set(this.totalCount.get());
+        this.maxValue.set(0);
+    }
+
+    /**
+     * Returns the index of the bucket counting the given value.
+     *
+     * @param value A non negative value.
+     * @return int
+     */
+    static int bucketOf(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int)value;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int)((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Returns the highest value counted by the given bucket.
+     *
+     * @param bucket Index of the bucket.
+     * @return long
+     */
+    static long highestValueOf(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        final long subBucket = SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records latencies into one {@link Histogram} per event loop, and merges them only once read.
+ *
+ * Recording into a single histogram from every event loop would have them all increment the same buckets, and keep
+ * invalidating each others caches. Instead, every thread is given the next index the first time it records, and always
+ * records into the stripe of that index. Hence the first threads to record, typically the event loops as Vert.x serves
+ * each one from a single thread, get a stripe each, as long as there are more stripes than them. Only the threads after
+ * those share the stripes, in turns, which is still correct as a histogram may be recorded into concurrently.
+ * Recording never allocates.
+ *
+ * The stripes are merged by {@link #drainTo(Histogram)}, typically once per reporting interval by
+ * {@link MetricsCollector#rotate()}. Values recorded while draining are counted in this interval or in the next one,
+ * but never lost, as each stripe is drained with {@link Histogram#drainIntervalTo(Histogram)}. Draining keeps the
+ * totals, which {@link #addTotalTo(Histogram)} merges. Only a single thread may drain at once.
+ */
+public final class LatencyRecorder {
+
+    static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1);
+
+    private static final AtomicInteger NEXT_INDEX = new AtomicInteger();
+    private static final ThreadLocal<Integer> INDEX = ThreadLocal.withInitial(NEXT_INDEX::getAndIncrement);
+
+    private final Histogram[] stripes = new Histogram[STRIPES];
+
+    public LatencyRecorder() {
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Histogram();
+        }
+    }
+
+    /**
+     * Records a latency into the stripe of the current thread.
+     *
+     * @param latency A non negative latency.
+     */
+    public void record(final long latency) {
+        this.stripes[INDEX.get() & (STRIPES - 1)].record(latency);
+    }
+
+    /**
+     * Adds the latencies recorded since the last call to the given histogram, and forgets them.
+     *
+     * @param histogram The histogram to merge the stripes into.
+     */
+    public void drainTo(final Histogram histogram) {
+        for (final Histogram stripe : this.stripes) {
+            stripe.drainIntervalTo(histogram);
+        }
+    }
+
+    /**
+     * Adds all the latencies ever recorded to the given histogram, without draining them.
+     *
+     * @param histogram The histogram to merge the stripes into.
+     */
+    public void addTotalTo(final Histogram histogram) {
+        for (final Histogram stripe : this.stripes) {
+            histogram.addTotal(stripe);
+        }
+    }
+}
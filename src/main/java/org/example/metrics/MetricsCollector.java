@@ -1,8 +1,10 @@
 package org.example.metrics;
 
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import com.google.common.base.Preconditions;
@@ -16,14 +18,30 @@ import io.vertx.reactivex.core.eventbus.Message;
  * It captures the following:
  *   - Count of unique numbers captured in that time interval.
  *   - Count of duplicate numbers captured in that time interval.
- *   - Total count of all unique numbers captured.
+ *   - Total count of all unique numbers captured, and of all duplicate numbers.
+ *   - Distribution of the sizes of the batches written to the output file, in bytes.
+ *   - Distribution of the latencies of forcing the output file to the storage device, in micro seconds.
+ *   - Distribution of the latencies from handing a chunk to the output file to writing it, in micro seconds.
+ *   - Distribution of the latencies from reading a chunk on the socket to the output file acknowledging it, in micro
+ *     seconds. It is recorded per event loop, by a {@link LatencyRecorder}. As a recorder is drained by a single
+ *     reader, they are recorded twice, once for the intervals and once for the admission control.
+ *   - Count of connections admitted, rejected and shed by the admission control, and whether the server is overloaded.
+ *   - Count of connections reaped, as idle or too slow.
  *
- * One has to explicitly call {@link MetricsCollector#resetDuplicateNumCounter()} and
- * {@link MetricsCollector#resetUniqueNumCounter()}, if it needs to recapture those counteres.
+ * The time intervals are closed by {@link #rotate()}, typically once per reporting interval by {@link MetricsReporter}.
+ * It drains the counters and the histograms of the interval atomically, stripe by stripe and bucket by bucket, into a
+ * {@link MetricsInterval}. An event recorded while rotating is counted either in the interval closed, or in the next
+ * one, but never lost, as it would be by reading a counter then resetting it. The last "metrics.window.intervals"
+ * intervals, 6 by default, are kept in a {@link MetricsWindow}, to compute rates and percentiles over them.
  *
  * Since all the metrics is stored in memory (not distributed), all stats will be reset when server is restarted.
- * This metrics collector is registered on {@link io.vertx.core.eventbus.EventBus#localConsumer(String)}.
- * When any produces publishes a event, this metrics collector gets called and the stats are stored.
+ * The handlers on the hot path count the events directly, using {@link #recordUnique(long)} and
+ * {@link #recordDuplicate(long)}. Publishing a message per event on the event bus would cost an allocation and a
+ * dispatch for every number received. The counters are {@link LongAdder}s, which add cells as soon as the event loops
+ * contend, so that they rarely do. They are summed up only when read, typically by {@link MetricsReporter}.
+ *
+ * This metrics collector is also registered on {@link io.vertx.core.eventbus.EventBus#localConsumer(String)}.
+ * When any producer publishes an event, this metrics collector gets called and the stats are stored.
  *
  * Note that for simplicity, the metrics collector gets registered as a local consumer.
  * In a real world service, this can be distributed across nodes. That means using
@@ -34,9 +52,37 @@ import io.vertx.reactivex.core.eventbus.Message;
 @Component
 public class MetricsCollector implements Handler<Message<String>> {
 
-    private AtomicLong totalUniqueNumCounter = new AtomicLong();
-    private AtomicLong uniqueNumCounterForTimePeriod = new AtomicLong();
-    private AtomicLong duplicateNumCounter = new AtomicLong();
+    private static final int DEFAULT_WINDOW_INTERVALS = 6;
+
+    private final LongAdder totalUniqueNumCounter = new LongAdder();
+    private final LongAdder uniqueNumCounterForTimePeriod = new LongAdder();
+    private final LongAdder duplicateNumCounter = new LongAdder();
+    private final LongAdder totalDuplicateNumCounter = new LongAdder();
+    private final Histogram batchSizeHistogram = new Histogram();
+    private final Histogram forceLatencyHistogram = new Histogram();
+    private final Histogram writeLatencyHistogram = new Histogram();
+    private final LatencyRecorder endToEndLatencyRecorder = new LatencyRecorder();
+    private final LatencyRecorder admissionLatencyRecorder = new LatencyRecorder();
+    private final LongAdder admittedConnectionCounter = new LongAdder();
+    private final LongAdder rejectedConnectionCounter = new LongAdder();
+    private final LongAdder shedConnectionCounter = new LongAdder();
+    private final LongAdder reapedConnectionCounter = new LongAdder();
+
+    private final MetricsWindow window;
+
+    private volatile boolean overloaded;
+
+    // Guarded by this
+    private long intervalStartNanos = System.nanoTime();
+
+    public MetricsCollector() {
+        this(DEFAULT_WINDOW_INTERVALS);
+    }
+
+    @Autowired
+    public MetricsCollector(@Value("${metrics.window.intervals:6}") final int windowIntervals) {
+        this.window = new MetricsWindow(windowIntervals);
+    }
 
     /**
      * Returns the address name that can be used when registering in vertx event bus.
@@ -53,39 +99,273 @@ public class MetricsCollector implements Handler<Message<String>> {
      * @return int Count of total unique numbers
      */
     public long getTotalUniqueNumsCount() {
-        return this.totalUniqueNumCounter.get();
+        return this.totalUniqueNumCounter.sum();
     }
 
     /**
-     * Returns count of unique numbers in a time period.
+     * Returns count of unique numbers in the current time period, not closed yet.
      *
      * @return int Count of unique numbers in a time period.
      */
     public long getUniqueNumsCountForTimePeriod() {
-        return this.uniqueNumCounterForTimePeriod.get();
+        return this.uniqueNumCounterForTimePeriod.sum();
     }
 
     /**
-     * Returns count of duplicate numbers captured in a time period.
+     * Returns count of duplicate numbers captured in the current time period, not closed yet.
      *
      * @return int
      */
     public long getDuplicateNumCount() {
-        return this.duplicateNumCounter.get();
+        return this.duplicateNumCounter.sum();
+    }
+
+    /**
+     * Returns count of duplicate numbers captured since the server started.
+     *
+     * @return long
+     */
+    public long getTotalDuplicateNumCount() {
+        return this.totalDuplicateNumCounter.sum();
+    }
+
+    /**
+     * Closes the current time period, and starts a new one. The closed interval is added to the window.
+     *
+     * @return The interval just closed.
+     */
+    public synchronized MetricsInterval rotate() {
+        final long now = System.nanoTime();
+        final Histogram batchSizes = new Histogram();
+        final Histogram forceLatencies = new Histogram();
+        final Histogram writeLatencies = new Histogram();
+        final Histogram endToEndLatencies = new Histogram();
+        this.batchSizeHistogram.drainIntervalTo(batchSizes);
+        this.forceLatencyHistogram.drainIntervalTo(forceLatencies);
+        this.writeLatencyHistogram.drainIntervalTo(writeLatencies);
+        this.endToEndLatencyRecorder.drainTo(endToEndLatencies);
+
+        final MetricsInterval interval = new MetricsInterval(
+                this.intervalStartNanos,
+                now,
+                this.uniqueNumCounterForTimePeriod.sumThenReset(),
+                this.duplicateNumCounter.sumThenReset(),
+                batchSizes,
+                forceLatencies,
+                writeLatencies,
+                endToEndLatencies);
+        this.intervalStartNanos = now;
+        this.window.add(interval);
+        return interval;
+    }
+
+    /**
+     * Returns the last intervals closed by {@link #rotate()}.
+     *
+     * @return MetricsWindow
+     */
+    public MetricsWindow getWindow() {
+        return this.window;
+    }
+
+    /**
+     * Records the given count of unique numbers.
+     *
+     * @param count Count of unique numbers.
+     */
+    public void recordUnique(final long count) {
+        this.totalUniqueNumCounter.add(count);
+        this.uniqueNumCounterForTimePeriod.add(count);
+    }
+
+    /**
+     * Records the count of unique numbers recovered from the output file, written before the server was restarted.
+     * Only the total is updated, as they were not received in this time period.
+     *
+     * @param count Count of unique numbers.
+     */
+    public void recordRecovered(final long count) {
+        this.totalUniqueNumCounter.add(count);
+    }
+
+    /**
+     * Records the given count of duplicate numbers.
+     *
+     * @param count Count of duplicate numbers.
+     */
+    public void recordDuplicate(final long count) {
+        this.duplicateNumCounter.add(count);
+        this.totalDuplicateNumCounter.add(count);
+    }
+
+    /**
+     * Records the size of a batch written to the output file.
+     *
+     * @param bytes Size of the batch in bytes.
+     */
+    public void recordBatch(final long bytes) {
+        this.batchSizeHistogram.record(bytes);
     }
 
     /**
-     * Resets the {@link #uniqueNumCounterForTimePeriod}.
+     * Records the time taken to force the output file to the storage device.
+     *
+     * @param latencyMicros Latency in micro seconds.
      */
-    public void resetUniqueNumCounter() {
-        this.uniqueNumCounterForTimePeriod.getAndSet(0);
+    public void recordForce(final long latencyMicros) {
+        this.forceLatencyHistogram.record(latencyMicros);
     }
 
     /**
-     * Resets the {@link #duplicateNumCounter}.
+     * Records the time taken from handing a chunk to the output file to writing it.
+     *
+     * @param latencyMicros Latency in micro seconds.
+     */
+    public void recordWrite(final long latencyMicros) {
+        this.writeLatencyHistogram.record(latencyMicros);
+    }
+
+    /**
+     * Records the time taken from reading a chunk on the socket to the output file acknowledging it. The output file
+     * acknowledges a write only once it is as durable as configured by "output.durability".
+     *
+     * @param latencyMicros Latency in micro seconds.
+     */
+    public void recordEndToEnd(final long latencyMicros) {
+        this.endToEndLatencyRecorder.record(latencyMicros);
+        this.admissionLatencyRecorder.record(latencyMicros);
+    }
+
+    /**
+     * Records a connection admitted by the admission control.
+     */
+    public void recordAdmitted() {
+        this.admittedConnectionCounter.increment();
+    }
+
+    /**
+     * Records a connection rejected by the admission control, as the server was overloaded.
+     */
+    public void recordRejected() {
+        this.rejectedConnectionCounter.increment();
+    }
+
+    /**
+     * Records a connection shed by the admission control, as the server was overloaded.
+     */
+    public void recordShed() {
+        this.shedConnectionCounter.increment();
+    }
+
+    /**
+     * Records a connection reaped, as idle or too slow.
+     */
+    public void recordReaped() {
+        this.reapedConnectionCounter.increment();
+    }
+
+    /**
+     * Records whether the server is overloaded, as last decided by the admission control.
+     *
+     * @param overloaded {@code true} if overloaded.
+     */
+    public void recordOverloaded(final boolean overloaded) {
+        this.overloaded = overloaded;
+    }
+
+    /**
+     * Returns count of connections admitted since the server started.
+     *
+     * @return long
+     */
+    public long getAdmittedConnectionCount() {
+        return this.admittedConnectionCounter.sum();
+    }
+
+    /**
+     * Returns count of connections rejected since the server started.
+     *
+     * @return long
+     */
+    public long getRejectedConnectionCount() {
+        return this.rejectedConnectionCounter.sum();
+    }
+
+    /**
+     * Returns count of connections shed since the server started.
+     *
+     * @return long
+     */
+    public long getShedConnectionCount() {
+        return this.shedConnectionCounter.sum();
+    }
+
+    /**
+     * Returns count of connections reaped since the server started.
+     *
+     * @return long
+     */
+    public long getReapedConnectionCount() {
+        return this.reapedConnectionCounter.sum();
+    }
+
+    /**
+     * Returns {@code true} if the server is overloaded.
+     *
+     * @return boolean
+     */
+    public boolean isOverloaded() {
+        return this.overloaded;
+    }
+
+    /**
+     * Returns the sizes of the batches written, in bytes, in the current time period.
+     * Their totals are kept since the server started.
+     *
+     * @return Histogram
+     */
+    public Histogram getBatchSizeHistogram() {
+        return this.batchSizeHistogram;
+    }
+
+    /**
+     * Returns the latencies of forcing the output file, in micro seconds, in the current time period.
+     * Their totals are kept since the server started.
+     *
+     * @return Histogram
+     */
+    public Histogram getForceLatencyHistogram() {
+        return this.forceLatencyHistogram;
+    }
+
+    /**
+     * Returns the latencies from handing a chunk to the output file to writing it, in micro seconds, in the current
+     * time period. Their totals are kept since the server started.
+     *
+     * @return Histogram
+     */
+    public Histogram getWriteLatencyHistogram() {
+        return this.writeLatencyHistogram;
+    }
+
+    /**
+     * Returns the latencies from reading a chunk to the output file acknowledging it, in micro seconds.
+     * The recorder is drained by {@link #rotate()}.
+     *
+     * @return LatencyRecorder
+     */
+    public LatencyRecorder getEndToEndLatencyRecorder() {
+        return this.endToEndLatencyRecorder;
+    }
+
+    /**
+     * Returns the same latencies as {@link #getEndToEndLatencyRecorder()}, in a recorder of their own.
+     * The recorder is drained by {@link org.example.admission.AdmissionController}.
+     *
+     * @return LatencyRecorder
      */
-    public void resetDuplicateNumCounter() {
-        this.duplicateNumCounter.getAndSet(0);
+    public LatencyRecorder getAdmissionLatencyRecorder() {
+        return this.admissionLatencyRecorder;
     }
 
     /**
@@ -97,11 +377,11 @@ public class MetricsCollector implements Handler<Message<String>> {
     public void handle(final Message<String> event) {
         Preconditions.checkArgument(Objects.nonNull(event), "Event cannot be null");
 
-        if (EventType.valueOf(event.body()) == EventType.DUPLICATE) {
-            this.duplicateNumCounter.incrementAndGet();
-        } else if (EventType.valueOf(event.body()) == EventType.NEW) {
-            this.totalUniqueNumCounter.incrementAndGet();
-            this.uniqueNumCounterForTimePeriod.incrementAndGet();
+        final EventType eventType = EventType.valueOf(event.body());
+        if (eventType == EventType.DUPLICATE) {
+            this.recordDuplicate(1);
+        } else if (eventType == EventType.NEW) {
+            this.recordUnique(1);
         }
     }
 }
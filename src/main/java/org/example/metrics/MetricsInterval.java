@@ -0,0 +1,169 @@
+package org.example.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The metrics of a single reporting interval, as closed by {@link MetricsCollector#rotate()}.
+ *
+ * An interval never changes once closed. Its histograms hold only the values recorded within it, and must not be
+ * recorded into.
+ */
+public final class MetricsInterval {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final long startNanos;
+    private final long endNanos;
+    private final long uniqueCount;
+    private final long duplicateCount;
+    private final Histogram batchSizeHistogram;
+    private final Histogram forceLatencyHistogram;
+    private final Histogram writeLatencyHistogram;
+    private final Histogram endToEndLatencyHistogram;
+
+    /**
+     * Creates a closed interval.
+     *
+     * @param startNanos Start of the interval, as of {@link System#nanoTime()}.
+     * @param endNanos End of the interval, as of {@link System#nanoTime()}.
+     * @param uniqueCount Count of unique numbers received.
+     * @param duplicateCount Count of duplicate numbers received.
+     * @param batchSizeHistogram Sizes of the batches written, in bytes.
+     * @param forceLatencyHistogram Latencies of forcing the output file, in micro seconds.
+     * @param writeLatencyHistogram Latencies from handing a chunk to the output file to writing it, in micro seconds.
+     * @param endToEndLatencyHistogram Latencies from reading a chunk to its acknowledgement, in micro seconds.
+     */
+    public MetricsInterval(
+            final long startNanos,
+            final long endNanos,
+            final long uniqueCount,
+            final long duplicateCount,
+            final Histogram batchSizeHistogram,
+            final Histogram forceLatencyHistogram,
+            final Histogram writeLatencyHistogram,
+            final Histogram endToEndLatencyHistogram) {
+
+        Preconditions.checkArgument(endNanos >= startNanos, "Interval cannot end before it starts");
+
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+        this.uniqueCount = uniqueCount;
+        this.duplicateCount = duplicateCount;
+        this.batchSizeHistogram = batchSizeHistogram;
+        this.forceLatencyHistogram = forceLatencyHistogram;
+        this.writeLatencyHistogram = writeLatencyHistogram;
+        this.endToEndLatencyHistogram = endToEndLatencyHistogram;
+    }
+
+    /**
+     * Returns the start of the interval, as of {@link System#nanoTime()}.
+     *
+     * @return long
+     */
+    public long getStartNanos() {
+        return this.startNanos;
+    }
+
+    /**
+     * Returns the end of the interval, as of {@link System#nanoTime()}.
+     *
+     * @return long
+     */
+    public long getEndNanos() {
+        return this.endNanos;
+    }
+
+    /**
+     * Returns the length of the interval.
+     *
+     * @return Nano seconds.
+     */
+    public long getDurationNanos() {
+        return this.endNanos - this.startNanos;
+    }
+
+    /**
+     * Returns count of unique numbers received in the interval.
+     *
+     * @return long
+     */
+    public long getUniqueCount() {
+        return this.uniqueCount;
+    }
+
+    /**
+     * Returns count of duplicate numbers received in the interval.
+     *
+     * @return long
+     */
+    public long getDuplicateCount() {
+        return this.duplicateCount;
+    }
+
+    /**
+     * Returns the unique numbers received per second in the interval.
+     *
+     * @return Zero if the interval is empty.
+     */
+    public double getUniqueRate() {
+        return rate(this.uniqueCount, this.getDurationNanos());
+    }
+
+    /**
+     * Returns the duplicate numbers received per second in the interval.
+     *
+     * @return Zero if the interval is empty.
+     */
+    public double getDuplicateRate() {
+        return rate(this.duplicateCount, this.getDurationNanos());
+    }
+
+    /**
+     * Returns the sizes of the batches written in the interval, in bytes.
+     *
+     * @return Histogram
+     */
+    public Histogram getBatchSizeHistogram() {
+        return this.batchSizeHistogram;
+    }
+
+    /**
+     * Returns the latencies of forcing the output file in the interval, in micro seconds.
+     *
+     * @return Histogram
+     */
+    public Histogram getForceLatencyHistogram() {
+        return this.forceLatencyHistogram;
+    }
+
+    /**
+     * Returns the latencies from handing a chunk to the output file to writing it in the interval, in micro seconds.
+     *
+     * @return Histogram
+     */
+    public Histogram getWriteLatencyHistogram() {
+        return this.writeLatencyHistogram;
+    }
+
+    /**
+     * Returns the latencies from reading a chunk to its acknowledgement in the interval, in micro seconds.
+     *
+     * @return Histogram
+     */
+    public Histogram getEndToEndLatencyHistogram() {
+        return this.endToEndLatencyHistogram;
+    }
+
+    /**
+     * Returns the given count per second.
+     *
+     * @param count Count of events.
+     * @param nanos Time they happened within.
+     * @return Zero if no time passed.
+     */
+    static double rate(final long count, final long nanos) {
+        return nanos > 0 ? count * NANOS_PER_SECOND / nanos : 0;
+    }
+}
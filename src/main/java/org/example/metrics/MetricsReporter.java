@@ -15,14 +15,28 @@ import lombok.extern.slf4j.Slf4j;
  *   - Count of unique numbers captured in that time interval.
  *   - Count of duplicate numbers captured in that time interval.
  *   - Total count of all unique numbers captured.
+ *   - Rates of unique and duplicate numbers, and percentiles of the end to end latencies, over the whole
+ *     {@link MetricsWindow}, once it spans more than the interval.
+ *   - Percentiles of the sizes of the batches written and of the latencies to force them, if any were.
+ *   - Percentiles of the latencies from handing a chunk to the output file to writing it, if any was.
+ *   - Percentiles of the latencies from reading a chunk on the socket to the output file acknowledging it, if any was.
+ *     They are merged from the recorders of all the event loops, and include the 99.9th percentile, as the tail is what
+ *     the consumers of the output file wait for.
+ *   - Connections rejected and shed by the admission control, if any were, or if the server is overloaded.
+ *   - Connections reaped, as idle or too slow, if any were.
  *
  * All the metrics reported are stored in server memory.
- * After printing the stats, it resets the counters meant for that interval.
+ * Before printing the stats, it closes the interval with {@link MetricsCollector#rotate()}, so that the events recorded
+ * while printing are reported in the next interval, instead of being reset.
  */
 @Component
 @Slf4j
 public class MetricsReporter implements Handler<Long> {
 
+    private static final double MEDIAN = 50.0;
+    private static final double TAIL = 99.0;
+    private static final double FAR_TAIL = 99.9;
+
     private final MetricsCollector metricsCollector;
 
     public MetricsReporter(final MetricsCollector metricsCollector) {
@@ -31,12 +45,62 @@ public class MetricsReporter implements Handler<Long> {
 
     @Override
     public void handle(final Long event) {
+        final MetricsInterval interval = this.metricsCollector.rotate();
         log.info("Received {} unique numbers, {} duplicates. Unique total: {}",
-                this.metricsCollector.getUniqueNumsCountForTimePeriod(),
-                this.metricsCollector.getDuplicateNumCount(),
+                interval.getUniqueCount(),
+                interval.getDuplicateCount(),
                 this.metricsCollector.getTotalUniqueNumsCount());
 
-        this.metricsCollector.resetDuplicateNumCounter();
-        this.metricsCollector.resetUniqueNumCounter();
+        this.report("Wrote {} batches. Size p50: {}, p99: {}, max: {} bytes",
+                interval.getBatchSizeHistogram());
+        this.report("Forced {} times. Latency p50: {}, p99: {}, max: {} us",
+                interval.getForceLatencyHistogram());
+        this.report("Wrote {} chunks. Latency p50: {}, p99: {}, max: {} us",
+                interval.getWriteLatencyHistogram());
+
+        final Histogram endToEndLatencies = interval.getEndToEndLatencyHistogram();
+        if (endToEndLatencies.getCount() > 0) {
+            log.info("Acknowledged {} chunks end to end. Latency p50: {}, p99: {}, p999: {}, max: {} us",
+                    endToEndLatencies.getCount(),
+                    endToEndLatencies.getValueAtPercentile(MEDIAN),
+                    endToEndLatencies.getValueAtPercentile(TAIL),
+                    endToEndLatencies.getValueAtPercentile(FAR_TAIL),
+                    endToEndLatencies.getMax());
+        }
+
+        final MetricsWindow window = this.metricsCollector.getWindow();
+        final int intervals = window.getIntervals().size();
+        if (intervals > 1) {
+            final Histogram windowLatencies = window.getEndToEndLatencyHistogram();
+            log.info("Over the last {} intervals: {} unique numbers, {} duplicates per sec. End to end p99: {}, "
+                    + "p999: {} us",
+                    intervals,
+                    Math.round(window.getUniqueRate()),
+                    Math.round(window.getDuplicateRate()),
+                    windowLatencies.getValueAtPercentile(TAIL),
+                    windowLatencies.getValueAtPercentile(FAR_TAIL));
+        }
+
+        final long rejected = this.metricsCollector.getRejectedConnectionCount();
+        final long shed = this.metricsCollector.getShedConnectionCount();
+        if (rejected > 0 || shed > 0 || this.metricsCollector.isOverloaded()) {
+            log.info("Admitted {} connections, rejected {}, shed {}. Overloaded: {}",
+                    this.metricsCollector.getAdmittedConnectionCount(), rejected, shed,
+                    this.metricsCollector.isOverloaded());
+        }
+        final long reaped = this.metricsCollector.getReapedConnectionCount();
+        if (reaped > 0) {
+            log.info("Reaped {} connections", reaped);
+        }
+    }
+
+    private void report(final String format, final Histogram histogram) {
+        if (histogram.getCount() > 0) {
+            log.info(format,
+                    histogram.getCount(),
+                    histogram.getValueAtPercentile(MEDIAN),
+                    histogram.getValueAtPercentile(TAIL),
+                    histogram.getMax());
+        }
     }
 }
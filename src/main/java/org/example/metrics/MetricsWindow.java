@@ -0,0 +1,129 @@
+package org.example.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A ring of the last "metrics.window.intervals" {@link MetricsInterval}s, the oldest one dropped as a new one closes.
+ *
+ * Rates over the window are the counts of all its intervals divided by the time they span, which is a moving average
+ * of the rate of each interval, weighted by its length. Percentiles over the window come from merging the histograms
+ * of all its intervals, hence are exact up to the bucket precision, unlike an average of the percentile of each one.
+ * As no interval loses any value, neither does the window.
+ *
+ * Every interval holds a few histograms of a few KB each, allocated once as it closes, hence the window should span
+ * minutes rather than hours.
+ */
+public final class MetricsWindow {
+
+    private final MetricsInterval[] intervals;
+
+    // Guarded by this
+    private int next;
+    private int size;
+
+    /**
+     * Creates an empty window.
+     *
+     * @param capacity Count of intervals kept.
+     */
+    public MetricsWindow(final int capacity) {
+        Preconditions.checkArgument(capacity > 0, "Window must keep at least one interval");
+
+        this.intervals = new MetricsInterval[capacity];
+    }
+
+    /**
+     * Adds a closed interval, dropping the oldest one if the window is full.
+     *
+     * @param interval The interval just closed.
+     */
+    synchronized void add(final MetricsInterval interval) {
+        this.intervals[this.next] = interval;
+        this.next = (this.next + 1) % this.intervals.length;
+        this.size = Math.min(this.size + 1, this.intervals.length);
+    }
+
+    /**
+     * Returns count of intervals the window can keep.
+     *
+     * @return int
+     */
+    public int getCapacity() {
+        return this.intervals.length;
+    }
+
+    /**
+     * Returns the intervals in the window, the oldest first.
+     *
+     * @return A copy, which is not updated as intervals close.
+     */
+    public synchronized List<MetricsInterval> getIntervals() {
+        final List<MetricsInterval> list = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            list.add(this.intervals[(this.next - this.size + i + this.intervals.length) % this.intervals.length]);
+        }
+        return list;
+    }
+
+    /**
+     * Returns the unique numbers received per second over the window.
+     *
+     * @return Zero if the window is empty.
+     */
+    public double getUniqueRate() {
+        return this.getRate(MetricsInterval::getUniqueCount);
+    }
+
+    /**
+     * Returns the duplicate numbers received per second over the window.
+     *
+     * @return Zero if the window is empty.
+     */
+    public double getDuplicateRate() {
+        return this.getRate(MetricsInterval::getDuplicateCount);
+    }
+
+    /**
+     * Returns the latencies from reading a chunk to its acknowledgement over the window, in micro seconds.
+     *
+     * @return A new histogram.
+     */
+    public Histogram getEndToEndLatencyHistogram() {
+        return this.merge(MetricsInterval::getEndToEndLatencyHistogram);
+    }
+
+    /**
+     * Returns a count per second over the window.
+     *
+     * @param count Count of each interval.
+     * @return Zero if the window is empty.
+     */
+    public double getRate(final ToLongFunction<MetricsInterval> count) {
+        long total = 0;
+        long nanos = 0;
+        for (final MetricsInterval interval : this.getIntervals()) {
+            total += count.applyAsLong(interval);
+            nanos += interval.getDurationNanos();
+        }
+        return MetricsInterval.rate(total, nanos);
+    }
+
+    /**
+     * Merges a histogram of every interval of the window.
+     *
+     * @param histogram Histogram of each interval.
+     * @return A new histogram.
+     */
+    public Histogram merge(final Function<MetricsInterval, Histogram> histogram) {
+        final Histogram merged = new Histogram();
+        for (final MetricsInterval interval : this.getIntervals()) {
+            merged.add(histogram.apply(interval));
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import io.vertx.core.net.SocketAddress;
+import io.vertx.core.spi.metrics.TCPMetrics;
+
+/**
+ * Counts the connections, bytes and errors of the TCP servers listening on an address, as reported by Vert.x.
+ *
+ * Vert.x calls it from the event loop of each connection, on every read and write. The counts are kept in
+ * {@link LongAdder}s, so that the event loops serving the connections of the same address rarely contend. The
+ * connections need no per connection state, hence none is returned when one opens.
+ *
+ * The {@link io.vertx.core.net.NetServer} instances listening on the same port share the same metrics, as they share
+ * the same socket. The counts of an address are thus those of all its instances.
+ */
+public final class NetServerMetrics implements TCPMetrics<Void> {
+
+    private final String address;
+    private final LongAdder connectedCounter = new LongAdder();
+    private final LongAdder disconnectedCounter = new LongAdder();
+    private final LongAdder bytesReadCounter = new LongAdder();
+    private final LongAdder bytesWrittenCounter = new LongAdder();
+    private final LongAdder errorCounter = new LongAdder();
+
+    NetServerMetrics(final String address) {
+        this.address = address;
+    }
+
+    @Override
+    public Void connected(final SocketAddress remoteAddress, final String remoteName) {
+        this.connectedCounter.increment();
+        return null;
+    }
+
+    @Override
+    public void disconnected(final Void socketMetric, final SocketAddress remoteAddress) {
+        this.disconnectedCounter.increment();
+    }
+
+    @Override
+    public void bytesRead(final Void socketMetric, final SocketAddress remoteAddress, final long numberOfBytes) {
+        this.bytesReadCounter.add(numberOfBytes);
+    }
+
+    @Override
+    public void bytesWritten(final Void socketMetric, final SocketAddress remoteAddress, final long numberOfBytes) {
+        this.bytesWrittenCounter.add(numberOfBytes);
+    }
+
+    @Override
+    public void exceptionOccurred(final Void socketMetric, final SocketAddress remoteAddress, final Throwable t) {
+        this.errorCounter.increment();
+    }
+
+    /**
+     * Returns the address the servers listen on.
+     *
+     * @return String
+     */
+    public String getAddress() {
+        return this.address;
+    }
+
+    /**
+     * Returns count of connections accepted since the start.
+     *
+     * @return long
+     */
+    public long getConnectedCount() {
+        return this.connectedCounter.sum();
+    }
+
+    /**
+     * Returns count of connections currently open.
+     *
+     * @return long
+     */
+    public long getOpenCount() {
+        return this.connectedCounter.sum() - this.disconnectedCounter.sum();
+    }
+
+    /**
+     * Returns count of bytes read from the connections since the start.
+     *
+     * @return long
+     */
+    public long getBytesRead() {
+        return this.bytesReadCounter.sum();
+    }
+
+    /**
+     * Returns count of bytes written to the connections since the start.
+     *
+     * @return long
+     */
+    public long getBytesWritten() {
+        return this.bytesWrittenCounter.sum();
+    }
+
+    /**
+     * Returns count of errors raised by the connections since the start.
+     *
+     * @return long
+     */
+    public long getErrorCount() {
+        return this.errorCounter.sum();
+    }
+}
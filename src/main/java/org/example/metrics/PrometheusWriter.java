@@ -0,0 +1,200 @@
+package org.example.metrics;
+
+import java.util.Objects;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Writes metrics in the Prometheus text exposition format, version 0.0.4.
+ *
+ * Every metric is written with its HELP and TYPE lines, followed by its samples. A metric may have a sample per value
+ * of a single label, such as one per event loop. A {@link Histogram} is written as a Prometheus histogram over its
+ * totals, with a cumulative bucket for each of the given bounds. Its values are divided by the given scale, so that
+ * latencies recorded in micro seconds are exposed in seconds, as Prometheus expects.
+ *
+ * Metrics are appended to a single {@link StringBuilder}. Writing them allocates only the strings of the numbers, so
+ * that the whole page can be encoded at every scrape.
+ */
+public final class PrometheusWriter {
+
+    /**
+     * Content type of the text exposition format.
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final StringBuilder builder;
+
+    /**
+     * Creates a writer appending to the given builder.
+     *
+     * @param builder Receives the metrics.
+     */
+    public PrometheusWriter(final StringBuilder builder) {
+        Preconditions.checkArgument(Objects.nonNull(builder), "Builder cannot be null");
+
+        this.builder = builder;
+    }
+
+    /**
+     * Writes a counter, which only ever grows.
+     *
+     * @param name Name of the counter, conventionally ending with "_total".
+     * @param help Description of the counter.
+     * @param value Current value.
+     * @return This writer.
+     */
+    public PrometheusWriter counter(final String name, final String help, final long value) {
+        this.header(name, help, "counter");
+        this.sample(name, value);
+        return this;
+    }
+
+    /**
+     * Writes a gauge, which can go up and down.
+     *
+     * @param name Name of the gauge.
+     * @param help Description of the gauge.
+     * @param value Current value.
+     * @return This writer.
+     */
+    public PrometheusWriter gauge(final String name, final String help, final long value) {
+        this.header(name, help, "gauge");
+        this.sample(name, value);
+        return this;
+    }
+
+    /**
+     * Writes the totals of a histogram.
+     *
+     * @param name Name of the histogram, conventionally ending with its unit.
+     * @param help Description of the histogram.
+     * @param histogram The histogram.
+     * @param bounds Upper bounds of the buckets, in increasing order, in the unit the values were recorded in.
+     * @param scale Count of recorded units per exposed unit, such as 1000000 for micro seconds exposed as seconds.
+     * @return This writer.
+     */
+    public PrometheusWriter histogram(
+            final String name,
+            final String help,
+            final Histogram histogram,
+            final long[] bounds,
+            final double scale) {
+
+        Preconditions.checkArgument(scale > 0, "Scale must be positive");
+
+        this.header(name, help, "histogram");
+        this.histogramSamples(name, "", histogram, bounds, scale);
+        return this;
+    }
+
+    /**
+     * Writes a gauge with a sample per value of a label, such as one per event loop.
+     *
+     * @param name Name of the gauge.
+     * @param help Description of the gauge.
+     * @param label Name of the label.
+     * @param labelValues Value of the label of each sample.
+     * @param values Current value of each sample, at the same index.
+     * @return This writer.
+     */
+    public PrometheusWriter gauges(
+            final String name,
+            final String help,
+            final String label,
+            final String[] labelValues,
+            final double[] values) {
+
+        Preconditions.checkArgument(labelValues.length == values.length, "There must be a value per label value");
+
+        this.header(name, help, "gauge");
+        for (int i = 0; i < values.length; i++) {
+            this.builder.append(name).append('{');
+            this.label(label, labelValues[i]).append("} ").append(values[i]).append('\n');
+        }
+        return this;
+    }
+
+    /**
+     * Writes the totals of a histogram per value of a label, such as one per event loop.
+     *
+     * @param name Name of the histogram, conventionally ending with its unit.
+     * @param help Description of the histogram.
+     * @param label Name of the label.
+     * @param labelValues Value of the label of each histogram.
+     * @param histograms The histograms, at the same index.
+     * @param bounds Upper bounds of the buckets, in increasing order, in the unit the values were recorded in.
+     * @param scale Count of recorded units per exposed unit, such as 1000000 for micro seconds exposed as seconds.
+     * @return This writer.
+     */
+    public PrometheusWriter histograms(
+            final String name,
+            final String help,
+            final String label,
+            final String[] labelValues,
+            final Histogram[] histograms,
+            final long[] bounds,
+            final double scale) {
+
+        Preconditions.checkArgument(labelValues.length == histograms.length, "There must be a histogram per label value");
+        Preconditions.checkArgument(scale > 0, "Scale must be positive");
+
+        this.header(name, help, "histogram");
+        for (int i = 0; i < histograms.length; i++) {
+            this.histogramSamples(name, label + "=\"" + labelValues[i] + '"', histograms[i], bounds, scale);
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return this.builder.toString();
+    }
+
+    private void header(final String name, final String help, final String type) {
+        this.builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        this.builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private void sample(final String name, final long value) {
+        this.builder.append(name).append(' ').append(value).append('\n');
+    }
+
+    private void histogramSamples(
+            final String name,
+            final String labels,
+            final Histogram histogram,
+            final long[] bounds,
+            final double scale) {
+
+        final long[] counts = new long[bounds.length];
+        histogram.getTotalCountsAtOrBelow(bounds, counts);
+        final long count = histogram.getTotalCount();
+
+        for (int i = 0; i < bounds.length; i++) {
+            this.bucket(name, labels, Double.toString(bounds[i] / scale), counts[i]);
+        }
+        this.bucket(name, labels, "+Inf", count);
+        this.suffixed(name, "_sum", labels).append(histogram.getTotalSum() / scale).append('\n');
+        this.suffixed(name, "_count", labels).append(count).append('\n');
+    }
+
+    private void bucket(final String name, final String labels, final String bound, final long count) {
+        this.builder.append(name).append("_bucket{");
+        if (!labels.isEmpty()) {
+            this.builder.append(labels).append(',');
+        }
+        this.label("le", bound).append("} ").append(count).append('\n');
+    }
+
+    private StringBuilder suffixed(final String name, final String suffix, final String labels) {
+        this.builder.append(name).append(suffix);
+        if (!labels.isEmpty()) {
+            this.builder.append('{').append(labels).append('}');
+        }
+        return this.builder.append(' ');
+    }
+
+    private StringBuilder label(final String label, final String value) {
+        return this.builder.append(label).append("=\"").append(value).append('"');
+    }
+}
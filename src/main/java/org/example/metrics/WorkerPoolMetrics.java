@@ -0,0 +1,113 @@
+package org.example.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.vertx.core.spi.metrics.PoolMetrics;
+
+/**
+ * Tracks the tasks run by a Vert.x worker pool, such as the one running the blocking file operations.
+ *
+ * Every task is stamped once submitted, and once it starts. Hence the time it waited in the queue and the time it ran
+ * are recorded into {@link Histogram}s, in micro seconds, while the tasks pending and running are counted.
+ */
+public final class WorkerPoolMetrics implements PoolMetrics<Long> {
+
+    private final String name;
+    private final int maxSize;
+    private final LongAdder submittedCounter = new LongAdder();
+    private final LongAdder rejectedCounter = new LongAdder();
+    private final LongAdder begunCounter = new LongAdder();
+    private final LongAdder endedCounter = new LongAdder();
+    private final Histogram queueLatencyHistogram = new Histogram();
+    private final Histogram executionLatencyHistogram = new Histogram();
+
+    WorkerPoolMetrics(final String name, final int maxSize) {
+        this.name = name;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public Long submitted() {
+        this.submittedCounter.increment();
+        return System.nanoTime();
+    }
+
+    @Override
+    public void rejected(final Long submittedNanos) {
+        this.rejectedCounter.increment();
+    }
+
+    @Override
+    public Long begin(final Long submittedNanos) {
+        final long now = System.nanoTime();
+        this.begunCounter.increment();
+        if (submittedNanos != null) {
+            this.queueLatencyHistogram.record(TimeUnit.NANOSECONDS.toMicros(Math.max(0, now - submittedNanos)));
+        }
+        return now;
+    }
+
+    @Override
+    public void end(final Long begunNanos, final boolean succeeded) {
+        this.endedCounter.increment();
+        if (begunNanos != null) {
+            this.executionLatencyHistogram.record(
+                    TimeUnit.NANOSECONDS.toMicros(Math.max(0, System.nanoTime() - begunNanos)));
+        }
+    }
+
+    /**
+     * Returns the name of the pool.
+     *
+     * @return String
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the maximum count of tasks the pool runs at once.
+     *
+     * @return int
+     */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Returns count of tasks waiting in the queue.
+     *
+     * @return long
+     */
+    public long getPendingCount() {
+        return this.submittedCounter.sum() - this.rejectedCounter.sum() - this.begunCounter.sum();
+    }
+
+    /**
+     * Returns count of tasks currently running.
+     *
+     * @return long
+     */
+    public long getRunningCount() {
+        return this.begunCounter.sum() - this.endedCounter.sum();
+    }
+
+    /**
+     * Returns the distribution of the times tasks waited in the queue, in micro seconds.
+     *
+     * @return Histogram
+     */
+    public Histogram getQueueLatencyHistogram() {
+        return this.queueLatencyHistogram;
+    }
+
+    /**
+     * Returns the distribution of the times tasks ran, in micro seconds.
+     *
+     * @return Histogram
+     */
+    public Histogram getExecutionLatencyHistogram() {
+        return this.executionLatencyHistogram;
+    }
+}
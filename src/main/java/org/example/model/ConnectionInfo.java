@@ -1,39 +1,37 @@
 package org.example.model;
 
-import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
-import lombok.NoArgsConstructor;
 
 /**
  * Holds basic connection information such as remote address, port and handler id.
  * Its only used to track who initiated connection and who disconnected.
+ *
+ * The connection id is built once, along with the connection info, as it is looked up on every connect and
+ * disconnect, and logged along the way.
  */
-@Builder
 @Getter
-@AllArgsConstructor(access = AccessLevel.PRIVATE)
-@NoArgsConstructor(access = AccessLevel.PRIVATE)
 @EqualsAndHashCode
-public class ConnectionInfo {
+public final class ConnectionInfo {
 
     private static final String COLON = ":";
 
-    private String remoteHostName;
-    private int remotePort;
-    private String writeHandlerId;
+    private final String remoteHostName;
+    private final int remotePort;
+    private final String writeHandlerId;
 
     /**
-     * Returns the connection id.
-     *
-     * @return A string respresenting the connection id.
+     * The connection id, such as "127.0.0.1:4000", derived from the remote host name and port.
      */
-    public String getConnectionId() {
-        final StringBuilder connectionId = new StringBuilder();
-        connectionId.append(this.remoteHostName);
-        connectionId.append(COLON);
-        connectionId.append(this.remotePort);
-        return connectionId.toString();
+    @EqualsAndHashCode.Exclude
+    private final String connectionId;
+
+    @Builder
+    private ConnectionInfo(final String remoteHostName, final int remotePort, final String writeHandlerId) {
+        this.remoteHostName = remoteHostName;
+        this.remotePort = remotePort;
+        this.writeHandlerId = writeHandlerId;
+        this.connectionId = remoteHostName + COLON + remotePort;
     }
 }
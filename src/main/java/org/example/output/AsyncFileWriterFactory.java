@@ -0,0 +1,59 @@
+package org.example.output;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.streams.WriteStream;
+import io.vertx.reactivex.core.Vertx;
+import io.vertx.reactivex.core.file.AsyncFile;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes to the file using a Vert.x {@link AsyncFile}.
+ *
+ * Every buffer written becomes a separate write on the Vert.x worker pool, issued from the event loop which wrote it.
+ * The file is never forced to the storage device, as "output.durability" applies only to {@link BatchFileWriter}.
+ * The header of the {@link OutputFormat} is written first, if the file is empty.
+ * Chosen when "output.writer" is "async-file".
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "output.writer", havingValue = "async-file")
+public class AsyncFileWriterFactory implements OutputWriterFactory {
+
+    private final Vertx vertx;
+    private final OutputFormat outputFormat;
+
+    @Autowired
+    public AsyncFileWriterFactory(final Vertx vertx, final OutputFormat outputFormat) {
+        this.vertx = vertx;
+        this.outputFormat = outputFormat;
+    }
+
+    @Override
+    public WriteStream<Buffer> open(final String absoluteFilePath) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(Paths.get(absoluteFilePath),
+                StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            this.outputFormat.writeHeaderIfEmpty(fileChannel);
+        }
+
+        final AsyncFile asyncFile = this.vertx.fileSystem().openBlocking(absoluteFilePath,
+                new OpenOptions().setAppend(true).setWrite(true).setCreate(true));
+
+        asyncFile.exceptionHandler(event -> {
+            log.error("Error while writing into file", event.getCause());
+        });
+        return asyncFile.getDelegate();
+    }
+}
@@ -0,0 +1,364 @@
+package org.example.output;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.example.jfr.BatchFlushEvent;
+import org.example.jfr.ForceEvent;
+import org.example.metrics.MetricsCollector;
+
+import com.google.common.base.Preconditions;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes the buffers received from all the event loops to a file, using a single thread which owns the file.
+ *
+ * With a {@link io.vertx.core.file.AsyncFile}, every buffer written becomes its own small write on a worker thread,
+ * and all the event loops keep handing their buffers to the same file. Here instead the event loops only enqueue their
+ * buffers, on a lock free queue which supports many producers. A single writer thread drains the queue. It copies as
+ * many queued buffers as fit into a few large direct {@link ByteBuffer}s, allocated once and reused for every batch,
+ * and writes them with a single gather write using {@link FileChannel#write(ByteBuffer[], int, int)}. The more the
+ * event loops write, the larger the batches grow, and the fewer system calls are needed per buffer.
+ *
+ * A write completes once its batch has been handed to the operating system. The handler passed to
+ * {@link #write(Object, Handler)} is then called on the context which wrote the buffer. The futures returned by
+ * {@link #write(Object)} are completed on the writer thread instead, to avoid a dispatch per buffer.
+ *
+ * The write queue is full once the bytes waiting to be written reach the size set by {@link #setWriteQueueMaxSize(int)}.
+ * Like with {@link io.vertx.core.file.AsyncFile}, the drain handler is called once half of it has been written.
+ *
+ * The file is forced to the storage device as told by {@link Durability}. With {@link Durability#perBatch()}, the writes
+ * of a batch are acknowledged only once forced. The size of every batch and the latency of every force are recorded in
+ * {@link MetricsCollector}. Slow writes and forces are also emitted as {@link BatchFlushEvent}s and {@link ForceEvent}s.
+ *
+ * The batches are written to an {@link OutputFile}, which may switch over to a new file between two batches. Meanwhile
+ * the event loops keep enqueuing, hence switching never pauses them.
+ *
+ * If the file cannot be written, the pending writes fail along with all the subsequent ones, and the exception handler
+ * is called.
+ */
+@Slf4j
+public class BatchFileWriter implements WriteStream<Buffer> {
+
+    private static final int DEFAULT_WRITE_QUEUE_MAX_SIZE = 128 * 1024;
+    private static final String WRITER_THREAD_NAME = "output-writer";
+
+    private final OutputFile outputFile;
+    private final Durability durability;
+    private final MetricsCollector metricsCollector;
+    private final ByteBuffer[] buffers;
+    private final long batchCapacity;
+    private final Queue<PendingWrite> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicReference<ContextHandler<Void>> drainHandler = new AtomicReference<>();
+    private final List<PendingWrite> batch = new ArrayList<>();
+    private final Thread writerThread;
+
+    private volatile int maxQueuedBytes = DEFAULT_WRITE_QUEUE_MAX_SIZE;
+    private volatile ContextHandler<Throwable> exceptionHandler;
+    private volatile ContextHandler<AsyncResult<Void>> endHandler;
+    private volatile Throwable failure;
+    private volatile boolean waiting;
+    private volatile boolean ended;
+
+    // Touched by the writer thread only
+    private FileChannel fileChannel;
+    private long unforcedBytes;
+    private long lastForceNanos;
+
+    /**
+     * Starts the writer thread.
+     *
+     * @param outputFile The file to write into. Owned by this writer from now on and closed by {@link #end()}.
+     * @param bufferSize Size in bytes of each direct buffer used to coalesce the writes.
+     * @param buffers Count of direct buffers, the most that a single gather write can carry.
+     * @param durability Tells when the file is to be forced to the storage device.
+     * @param metricsCollector Records the size of the batches and the latency of the forces.
+     */
+    public BatchFileWriter(
+            final OutputFile outputFile,
+            final int bufferSize,
+            final int buffers,
+            final Durability durability,
+            final MetricsCollector metricsCollector) {
+
+        Preconditions.checkArgument(Objects.nonNull(outputFile), "Output file cannot be null");
+        Preconditions.checkArgument(bufferSize > 0, "Buffer size must be positive");
+        Preconditions.checkArgument(buffers > 0, "Buffers must be positive");
+        Preconditions.checkArgument(Objects.nonNull(durability), "Durability cannot be null");
+        Preconditions.checkArgument(Objects.nonNull(metricsCollector), "Metrics collector cannot be null");
+
+        this.outputFile = outputFile;
+        this.durability = durability;
+        this.metricsCollector = metricsCollector;
+        this.lastForceNanos = System.nanoTime();
+        this.buffers = new ByteBuffer[buffers];
+        for (int i = 0; i < buffers; i++) {
+            this.buffers[i] = ByteBuffer.allocateDirect(bufferSize);
+        }
+        this.batchCapacity = (long)bufferSize * buffers;
+        this.writerThread = new Thread(this::run, WRITER_THREAD_NAME);
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    @Override
+    public BatchFileWriter exceptionHandler(final Handler<Throwable> handler) {
+        this.exceptionHandler = handler == null ? null : new ContextHandler<>(handler, Vertx.currentContext());
+        return this;
+    }
+
+    @Override
+    public Future<Void> write(final Buffer data) {
+        final Promise<Void> promise = Promise.promise();
+        this.enqueue(data, promise, null);
+        return promise.future();
+    }
+
+    @Override
+    public void write(final Buffer data, final Handler<AsyncResult<Void>> handler) {
+        this.enqueue(data, handler, Vertx.currentContext());
+    }
+
+    /**
+     * Writes all the buffers queued so far, forces them unless the durability is none, then closes the file.
+     *
+     * @param handler Called once the file is closed.
+     */
+    @Override
+    public void end(final Handler<AsyncResult<Void>> handler) {
+        this.endHandler = new ContextHandler<>(handler, Vertx.currentContext());
+        this.ended = true;
+        LockSupport.unpark(this.writerThread);
+    }
+
+    @Override
+    public BatchFileWriter setWriteQueueMaxSize(final int maxSize) {
+        Preconditions.checkArgument(maxSize > 0, "Write queue max size must be positive");
+        this.maxQueuedBytes = maxSize;
+        return this;
+    }
+
+    @Override
+    public boolean writeQueueFull() {
+        return this.queuedBytes.get() >= this.maxQueuedBytes;
+    }
+
+    @Override
+    public BatchFileWriter drainHandler(final Handler<Void> handler) {
+        this.drainHandler.set(handler == null ? null : new ContextHandler<>(handler, Vertx.currentContext()));
+        this.checkDrained();
+        return this;
+    }
+
+    private void enqueue(final Buffer data, final Handler<AsyncResult<Void>> handler, final Context context) {
+        Preconditions.checkArgument(Objects.nonNull(data), "Data cannot be null");
+
+        if (this.ended || this.failure != null) {
+            final Throwable cause = this.failure != null ? this.failure : new IllegalStateException("Writer is ended");
+            new ContextHandler<>(handler, context).handle(Future.failedFuture(cause));
+            return;
+        }
+        final PendingWrite write = new PendingWrite(data, new ContextHandler<>(handler, context));
+        this.queuedBytes.addAndGet(data.length());
+        this.queue.offer(write);
+
+        // The flags are checked only after the offer, while the writer checks the queue only after setting them.
+        if (this.ended && this.queue.remove(write)) {
+            // The writer might have stopped already, and would then never see this write.
+            this.queuedBytes.addAndGet(-data.length());
+            write.handler.handle(Future.failedFuture(new IllegalStateException("Writer is ended")));
+        } else if (this.waiting) {
+            LockSupport.unpark(this.writerThread);
+        }
+    }
+
+    private void run() {
+        while (true) {
+            final PendingWrite first = this.queue.poll();
+            if (first != null) {
+                this.writeBatch(first);
+            } else if (this.ended) {
+                if (this.queue.isEmpty()) {
+                    break;
+                }
+            } else {
+                this.waiting = true;
+                if (this.queue.isEmpty() && !this.ended) {
+                    final long delay = this.durability.nanosUntilDue(
+                            this.unforcedBytes, System.nanoTime() - this.lastForceNanos);
+                    if (delay < 0) {
+                        LockSupport.park(this);
+                    } else if (delay > 0) {
+                        LockSupport.parkNanos(this, delay);
+                    }
+                }
+                this.waiting = false;
+                this.forceIfDue();
+            }
+        }
+        this.close();
+    }
+
+    private void writeBatch(final PendingWrite first) {
+        long bytes = 0;
+        PendingWrite next = first;
+        do {
+            this.batch.add(next);
+            bytes += next.data.length();
+            next = bytes < this.batchCapacity ? this.queue.poll() : null;
+        } while (next != null);
+
+        try {
+            if (this.failure == null) {
+                this.fileChannel = this.outputFile.current();
+                final BatchFlushEvent flushEvent = new BatchFlushEvent();
+                this.copyAndWrite();
+                flushEvent.commit(this.batch.size(), bytes);
+                this.outputFile.written(bytes);
+                this.unforcedBytes += bytes;
+                this.metricsCollector.recordBatch(bytes);
+                if (this.durability.holdsAcknowledgements()) {
+                    this.force();
+                }
+            }
+        } catch (final IOException e) {
+            this.fail(e);
+        }
+
+        final AsyncResult<Void> result = this.failure == null ? Future.succeededFuture() : Future.failedFuture(this.failure);
+        for (final PendingWrite write : this.batch) {
+            write.handler.handle(result);
+        }
+        this.batch.clear();
+        this.queuedBytes.addAndGet(-bytes);
+        this.checkDrained();
+        this.forceIfDue();
+    }
+
+    private void copyAndWrite() throws IOException {
+        int current = 0;
+        for (final PendingWrite write : this.batch) {
+            final ByteBuffer source = write.data.getByteBuf().nioBuffer();
+            while (source.hasRemaining()) {
+                if (!this.buffers[current].hasRemaining()) {
+                    current++;
+                    if (current == this.buffers.length) {
+                        // Only the last buffer of a batch can overflow, write out what was coalesced so far.
+                        this.flush(current);
+                        current = 0;
+                    }
+                }
+                final ByteBuffer target = this.buffers[current];
+                final int length = Math.min(source.remaining(), target.remaining());
+                target.put(source.slice().limit(length));
+                source.position(source.position() + length);
+            }
+        }
+        this.flush(current + 1);
+    }
+
+    private void flush(final int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            this.buffers[i].flip();
+        }
+        try {
+            while (this.buffers[count - 1].hasRemaining()) {
+                this.fileChannel.write(this.buffers, 0, count);
+            }
+        } finally {
+            for (int i = 0; i < count; i++) {
+                this.buffers[i].clear();
+            }
+        }
+    }
+
+    private void forceIfDue() {
+        if (this.failure == null && this.durability.isDue(this.unforcedBytes, System.nanoTime() - this.lastForceNanos)) {
+            try {
+                this.force();
+            } catch (final IOException e) {
+                this.fail(e);
+            }
+        }
+    }
+
+    private void force() throws IOException {
+        if (this.fileChannel == null) {
+            return;
+        }
+        final long start = System.nanoTime();
+        final ForceEvent forceEvent = new ForceEvent();
+        this.fileChannel.force(false);
+        forceEvent.commit(this.unforcedBytes);
+        this.lastForceNanos = System.nanoTime();
+        this.unforcedBytes = 0;
+        this.metricsCollector.recordForce(TimeUnit.NANOSECONDS.toMicros(this.lastForceNanos - start));
+    }
+
+    private void fail(final IOException e) {
+        log.error("Unable to write into file", e);
+        this.failure = e;
+        final ContextHandler<Throwable> handler = this.exceptionHandler;
+        if (handler != null) {
+            handler.handle(e);
+        }
+    }
+
+    private void checkDrained() {
+        if (this.queuedBytes.get() <= this.maxQueuedBytes / 2) {
+            final ContextHandler<Void> handler = this.drainHandler.getAndSet(null);
+            if (handler != null) {
+                handler.handle(null);
+            }
+        }
+    }
+
+    private void close() {
+        AsyncResult<Void> result = this.failure == null ? Future.succeededFuture() : Future.failedFuture(this.failure);
+        try {
+            if (this.failure == null && this.durability.getMode() != Durability.Mode.NONE && this.unforcedBytes > 0) {
+                this.force();
+            }
+            this.outputFile.close();
+        } catch (final IOException e) {
+            log.error("Unable to force and close the file", e);
+            result = Future.failedFuture(e);
+        }
+        this.endHandler.handle(result);
+    }
+
+    /**
+     * A buffer waiting to be written, along with the handler to be called once written.
+     */
+    private static final class PendingWrite {
+
+        private final Buffer data;
+        private final ContextHandler<AsyncResult<Void>> handler;
+
+        private PendingWrite(final Buffer data, final ContextHandler<AsyncResult<Void>> handler) {
+            this.data = data;
+            this.handler = handler;
+        }
+    }
+}
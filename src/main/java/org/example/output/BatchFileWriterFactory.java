@@ -0,0 +1,72 @@
+package org.example.output;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.example.metrics.MetricsCollector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Preconditions;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes to the file using a {@link BatchFileWriter}.
+ *
+ * The size of the direct buffers used to coalesce the writes is specified by "output.batch.buffer.size.bytes", and
+ * their count by "output.batch.buffers". Together they bound the bytes issued by a single gather write.
+ *
+ * When the file is forced to the storage device is specified by "output.durability", one of "none", "interval", "bytes"
+ * or "batch". Refer {@link Durability} for their meaning. The interval mode forces every
+ * "output.durability.interval.ms", while the bytes mode forces every "output.durability.bytes".
+ * The header of the {@link OutputFormat} is written first, if the file is empty.
+ * Chosen when "output.writer" is "batch", which is the default.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "output.writer", havingValue = "batch", matchIfMissing = true)
+public class BatchFileWriterFactory implements OutputWriterFactory {
+
+    private final MetricsCollector metricsCollector;
+    private final OutputFormat outputFormat;
+    private final int bufferSize;
+    private final int buffers;
+    private final Durability durability;
+
+    public BatchFileWriterFactory(
+            final MetricsCollector metricsCollector,
+            final OutputFormat outputFormat,
+            @Value("${output.batch.buffer.size.bytes:1048576}") final int bufferSize,
+            @Value("${output.batch.buffers:8}") final int buffers,
+            @Value("${output.durability:none}") final String durabilityMode,
+            @Value("${output.durability.interval.ms:1000}") final long durabilityIntervalMillis,
+            @Value("${output.durability.bytes:16777216}") final long durabilityBytes) {
+
+        Preconditions.checkArgument(bufferSize > 0, "Buffer size must be positive");
+        Preconditions.checkArgument(buffers > 0, "Buffers must be positive");
+
+        this.metricsCollector = metricsCollector;
+        this.outputFormat = outputFormat;
+        this.bufferSize = bufferSize;
+        this.buffers = buffers;
+        this.durability = Durability.of(durabilityMode, durabilityIntervalMillis, durabilityBytes);
+    }
+
+    @Override
+    public WriteStream<Buffer> open(final String absoluteFilePath) throws IOException {
+        final FileChannel fileChannel = FileChannel.open(Paths.get(absoluteFilePath),
+                StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        this.outputFormat.writeHeaderIfEmpty(fileChannel);
+        log.info("Writing in batches of up to {} bytes, with durability {}", (long)this.bufferSize * this.buffers, this.durability);
+        return new BatchFileWriter(new SingleOutputFile(fileChannel), this.bufferSize, this.buffers, this.durability, this.metricsCollector);
+    }
+}
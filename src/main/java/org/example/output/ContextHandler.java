@@ -0,0 +1,31 @@
+package org.example.output;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+
+/**
+ * A handler which is called on the context it was registered from, or directly if there was none.
+ *
+ * @param <E> Type of the event handled.
+ */
+final class ContextHandler<E> {
+
+    private final Handler<E> handler;
+    private final Context context;
+
+    ContextHandler(final Handler<E> handler, final Context context) {
+        this.handler = handler;
+        this.context = context;
+    }
+
+    void handle(final E event) {
+        if (this.handler == null) {
+            return;
+        }
+        if (this.context == null) {
+            this.handler.handle(event);
+        } else {
+            this.context.runOnContext(v -> this.handler.handle(event));
+        }
+    }
+}
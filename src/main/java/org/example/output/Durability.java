@@ -0,0 +1,162 @@
+package org.example.output;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Tells when the bytes written to the file are to be forced to the storage device, using
+ * {@link java.nio.channels.FileChannel#force(boolean)}.
+ *
+ * Until forced, the written bytes may sit in the page cache of the operating system, and are lost if the machine
+ * crashes. Each mode bounds that loss differently:
+ *   - none: Never forces. Up to the operating system to decide.
+ *   - interval: Forces once the given milliseconds elapsed since the last force. Loses at most that much time.
+ *   - bytes: Forces once the given bytes were written since the last force. Loses at most that many bytes.
+ *   - batch: Forces after every batch. The writes of a batch are acknowledged only once forced, hence nothing
+ *     acknowledged is ever lost.
+ *
+ * Forcing more often costs throughput, as the writer waits for the device each time.
+ */
+public final class Durability {
+
+    /**
+     * Available modes, as named by the property "output.durability".
+     */
+    public enum Mode {
+        NONE,
+        INTERVAL,
+        BYTES,
+        BATCH
+    }
+
+    private final Mode mode;
+    private final long threshold;
+
+    private Durability(final Mode mode, final long threshold) {
+        this.mode = mode;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Never forces the file.
+     *
+     * @return Durability
+     */
+    public static Durability none() {
+        return new Durability(Mode.NONE, 0);
+    }
+
+    /**
+     * Forces the file once the given time elapsed since the last force.
+     *
+     * @param millis Milliseconds between two forces.
+     * @return Durability
+     */
+    public static Durability everyMillis(final long millis) {
+        Preconditions.checkArgument(millis > 0, "Interval must be positive");
+        return new Durability(Mode.INTERVAL, TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * Forces the file once the given bytes were written since the last force.
+     *
+     * @param bytes Bytes between two forces.
+     * @return Durability
+     */
+    public static Durability everyBytes(final long bytes) {
+        Preconditions.checkArgument(bytes > 0, "Bytes must be positive");
+        return new Durability(Mode.BYTES, bytes);
+    }
+
+    /**
+     * Forces the file after every batch, before acknowledging its writes.
+     *
+     * @return Durability
+     */
+    public static Durability perBatch() {
+        return new Durability(Mode.BATCH, 0);
+    }
+
+    /**
+     * Creates the durability named by the given mode.
+     *
+     * @param mode One of {@link Mode}, in any case.
+     * @param intervalMillis Used by {@link Mode#INTERVAL}.
+     * @param bytes Used by {@link Mode#BYTES}.
+     * @return Durability
+     */
+    public static Durability of(final String mode, final long intervalMillis, final long bytes) {
+        switch (Mode.valueOf(mode.toUpperCase(Locale.ROOT))) {
+        case INTERVAL:
+            return everyMillis(intervalMillis);
+        case BYTES:
+            return everyBytes(bytes);
+        case BATCH:
+            return perBatch();
+        default:
+            return none();
+        }
+    }
+
+    /**
+     * Returns the mode.
+     *
+     * @return Mode
+     */
+    public Mode getMode() {
+        return this.mode;
+    }
+
+    /**
+     * Tells whether the writes are to be acknowledged only once forced.
+     *
+     * @return boolean
+     */
+    public boolean holdsAcknowledgements() {
+        return this.mode == Mode.BATCH;
+    }
+
+    /**
+     * Tells whether the file is to be forced now.
+     *
+     * @param unforcedBytes Bytes written since the last force.
+     * @param nanosSinceForce Nano seconds elapsed since the last force.
+     * @return boolean
+     */
+    public boolean isDue(final long unforcedBytes, final long nanosSinceForce) {
+        if (unforcedBytes == 0) {
+            return false;
+        }
+        switch (this.mode) {
+        case INTERVAL:
+            return nanosSinceForce >= this.threshold;
+        case BYTES:
+            return unforcedBytes >= this.threshold;
+        case BATCH:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Tells how long the writer may wait for more writes, before the file has to be forced.
+     *
+     * @param unforcedBytes Bytes written since the last force.
+     * @param nanosSinceForce Nano seconds elapsed since the last force.
+     * @return Nano seconds to wait, or a negative value if the writer may wait until the next write.
+     */
+    public long nanosUntilDue(final long unforcedBytes, final long nanosSinceForce) {
+        if (unforcedBytes == 0 || this.mode != Mode.INTERVAL) {
+            return -1;
+        }
+        return Math.max(0, this.threshold - nanosSinceForce);
+    }
+
+    @Override
+    public String toString() {
+        return this.mode.name().toLowerCase(Locale.ROOT);
+    }
+}
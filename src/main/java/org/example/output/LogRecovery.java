@@ -0,0 +1,302 @@
+package org.example.output;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.example.dedup.DeduplicationStore;
+import org.example.dedup.TtlDeduplicationStore;
+import org.example.handlers.DecodedNumberHandler;
+import org.example.handlers.PartitionedDeduplicationHandler;
+import org.example.metrics.MetricsCollector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Preconditions;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Recovers the state of the server from an output file written before a restart or a crash.
+ *
+ * The file holds the unique numbers, as fixed size records laid out by the {@link OutputFormat}, after its header if
+ * any. The format of the file is told from its first bytes, and must match the one configured, as the new numbers are
+ * appended in that format. Every number in it is fed to the deduplication engine, so that a number sent again after
+ * the restart is still detected as a duplicate. The count of numbers is added to the total of unique numbers in
+ * {@link MetricsCollector}.
+ *
+ * A crash could have left the last record partially written, or even a run of zeros at the end of the file. The file
+ * is hence truncated after its last valid record, so that the numbers written from now on are appended right after it.
+ * A record which is not a valid number but is followed by valid ones, such as a range the memory mapped writer never
+ * copied, is skipped and left in place. The numbers after it are kept, and fed to the deduplication engine like the
+ * others, so that they are never accepted again as unique.
+ *
+ * The file is scanned in parallel. It is split in ranges of whole frames, which are scanned by the tasks of a
+ * {@link ForkJoinPool}. Each task maps its range into memory, and reads the frames straight from the page cache,
+ * without copying them. The count of tasks run at the same time is specified by "recovery.parallelism", which
+ * defaults to the count of processors. The file is scanned twice: first to find its last valid record, then to feed
+ * the numbers up to it to the deduplication engine.
+ *
+ * The cache of {@link TtlDeduplicationStore} costs a boxed entry per number, hence seeding it with a log of hundreds of
+ * millions of numbers would exhaust the heap. Only the last "recovery.ttl.max.seeded.numbers" records, a million by
+ * default, are then fed to it, across all the files recovered. Those written earlier are the least likely to still be
+ * within the time to live. The numbers of the other stores are all fed, as they are held as primitives.
+ */
+@Slf4j
+@Component
+public class LogRecovery {
+
+    // Ranges above this count of frames are split further
+    private static final long SPLIT_THRESHOLD_FRAMES = 4 * 1024 * 1024;
+
+    // Numbers are handed over in chunks, so that partitions do not have to buffer a whole range
+    private static final int FRAMES_PER_CHUNK = 64 * 1024;
+
+    private final DeduplicationStore deduplicationStore;
+    private final Optional<PartitionedDeduplicationHandler> partitionedDeduplicationHandler;
+    private final MetricsCollector metricsCollector;
+    private final OutputFormat outputFormat;
+    private final int parallelism;
+    private final long splitThresholdFrames;
+
+    // Count of records still to be fed to a TtlDeduplicationStore, as the files are recovered from the latest
+    private long ttlSeedsLeft;
+
+    @Autowired
+    public LogRecovery(
+            final DeduplicationStore deduplicationStore,
+            final Optional<PartitionedDeduplicationHandler> partitionedDeduplicationHandler,
+            final MetricsCollector metricsCollector,
+            final OutputFormat outputFormat,
+            @Value("${recovery.parallelism:0}") final int parallelism,
+            @Value("${recovery.ttl.max.seeded.numbers:1000000}") final long maxTtlSeeds) {
+        this(deduplicationStore, partitionedDeduplicationHandler, metricsCollector, outputFormat, parallelism,
+                SPLIT_THRESHOLD_FRAMES, maxTtlSeeds);
+    }
+
+    LogRecovery(
+            final DeduplicationStore deduplicationStore,
+            final Optional<PartitionedDeduplicationHandler> partitionedDeduplicationHandler,
+            final MetricsCollector metricsCollector,
+            final OutputFormat outputFormat,
+            final int parallelism,
+            final long splitThresholdFrames,
+            final long maxTtlSeeds) {
+
+        Preconditions.checkArgument(Objects.nonNull(outputFormat), "Output format cannot be null");
+        Preconditions.checkArgument(parallelism >= 0, "Parallelism cannot be negative");
+        Preconditions.checkArgument(splitThresholdFrames > 0, "Split threshold must be positive");
+        Preconditions.checkArgument(maxTtlSeeds >= 0, "Max seeded numbers cannot be negative");
+
+        this.deduplicationStore = deduplicationStore;
+        this.partitionedDeduplicationHandler = partitionedDeduplicationHandler;
+        this.metricsCollector = metricsCollector;
+        this.outputFormat = outputFormat;
+        this.parallelism = parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+        this.splitThresholdFrames = splitThresholdFrames;
+        this.ttlSeedsLeft = maxTtlSeeds;
+    }
+
+    /**
+     * Scans the file, seeds the deduplication engine and the metrics, and truncates the file after its last valid record.
+     * When many files are recovered, the latest is to be recovered first.
+     *
+     * @param path Path of the output file.
+     * @return Count of numbers recovered.
+     * @throws IOException If the file cannot be read or truncated.
+     * @throws IllegalStateException If the file is not in the configured format.
+     */
+    public long recover(final Path path) throws IOException {
+        Preconditions.checkArgument(Objects.nonNull(path), "Path cannot be null");
+
+        final long start = System.nanoTime();
+        final Supplier<DecodedNumberHandler> seeders = this.partitionedDeduplicationHandler
+                .<Supplier<DecodedNumberHandler>>map(handler -> handler::newRecoveryHandler)
+                .orElse(() -> this.deduplicationStore::add);
+
+        final ScanResult result;
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final long size = fileChannel.size();
+            this.checkFormat(path, fileChannel);
+
+            final int headerSize = this.outputFormat.getHeader().length;
+            final int recordSize = this.outputFormat.getRecordSize();
+            final long records = Math.max(0, size - headerSize) / recordSize;
+            final ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+            try {
+                result = pool.invoke(new ScanTask(
+                        fileChannel, this.outputFormat, headerSize, 0, records, null, this.splitThresholdFrames));
+                final long seededFrames = this.seededFrames(result.lastValidFrame + 1);
+                pool.invoke(new ScanTask(fileChannel, this.outputFormat, headerSize, result.lastValidFrame + 1 - seededFrames,
+                        seededFrames, seeders, this.splitThresholdFrames));
+            } catch (final UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+            }
+
+            final long skipped = result.lastValidFrame + 1 - result.frames;
+            if (skipped > 0) {
+                log.warn("Skipped {} invalid records of {}, followed by valid numbers", skipped, path);
+            }
+            // A partially written header is dropped, and written again when the file is opened
+            final long validSize = size < headerSize ? 0 : headerSize + (result.lastValidFrame + 1) * recordSize;
+            if (validSize < size) {
+                log.warn("Truncating {} from {} to {} bytes, after its last valid number", path, size, validSize);
+                fileChannel.truncate(validSize);
+            }
+        }
+
+        this.metricsCollector.recordRecovered(result.frames);
+        log.info("Recovered {} numbers from {} in {} ms", result.frames, path,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result.frames;
+    }
+
+    /**
+     * Returns count of the last frames to be seeded, out of those given.
+     */
+    private long seededFrames(final long frames) {
+        if (this.partitionedDeduplicationHandler.isPresent() || !(this.deduplicationStore instanceof TtlDeduplicationStore)) {
+            return frames;
+        }
+        final long seeded = Math.min(frames, this.ttlSeedsLeft);
+        this.ttlSeedsLeft -= seeded;
+        if (seeded < frames) {
+            log.warn("Remembering only the last {} of {} records, as the cache of {} cannot hold them all",
+                    seeded, frames, TtlDeduplicationStore.class.getSimpleName());
+        }
+        return seeded;
+    }
+
+    private void checkFormat(final Path path, final FileChannel fileChannel) throws IOException {
+        if (fileChannel.size() == 0) {
+            return;
+        }
+        final ByteBuffer start = ByteBuffer.allocate(BinaryOutputFormat.HEADER_SIZE);
+        int read = 0;
+        while (start.hasRemaining() && read >= 0) {
+            read = fileChannel.read(start, start.position());
+        }
+        start.flip();
+        final OutputFormat fileFormat = OutputFormat.detect(start);
+        if (fileFormat.getClass() != this.outputFormat.getClass()) {
+            throw new IllegalStateException(String.format(
+                    "%s is written in format %s, while the configured format is %s", path, fileFormat, this.outputFormat));
+        }
+    }
+
+    /**
+     * Outcome of scanning a range.
+     */
+    private static final class ScanResult {
+
+        // Count of valid frames in the range
+        private final long frames;
+
+        // Index of the last valid frame in the file, or -1 if the range holds none
+        private final long lastValidFrame;
+
+        private ScanResult(final long frames, final long lastValidFrame) {
+            this.frames = frames;
+            this.lastValidFrame = lastValidFrame;
+        }
+
+        private ScanResult then(final ScanResult next) {
+            return new ScanResult(this.frames + next.frames, Math.max(this.lastValidFrame, next.lastValidFrame));
+        }
+    }
+
+    /**
+     * Scans a range of frames, splitting it up while its too large. Without seeders, the frames are only validated. The
+     * invalid frames are skipped.
+     */
+    private static final class ScanTask extends RecursiveTask<ScanResult> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileChannel fileChannel;
+        private final transient OutputFormat outputFormat;
+        private final int headerSize;
+        private final long firstFrame;
+        private final long frames;
+        private final transient Supplier<DecodedNumberHandler> seeders;
+        private final long splitThresholdFrames;
+
+        private ScanTask(
+                final FileChannel fileChannel,
+                final OutputFormat outputFormat,
+                final int headerSize,
+                final long firstFrame,
+                final long frames,
+                final Supplier<DecodedNumberHandler> seeders,
+                final long splitThresholdFrames) {
+
+            this.fileChannel = fileChannel;
+            this.outputFormat = outputFormat;
+            this.headerSize = headerSize;
+            this.firstFrame = firstFrame;
+            this.frames = frames;
+            this.seeders = seeders;
+            this.splitThresholdFrames = splitThresholdFrames;
+        }
+
+        @Override
+        protected ScanResult compute() {
+            if (this.frames > this.splitThresholdFrames) {
+                final long half = this.frames / 2;
+                final ScanTask left = new ScanTask(this.fileChannel, this.outputFormat, this.headerSize,
+                        this.firstFrame, half, this.seeders, this.splitThresholdFrames);
+                final ScanTask right = new ScanTask(this.fileChannel, this.outputFormat, this.headerSize,
+                        this.firstFrame + half, this.frames - half, this.seeders, this.splitThresholdFrames);
+                right.fork();
+                return left.compute().then(right.join());
+            }
+            try {
+                return this.scan();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private ScanResult scan() throws IOException {
+            final int recordSize = this.outputFormat.getRecordSize();
+            final MappedByteBuffer buffer = this.fileChannel.map(FileChannel.MapMode.READ_ONLY,
+                    this.headerSize + this.firstFrame * recordSize, this.frames * recordSize);
+            final DecodedNumberHandler seeder = this.seeders == null ? null : this.seeders.get();
+
+            long valid = 0;
+            long lastValid = -1;
+            for (int frame = 0; frame < this.frames; frame++) {
+                final int number = this.outputFormat.decode(buffer, frame * recordSize);
+                if (number < 0) {
+                    continue;
+                }
+                valid++;
+                lastValid = frame;
+                if (seeder == null) {
+                    continue;
+                }
+                seeder.handle(number);
+                if (valid % FRAMES_PER_CHUNK == 0) {
+                    seeder.endOfChunk();
+                }
+            }
+            if (seeder != null) {
+                seeder.endOfChunk();
+            }
+            return new ScanResult(valid, lastValid < 0 ? -1 : this.firstFrame + lastValid);
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package org.example.output;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.example.jfr.ForceEvent;
+import org.example.metrics.MetricsCollector;
+
+import com.google.common.base.Preconditions;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes the buffers received from all the event loops straight into a memory mapped file.
+ *
+ * The file is mapped in windows of a fixed size, which are preallocated as soon as a write reaches them. A write first
+ * reserves its range of the file, by atomically moving the end of the file forward. Then it copies its bytes into the
+ * mapped windows covering that range, on the event loop which wrote them. Hence there is no write queue at all, and the
+ * event loops never wait for each other beyond the atomic reservation. Writing a buffer costs a copy in memory.
+ *
+ * As the ranges are copied in no particular order, a range may be copied before the ones reserved ahead of it. The
+ * committed offset hence tracks the end of the bytes copied without any gap before them. A write which completes its
+ * copy records its range, and moves the committed offset over all the ranges copied right after it, without waiting
+ * for anyone. A write completes once the committed offset reaches its end, right away unless a range ahead of it is
+ * still being copied, in which case it completes on the thread which copies that range.
+ *
+ * The operating system writes the mapped pages back to the file on its own. A background flusher forces the windows up
+ * to the committed offset to the storage device as told by {@link Durability}. The interval mode forces every interval,
+ * while the bytes mode checks every {@link #BYTES_CHECK_MILLIS} whether enough bytes were committed. Since writes are
+ * never batched, the batch mode is not supported. The latency of every force is recorded in {@link MetricsCollector},
+ * and slow forces are emitted as {@link ForceEvent}s.
+ *
+ * As the write queue is never full, the drain handler is never needed and never called.
+ *
+ * If a range cannot be copied, or the file cannot be forced, the pending writes fail along with all the subsequent ones,
+ * and the exception handler is called. The committed offset would never move past a range left uncopied.
+ *
+ * The windows are mapped for as long as they may be written to or forced. Those entirely below both the committed
+ * offset and the last force are dropped whenever a new window is mapped, and unmapped once collected, hence the mapped
+ * address space does not grow along with the file.
+ *
+ * When ended, the file is truncated to the bytes actually written, dropping the unused part of the last window. If the
+ * server crashes instead, the file is left with a tail of zeros, which {@link LogRecovery} truncates. The tail may also
+ * hold ranges copied after a gap, as a window is forced whole, though none of their writes had completed. The gap is
+ * left by ranges still being copied, which {@link LogRecovery} skips, keeping the numbers after it.
+ */
+@Slf4j
+public class MappedFileWriter implements WriteStream<Buffer> {
+
+    /**
+     * Interval between two checks of the bytes written, with {@link Durability.Mode#BYTES}.
+     */
+    public static final long BYTES_CHECK_MILLIS = 10;
+
+    private static final String FLUSHER_THREAD_NAME = "mmap-flusher";
+    private static final int INITIAL_WINDOWS = 16;
+
+    private final FileChannel fileChannel;
+    private final int windowSize;
+    private final Durability durability;
+    private final MetricsCollector metricsCollector;
+    private final AtomicLong nextOffset;
+    private final AtomicLong committedOffset;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final ScheduledExecutorService flusher;
+
+    // Ranges copied after a gap, by their start, to their end
+    private final Map<Long, Long> copiedRanges = new ConcurrentHashMap<>();
+
+    // Writes waiting for the committed offset to reach their end, by their end
+    private final ConcurrentSkipListMap<Long, Promise<Void>> pendingWrites = new ConcurrentSkipListMap<>();
+
+    private volatile MappedByteBuffer[] windows = new MappedByteBuffer[INITIAL_WINDOWS];
+    private volatile ContextHandler<Throwable> exceptionHandler;
+    private volatile boolean ended;
+
+    // Written by the flusher thread only, read when dropping the windows
+    private volatile int firstUnforcedWindow;
+
+    // Touched by the flusher thread only
+    private long forcedOffset;
+
+    // Guarded by the lock of this writer, like the windows
+    private int firstMappedWindow;
+
+    /**
+     * Starts appending after the bytes already in the file.
+     *
+     * @param fileChannel The channel to write into, opened for reading and writing. Owned by this writer from now on.
+     * @param windowSize Size in bytes of each mapped window.
+     * @param durability Tells when the file is to be forced. Cannot be {@link Durability#perBatch()}.
+     * @param metricsCollector Records the latency of the forces.
+     * @throws IOException If the size of the file cannot be read.
+     */
+    public MappedFileWriter(
+            final FileChannel fileChannel,
+            final int windowSize,
+            final Durability durability,
+            final MetricsCollector metricsCollector) throws IOException {
+
+        Preconditions.checkArgument(Objects.nonNull(fileChannel), "File channel cannot be null");
+        Preconditions.checkArgument(windowSize > 0, "Window size must be positive");
+        Preconditions.checkArgument(Objects.nonNull(durability), "Durability cannot be null");
+        Preconditions.checkArgument(durability.getMode() != Durability.Mode.BATCH,
+                "Memory mapped writes are never batched");
+        Preconditions.checkArgument(Objects.nonNull(metricsCollector), "Metrics collector cannot be null");
+
+        this.fileChannel = fileChannel;
+        this.windowSize = windowSize;
+        this.durability = durability;
+        this.metricsCollector = metricsCollector;
+        this.nextOffset = new AtomicLong(fileChannel.size());
+        this.committedOffset = new AtomicLong(fileChannel.size());
+        this.forcedOffset = fileChannel.size();
+        this.firstUnforcedWindow = (int)(fileChannel.size() / windowSize);
+        this.firstMappedWindow = this.firstUnforcedWindow;
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, FLUSHER_THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Right after a force, the interval mode is due once the whole interval elapsed
+        final long checkMillis = durability.getMode() == Durability.Mode.INTERVAL
+                ? TimeUnit.NANOSECONDS.toMillis(durability.nanosUntilDue(1, 0))
+                : BYTES_CHECK_MILLIS;
+        if (durability.getMode() != Durability.Mode.NONE) {
+            this.flusher.scheduleWithFixedDelay(this::forceIfDue, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public MappedFileWriter exceptionHandler(final Handler<Throwable> handler) {
+        this.exceptionHandler = handler == null ? null : new ContextHandler<>(handler, Vertx.currentContext());
+        return this;
+    }
+
+    @Override
+    public Future<Void> write(final Buffer data) {
+        final long end;
+        try {
+            end = this.append(data);
+        } catch (final IOException | IllegalStateException e) {
+            return Future.failedFuture(e);
+        }
+        if (this.committedOffset.get() >= end) {
+            return Future.succeededFuture();
+        }
+        final Promise<Void> promise = Promise.promise();
+        this.pendingWrites.put(end, promise);
+        // The committed offset may have moved past the end meanwhile, or the writer failed, with no one left to complete
+        // the write
+        this.completePendingWrites();
+        if (this.failure.get() != null) {
+            this.failPendingWrites();
+        }
+        return promise.future();
+    }
+
+    @Override
+    public void write(final Buffer data, final Handler<AsyncResult<Void>> handler) {
+        final Future<Void> result = this.write(data);
+        if (handler != null) {
+            handler.handle(result);
+        }
+    }
+
+    /**
+     * Forces the file unless the durability is none or the writer failed, truncates it to the bytes committed and closes
+     * it.
+     *
+     * @param handler Called once the file is closed, on the flusher thread.
+     */
+    @Override
+    public void end(final Handler<AsyncResult<Void>> handler) {
+        this.ended = true;
+        this.flusher.execute(() -> {
+            final Throwable cause = this.failure.get();
+            Future<Void> result = cause == null ? Future.succeededFuture() : Future.failedFuture(cause);
+            try {
+                if (cause == null && this.durability.getMode() != Durability.Mode.NONE) {
+                    this.force();
+                }
+                this.fileChannel.truncate(this.committedOffset.get());
+                this.fileChannel.close();
+            } catch (final IOException e) {
+                log.error("Unable to force and close the file", e);
+                result = Future.failedFuture(e);
+            }
+            this.flusher.shutdown();
+            if (handler != null) {
+                handler.handle(result);
+            }
+        });
+    }
+
+    @Override
+    public MappedFileWriter setWriteQueueMaxSize(final int maxSize) {
+        return this;
+    }
+
+    @Override
+    public boolean writeQueueFull() {
+        return false;
+    }
+
+    @Override
+    public MappedFileWriter drainHandler(final Handler<Void> handler) {
+        return this;
+    }
+
+    /**
+     * Copies the data into its range of the file, and commits it.
+     *
+     * @return The end of the range.
+     */
+    private long append(final Buffer data) throws IOException {
+        Preconditions.checkArgument(Objects.nonNull(data), "Data cannot be null");
+        if (this.ended) {
+            throw new IllegalStateException("Writer is ended");
+        }
+        final Throwable cause = this.failure.get();
+        if (cause != null) {
+            throw new IllegalStateException("Writer failed", cause);
+        }
+
+        final int length = data.length();
+        if (length == 0) {
+            // Nothing to copy, hence already committed
+            return this.committedOffset.get();
+        }
+        final long start = this.nextOffset.getAndAdd(length);
+        long offset = start;
+        final ByteBuffer source = data.getByteBuf().nioBuffer();
+        try {
+            while (source.hasRemaining()) {
+                final int position = (int)(offset % this.windowSize);
+                final int chunk = Math.min(source.remaining(), this.windowSize - position);
+
+                // A duplicate, as the position of the window is shared by all the event loops
+                final ByteBuffer target = this.windowAt(offset).duplicate();
+                target.position(position);
+                target.put(source.slice().limit(chunk));
+
+                source.position(source.position() + chunk);
+                offset += chunk;
+            }
+        } catch (final IOException | RuntimeException | InternalError e) {
+            // The range is left uncopied, hence nothing after it can ever be committed. A mapped page which cannot be
+            // allocated, such as when the device is full, surfaces as an internal error.
+            this.fail(e);
+            throw e instanceof IOException ? (IOException)e : new IOException("Unable to write into file", e);
+        }
+        this.commit(start, offset);
+        return offset;
+    }
+
+    /**
+     * Records a copied range, and moves the committed offset over all the ranges copied without a gap.
+     *
+     * Only the thread which removes the range starting at the committed offset moves it, hence the offset never moves
+     * concurrently. A range recorded while the committed offset reaches its start is either seen by the thread moving it,
+     * or sees the offset and moves it on its own.
+     */
+    private void commit(final long start, final long end) {
+        this.copiedRanges.put(start, end);
+        boolean moved = false;
+        long committed = this.committedOffset.get();
+        Long next;
+        while ((next = this.copiedRanges.remove(committed)) != null) {
+            this.committedOffset.set(next);
+            committed = next;
+            moved = true;
+        }
+        if (moved) {
+            this.completePendingWrites();
+        }
+    }
+
+    private void fail(final Throwable e) {
+        // Only the first failure is reported, the writes failing after it only fail on their own
+        if (!this.failure.compareAndSet(null, e)) {
+            return;
+        }
+        log.error("Unable to write into file", e);
+        final ContextHandler<Throwable> handler = this.exceptionHandler;
+        if (handler != null) {
+            handler.handle(e);
+        }
+        this.failPendingWrites();
+    }
+
+    private void failPendingWrites() {
+        Map.Entry<Long, Promise<Void>> pending;
+        while ((pending = this.pendingWrites.pollFirstEntry()) != null) {
+            pending.getValue().fail(this.failure.get());
+        }
+    }
+
+    private void completePendingWrites() {
+        final long committed = this.committedOffset.get();
+        for (final Map.Entry<Long, Promise<Void>> pending : this.pendingWrites.headMap(committed, true).entrySet()) {
+            // Removed first, as another thread may be completing the same writes
+            if (this.pendingWrites.remove(pending.getKey(), pending.getValue())) {
+                pending.getValue().complete();
+            }
+        }
+    }
+
+    /**
+     * Returns count of windows still mapped.
+     *
+     * @return int
+     */
+    int getMappedWindows() {
+        int mapped = 0;
+        for (final MappedByteBuffer window : this.windows) {
+            if (window != null) {
+                mapped++;
+            }
+        }
+        return mapped;
+    }
+
+    private MappedByteBuffer windowAt(final long offset) throws IOException {
+        final int index = (int)(offset / this.windowSize);
+        final MappedByteBuffer[] current = this.windows;
+        if (index < current.length && current[index] != null) {
+            return current[index];
+        }
+        return this.mapWindow(index);
+    }
+
+    private synchronized MappedByteBuffer mapWindow(final int index) throws IOException {
+        MappedByteBuffer[] current = this.windows;
+        if (index >= current.length) {
+            current = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+        } else if (current[index] != null) {
+            return current[index];
+        } else {
+            current = current.clone();
+        }
+        // No one writes to nor forces the windows below both, which are unmapped once collected
+        final int durableWindow = this.durability.getMode() == Durability.Mode.NONE
+                ? Integer.MAX_VALUE
+                : this.firstUnforcedWindow;
+        final int droppedWindows = Math.min((int)(this.committedOffset.get() / this.windowSize), durableWindow);
+        for (; this.firstMappedWindow < droppedWindows && this.firstMappedWindow < current.length; this.firstMappedWindow++) {
+            current[this.firstMappedWindow] = null;
+        }
+        // Mapping beyond the end of the file grows it, hence preallocates the window.
+        current[index] = this.fileChannel.map(
+                FileChannel.MapMode.READ_WRITE, (long)index * this.windowSize, this.windowSize);
+        this.windows = current;
+        return current[index];
+    }
+
+    private void forceIfDue() {
+        final long unforcedBytes = this.committedOffset.get() - this.forcedOffset;
+        if (this.failure.get() == null && this.durability.isDue(unforcedBytes, Long.MAX_VALUE)) {
+            try {
+                this.force();
+            } catch (final IOException e) {
+                this.fail(e);
+            }
+        }
+    }
+
+    private void force() throws IOException {
+        final long start = System.nanoTime();
+        final long committed = this.committedOffset.get();
+        final ForceEvent forceEvent = new ForceEvent();
+        final MappedByteBuffer[] current = this.windows;
+        final int lastWindow = (int)(committed / this.windowSize);
+        for (int i = this.firstUnforcedWindow; i <= lastWindow && i < current.length; i++) {
+            if (current[i] != null) {
+                current[i].force();
+            }
+        }
+        // The last window may still be written to, hence forced again next time.
+        this.firstUnforcedWindow = lastWindow;
+        forceEvent.commit(committed - this.forcedOffset);
+        this.forcedOffset = committed;
+        this.metricsCollector.recordForce(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.output;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.example.metrics.MetricsCollector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Preconditions;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes to the file using a {@link MappedFileWriter}.
+ *
+ * The size of the windows in which the file is mapped, hence preallocated, is specified by "output.mmap.window.bytes".
+ *
+ * When the file is forced to the storage device is specified by "output.durability", one of "none", "interval" or
+ * "bytes", as for {@link BatchFileWriterFactory}. The "batch" mode is not supported, as writes are never batched.
+ * The header of the {@link OutputFormat} is written first, if the file is empty.
+ * Chosen when "output.writer" is "mmap".
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "output.writer", havingValue = "mmap")
+public class MappedFileWriterFactory implements OutputWriterFactory {
+
+    private final MetricsCollector metricsCollector;
+    private final OutputFormat outputFormat;
+    private final int windowSize;
+    private final Durability durability;
+
+    public MappedFileWriterFactory(
+            final MetricsCollector metricsCollector,
+            final OutputFormat outputFormat,
+            @Value("${output.mmap.window.bytes:67108864}") final int windowSize,
+            @Value("${output.durability:none}") final String durabilityMode,
+            @Value("${output.durability.interval.ms:1000}") final long durabilityIntervalMillis,
+            @Value("${output.durability.bytes:16777216}") final long durabilityBytes) {
+
+        Preconditions.checkArgument(windowSize > 0, "Window size must be positive");
+
+        this.metricsCollector = metricsCollector;
+        this.outputFormat = outputFormat;
+        this.windowSize = windowSize;
+        this.durability = Durability.of(durabilityMode, durabilityIntervalMillis, durabilityBytes);
+        Preconditions.checkArgument(this.durability.getMode() != Durability.Mode.BATCH,
+                "Durability batch is not supported by the mmap writer");
+    }
+
+    @Override
+    public WriteStream<Buffer> open(final String absoluteFilePath) throws IOException {
+        // Mapping read write needs the channel opened for reading as well
+        final FileChannel fileChannel = FileChannel.open(Paths.get(absoluteFilePath),
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE);
+        this.outputFormat.writeHeaderIfEmpty(fileChannel);
+        log.info("Writing to a file mapped in windows of {} bytes, with durability {}", this.windowSize, this.durability);
+        return new MappedFileWriter(fileChannel, this.windowSize, this.durability, this.metricsCollector);
+    }
+}
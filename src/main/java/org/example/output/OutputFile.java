@@ -0,0 +1,31 @@
+package org.example.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * The file, or files, where {@link BatchFileWriter} writes its batches.
+ *
+ * It is used by the writer thread only, hence implementations need not be thread safe with respect to the writer.
+ */
+public interface OutputFile extends Closeable {
+
+    /**
+     * Returns the channel the next batch is to be written to. Called by the writer thread before every batch, hence
+     * the place to switch over to another file. A batch is never split across two channels.
+     *
+     * @return FileChannel
+     * @throws IOException If a new file cannot be opened.
+     */
+    FileChannel current() throws IOException;
+
+    /**
+     * Called once a batch has been written to the channel returned by {@link #current()}.
+     *
+     * @param bytes Size of the batch in bytes.
+     */
+    default void written(final long bytes) {
+        // Nothing to do.
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.output;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Layout of the unique numbers in the output files.
+ *
+ * Every number is written as a fixed size record. The deduplication handlers append the numbers they keep straight
+ * as records, with {@link #appendRecord(Buffer, int)}, hence the writes are never encoded again on their way to the
+ * files. A format may also start every file with a header, which tells the format of the file apart, so that
+ * {@link LogRecovery} and {@link OutputReader} can check it.
+ *
+ * The format to be used is chosen with the property "output.format", "text" by default.
+ */
+public interface OutputFormat {
+
+    /**
+     * Returns the bytes written at the start of every file.
+     *
+     * @return The header, empty if the format has none.
+     */
+    byte[] getHeader();
+
+    /**
+     * Returns the size in bytes of a record.
+     *
+     * @return int
+     */
+    int getRecordSize();
+
+    /**
+     * Appends the record of the given number.
+     *
+     * @param buffer The buffer to be appended to.
+     * @param number The 9 digit number to be written.
+     */
+    void appendRecord(Buffer buffer, int number);
+
+    /**
+     * Encodes text frames, each one 9 ASCII digits followed by a newline, into records.
+     *
+     * @param frames Whole text frames.
+     * @return The records, in the same order.
+     */
+    Buffer encode(Buffer frames);
+
+    /**
+     * Decodes the record at the given position.
+     *
+     * @param buffer The buffer holding the record, which is left untouched.
+     * @param position Position of the record within the buffer.
+     * @return The number, or a negative value if the record is not valid.
+     */
+    int decode(ByteBuffer buffer, int position);
+
+    /**
+     * Writes the header to the given file, if the file is empty.
+     *
+     * @param fileChannel The file, opened for writing and positioned at its start or in append mode.
+     * @throws IOException If the file cannot be written.
+     */
+    default void writeHeaderIfEmpty(final FileChannel fileChannel) throws IOException {
+        final byte[] header = this.getHeader();
+        if (header.length > 0 && fileChannel.size() == 0) {
+            final ByteBuffer buffer = ByteBuffer.wrap(header);
+            while (buffer.hasRemaining()) {
+                fileChannel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Tells the format of a file from its first bytes.
+     *
+     * @param start The first bytes of the file, as many as available up to {@link BinaryOutputFormat#HEADER_SIZE}.
+     * @return The binary format if the bytes start with its header, or the text format otherwise.
+     */
+    static OutputFormat detect(final ByteBuffer start) {
+        final BinaryOutputFormat binary = new BinaryOutputFormat();
+        final byte[] header = binary.getHeader();
+        final int length = Math.min(header.length, start.remaining());
+        if (length == 0) {
+            return new TextOutputFormat();
+        }
+        for (int i = 0; i < length; i++) {
+            if (start.get(start.position() + i) != header[i]) {
+                return new TextOutputFormat();
+            }
+        }
+        return binary;
+    }
+}
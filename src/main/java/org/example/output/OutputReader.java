@@ -0,0 +1,145 @@
+package org.example.output;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+import org.example.handlers.NineDigitFrameDecoder;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Reads the numbers back from an output file, whatever its {@link OutputFormat}.
+ *
+ * The file is read as a stream, a chunk at a time, hence it may be of any size, and may as well come from a pipe. Its
+ * format is told from its first bytes. Reading stops at the end of the file, or at the first record which is not a
+ * valid number, as left by a crash.
+ *
+ * It can also be run on its own, to print the numbers of the given files as text, one per line, or of the standard
+ * input if no file is given. From the packaged application:
+ * <pre>
+ * java -cp simple-tcp-server-1.0-SNAPSHOT.jar -Dloader.main=org.example.output.OutputReader \
+ *     org.springframework.boot.loader.PropertiesLauncher /tmp/numbers.log
+ * </pre>
+ */
+public final class OutputReader {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int NUM_OF_DIGITS = NineDigitFrameDecoder.FRAME_SIZE - 1;
+    private static final int RADIX = 10;
+
+    private OutputReader() {
+    }
+
+    /**
+     * Prints the numbers of the given files, or of the standard input, as text.
+     *
+     * @param args Paths of the files, oldest first.
+     * @throws IOException If a file cannot be read.
+     */
+    public static void main(final String... args) throws IOException {
+        final PrintStream out = new PrintStream(
+                new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), CHUNK_SIZE), false,
+                StandardCharsets.US_ASCII);
+        final byte[] frame = new byte[NineDigitFrameDecoder.FRAME_SIZE];
+        frame[NUM_OF_DIGITS] = '\n';
+        final IntConsumer printer = number -> {
+            int remaining = number;
+            for (int i = NUM_OF_DIGITS - 1; i >= 0; i--) {
+                frame[i] = (byte)('0' + remaining % RADIX);
+                remaining /= RADIX;
+            }
+            out.write(frame, 0, frame.length);
+        };
+
+        if (args.length == 0) {
+            read(Channels.newChannel(System.in), printer);
+        }
+        for (final String path : args) {
+            read(Paths.get(path), printer);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads the numbers of the given file.
+     *
+     * @param path Path of the file.
+     * @param consumer Receives the numbers, in the order they were written.
+     * @return Count of numbers read.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long read(final Path path, final IntConsumer consumer) throws IOException {
+        Preconditions.checkArgument(Objects.nonNull(path), "Path cannot be null");
+
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(fileChannel, consumer);
+        }
+    }
+
+    /**
+     * Reads the numbers from the given channel, until it ends.
+     *
+     * @param channel The channel, positioned at the start of the file.
+     * @param consumer Receives the numbers, in the order they were written.
+     * @return Count of numbers read.
+     * @throws IOException If the channel cannot be read.
+     */
+    public static long read(final ReadableByteChannel channel, final IntConsumer consumer) throws IOException {
+        Preconditions.checkArgument(Objects.nonNull(channel), "Channel cannot be null");
+        Preconditions.checkArgument(Objects.nonNull(consumer), "Consumer cannot be null");
+
+        final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        boolean ended = fill(channel, buffer, BinaryOutputFormat.HEADER_SIZE);
+        buffer.flip();
+
+        final OutputFormat outputFormat = OutputFormat.detect(buffer);
+        final int headerSize = outputFormat.getHeader().length;
+        final int recordSize = outputFormat.getRecordSize();
+        if (buffer.remaining() < headerSize) {
+            return 0;
+        }
+        buffer.position(headerSize);
+
+        long count = 0;
+        while (true) {
+            while (buffer.remaining() >= recordSize) {
+                final int number = outputFormat.decode(buffer, buffer.position());
+                if (number < 0) {
+                    return count;
+                }
+                consumer.accept(number);
+                count++;
+                buffer.position(buffer.position() + recordSize);
+            }
+            if (ended) {
+                return count;
+            }
+            buffer.compact();
+            ended = fill(channel, buffer, buffer.capacity());
+            buffer.flip();
+        }
+    }
+
+    private static boolean fill(final ReadableByteChannel channel, final ByteBuffer buffer, final int atLeast)
+            throws IOException {
+        while (buffer.position() < atLeast) {
+            if (channel.read(buffer) < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.output;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+/**
+ * Opens the stream where the unique numbers received from all the connections are written.
+ *
+ * A single stream is opened when the server starts and is shared by all the event loops. Hence the returned stream
+ * must accept writes from any thread.
+ *
+ * The implementation to be used is chosen with the property "output.writer".
+ */
+public interface OutputWriterFactory {
+
+    /**
+     * Opens the file for writing. Any content written is appended to the file.
+     *
+     * @param absoluteFilePath Absolute path of the file.
+     * @return WriteStream
+     * @throws IOException If the file cannot be opened.
+     */
+    WriteStream<Buffer> open(String absoluteFilePath) throws IOException;
+
+    /**
+     * Returns the files holding the numbers written so far, oldest first.
+     *
+     * @param absoluteFilePath Absolute path of the file, as given to {@link #open(String)}.
+     * @return The files, or an empty list if nothing was written yet.
+     * @throws IOException If the files cannot be listed.
+     */
+    default List<Path> listFiles(final String absoluteFilePath) throws IOException {
+        final Path path = Paths.get(absoluteFilePath);
+        return Files.exists(path) ? List.of(path) : Collections.emptyList();
+    }
+
+    /**
+     * Deletes all the files written so far.
+     *
+     * @param absoluteFilePath Absolute path of the file, as given to {@link #open(String)}.
+     * @throws IOException If a file cannot be deleted.
+     */
+    default void deleteFiles(final String absoluteFilePath) throws IOException {
+        for (final Path path : this.listFiles(absoluteFilePath)) {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.output;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.example.metrics.MetricsCollector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Preconditions;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes to a {@link SegmentedOutputFile} using a {@link BatchFileWriter}.
+ *
+ * The batches and the durability are configured like with {@link BatchFileWriterFactory}. In addition:
+ *   - "output.segment.size.bytes": Size after which a new segment is created. 256 MB by default.
+ *   - "output.segment.interval.ms": Age after which a new segment is created. 1 hour by default, 0 to disable.
+ *   - "output.segment.retention.count": Count of segments kept. 0 by default, to keep all of them.
+ *   - "output.segment.retention.ms": Age after which a segment is deleted. 0 by default, to keep all of them.
+ *   - "output.segment.retention.check.ms": Interval between two periodic retention checks. 1 min by default.
+ *
+ * Every segment starts with the header of the {@link OutputFormat}.
+ *
+ * Chosen when "output.writer" is "segmented".
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "output.writer", havingValue = "segmented")
+public class SegmentedFileWriterFactory implements OutputWriterFactory {
+
+    private final MetricsCollector metricsCollector;
+    private final OutputFormat outputFormat;
+    private final int bufferSize;
+    private final int buffers;
+    private final Durability durability;
+    private final long maxSegmentBytes;
+    private final long maxSegmentAgeMillis;
+    private final int retentionCount;
+    private final long retentionMillis;
+    private final long retentionCheckMillis;
+
+    public SegmentedFileWriterFactory(
+            final MetricsCollector metricsCollector,
+            final OutputFormat outputFormat,
+            @Value("${output.batch.buffer.size.bytes:1048576}") final int bufferSize,
+            @Value("${output.batch.buffers:8}") final int buffers,
+            @Value("${output.durability:none}") final String durabilityMode,
+            @Value("${output.durability.interval.ms:1000}") final long durabilityIntervalMillis,
+            @Value("${output.durability.bytes:16777216}") final long durabilityBytes,
+            @Value("${output.segment.size.bytes:268435456}") final long maxSegmentBytes,
+            @Value("${output.segment.interval.ms:3600000}") final long maxSegmentAgeMillis,
+            @Value("${output.segment.retention.count:0}") final int retentionCount,
+            @Value("${output.segment.retention.ms:0}") final long retentionMillis,
+            @Value("${output.segment.retention.check.ms:60000}") final long retentionCheckMillis) {
+
+        Preconditions.checkArgument(bufferSize > 0, "Buffer size must be positive");
+        Preconditions.checkArgument(buffers > 0, "Buffers must be positive");
+
+        this.metricsCollector = metricsCollector;
+        this.outputFormat = outputFormat;
+        this.bufferSize = bufferSize;
+        this.buffers = buffers;
+        this.durability = Durability.of(durabilityMode, durabilityIntervalMillis, durabilityBytes);
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegmentAgeMillis = maxSegmentAgeMillis;
+        this.retentionCount = retentionCount;
+        this.retentionMillis = retentionMillis;
+        this.retentionCheckMillis = retentionCheckMillis;
+    }
+
+    @Override
+    public WriteStream<Buffer> open(final String absoluteFilePath) throws IOException {
+        final SegmentedOutputFile outputFile = new SegmentedOutputFile(Paths.get(absoluteFilePath),
+                this.outputFormat,
+                this.maxSegmentBytes,
+                this.maxSegmentAgeMillis,
+                this.retentionCount,
+                this.retentionMillis,
+                this.retentionCheckMillis);
+
+        log.info("Writing segments of up to {} bytes, with durability {}", this.maxSegmentBytes, this.durability);
+        return new BatchFileWriter(outputFile, this.bufferSize, this.buffers, this.durability, this.metricsCollector);
+    }
+
+    @Override
+    public List<Path> listFiles(final String absoluteFilePath) throws IOException {
+        return SegmentedOutputFile.listSegments(Paths.get(absoluteFilePath));
+    }
+
+    @Override
+    public void deleteFiles(final String absoluteFilePath) throws IOException {
+        SegmentedOutputFile.delete(Paths.get(absoluteFilePath));
+    }
+}
@@ -0,0 +1,261 @@
+package org.example.output;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.example.jfr.ForceEvent;
+
+import com.google.common.base.Preconditions;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A log split into segment files, so that no single file grows forever.
+ *
+ * The segments sit next to the base path, named after it with a sequence number appended, like
+ * "numbers.log.00000000000000000001". The writer appends to the last segment only. Once it reaches the maximum size,
+ * or once it is older than the maximum age, the next batch goes to a new segment. The previous one is then forced to
+ * the storage device and closed, and is never written again. Segments switch between two batches, on the writer
+ * thread, while the event loops keep enqueuing. Hence a segment may exceed the maximum size by up to one batch, and
+ * always holds whole frames.
+ *
+ * The segments are listed, oldest first, in a manifest named after the base path with ".manifest" appended. The
+ * manifest is rewritten atomically before a segment is created, and before one is deleted. Hence it lists every
+ * segment present, along with possibly a few which are not, and which are ignored when read.
+ *
+ * Old segments are deleted by a background thread, as per the retention policy. A segment is deleted once more than the
+ * maximum count of segments exist, or once it was last written before the maximum age. The last segment is never
+ * deleted. Retention is checked every time a segment is created, and periodically.
+ *
+ * Every new segment starts with the header of the {@link OutputFormat}, so that each one can be read on its own.
+ *
+ * When opened, the writer appends to the last segment listed by the manifest, if any.
+ */
+@Slf4j
+public class SegmentedOutputFile implements OutputFile {
+
+    private static final String MANIFEST_SUFFIX = ".manifest";
+    private static final String SEGMENT_NAME_FORMAT = "%s.%020d";
+    private static final String CLEANER_THREAD_NAME = "segment-cleaner";
+
+    private final Path basePath;
+    private final OutputFormat outputFormat;
+    private final long maxSegmentBytes;
+    private final long maxSegmentAgeMillis;
+    private final int retentionCount;
+    private final long retentionMillis;
+    private final ScheduledExecutorService cleaner;
+
+    // Guarded by itself. Also read by the cleaner thread
+    private final List<Path> segments;
+
+    // Touched by the writer thread only
+    private FileChannel fileChannel;
+    private long segmentBytes;
+    private long segmentCreatedMillis;
+    private long sequence;
+
+    /**
+     * Opens the last segment for appending, or creates the first one.
+     *
+     * @param basePath Path after which the segments and the manifest are named.
+     * @param outputFormat Format of the segments, whose header is written at the start of every new segment.
+     * @param maxSegmentBytes Size in bytes after which a new segment is created.
+     * @param maxSegmentAgeMillis Age after which a new segment is created. Zero to never create one based on age.
+     * @param retentionCount Count of segments kept. Zero to keep them regardless of their count.
+     * @param retentionMillis Age after which a segment is deleted. Zero to keep them regardless of their age.
+     * @param retentionCheckMillis Interval between two periodic retention checks.
+     * @throws IOException If the segment cannot be opened.
+     */
+    public SegmentedOutputFile(
+            final Path basePath,
+            final OutputFormat outputFormat,
+            final long maxSegmentBytes,
+            final long maxSegmentAgeMillis,
+            final int retentionCount,
+            final long retentionMillis,
+            final long retentionCheckMillis) throws IOException {
+
+        Preconditions.checkArgument(Objects.nonNull(basePath), "Base path cannot be null");
+        Preconditions.checkArgument(Objects.nonNull(outputFormat), "Output format cannot be null");
+        Preconditions.checkArgument(maxSegmentBytes > 0, "Max segment size must be positive");
+        Preconditions.checkArgument(maxSegmentAgeMillis >= 0, "Max segment age cannot be negative");
+        Preconditions.checkArgument(retentionCount >= 0, "Retention count cannot be negative");
+        Preconditions.checkArgument(retentionMillis >= 0, "Retention time cannot be negative");
+        Preconditions.checkArgument(retentionCheckMillis > 0, "Retention check interval must be positive");
+
+        this.basePath = basePath;
+        this.outputFormat = outputFormat;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegmentAgeMillis = maxSegmentAgeMillis;
+        this.retentionCount = retentionCount;
+        this.retentionMillis = retentionMillis;
+        this.segments = new ArrayList<>(listSegments(basePath));
+
+        if (this.segments.isEmpty()) {
+            this.roll();
+        } else {
+            final Path last = this.segments.get(this.segments.size() - 1);
+            this.sequence = sequenceOf(last);
+            this.open(last);
+        }
+
+        this.cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, CLEANER_THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.cleaner.scheduleWithFixedDelay(
+                this::applyRetention, retentionCheckMillis, retentionCheckMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the segments present, oldest first, as listed by the manifest of the given base path.
+     *
+     * @param basePath Path after which the segments and the manifest are named.
+     * @return The segments, or an empty list if there is no manifest.
+     * @throws IOException If the manifest cannot be read.
+     */
+    public static List<Path> listSegments(final Path basePath) throws IOException {
+        final Path manifest = manifestOf(basePath);
+        if (!Files.exists(manifest)) {
+            return Collections.emptyList();
+        }
+        return Files.readAllLines(manifest, StandardCharsets.UTF_8).stream()
+                .filter(line -> !line.isEmpty())
+                .map(name -> basePath.resolveSibling(name))
+                .filter(Files::exists)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Deletes the segments and the manifest of the given base path.
+     *
+     * @param basePath Path after which the segments and the manifest are named.
+     * @throws IOException If a file cannot be deleted.
+     */
+    public static void delete(final Path basePath) throws IOException {
+        for (final Path segment : listSegments(basePath)) {
+            Files.deleteIfExists(segment);
+        }
+        Files.deleteIfExists(manifestOf(basePath));
+    }
+
+    @Override
+    public FileChannel current() throws IOException {
+        if (this.segmentBytes > 0 && (this.segmentBytes >= this.maxSegmentBytes || this.isSegmentTooOld())) {
+            this.roll();
+            this.cleaner.execute(this::applyRetention);
+        }
+        return this.fileChannel;
+    }
+
+    @Override
+    public void written(final long bytes) {
+        this.segmentBytes += bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.cleaner.shutdownNow();
+        this.fileChannel.close();
+    }
+
+    private boolean isSegmentTooOld() {
+        return this.maxSegmentAgeMillis > 0
+                && System.currentTimeMillis() - this.segmentCreatedMillis >= this.maxSegmentAgeMillis;
+    }
+
+    private void roll() throws IOException {
+        if (this.fileChannel != null) {
+            // A closed segment is never written again, make sure its complete.
+            final ForceEvent forceEvent = new ForceEvent();
+            this.fileChannel.force(false);
+            forceEvent.commit(0);
+            this.fileChannel.close();
+        }
+
+        this.sequence++;
+        final Path segment = this.basePath.resolveSibling(
+                String.format(SEGMENT_NAME_FORMAT, this.basePath.getFileName(), this.sequence));
+        synchronized (this.segments) {
+            this.segments.add(segment);
+            this.writeManifest();
+        }
+        this.open(segment);
+        log.info("Writing to new segment {}", segment);
+    }
+
+    private void open(final Path segment) throws IOException {
+        this.fileChannel = FileChannel.open(segment,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        this.outputFormat.writeHeaderIfEmpty(this.fileChannel);
+        this.segmentBytes = this.fileChannel.size();
+        this.segmentCreatedMillis = System.currentTimeMillis();
+    }
+
+    private void applyRetention() {
+        final long oldestKept = System.currentTimeMillis() - this.retentionMillis;
+        synchronized (this.segments) {
+            try {
+                final List<Path> expired = new ArrayList<>();
+                // The last segment is still being written
+                for (int i = 0; i < this.segments.size() - 1; i++) {
+                    final Path segment = this.segments.get(i);
+                    final boolean tooMany = this.retentionCount > 0 && this.segments.size() - i > this.retentionCount;
+                    final boolean tooOld = this.retentionMillis > 0
+                            && Files.getLastModifiedTime(segment).toMillis() < oldestKept;
+                    if (tooMany || tooOld) {
+                        expired.add(segment);
+                    }
+                }
+                if (expired.isEmpty()) {
+                    return;
+                }
+
+                this.segments.removeAll(expired);
+                this.writeManifest();
+                for (final Path segment : expired) {
+                    Files.deleteIfExists(segment);
+                    log.info("Deleted segment {} as per retention", segment);
+                }
+            } catch (final IOException e) {
+                log.error("Unable to apply retention to segments", e);
+            }
+        }
+    }
+
+    private void writeManifest() throws IOException {
+        final Path manifest = manifestOf(this.basePath);
+        final Path temporary = Paths.get(manifest + ".tmp");
+        Files.write(temporary, this.segments.stream()
+                .map(segment -> segment.getFileName().toString())
+                .collect(Collectors.toList()), StandardCharsets.UTF_8);
+        Files.move(temporary, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path manifestOf(final Path basePath) {
+        return Paths.get(basePath + MANIFEST_SUFFIX);
+    }
+
+    private static long sequenceOf(final Path segment) {
+        final String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(name.lastIndexOf('.') + 1));
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.output;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Objects;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A single file, which keeps growing.
+ */
+public class SingleOutputFile implements OutputFile {
+
+    private final FileChannel fileChannel;
+
+    public SingleOutputFile(final FileChannel fileChannel) {
+        Preconditions.checkArgument(Objects.nonNull(fileChannel), "File channel cannot be null");
+        this.fileChannel = fileChannel;
+    }
+
+    @Override
+    public FileChannel current() {
+        return this.fileChannel;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.fileChannel.close();
+    }
+}
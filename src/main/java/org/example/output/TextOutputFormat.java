@@ -0,0 +1,72 @@
+package org.example.output;
+
+import java.nio.ByteBuffer;
+
+import org.example.handlers.NineDigitFrameDecoder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Writes every number as 9 ASCII digits followed by a newline, exactly as received. There is no header.
+ *
+ * Chosen when "output.format" is "text", which is the default.
+ */
+@Component
+@ConditionalOnProperty(name = "output.format", havingValue = "text", matchIfMissing = true)
+public class TextOutputFormat implements OutputFormat {
+
+    private static final int NUM_OF_DIGITS = NineDigitFrameDecoder.FRAME_SIZE - 1;
+    private static final byte DELIMITER = '\n';
+    private static final int RADIX = 10;
+    private static final byte[] NO_HEADER = new byte[0];
+
+    @Override
+    public byte[] getHeader() {
+        return NO_HEADER;
+    }
+
+    @Override
+    public int getRecordSize() {
+        return NineDigitFrameDecoder.FRAME_SIZE;
+    }
+
+    @Override
+    public void appendRecord(final Buffer buffer, final int number) {
+        final int start = buffer.length();
+        buffer.setByte(start + NUM_OF_DIGITS, DELIMITER);
+
+        int remaining = number;
+        for (int i = NUM_OF_DIGITS - 1; i >= 0; i--) {
+            buffer.setByte(start + i, (byte)('0' + remaining % RADIX));
+            remaining /= RADIX;
+        }
+    }
+
+    @Override
+    public Buffer encode(final Buffer frames) {
+        return frames;
+    }
+
+    @Override
+    public int decode(final ByteBuffer buffer, final int position) {
+        if (buffer.get(position + NUM_OF_DIGITS) != DELIMITER) {
+            return -1;
+        }
+        int number = 0;
+        for (int i = position; i < position + NUM_OF_DIGITS; i++) {
+            final byte value = buffer.get(i);
+            if (value < '0' || value > '9') {
+                return -1;
+            }
+            number = number * RADIX + (value - '0');
+        }
+        return number;
+    }
+
+    @Override
+    public String toString() {
+        return "text";
+    }
+}
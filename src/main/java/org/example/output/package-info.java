@@ -0,0 +1,4 @@
+/**
+ * Package containing the writers used to persist the unique numbers.
+ */
+package org.example.output;
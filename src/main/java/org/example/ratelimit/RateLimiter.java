@@ -0,0 +1,172 @@
+package org.example.ratelimit;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.example.model.ConnectionInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+
+/**
+ * Limits the rate at which every connection, and every remote host, sends events and bytes.
+ *
+ * The limits are enforced by pausing the connection, never by dropping what it sent. Every chunk read is accounted for
+ * in the {@link TokenBucket}s of its connection and of its remote host. Once one of them runs into debt, the
+ * connection is to be paused until the debt is paid back. The connections of a same host share its buckets.
+ *
+ * The limits are configured with:
+ *   - "ratelimit.connection.events.per.sec": Events per second of a single connection.
+ *   - "ratelimit.connection.bytes.per.sec": Bytes per second of a single connection.
+ *   - "ratelimit.host.events.per.sec": Events per second of all the connections of a remote host.
+ *   - "ratelimit.host.bytes.per.sec": Bytes per second of all the connections of a remote host.
+ *   - "ratelimit.burst.ms": Time during which a connection or a host may send above its rate, 100 ms by default.
+ *   - "ratelimit.weights": Weights of some remote hosts, such as "10.0.0.1=4,10.0.0.2=2". The limits of a host and of its
+ *     connections are multiplied by its weight, 1 by default. Hence a host with a weight of 4 gets 4 times the share
+ *     of the others.
+ *
+ * A limit of 0, the default, means no limit. The limits are keyed on the identity of {@link ConnectionInfo}.
+ */
+@Component
+public class RateLimiter {
+
+    private static final double DEFAULT_WEIGHT = 1.0;
+
+    private final long connectionEventsPerSec;
+    private final long connectionBytesPerSec;
+    private final long hostEventsPerSec;
+    private final long hostBytesPerSec;
+    private final long burstMillis;
+    private final Map<String, Double> weights;
+
+    private final Map<String, HostLimit> hostLimits = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RateLimiter(
+            @Value("${ratelimit.connection.events.per.sec:0}") final long connectionEventsPerSec,
+            @Value("${ratelimit.connection.bytes.per.sec:0}") final long connectionBytesPerSec,
+            @Value("${ratelimit.host.events.per.sec:0}") final long hostEventsPerSec,
+            @Value("${ratelimit.host.bytes.per.sec:0}") final long hostBytesPerSec,
+            @Value("${ratelimit.burst.ms:100}") final long burstMillis,
+            @Value("${ratelimit.weights:}") final String weights) {
+
+        Preconditions.checkArgument(connectionEventsPerSec >= 0, "Connection events rate cannot be negative");
+        Preconditions.checkArgument(connectionBytesPerSec >= 0, "Connection bytes rate cannot be negative");
+        Preconditions.checkArgument(hostEventsPerSec >= 0, "Host events rate cannot be negative");
+        Preconditions.checkArgument(hostBytesPerSec >= 0, "Host bytes rate cannot be negative");
+        Preconditions.checkArgument(burstMillis >= 0, "Burst cannot be negative");
+        Preconditions.checkArgument(Objects.nonNull(weights), "Weights cannot be null");
+
+        this.connectionEventsPerSec = connectionEventsPerSec;
+        this.connectionBytesPerSec = connectionBytesPerSec;
+        this.hostEventsPerSec = hostEventsPerSec;
+        this.hostBytesPerSec = hostBytesPerSec;
+        this.burstMillis = burstMillis;
+        this.weights = Splitter.on(',').trimResults().omitEmptyStrings()
+                .withKeyValueSeparator('=')
+                .split(weights)
+                .entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> Double.valueOf(entry.getValue().trim())));
+        this.weights.values().forEach(weight -> Preconditions.checkArgument(weight > 0, "Weights must be positive"));
+    }
+
+    /**
+     * Opens the limits of a new connection. Its host is limited along with it, until it is closed.
+     *
+     * @param connectionInfo The connection.
+     * @return ConnectionLimit
+     */
+    public ConnectionLimit open(final ConnectionInfo connectionInfo) {
+        Preconditions.checkArgument(Objects.nonNull(connectionInfo), "Connection info cannot be null");
+
+        final String host = connectionInfo.getRemoteHostName();
+        final double weight = this.weights.getOrDefault(host, DEFAULT_WEIGHT);
+        final HostLimit hostLimit = this.hostLimits.compute(host, (key, existing) -> {
+            final HostLimit limit = existing != null ? existing : new HostLimit(
+                    this.newBucket(this.hostEventsPerSec, weight), this.newBucket(this.hostBytesPerSec, weight));
+            limit.connections++;
+            return limit;
+        });
+        return new ConnectionLimit(host, hostLimit,
+                this.newBucket(this.connectionEventsPerSec, weight), this.newBucket(this.connectionBytesPerSec, weight));
+    }
+
+    /**
+     * Returns count of remote hosts with an open connection.
+     *
+     * @return int
+     */
+    public int getHostCount() {
+        return this.hostLimits.size();
+    }
+
+    private TokenBucket newBucket(final long ratePerSec, final double weight) {
+        return ratePerSec == 0 ? null : new TokenBucket(ratePerSec * weight, this.burstMillis);
+    }
+
+    private static long consume(final TokenBucket bucket, final long tokens, final long nowNanos) {
+        return bucket == null ? 0 : bucket.consume(tokens, nowNanos);
+    }
+
+    /**
+     * Buckets shared by the connections of a remote host.
+     */
+    private static final class HostLimit {
+
+        private final TokenBucket events;
+        private final TokenBucket bytes;
+
+        // Guarded by the map holding the limit
+        private int connections;
+
+        private HostLimit(final TokenBucket events, final TokenBucket bytes) {
+            this.events = events;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * The limits of a single connection, along with those of its host.
+     */
+    public final class ConnectionLimit {
+
+        private final String host;
+        private final HostLimit hostLimit;
+        private final TokenBucket events;
+        private final TokenBucket bytes;
+
+        private ConnectionLimit(final String host, final HostLimit hostLimit, final TokenBucket events, final TokenBucket bytes) {
+            this.host = host;
+            this.hostLimit = hostLimit;
+            this.events = events;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Accounts for a chunk read from the connection.
+         *
+         * @param eventCount Count of events in the chunk.
+         * @param byteCount Count of bytes in the chunk.
+         * @param nowNanos Current time, as given by {@link System#nanoTime()}.
+         * @return Nano seconds during which the connection is to be paused, zero if it can keep reading.
+         */
+        public long acquire(final long eventCount, final long byteCount, final long nowNanos) {
+            return Math.max(
+                    Math.max(consume(this.events, eventCount, nowNanos), consume(this.bytes, byteCount, nowNanos)),
+                    Math.max(consume(this.hostLimit.events, eventCount, nowNanos),
+                            consume(this.hostLimit.bytes, byteCount, nowNanos)));
+        }
+
+        /**
+         * Closes the limits, once the connection is closed. The limits of the host are dropped with its last connection.
+         */
+        public void close() {
+            hostLimits.computeIfPresent(this.host, (key, limit) -> --limit.connections == 0 ? null : limit);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Limits a rate, such as events or bytes per second, while allowing short bursts above it.
+ *
+ * The bucket is refilled with tokens at the given rate, and holds up to the tokens of a burst. It is kept as a single
+ * timestamp, in the manner of the generic cell rate algorithm: the time at which the bucket would be full again, were
+ * nothing consumed from now on. Consuming tokens moves that time forward by the time it takes to refill them.
+ *
+ * Tokens are always consumed, as the data they stand for was already read. The bucket may hence run into debt, and
+ * instead of refusing the tokens tells how long to wait until the debt is paid back. The caller is expected to stop
+ * reading meanwhile.
+ *
+ * A bucket can be consumed from many threads at once, using a compare and swap on the timestamp. Never allocates.
+ */
+public final class TokenBucket {
+
+    private final double nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong fullAtNanos = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param tokensPerSecond Rate at which the bucket is refilled.
+     * @param burstMillis Time it takes to refill an empty bucket, hence the size of the bucket.
+     */
+    public TokenBucket(final double tokensPerSecond, final long burstMillis) {
+        Preconditions.checkArgument(tokensPerSecond > 0, "Rate must be positive");
+        Preconditions.checkArgument(burstMillis >= 0, "Burst cannot be negative");
+
+        this.nanosPerToken = TimeUnit.SECONDS.toNanos(1) / tokensPerSecond;
+        this.burstNanos = TimeUnit.MILLISECONDS.toNanos(burstMillis);
+    }
+
+    /**
+     * Consumes the given tokens.
+     *
+     * @param tokens Count of tokens to consume.
+     * @param nowNanos Current time, as given by {@link System#nanoTime()}.
+     * @return Nano seconds to wait before consuming more tokens, zero if the bucket is not in debt.
+     */
+    public long consume(final long tokens, final long nowNanos) {
+        Preconditions.checkArgument(tokens >= 0, "Tokens cannot be negative");
+
+        final long cost = (long)Math.ceil(tokens * this.nanosPerToken);
+        long fullAt;
+        long next;
+        do {
+            fullAt = this.fullAtNanos.get();
+            // A bucket full for a while does not hold more than a burst
+            next = Math.max(fullAt, nowNanos) + cost;
+        } while (!this.fullAtNanos.compareAndSet(fullAt, next));
+
+        return Math.max(0, next - nowNanos - this.burstNanos);
+    }
+}
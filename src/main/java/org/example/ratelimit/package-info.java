@@ -0,0 +1,4 @@
+/**
+ * Package containing the rate limits applied to the connections.
+ */
+package org.example.ratelimit;
@@ -0,0 +1,189 @@
+package org.example.reaper;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.example.handlers.CloseConnectionHandler;
+import org.example.handlers.ReadPauses;
+import org.example.model.ConnectionInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Preconditions;
+
+import io.vertx.core.Context;
+import io.vertx.reactivex.core.Vertx;
+import io.vertx.reactivex.core.net.NetSocket;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reaps the connections which hold a slot without sending anything worth it, so that the slots go to real producers.
+ *
+ * A connection is reaped if:
+ *   - It sent nothing for "reaper.idle.timeout.ms", 5 minutes by default.
+ *   - It sent less than "reaper.min.bytes.per.sec" on average, over a window of "reaper.throughput.window.ms", 10
+ *     seconds by default. No minimum by default.
+ * Either is disabled with 0. A connection paused by the server is neither idle nor slow, as it is not reading.
+ *
+ * Every event loop gets its own {@link TimingWheel}, ticking every "reaper.tick.ms", 1 second by default, rather than
+ * a timer per connection. The connections only record the current tick of their wheel when reading, hence reading
+ * neither schedules anything nor reads the clock. A connection is checked once it may be due, and is then either
+ * reaped or scheduled again. Hence the policies are enforced within a tick.
+ *
+ * The connections are reaped through {@link CloseConnectionHandler#reap}.
+ */
+@Slf4j
+@Component
+public class ConnectionReaper {
+
+    private static final String WHEEL_KEY = TimingWheel.class.getName();
+
+    private final CloseConnectionHandler closeConnectionHandler;
+    private final Vertx vertx;
+    private final long tickMillis;
+    private final int slotCount;
+    private final long idleTicks;
+    private final long windowTicks;
+    private final long minBytesPerWindow;
+
+    @Autowired
+    public ConnectionReaper(
+            final CloseConnectionHandler closeConnectionHandler,
+            final Vertx vertx,
+            @Value("${reaper.idle.timeout.ms:300000}") final long idleTimeoutMillis,
+            @Value("${reaper.min.bytes.per.sec:0}") final long minBytesPerSec,
+            @Value("${reaper.throughput.window.ms:10000}") final long windowMillis,
+            @Value("${reaper.tick.ms:1000}") final long tickMillis,
+            @Value("${reaper.wheel.slots:512}") final int slotCount) {
+
+        Preconditions.checkArgument(Objects.nonNull(closeConnectionHandler), "Close connection handler cannot be null");
+        Preconditions.checkArgument(Objects.nonNull(vertx), "Vertx cannot be null");
+        Preconditions.checkArgument(idleTimeoutMillis >= 0, "Idle timeout cannot be negative");
+        Preconditions.checkArgument(minBytesPerSec >= 0, "Min throughput cannot be negative");
+        Preconditions.checkArgument(windowMillis > 0, "Throughput window must be positive");
+        Preconditions.checkArgument(tickMillis > 0, "Tick must be positive");
+        Preconditions.checkArgument(slotCount > 0 && Integer.bitCount(slotCount) == 1, "Slot count must be a power of two");
+
+        this.closeConnectionHandler = closeConnectionHandler;
+        this.vertx = vertx;
+        this.tickMillis = tickMillis;
+        this.slotCount = slotCount;
+        this.idleTicks = idleTimeoutMillis == 0 ? 0 : ticksOf(idleTimeoutMillis, tickMillis);
+        this.windowTicks = ticksOf(windowMillis, tickMillis);
+        this.minBytesPerWindow = minBytesPerSec * this.windowTicks * tickMillis / TimeUnit.SECONDS.toMillis(1);
+    }
+
+    /**
+     * Watches a new connection, until it is closed. Must be called on the event loop serving the connection.
+     *
+     * @param netSocket The connection.
+     * @param connectionInfo The connection info.
+     * @param readPauses Tells whether the connection is paused.
+     * @return Watch, to be told about every chunk read, and closed along with the connection.
+     */
+    public Watch watch(final NetSocket netSocket, final ConnectionInfo connectionInfo, final ReadPauses readPauses) {
+        Preconditions.checkArgument(Objects.nonNull(netSocket), "Net socket cannot be null");
+        Preconditions.checkArgument(Objects.nonNull(connectionInfo), "Connection info cannot be null");
+        Preconditions.checkArgument(Objects.nonNull(readPauses), "Read pauses cannot be null");
+
+        final Watch watch = new Watch(this.wheel(), netSocket, connectionInfo, readPauses);
+        watch.scheduleNext();
+        return watch;
+    }
+
+    private TimingWheel wheel() {
+        final Context context = io.vertx.core.Vertx.currentContext();
+        Preconditions.checkState(Objects.nonNull(context), "Connections must be watched from their event loop");
+
+        TimingWheel wheel = context.get(WHEEL_KEY);
+        if (wheel == null) {
+            final TimingWheel created = new TimingWheel(this.slotCount);
+            context.put(WHEEL_KEY, created);
+            // Set from the event loop, hence the wheel only ever ticks on it
+            this.vertx.setPeriodic(this.tickMillis, timerId -> created.tick());
+            wheel = created;
+        }
+        return wheel;
+    }
+
+    private static long ticksOf(final long millis, final long tickMillis) {
+        return Math.max(1, (millis + tickMillis - 1) / tickMillis);
+    }
+
+    /**
+     * Watches a single connection, and reaps it once idle or too slow.
+     */
+    public class Watch extends TimingWheel.AbstractTimeout {
+
+        private final TimingWheel wheel;
+        private final NetSocket netSocket;
+        private final ConnectionInfo connectionInfo;
+        private final ReadPauses readPauses;
+
+        private long lastReadTick;
+        private long bytesRead;
+        private long windowEndTick;
+        private long windowStartBytes;
+
+        Watch(final TimingWheel wheel, final NetSocket netSocket, final ConnectionInfo connectionInfo, final ReadPauses readPauses) {
+            this.wheel = wheel;
+            this.netSocket = netSocket;
+            this.connectionInfo = connectionInfo;
+            this.readPauses = readPauses;
+            this.lastReadTick = wheel.getCurrentTick();
+            this.windowEndTick = wheel.getCurrentTick() + windowTicks;
+        }
+
+        /**
+         * Records a chunk read from the connection.
+         *
+         * @param bytes Size of the chunk.
+         */
+        public void onRead(final int bytes) {
+            this.lastReadTick = this.wheel.getCurrentTick();
+            this.bytesRead += bytes;
+        }
+
+        /**
+         * Stops watching, once the connection is closed.
+         */
+        public void close() {
+            this.wheel.cancel(this);
+        }
+
+        @Override
+        protected void expire() {
+            final long now = this.wheel.getCurrentTick();
+            if (this.readPauses.isPaused()) {
+                // Not reading, hence neither idle nor slow
+                this.lastReadTick = now;
+                this.startWindow(now);
+            } else if (idleTicks > 0 && now - this.lastReadTick >= idleTicks) {
+                closeConnectionHandler.reap(this.netSocket, this.connectionInfo, "idle");
+                return;
+            } else if (now >= this.windowEndTick) {
+                if (this.bytesRead - this.windowStartBytes < minBytesPerWindow) {
+                    closeConnectionHandler.reap(this.netSocket, this.connectionInfo, "too slow");
+                    return;
+                }
+                this.startWindow(now);
+            }
+            this.scheduleNext();
+        }
+
+        private void startWindow(final long now) {
+            this.windowEndTick = now + windowTicks;
+            this.windowStartBytes = this.bytesRead;
+        }
+
+        private void scheduleNext() {
+            long dueTick = this.windowEndTick;
+            if (idleTicks > 0) {
+                dueTick = Math.min(dueTick, this.lastReadTick + idleTicks);
+            }
+            this.wheel.schedule(this, Math.max(1, dueTick - this.wheel.getCurrentTick()));
+        }
+    }
+}
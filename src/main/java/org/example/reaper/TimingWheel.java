@@ -0,0 +1,131 @@
+package org.example.reaper;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Schedules many timeouts at a coarse resolution, in the manner of a hashed timing wheel.
+ *
+ * Time is split into ticks. The wheel is an array of slots, and a timeout due at a given tick is linked into the slot
+ * of that tick, modulo the count of slots. Every tick, only the timeouts of the current slot are visited, and those
+ * due are expired, while those due on a later turn of the wheel are left in place. Hence scheduling, cancelling and
+ * expiring a timeout are all constant time, whatever the count of timeouts, and a single timer drives them all.
+ *
+ * The timeouts are linked through their own fields, hence scheduling a timeout again does not allocate. A wheel is not
+ * thread safe, and is meant to be used from a single event loop.
+ */
+public final class TimingWheel {
+
+    private final AbstractTimeout[] slots;
+    private final int mask;
+
+    private long currentTick;
+    private int size;
+
+    /**
+     * Creates a wheel.
+     *
+     * @param slotCount Count of slots, a power of two. The more slots, the fewer timeouts visited on each tick.
+     */
+    public TimingWheel(final int slotCount) {
+        Preconditions.checkArgument(slotCount > 0 && Integer.bitCount(slotCount) == 1, "Slot count must be a power of two");
+
+        this.slots = new AbstractTimeout[slotCount];
+        this.mask = slotCount - 1;
+    }
+
+    /**
+     * Schedules a timeout, which must not be scheduled already.
+     *
+     * @param timeout The timeout.
+     * @param delayTicks Ticks after which the timeout expires, at least one.
+     */
+    public void schedule(final AbstractTimeout timeout, final long delayTicks) {
+        Preconditions.checkArgument(delayTicks > 0, "Delay must be positive");
+        Preconditions.checkState(timeout.wheel == null, "AbstractTimeout is scheduled already");
+
+        timeout.wheel = this;
+        timeout.deadlineTick = this.currentTick + delayTicks;
+        final int slot = (int)(timeout.deadlineTick & this.mask);
+        timeout.next = this.slots[slot];
+        if (timeout.next != null) {
+            timeout.next.previous = timeout;
+        }
+        this.slots[slot] = timeout;
+        this.size++;
+    }
+
+    /**
+     * Cancels a timeout. Does nothing if it is not scheduled.
+     *
+     * @param timeout The timeout.
+     */
+    public void cancel(final AbstractTimeout timeout) {
+        if (timeout.wheel != this) {
+            return;
+        }
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            this.slots[(int)(timeout.deadlineTick & this.mask)] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.wheel = null;
+        timeout.next = null;
+        timeout.previous = null;
+        this.size--;
+    }
+
+    /**
+     * Moves the wheel forward by a tick, expiring the timeouts due. A timeout is unscheduled before it expires, hence
+     * may schedule itself again.
+     */
+    public void tick() {
+        this.currentTick++;
+        AbstractTimeout timeout = this.slots[(int)(this.currentTick & this.mask)];
+        while (timeout != null) {
+            final AbstractTimeout next = timeout.next;
+            if (timeout.deadlineTick <= this.currentTick) {
+                this.cancel(timeout);
+                timeout.expire();
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * Returns the current tick, counted since the wheel was created.
+     *
+     * @return long
+     */
+    public long getCurrentTick() {
+        return this.currentTick;
+    }
+
+    /**
+     * Returns count of timeouts scheduled.
+     *
+     * @return int
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * A timeout, to be extended with what to do once it expires. While expiring, it may schedule itself again, but must
+     * not cancel the other timeouts of its wheel.
+     */
+    public abstract static class AbstractTimeout {
+
+        private TimingWheel wheel;
+        private AbstractTimeout next;
+        private AbstractTimeout previous;
+        private long deadlineTick;
+
+        /**
+         * Called once the timeout expires.
+         */
+        protected abstract void expire();
+    }
+}
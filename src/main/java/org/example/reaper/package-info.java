@@ -0,0 +1,4 @@
+/**
+ * Package containing the reaping of the connections which are idle or too slow.
+ */
+package org.example.reaper;
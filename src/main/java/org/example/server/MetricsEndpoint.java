@@ -0,0 +1,221 @@
+package org.example.server;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.example.admission.AdmissionController;
+import org.example.dedup.DeduplicationStore;
+import org.example.handlers.BackpressureCoordinator;
+import org.example.handlers.PartitionedDeduplicationHandler;
+import org.example.handlers.TcpConnectionManager;
+import org.example.memory.MemoryBudget;
+import org.example.metrics.EventLoopMonitor;
+import org.example.metrics.Histogram;
+import org.example.metrics.MetricsCollector;
+import org.example.metrics.PrometheusWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Preconditions;
+
+import io.vertx.core.Handler;
+import io.vertx.reactivex.core.Vertx;
+import io.vertx.reactivex.core.http.HttpServerRequest;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serves the metrics over HTTP, in the Prometheus text format, at "/metrics" on "metrics.http.port".
+ * The port is 0 by default, which disables the endpoint.
+ *
+ * The HTTP server runs on the Vert.x instance serving the TCP connections, hence needs no thread of its own. Every
+ * scrape reads the metrics as they are at that moment:
+ *   - Counters: unique and duplicate numbers, and connections admitted, rejected, shed and reaped, since the start.
+ *   - Gauges: active and paused connections, bytes pending to be written, memory budget used, overload, and the IDs
+ *     remembered for deduplication along with the memory they hold.
+ *   - Histograms: sizes of the batches written, and latencies of writes, forces and from reading a chunk to its
+ *     acknowledgement, since the start.
+ *   - Per event loop, if the {@link EventLoopMonitor} is enabled: scheduling lag and utilization, as gauges and
+ *     histograms, busy time, and whether the loops are imbalanced.
+ *
+ * Unlike {@link org.example.metrics.MetricsReporter}, a scrape never rotates the intervals, so any number of scrapers
+ * can read the same metrics. Encoding is a single pass over a few counters and histograms, cheap enough to scrape every
+ * second.
+ */
+@Slf4j
+@Component
+public class MetricsEndpoint implements Handler<HttpServerRequest> {
+
+    private static final String PATH = "/metrics";
+    private static final int NOT_FOUND = 404;
+    private static final double MICROS_PER_SECOND = TimeUnit.SECONDS.toMicros(1);
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final double PERCENT = 100;
+    private static final String LOOP_LABEL = "loop";
+    private static final long[] LATENCY_BOUNDS_MICROS = {
+            100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000,
+    };
+    private static final long[] UTILIZATION_BOUNDS_PERCENT = {
+            10, 25, 50, 75, 90, 100,
+    };
+    private static final long[] SIZE_BOUNDS_BYTES = {
+            1_024, 4_096, 16_384, 65_536, 262_144, 1_048_576, 4_194_304, 16_777_216,
+    };
+
+    private final Vertx vertx;
+    private final MetricsCollector metricsCollector;
+    private final TcpConnectionManager tcpConnectionManager;
+    private final BackpressureCoordinator backpressureCoordinator;
+    private final AdmissionController admissionController;
+    private final MemoryBudget memoryBudget;
+    private final DeduplicationStore deduplicationStore;
+    private final Optional<PartitionedDeduplicationHandler> partitionedDeduplicationHandler;
+    private final EventLoopMonitor eventLoopMonitor;
+    private final int port;
+
+    @Autowired
+    public MetricsEndpoint(
+            final Vertx vertx,
+            final MetricsCollector metricsCollector,
+            final TcpConnectionManager tcpConnectionManager,
+            final BackpressureCoordinator backpressureCoordinator,
+            final AdmissionController admissionController,
+            final MemoryBudget memoryBudget,
+            final DeduplicationStore deduplicationStore,
+            final Optional<PartitionedDeduplicationHandler> partitionedDeduplicationHandler,
+            final EventLoopMonitor eventLoopMonitor,
+            @Value("${metrics.http.port:0}") final int port) {
+
+        Preconditions.checkArgument(port >= 0, "Port cannot be negative");
+
+        this.vertx = vertx;
+        this.metricsCollector = metricsCollector;
+        this.tcpConnectionManager = tcpConnectionManager;
+        this.backpressureCoordinator = backpressureCoordinator;
+        this.admissionController = admissionController;
+        this.memoryBudget = memoryBudget;
+        this.deduplicationStore = deduplicationStore;
+        this.partitionedDeduplicationHandler = partitionedDeduplicationHandler;
+        this.eventLoopMonitor = eventLoopMonitor;
+        this.port = port;
+    }
+
+    /**
+     * Starts serving the metrics, unless disabled.
+     */
+    @PostConstruct
+    public void listen() {
+        if (this.port == 0) {
+            return;
+        }
+        this.vertx.createHttpServer()
+                .requestHandler(this)
+                .listen(this.port, result -> {
+                    if (result.succeeded()) {
+                        log.info("Metrics are served at {}{}", this.port, PATH);
+                    } else {
+                        log.error("Unable to serve the metrics at {}", this.port, result.cause());
+                    }
+                });
+    }
+
+    @Override
+    public void handle(final HttpServerRequest request) {
+        if (!PATH.equals(request.path())) {
+            request.response().setStatusCode(NOT_FOUND).end();
+            return;
+        }
+        request.response()
+                .putHeader("Content-Type", PrometheusWriter.CONTENT_TYPE)
+                .end(this.scrape());
+    }
+
+    /**
+     * Encodes all the metrics in the Prometheus text format.
+     *
+     * @return String
+     */
+    public String scrape() {
+        final Histogram endToEndLatencies = new Histogram();
+        this.metricsCollector.getEndToEndLatencyRecorder().addTotalTo(endToEndLatencies);
+
+        final PrometheusWriter writer = new PrometheusWriter(new StringBuilder())
+                .counter("tcp_server_unique_numbers_total", "Unique numbers received.",
+                        this.metricsCollector.getTotalUniqueNumsCount())
+                .counter("tcp_server_duplicate_numbers_total", "Duplicate numbers received.",
+                        this.metricsCollector.getTotalDuplicateNumCount())
+                .counter("tcp_server_connections_admitted_total", "Connections admitted.",
+                        this.metricsCollector.getAdmittedConnectionCount())
+                .counter("tcp_server_connections_rejected_total", "Connections rejected, as the server was overloaded.",
+                        this.metricsCollector.getRejectedConnectionCount())
+                .counter("tcp_server_connections_shed_total", "Connections shed, as the server was overloaded.",
+                        this.metricsCollector.getShedConnectionCount())
+                .counter("tcp_server_connections_reaped_total", "Connections reaped, as idle or too slow.",
+                        this.metricsCollector.getReapedConnectionCount())
+                .gauge("tcp_server_active_connections", "Connections currently open.",
+                        this.tcpConnectionManager.getConnectionCount())
+                .gauge("tcp_server_paused_connections", "Connections waiting for the write queue to drain.",
+                        this.backpressureCoordinator.getPausedCount())
+                .gauge("tcp_server_write_pending_bytes", "Bytes handed to the output file, and not written yet.",
+                        this.admissionController.getPendingBytes())
+                .gauge("tcp_server_memory_used_bytes", "Bytes charged against the memory budget.",
+                        this.memoryBudget.getUsedBytes())
+                .gauge("tcp_server_memory_budget_bytes", "Bytes which can be charged against the memory budget.",
+                        this.memoryBudget.getBudgetBytes())
+                .gauge("tcp_server_overloaded", "1 if the server is overloaded, else 0.",
+                        this.metricsCollector.isOverloaded() ? 1 : 0)
+                .gauge("tcp_server_dedup_entries", "IDs remembered for deduplication.",
+                        this.partitionedDeduplicationHandler
+                                .map(PartitionedDeduplicationHandler::size)
+                                .orElseGet(this.deduplicationStore::size))
+                .gauge("tcp_server_dedup_memory_bytes", "Memory held to remember the IDs, estimated for some stores.",
+                        this.partitionedDeduplicationHandler
+                                .map(PartitionedDeduplicationHandler::getMemoryBytes)
+                                .orElseGet(this.deduplicationStore::getMemoryBytes))
+                .histogram("tcp_server_write_batch_bytes", "Sizes of the batches written to the output file.",
+                        this.metricsCollector.getBatchSizeHistogram(), SIZE_BOUNDS_BYTES, 1)
+                .histogram("tcp_server_force_latency_seconds", "Latencies of forcing the output file to the device.",
+                        this.metricsCollector.getForceLatencyHistogram(), LATENCY_BOUNDS_MICROS, MICROS_PER_SECOND)
+                .histogram("tcp_server_write_latency_seconds", "Latencies from handing a chunk to the output file to writing it.",
+                        this.metricsCollector.getWriteLatencyHistogram(), LATENCY_BOUNDS_MICROS, MICROS_PER_SECOND)
+                .histogram("tcp_server_end_to_end_latency_seconds", "Latencies from reading a chunk to its acknowledgement.",
+                        endToEndLatencies, LATENCY_BOUNDS_MICROS, MICROS_PER_SECOND);
+        if (this.eventLoopMonitor.isEnabled()) {
+            this.writeEventLoops(writer);
+        }
+        return writer.toString();
+    }
+
+    private void writeEventLoops(final PrometheusWriter writer) {
+        final int count = this.eventLoopMonitor.getLoopCount();
+        final String[] loops = new String[count];
+        final double[] lags = new double[count];
+        final double[] utilizations = new double[count];
+        final double[] busySeconds = new double[count];
+        final Histogram[] lagHistograms = new Histogram[count];
+        final Histogram[] utilizationHistograms = new Histogram[count];
+        for (int i = 0; i < count; i++) {
+            loops[i] = Integer.toString(i);
+            lags[i] = this.eventLoopMonitor.getLag(i) / MICROS_PER_SECOND;
+            utilizations[i] = this.eventLoopMonitor.getUtilization(i);
+            busySeconds[i] = this.eventLoopMonitor.getBusyNanos(i) / NANOS_PER_SECOND;
+            lagHistograms[i] = this.eventLoopMonitor.getLagHistogram(i);
+            utilizationHistograms[i] = this.eventLoopMonitor.getUtilizationHistogram(i);
+        }
+        writer.gauges("tcp_server_event_loop_lag_seconds", "Time the latest probe waited to run on the event loop.",
+                        LOOP_LABEL, loops, lags)
+                .gauges("tcp_server_event_loop_utilization", "Share of the latest probe interval the event loop was busy.",
+                        LOOP_LABEL, loops, utilizations)
+                .gauges("tcp_server_event_loop_busy_seconds", "Time the event loop was busy since it was first probed.",
+                        LOOP_LABEL, loops, busySeconds)
+                .histograms("tcp_server_event_loop_probe_lag_seconds", "Times the probes waited to run on the event loop.",
+                        LOOP_LABEL, loops, lagHistograms, LATENCY_BOUNDS_MICROS, MICROS_PER_SECOND)
+                .histograms("tcp_server_event_loop_utilization_ratio", "Shares of the probe intervals the event loop was busy.",
+                        LOOP_LABEL, loops, utilizationHistograms, UTILIZATION_BOUNDS_PERCENT, PERCENT)
+                .gauge("tcp_server_event_loops_imbalanced", "1 if a few event loops are much busier than the others, else 0.",
+                        this.eventLoopMonitor.isImbalanced() ? 1 : 0);
+    }
+}
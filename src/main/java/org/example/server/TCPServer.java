@@ -1,19 +1,29 @@
 package org.example.server;
 
 import java.io.IOException;
-import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
+import org.example.admission.AdmissionController;
+import org.example.handlers.BackpressureCoordinator;
 import org.example.handlers.TcpConnectionHandler;
+import org.example.memory.MemoryBudget;
+import org.example.metrics.ConnectionStatsRegistry;
+import org.example.metrics.EventLoopMonitor;
+import org.example.metrics.FrameworkMetrics;
 import org.example.metrics.MetricsCollector;
 import org.example.metrics.MetricsReporter;
+import org.example.output.LogRecovery;
+import org.example.output.OutputFormat;
+import org.example.output.OutputWriterFactory;
 import org.example.server.boot.ContextRunnerImpl;
 import org.example.server.boot.ContextRunnerRx;
 import org.example.server.boot.ContextRunnerRxImpl;
@@ -21,13 +31,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.google.common.collect.Lists;
+
 import io.reactivex.Observable;
 import io.vertx.core.Handler;
-import io.vertx.core.file.OpenOptions;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.reactivex.core.Vertx;
 import io.vertx.reactivex.core.eventbus.EventBus;
-import io.vertx.reactivex.core.file.AsyncFile;
 import io.vertx.reactivex.core.net.NetServer;
+import io.vertx.reactivex.core.streams.WriteStream;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -40,9 +52,20 @@ import lombok.extern.slf4j.Slf4j;
  *
  * It also registers {@link MetricsReporter} with {@link io.vertx.core.Vertx#setPeriodic(long, Handler)}. This allows
  * {@link MetricsReporter} to print the statistics periodically as defined by {@link #metricsReportIntervalSecs}.
+ * The {@link ConnectionStatsRegistry} is registered the same way, if it is enabled, to print the stats of every
+ * connection from a single timer. So are the {@link FrameworkMetrics}, if Vert.x reports its own metrics.
+ * The {@link EventLoopMonitor}, if enabled, is scheduled to probe the event loops, and to report them.
+ *
+ * The files written before are deleted on every start, unless "recovery.enabled" is set. The numbers already in the
+ * files are then recovered using {@link LogRecovery}, before any connection is accepted, and the new ones are appended.
  *
  * It adds {@link TcpConnectionHandler} as the main handler for all incoming connections.
- * It used {@link io.vertx.reactivex.core.file.FileSystem} to write into the file.
+ * It uses the {@link WriteStream} opened by {@link OutputWriterFactory} to write into the file. The same stream is
+ * shared by all the connections, which are paused and resumed by the {@link BackpressureCoordinator} while it is
+ * full. It is ended when the server stops. The numbers are written as laid out by the {@link OutputFormat}.
+ * The bytes queued are charged against the {@link MemoryBudget}, which pauses the connections once exhausted.
+ * The writes are watched by the {@link AdmissionController}, which is evaluated periodically to shed load once the
+ * server is overloaded.
  * It attaches the error handlers for each of the components used.
  */
 @Component
@@ -50,38 +73,71 @@ import lombok.extern.slf4j.Slf4j;
 public class TCPServer {
 
     private static final int MAX_SERVER_START_TIME_MINS = 5;
+    private static final int MAX_SERVER_STOP_TIME_MINS = 1;
 
     private final Vertx vertx;
     private final EventBus eventBus;
     private final TcpConnectionHandler tcpConnectionHandler;
+    private final BackpressureCoordinator backpressureCoordinator;
+    private final AdmissionController admissionController;
+    private final MemoryBudget memoryBudget;
     private final MetricsCollector metricsCollector;
     private final MetricsReporter metricsReporter;
+    private final ConnectionStatsRegistry connectionStatsRegistry;
+    private final Optional<FrameworkMetrics> frameworkMetrics;
+    private final EventLoopMonitor eventLoopMonitor;
+    private final OutputWriterFactory outputWriterFactory;
+    private final OutputFormat outputFormat;
+    private final LogRecovery logRecovery;
     private final int metricsReportIntervalSecs;
     private final int tcpPort;
     private final int numberOfServerInstances;
     private final String destAbsoluteFilePath;
+    private final boolean recoveryEnabled;
+
+    private WriteStream<Buffer> writeStream;
 
     @Autowired
     public TCPServer(
             final Vertx vertx,
             final EventBus eventBus,
             final TcpConnectionHandler tcpConnectionHandler,
+            final BackpressureCoordinator backpressureCoordinator,
+            final AdmissionController admissionController,
+            final MemoryBudget memoryBudget,
             final MetricsCollector metricsCollector,
             final MetricsReporter metricsReporter,
+            final ConnectionStatsRegistry connectionStatsRegistry,
+            final Optional<FrameworkMetrics> frameworkMetrics,
+            final EventLoopMonitor eventLoopMonitor,
+            final OutputWriterFactory outputWriterFactory,
+            final OutputFormat outputFormat,
+            final LogRecovery logRecovery,
             @Value("${metrics.report.interval.in.ms:10000}") final int metricsReportIntervalSecs,
             @Value("${server.port:4000}") final int tcpPort,
             @Value("${num.of.server.instances:16}") final int numberOfServerInstances,
-            @Value("${dest.file.absolute.path:/tmp/numbers.log}") final String destAbsoluteFilePath) {
+            @Value("${dest.file.absolute.path:/tmp/numbers.log}") final String destAbsoluteFilePath,
+            @Value("${recovery.enabled:false}") final boolean recoveryEnabled) {
 
         this.vertx = vertx;
         this.eventBus = eventBus;
         this.tcpConnectionHandler = tcpConnectionHandler;
+        this.backpressureCoordinator = backpressureCoordinator;
+        this.admissionController = admissionController;
+        this.memoryBudget = memoryBudget;
         this.metricsCollector = metricsCollector;
         this.metricsReporter = metricsReporter;
+        this.connectionStatsRegistry = connectionStatsRegistry;
+        this.frameworkMetrics = frameworkMetrics;
+        this.eventLoopMonitor = eventLoopMonitor;
+        this.outputWriterFactory = outputWriterFactory;
+        this.outputFormat = outputFormat;
+        this.logRecovery = logRecovery;
         this.metricsReportIntervalSecs = metricsReportIntervalSecs;
         this.tcpPort = tcpPort;
         this.numberOfServerInstances = numberOfServerInstances;
         this.destAbsoluteFilePath = destAbsoluteFilePath;
+        this.recoveryEnabled = recoveryEnabled;
     }
     /**
      * As described above, it initializes a TCP server at the given port, registers a metrics collector and metrics
@@ -91,43 +147,64 @@ public class TCPServer {
     public void initializeTcpListener() throws InterruptedException, ExecutionException, TimeoutException, IOException {
 
         // Make sure one has write access, cleanup file during startup.
-        if (!Files.exists(Paths.get(this.destAbsoluteFilePath).getParent())) {
+        final Path destPath = Paths.get(this.destAbsoluteFilePath);
+        if (!Files.exists(destPath.getParent())) {
             throw new IllegalStateException(String.format(
                 "Destination file where messages will be written is not defined %s", this.destAbsoluteFilePath));
         }
-        Files.deleteIfExists(Paths.get(this.destAbsoluteFilePath));
-        FileChannel.open(Paths.get(this.destAbsoluteFilePath),
-                StandardOpenOption.WRITE,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING)
-                .close();
-
-        log.info("All messages will written to file sitting at {}", this.destAbsoluteFilePath);
+        if (this.recoveryEnabled) {
+            // Keep the numbers written before the restart, and append to them. The latest files first, as their numbers
+            // are the most worth remembering.
+            for (final Path file : Lists.reverse(this.outputWriterFactory.listFiles(this.destAbsoluteFilePath))) {
+                this.logRecovery.recover(file);
+            }
+        } else {
+            this.outputWriterFactory.deleteFiles(this.destAbsoluteFilePath);
+        }
 
-        final AsyncFile asyncFile = this.vertx.fileSystem().openBlocking(this.destAbsoluteFilePath,
-                new OpenOptions().setAppend(true).setWrite(true).setCreate(true));
+        log.info("All messages will written to file sitting at {}, in format {}", this.destAbsoluteFilePath, this.outputFormat);
 
-        asyncFile.exceptionHandler(event -> {
-            log.error("Error while writing into file", event.getCause());
-        });
+        this.writeStream = WriteStream.newInstance(this.admissionController.track(
+                this.memoryBudget.account(this.outputWriterFactory.open(this.destAbsoluteFilePath))));
+        this.backpressureCoordinator.attach(this.writeStream.getDelegate());
 
         final ContextRunnerRx contextRunnerRx = new ContextRunnerRxImpl(
                 new ContextRunnerImpl((io.vertx.core.Vertx)this.vertx.getDelegate()));
         contextRunnerRx.executeBlocking(
                 this.numberOfServerInstances,
-                () -> this.createNetServer(asyncFile),
+                () -> this.createNetServer(this.writeStream),
                 MAX_SERVER_START_TIME_MINS, TimeUnit.MINUTES);
 
         // Attach the metrics collector to the event bus
         this.eventBus.localConsumer(MetricsCollector.name(), this.metricsCollector:: handle);
         this.vertx.setPeriodic(this.metricsReportIntervalSecs, this.metricsReporter);
+        this.vertx.setPeriodic(this.admissionController.getEvaluationIntervalMillis(), this.admissionController);
+        if (this.connectionStatsRegistry.isEnabled()) {
+            this.vertx.setPeriodic(this.connectionStatsRegistry.getReportIntervalMillis(), this.connectionStatsRegistry);
+        }
+        this.frameworkMetrics.ifPresent(metrics -> this.vertx.setPeriodic(metrics.getReportIntervalMillis(), metrics));
+        if (this.eventLoopMonitor.isEnabled()) {
+            this.vertx.setPeriodic(this.eventLoopMonitor.getProbeIntervalMillis(), this.eventLoopMonitor);
+            this.vertx.setPeriodic(this.eventLoopMonitor.getReportIntervalMillis(), id -> this.eventLoopMonitor.report());
+        }
 
         log.info("Server is running at {}", this.tcpPort);
     }
 
-    private Observable<NetServer> createNetServer(final AsyncFile asyncFile) {
+    /**
+     * Writes out whatever is still queued and closes the file.
+     */
+    @PreDestroy
+    public void closeWriteStream() throws InterruptedException, ExecutionException, TimeoutException {
+        if (this.writeStream != null) {
+            this.writeStream.getDelegate().end().toCompletionStage().toCompletableFuture()
+                    .get(MAX_SERVER_STOP_TIME_MINS, TimeUnit.MINUTES);
+        }
+    }
+
+    private Observable<NetServer> createNetServer(final WriteStream<Buffer> writeStream) {
         return vertx.createNetServer()
-            .connectHandler(netSocket -> this.tcpConnectionHandler.handle(netSocket, asyncFile))
+            .connectHandler(netSocket -> this.tcpConnectionHandler.handle(netSocket, writeStream))
             .rxListen(this.tcpPort)
             .toObservable();
     }
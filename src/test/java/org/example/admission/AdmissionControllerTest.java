@@ -0,0 +1,127 @@
+package org.example.admission;
+
+import org.example.metrics.MetricsCollector;
+import org.example.model.ConnectionInfo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.mockito.Mockito.*;
+
+class AdmissionControllerTest {
+
+    private static final ConnectionInfo LOW_PRIORITY = ConnectionInfo.builder()
+            .remoteHostName("10.0.0.1").remotePort(4001).writeHandlerId("handler1").build();
+    private static final ConnectionInfo HIGH_PRIORITY = ConnectionInfo.builder()
+            .remoteHostName("10.0.0.2").remotePort(4002).writeHandlerId("handler2").build();
+
+    private MetricsCollector metricsCollector;
+
+    private WriteStream<Buffer> mockWriteStream;
+
+    private AdmissionController admissionController;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void beforeEach() {
+        this.metricsCollector = new MetricsCollector();
+        this.mockWriteStream = Mockito.mock(WriteStream.class);
+        // At most 8 bytes may be pending, and the chunks must be written less than 50 ms after being read
+        this.admissionController = new AdmissionController(this.metricsCollector, 50, 8, 100, "10.0.0.1, 10.0.0.3");
+    }
+
+    @Test
+    @DisplayName("When the writes keep up, connections are admitted and never shed")
+    void whenNotOverloaded() {
+        when(this.mockWriteStream.write(Mockito.any(Buffer.class))).thenReturn(Future.succeededFuture());
+        this.admissionController.track(this.mockWriteStream).write(Buffer.buffer("123456789\n"));
+        this.admissionController.handle(0L);
+
+        assertThat(this.admissionController.isOverloaded(), equalTo(false));
+        assertThat(this.admissionController.admit(HIGH_PRIORITY), equalTo(true));
+        assertThat(this.admissionController.shed(LOW_PRIORITY), equalTo(false));
+        assertThat(this.metricsCollector.getAdmittedConnectionCount(), equalTo(1L));
+        assertThat(this.metricsCollector.getWriteLatencyHistogram().getCount(), equalTo(1L));
+    }
+
+    @Test
+    @DisplayName("When too many bytes are pending, connections are rejected and shed until they are written")
+    void whenTooManyPendingBytes() {
+        final Promise<Void> promise = Promise.promise();
+        when(this.mockWriteStream.write(Mockito.any(Buffer.class))).thenReturn(promise.future());
+        this.admissionController.track(this.mockWriteStream).write(Buffer.buffer("123456789\n"));
+        this.admissionController.handle(0L);
+
+        assertThat(this.admissionController.isOverloaded(), equalTo(true));
+        assertThat(this.metricsCollector.isOverloaded(), equalTo(true));
+        assertThat(this.admissionController.admit(HIGH_PRIORITY), equalTo(false));
+        assertThat(this.admissionController.shed(LOW_PRIORITY), equalTo(true));
+        assertThat(this.metricsCollector.getRejectedConnectionCount(), equalTo(1L));
+        assertThat(this.metricsCollector.getShedConnectionCount(), equalTo(1L));
+
+        promise.complete();
+        this.admissionController.handle(0L);
+        assertThat(this.admissionController.isOverloaded(), equalTo(false));
+        assertThat(this.metricsCollector.isOverloaded(), equalTo(false));
+        assertThat(this.admissionController.admit(HIGH_PRIORITY), equalTo(true));
+    }
+
+    @Test
+    @DisplayName("When chunks take longer than the SLO from being read to being written, the server is overloaded for the next interval only")
+    void whenSloBreached() {
+        this.metricsCollector.recordEndToEnd(60000);
+        this.admissionController.handle(0L);
+        assertThat(this.admissionController.isOverloaded(), equalTo(true));
+
+        this.admissionController.handle(0L);
+        assertThat(this.admissionController.isOverloaded(), equalTo(false));
+
+        // The latencies are still reported by the metrics intervals
+        assertThat(this.metricsCollector.rotate().getEndToEndLatencyHistogram().getCount(), equalTo(1L));
+    }
+
+    @Test
+    @DisplayName("When the output file alone is slower than the SLO, the server is not overloaded")
+    @SuppressWarnings("unchecked")
+    void whenOnlyWritesAreSlow() throws InterruptedException {
+        this.admissionController.track(this.mockWriteStream).write(Buffer.buffer("1"), null);
+        final ArgumentCaptor<Handler<AsyncResult<Void>>> captor = ArgumentCaptor.forClass(Handler.class);
+        verify(this.mockWriteStream).write(Mockito.any(Buffer.class), captor.capture());
+
+        Thread.sleep(60);
+        captor.getValue().handle(Future.succeededFuture());
+        this.admissionController.handle(0L);
+        assertThat(this.admissionController.isOverloaded(), equalTo(false));
+        assertThat(this.metricsCollector.getWriteLatencyHistogram().getMax(), greaterThanOrEqualTo(60000L));
+    }
+
+    @Test
+    @DisplayName("When hosts are listed as low priority, their connections are shed first")
+    void whenLowPriority() {
+        assertThat(this.admissionController.isLowPriority(LOW_PRIORITY), equalTo(true));
+        assertThat(this.admissionController.isLowPriority(HIGH_PRIORITY), equalTo(false));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AdmissionController(null, 1, 1, 1, ""));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AdmissionController(this.metricsCollector, 0, 1, 1, ""));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AdmissionController(this.metricsCollector, 1, 0, 1, ""));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AdmissionController(this.metricsCollector, 1, 1, 0, ""));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AdmissionController(this.metricsCollector, 1, 1, 1, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.admissionController.track(null));
+    }
+}
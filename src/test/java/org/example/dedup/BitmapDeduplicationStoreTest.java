@@ -0,0 +1,73 @@
+package org.example.dedup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class BitmapDeduplicationStoreTest {
+
+    @Test
+    @DisplayName("When the same event is added twice, only the first one is unique")
+    void whenDeduplicationSucceeds() {
+        final BitmapDeduplicationStore store = new BitmapDeduplicationStore(1000);
+
+        assertThat(store.add(0), equalTo(true));
+        assertThat(store.add(63), equalTo(true));
+        assertThat(store.add(64), equalTo(true));
+        assertThat(store.add(999), equalTo(true));
+
+        assertThat(store.add(0), equalTo(false));
+        assertThat(store.add(63), equalTo(false));
+        assertThat(store.add(64), equalTo(false));
+        assertThat(store.add(999), equalTo(false));
+        assertThat(store.add(1), equalTo(true));
+    }
+
+    @Test
+    @DisplayName("When events are added concurrently, each one is unique exactly once")
+    void whenEventsAreAddedConcurrently() throws Exception {
+        final int events = 100_000;
+        final int threads = 4;
+        final BitmapDeduplicationStore store = new BitmapDeduplicationStore(events);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                tasks.add(() -> {
+                    int unique = 0;
+                    for (int event = 0; event < events; event++) {
+                        if (store.add(event)) {
+                            unique++;
+                        }
+                    }
+                    return unique;
+                });
+            }
+            int unique = 0;
+            for (final Future<Integer> result : executor.invokeAll(tasks)) {
+                unique += result.get();
+            }
+            assertThat(unique, equalTo(events));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("When event is out of range")
+    void whenEventIsOutOfRange() {
+        final BitmapDeduplicationStore store = new BitmapDeduplicationStore(1000);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> store.add(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> store.add(1000));
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.dedup;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class GenerationalDeduplicationStoreTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+
+    @Test
+    @DisplayName("When the same event is sent within the time to live, its a duplicate")
+    void whenDeduplicationSucceeds() {
+        final GenerationalDeduplicationStore store = new GenerationalDeduplicationStore(10_000, 10, this.clock::get);
+
+        assertThat(store.add(123456789), equalTo(true));
+        assertThat(store.add(987654321), equalTo(true));
+        assertThat(store.add(123456789), equalTo(false));
+
+        // Still remembered just before the time to live ends, even though generations have rotated
+        this.clock.addAndGet(9_999);
+        assertThat(store.add(123456789), equalTo(false));
+        assertThat(store.add(987654321), equalTo(false));
+    }
+
+    @Test
+    @DisplayName("When the same event is sent after the time to live, its unique again")
+    void whenTheSameEventCanBeSentAfterExpiry() {
+        final GenerationalDeduplicationStore store = new GenerationalDeduplicationStore(10_000, 10, this.clock::get);
+
+        assertThat(store.add(123456789), equalTo(true));
+        this.clock.addAndGet(5_000);
+        assertThat(store.add(5), equalTo(true));
+
+        // At most one generation longer than the time to live
+        this.clock.addAndGet(6_000);
+        assertThat(store.add(123456789), equalTo(true));
+        assertThat(store.add(5), equalTo(false));
+
+        // Long idle periods expire everything
+        this.clock.addAndGet(1_000_000);
+        assertThat(store.add(5), equalTo(true));
+        assertThat(store.add(123456789), equalTo(true));
+    }
+
+    @Test
+    @DisplayName("When many events are added, the generation grows")
+    void whenManyEventsAreAdded() {
+        final GenerationalDeduplicationStore store = new GenerationalDeduplicationStore(10_000, 10, this.clock::get);
+
+        for (int event = 0; event < 200_000; event++) {
+            assertThat(store.add(event), equalTo(true));
+        }
+        for (int event = 0; event < 200_000; event++) {
+            assertThat(store.add(event), equalTo(false));
+        }
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new GenerationalDeduplicationStore(10_000, 0, this.clock::get));
+        final GenerationalDeduplicationStore store = new GenerationalDeduplicationStore(10_000, 10, this.clock::get);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> store.add(-1));
+    }
+}
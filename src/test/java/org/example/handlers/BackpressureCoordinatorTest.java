@@ -0,0 +1,169 @@
+package org.example.handlers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.mockito.Mockito.*;
+
+class BackpressureCoordinatorTest {
+
+    private final AtomicBoolean queueFull = new AtomicBoolean();
+
+    private final List<String> events = new ArrayList<>();
+
+    private WriteStream<Buffer> mockWriteStream;
+
+    private BackpressureCoordinator backpressureCoordinator;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void beforeEach() {
+        this.mockWriteStream = Mockito.mock(WriteStream.class);
+        when(this.mockWriteStream.writeQueueFull()).thenAnswer(invocation -> this.queueFull.get());
+
+        this.backpressureCoordinator = new BackpressureCoordinator(1024, 2);
+        this.backpressureCoordinator.attach(this.mockWriteStream);
+        verify(this.mockWriteStream).setWriteQueueMaxSize(1024);
+    }
+
+    @Test
+    @DisplayName("When the queue drains, connections are resumed in the order they were paused, a batch at a time")
+    void whenResumedRoundRobin() {
+        final List<BackpressureCoordinator.Participant> participants = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            participants.add(this.join("connection" + i));
+        }
+        // Once resumed, the second connection fills the queue up again
+        participants.set(1, this.backpressureCoordinator.join(
+                () -> this.events.add("pause connection1"),
+                () -> {
+                    this.events.add("resume connection1");
+                    this.queueFull.set(true);
+                }));
+
+        this.queueFull.set(true);
+        participants.forEach(BackpressureCoordinator.Participant::pauseIfThrottled);
+        assertThat(this.events, contains("pause connection0", "pause connection1", "pause connection2", "pause connection3"));
+        assertThat(this.backpressureCoordinator.getPausedCount(), equalTo(4));
+
+        // The first batch fills the queue up again, hence the last two wait for the next drain
+        this.events.clear();
+        this.queueFull.set(false);
+        this.drain(1);
+        assertThat(this.events, contains("resume connection0", "resume connection1"));
+        assertThat(this.backpressureCoordinator.getPausedCount(), equalTo(2));
+
+        this.events.clear();
+        this.queueFull.set(false);
+        this.drain(2);
+        assertThat(this.events, contains("resume connection2", "resume connection3"));
+        assertThat(this.backpressureCoordinator.getPausedCount(), equalTo(0));
+    }
+
+    @Test
+    @DisplayName("When the queue is no longer full, connections stay paused until it drains")
+    void whenThrottledWithHysteresis() {
+        final BackpressureCoordinator.Participant participant = this.join("connection");
+
+        this.queueFull.set(true);
+        assertThat(participant.writeQueueFull(), equalTo(true));
+
+        this.queueFull.set(false);
+        assertThat(participant.writeQueueFull(), equalTo(true));
+
+        this.drain(1);
+        assertThat(participant.writeQueueFull(), equalTo(false));
+    }
+
+    @Test
+    @DisplayName("When a pump waits for the queue to drain, its drain handler is called on its turn only")
+    void whenDrainHandlerRegistered() {
+        final BackpressureCoordinator.Participant first = this.join("first");
+        final BackpressureCoordinator.Participant second = this.join("second");
+        final AtomicInteger drained = new AtomicInteger();
+
+        this.queueFull.set(true);
+        assertThat(first.writeQueueFull(), equalTo(true));
+        first.drainHandler(event -> drained.incrementAndGet());
+        second.pauseIfThrottled();
+        second.pauseIfThrottled();
+
+        // A connection closed meanwhile is never resumed
+        second.leave();
+        this.queueFull.set(false);
+        this.drain(1);
+
+        assertThat(drained.get(), equalTo(1));
+        assertThat(this.events, contains(equalTo("pause second")));
+        assertThat(this.backpressureCoordinator.getPausedCount(), equalTo(0));
+    }
+
+    @Test
+    @DisplayName("When a connection gets in line right after the queue drained, it is resumed at once")
+    void whenEnqueuedAfterDrain() {
+        final BackpressureCoordinator.Participant participant = this.join("connection");
+        final AtomicInteger drained = new AtomicInteger();
+
+        participant.drainHandler(event -> drained.incrementAndGet());
+
+        assertThat(drained.get(), equalTo(1));
+        assertThat(this.backpressureCoordinator.getPausedCount(), equalTo(0));
+    }
+
+    @Test
+    @DisplayName("When writes go through a connection, they reach the shared stream, which is never ended")
+    void whenWrittenThroughParticipant() {
+        final BackpressureCoordinator.Participant participant = this.join("connection");
+        final Buffer buffer = Buffer.buffer("123456789\n");
+
+        participant.write(buffer);
+        participant.setWriteQueueMaxSize(1);
+        participant.end();
+
+        verify(this.mockWriteStream).write(buffer);
+        verify(this.mockWriteStream, times(1)).setWriteQueueMaxSize(anyInt());
+        verify(this.mockWriteStream, never()).end();
+        verify(this.mockWriteStream, never()).end(Mockito.<Handler<AsyncResult<Void>>>any());
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BackpressureCoordinator(0, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BackpressureCoordinator(1, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.backpressureCoordinator.attach(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.backpressureCoordinator.join(null, () -> { }));
+        Assertions.assertThrows(IllegalStateException.class, () -> {
+            new BackpressureCoordinator(1, 1).join(() -> { }, () -> { });
+        });
+    }
+
+    private BackpressureCoordinator.Participant join(final String name) {
+        return this.backpressureCoordinator.join(
+                () -> this.events.add("pause " + name),
+                () -> this.events.add("resume " + name));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void drain(final int registrations) {
+        final ArgumentCaptor<Handler<Void>> captor = ArgumentCaptor.forClass(Handler.class);
+        verify(this.mockWriteStream, times(registrations)).drainHandler(captor.capture());
+        captor.getValue().handle(null);
+    }
+}
@@ -1,5 +1,7 @@
 package org.example.handlers;
 
+import org.example.metrics.ConnectionStatsRegistry;
+import org.example.metrics.MetricsCollector;
 import org.example.model.ConnectionInfo;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
@@ -8,6 +10,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import io.vertx.reactivex.core.net.NetSocket;
+
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -16,19 +20,41 @@ class CloseConnectionHandlerTest {
     @Mock
     private TcpConnectionManager mockTcpConnectionManager;
 
+    @Mock
+    private NetSocket mockNetSocket;
+
+    private final MetricsCollector metricsCollector = new MetricsCollector();
+
+    private final ConnectionStatsRegistry connectionStatsRegistry = new ConnectionStatsRegistry(false, 10000);
+
     @Test
     @DisplayName("When handling close connection event succeeds")
     void whenCloseConnectionSucceeds() {
-        final CloseConnectionHandler closeConnectionHandler = new CloseConnectionHandler(this.mockTcpConnectionManager);
+        final CloseConnectionHandler closeConnectionHandler = new CloseConnectionHandler(this.mockTcpConnectionManager, this.metricsCollector, this.connectionStatsRegistry);
+
+        final ConnectionInfo connectionInfo = ConnectionInfo.builder().remotePort(4000).remoteHostName("localhost").build();
+        this.connectionStatsRegistry.register(connectionInfo);
+
+        closeConnectionHandler.handle(connectionInfo);
+        verify(this.mockTcpConnectionManager).remove(any(ConnectionInfo.class));
+        Assertions.assertTrue(this.connectionStatsRegistry.getStats().isEmpty());
+    }
+
+    @Test
+    @DisplayName("When a connection is reaped, it is closed and its slot released at once")
+    void whenConnectionReaped() {
+        final CloseConnectionHandler closeConnectionHandler = new CloseConnectionHandler(this.mockTcpConnectionManager, this.metricsCollector, this.connectionStatsRegistry);
 
-        closeConnectionHandler.handle(ConnectionInfo.builder().remotePort(4000).remoteHostName("localhost").build());
+        closeConnectionHandler.reap(this.mockNetSocket, ConnectionInfo.builder().remotePort(4000).remoteHostName("localhost").build(), "idle");
         verify(this.mockTcpConnectionManager).remove(any(ConnectionInfo.class));
+        verify(this.mockNetSocket).close();
+        Assertions.assertEquals(1L, this.metricsCollector.getReapedConnectionCount());
     }
 
     @Test
     @DisplayName("Should fail for invalid inputs")
     void whenInputsAreInvalid() {
-        final CloseConnectionHandler closeConnectionHandler = new CloseConnectionHandler(this.mockTcpConnectionManager);
+        final CloseConnectionHandler closeConnectionHandler = new CloseConnectionHandler(this.mockTcpConnectionManager, this.metricsCollector, this.connectionStatsRegistry);
         Assertions.assertThrows(IllegalArgumentException.class, () -> {
             closeConnectionHandler.handle(null);
         });
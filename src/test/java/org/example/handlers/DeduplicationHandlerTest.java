@@ -1,19 +1,17 @@
 package org.example.handlers;
 
-import org.example.metrics.EventType;
+import org.example.dedup.TtlDeduplicationStore;
+import org.example.metrics.ConnectionStats;
+import org.example.metrics.ConnectionStatsRegistry;
 import org.example.metrics.MetricsCollector;
+import org.example.model.ConnectionInfo;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import io.vertx.reactivex.core.buffer.Buffer;
-import io.vertx.reactivex.core.eventbus.EventBus;
-
 import lombok.extern.slf4j.Slf4j;
 
 import static org.mockito.Mockito.*;
@@ -24,45 +22,42 @@ import static org.hamcrest.MatcherAssert.*;
 @ExtendWith(MockitoExtension.class)
 class DeduplicationHandlerTest {
 
-    @Captor
-    ArgumentCaptor<String> metricCollectorNameCaptor;
-
-    @Captor
-    ArgumentCaptor<String> metricPayloadCaptor;
-
     @Mock
-    private EventBus mockEventBus;
+    private MetricsCollector mockMetricsCollector;
 
     @Test
     @DisplayName("When deduplication succeeds")
     void whenDeDuplicationSuccess() {
 
         final DeduplicationHandler deduplicationHandler = new DeduplicationHandler(
-                this.mockEventBus, 10);
-        final String duplicateMsg = "sameMsg1";
-        assertThat(deduplicationHandler.handle(Buffer.buffer(duplicateMsg)), equalTo(Buffer.buffer(duplicateMsg)));
-        assertThat(deduplicationHandler.handle(Buffer.buffer("diffMsg1")), equalTo(Buffer.buffer("diffMsg1")));
-        assertThat(deduplicationHandler.handle(Buffer.buffer(duplicateMsg)), equalTo(Buffer.buffer()));
-
-        verify(this.mockEventBus, times(3)).publish(this.metricCollectorNameCaptor.capture(), this.metricPayloadCaptor.capture());
-
-        assertThat(this.metricCollectorNameCaptor.getAllValues()
-                .stream()
-                .allMatch(captor -> MetricsCollector.name().equals(captor)), equalTo(true));
-
-        // First two occurrences will be unique
-        assertThat(EventType.valueOf(
-                metricPayloadCaptor.getAllValues().get(0)),
-                equalTo(EventType.NEW));
-
-        assertThat(EventType.valueOf(
-                metricPayloadCaptor.getAllValues().get(1)),
-                equalTo(EventType.NEW));
-
-        // This will be a duplicate event
-        assertThat(EventType.valueOf(
-                metricPayloadCaptor.getAllValues().get(2)),
-                equalTo(EventType.DUPLICATE));
+                this.mockMetricsCollector, new TtlDeduplicationStore(10));
+        final int duplicateMsg = 123456789;
+        assertThat(deduplicationHandler.handle(duplicateMsg), equalTo(true));
+        assertThat(deduplicationHandler.handle(987654321), equalTo(true));
+        assertThat(deduplicationHandler.handle(duplicateMsg), equalTo(false));
+
+        // First two occurrences will be unique, the third one a duplicate
+        verify(this.mockMetricsCollector, times(2)).recordUnique(1);
+        verify(this.mockMetricsCollector).recordDuplicate(1);
+    }
+
+    @Test
+    @DisplayName("When a connection sends duplicates, they are counted in its stats once the chunk ends")
+    void whenConnectionSendsDuplicates() {
+        final DeduplicationHandler deduplicationHandler = new DeduplicationHandler(
+                this.mockMetricsCollector, new TtlDeduplicationStore(10));
+        final ConnectionStats connectionStats = new ConnectionStatsRegistry(false, 10000)
+                .register(ConnectionInfo.builder().remoteHostName("localhost").remotePort(4000).build());
+        final DecodedNumberHandler handler = deduplicationHandler.newConnectionHandler(connectionStats);
+
+        assertThat(handler.handle(123456789), equalTo(true));
+        assertThat(handler.handle(123456789), equalTo(false));
+        assertThat(handler.handle(123456789), equalTo(false));
+        assertThat(connectionStats.getDuplicates(), equalTo(0L));
+
+        handler.endOfChunk();
+        assertThat(connectionStats.getDuplicates(), equalTo(2L));
+        verify(this.mockMetricsCollector, times(2)).recordDuplicate(1);
     }
 
     @Test
@@ -72,36 +67,26 @@ class DeduplicationHandlerTest {
         final int expiryTimeSecs = 10;
 
         final DeduplicationHandler deduplicationHandler = new DeduplicationHandler(
-                this.mockEventBus, expiryTimeSecs);
-        final String duplicateMsg = "sameMsg1";
-        assertThat(deduplicationHandler.handle(Buffer.buffer(duplicateMsg)), equalTo(Buffer.buffer(duplicateMsg)));
+                this.mockMetricsCollector, new TtlDeduplicationStore(expiryTimeSecs));
+        final int duplicateMsg = 123456789;
+        assertThat(deduplicationHandler.handle(duplicateMsg), equalTo(true));
 
         Thread.sleep(1000);
         Thread.sleep((expiryTimeSecs + 10) * 1000);
-        assertThat(deduplicationHandler.handle(Buffer.buffer(duplicateMsg)), equalTo(Buffer.buffer(duplicateMsg)));
-
-        verify(this.mockEventBus, times(2)).publish(this.metricCollectorNameCaptor.capture(), this.metricPayloadCaptor.capture());
-
-        assertThat(this.metricCollectorNameCaptor.getAllValues()
-                .stream()
-                .allMatch(captor -> MetricsCollector.name().equals(captor)), equalTo(true));
+        assertThat(deduplicationHandler.handle(duplicateMsg), equalTo(true));
 
-        // Both occurrences will be published as unique events
-        assertThat(metricPayloadCaptor.getAllValues()
-                .stream().map(captor -> EventType.valueOf(captor))
-                .allMatch(eventMetadata -> eventMetadata == EventType.NEW), equalTo(true));
+        // Both occurrences will be recorded as unique events
+        verify(this.mockMetricsCollector, times(2)).recordUnique(1);
+        verify(this.mockMetricsCollector, never()).recordDuplicate(anyLong());
     }
 
     @Test
     @DisplayName("When inputs are invalid")
     public void whenHandlingFailsForInvalidInputs() {
         final DeduplicationHandler deduplicationHandler = new DeduplicationHandler(
-                this.mockEventBus, 10);
-        Assertions.assertThrows(IllegalArgumentException.class, () -> {
-            deduplicationHandler.handle(null);
-        });
+                this.mockMetricsCollector, new TtlDeduplicationStore(10));
         Assertions.assertThrows(IllegalArgumentException.class, () -> {
-            deduplicationHandler.handle(Buffer.buffer());
+            deduplicationHandler.handle(-1);
         });
     }
 }
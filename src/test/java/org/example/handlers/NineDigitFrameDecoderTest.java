@@ -0,0 +1,128 @@
+package org.example.handlers;
+
+import org.example.output.BinaryOutputFormat;
+import org.example.output.TextOutputFormat;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.vertx.core.buffer.Buffer;
+
+import static org.mockito.Mockito.*;
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+@ExtendWith(MockitoExtension.class)
+class NineDigitFrameDecoderTest {
+
+    @Mock
+    private TerminateConnRequestHandler mockTerminateConnRequestHandler;
+
+    @Mock
+    private DeduplicationHandler mockDeduplicationHandler;
+
+    private NineDigitFrameDecoder decoder;
+
+    @BeforeEach
+    void beforeEach() {
+        this.decoder = new NineDigitFrameDecoder(
+                this.mockTerminateConnRequestHandler, this.mockDeduplicationHandler, new TextOutputFormat());
+    }
+
+    @Test
+    @DisplayName("When a chunk carries multiple messages, all of them are decoded")
+    void whenChunkHasMultipleMessages() {
+        when(this.mockDeduplicationHandler.handle(anyInt())).thenReturn(true);
+
+        final Buffer decoded = this.decoder.decode(Buffer.buffer("123456789\n000000001\n"));
+
+        assertThat(decoded.toString(), equalTo("123456789\n000000001\n"));
+        assertThat(this.decoder.getAcceptedFrames(), equalTo(2L));
+        verify(this.mockDeduplicationHandler).handle(123456789);
+        verify(this.mockDeduplicationHandler).handle(1);
+        this.decoder.checkFrames();
+    }
+
+    @Test
+    @DisplayName("When the output is binary, the messages kept are laid out as records straight away")
+    void whenOutputIsBinary() {
+        when(this.mockDeduplicationHandler.handle(anyInt())).thenReturn(true);
+        final NineDigitFrameDecoder binaryDecoder = new NineDigitFrameDecoder(
+                this.mockTerminateConnRequestHandler, this.mockDeduplicationHandler, new BinaryOutputFormat());
+
+        final Buffer decoded = binaryDecoder.decode(Buffer.buffer("123456789\n000000001\n"));
+
+        assertThat(decoded.length(), equalTo(2 * BinaryOutputFormat.RECORD_SIZE));
+        assertThat(decoded.getInt(0), equalTo(0x80000000 | 123456789));
+        assertThat(decoded.getInt(4), equalTo(0x80000000 | 1));
+    }
+
+    @Test
+    @DisplayName("When a message straddles multiple chunks, it is decoded once complete")
+    void whenMessageStraddlesChunks() {
+        when(this.mockDeduplicationHandler.handle(anyInt())).thenReturn(true);
+
+        assertThat(this.decoder.decode(Buffer.buffer("123456789\n98765")).toString(), equalTo("123456789\n"));
+        assertThat(this.decoder.decode(Buffer.buffer("43")).length(), equalTo(0));
+        assertThat(this.decoder.decode(Buffer.buffer("21\n")).toString(), equalTo("987654321\n"));
+        this.decoder.checkFrames();
+    }
+
+    @Test
+    @DisplayName("When a message is a duplicate, it is not written back")
+    void whenMessageIsDuplicate() {
+        when(this.mockDeduplicationHandler.handle(123456789)).thenReturn(true, false);
+
+        assertThat(this.decoder.decode(Buffer.buffer("123456789\n123456789\n")).toString(), equalTo("123456789\n"));
+        assertThat(this.decoder.getAcceptedFrames(), equalTo(1L));
+        assertThat(this.decoder.getDecodedFrames(), equalTo(2L));
+    }
+
+    @Test
+    @DisplayName("When a message is invalid, previous messages are decoded and then it fails")
+    void whenMessageIsInvalid() {
+        when(this.mockDeduplicationHandler.handle(anyInt())).thenReturn(true);
+
+        assertThat(this.decoder.decode(Buffer.buffer("123456789\n12a456789\n000000001\n")).toString(),
+                equalTo("123456789\n"));
+        Assertions.assertThrows(InvalidMessageException.class, () -> this.decoder.checkFrames());
+        assertThat(this.decoder.isInvalid(), equalTo(true));
+
+        // Nothing is decoded any more once an invalid message is seen
+        assertThat(this.decoder.decode(Buffer.buffer("000000002\n")).length(), equalTo(0));
+        verify(this.mockDeduplicationHandler, times(1)).handle(anyInt());
+    }
+
+    @Test
+    @DisplayName("When a message is too short, too long or empty, it fails")
+    void whenMessageLengthIsInvalid() {
+        for (final String msg : new String[] {"12345678\n", "1234567890\n", "1234567890", "\n", "terminat\n"}) {
+            final NineDigitFrameDecoder frameDecoder = new NineDigitFrameDecoder(
+                    this.mockTerminateConnRequestHandler, this.mockDeduplicationHandler, new TextOutputFormat());
+            assertThat(frameDecoder.decode(Buffer.buffer(msg)).length(), equalTo(0));
+            Assertions.assertThrows(InvalidMessageException.class, () -> frameDecoder.checkFrames());
+        }
+        verify(this.mockDeduplicationHandler, never()).handle(anyInt());
+        verifyNoInteractions(this.mockTerminateConnRequestHandler);
+    }
+
+    @Test
+    @DisplayName("When terminate message is sent, termination is initiated")
+    void whenTerminateMessageIsSent() {
+        assertThat(this.decoder.decode(Buffer.buffer("termi")).length(), equalTo(0));
+        assertThat(this.decoder.decode(Buffer.buffer("nate\n")).length(), equalTo(0));
+
+        verify(this.mockTerminateConnRequestHandler).initiateTermination();
+        this.decoder.checkFrames();
+    }
+
+    @Test
+    @DisplayName("Fails for invalid input")
+    void whenInputIsNull() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.decoder.decode(null));
+    }
+}
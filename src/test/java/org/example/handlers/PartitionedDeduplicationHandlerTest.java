@@ -0,0 +1,277 @@
+package org.example.handlers;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.example.memory.MemoryBudget;
+import org.example.metrics.ConnectionStats;
+import org.example.metrics.ConnectionStatsRegistry;
+import org.example.metrics.Histogram;
+import org.example.metrics.MetricsCollector;
+import org.example.model.ConnectionInfo;
+import org.example.output.TextOutputFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+import io.vertx.reactivex.core.Vertx;
+
+import static org.mockito.Mockito.*;
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+@ExtendWith(MockitoExtension.class)
+class PartitionedDeduplicationHandlerTest {
+
+    @Mock
+    private WriteStream<Buffer> mockStream;
+
+    @Mock
+    private Runnable mockPauser;
+
+    @Mock
+    private Runnable mockResumer;
+
+    @Captor
+    private ArgumentCaptor<Buffer> bufferCaptor;
+
+    private final Vertx vertx = Vertx.vertx();
+
+    private final MetricsCollector metricsCollector = new MetricsCollector();
+
+    private final MemoryBudget memoryBudget = new MemoryBudget(1024);
+
+    private final TextOutputFormat outputFormat = new TextOutputFormat();
+
+    private final ReadPauses readPauses = new ReadPauses(() -> this.mockPauser.run(), () -> this.mockResumer.run());
+
+    private final ConnectionStats connectionStats = new ConnectionStatsRegistry(false, 10000)
+            .register(ConnectionInfo.builder().remoteHostName("localhost").remotePort(4000).build());
+
+    @AfterEach
+    void afterEach() {
+        this.vertx.close();
+    }
+
+    @Test
+    @DisplayName("When numbers of a chunk are deduplicated by their partitions")
+    void whenDeduplicationSucceeds() {
+        when(this.mockStream.write(Mockito.any(Buffer.class))).thenReturn(Future.succeededFuture());
+
+        final PartitionedDeduplicationHandler partitionedDeduplicationHandler = new PartitionedDeduplicationHandler(
+                this.vertx, this.metricsCollector, this.memoryBudget, this.outputFormat, 4, 300, 10, 16384, "ttl");
+        partitionedDeduplicationHandler.createPartitions();
+        final DecodedNumberHandler handler = partitionedDeduplicationHandler.newConnectionHandler(this.mockStream, this.connectionStats, this.readPauses);
+
+        // Two numbers for each partition, and a duplicate in two of them
+        for (int number = 100000000; number < 100000008; number++) {
+            assertThat(handler.handle(number), equalTo(false));
+        }
+        handler.handle(100000000);
+        handler.handle(100000001);
+        handler.endOfChunk();
+
+        verify(this.mockStream, timeout(5000).times(4)).write(this.bufferCaptor.capture());
+        final List<String> written = this.bufferCaptor.getAllValues().stream()
+                .flatMap(buffer -> List.of(buffer.toString().split("\n")).stream())
+                .sorted()
+                .collect(Collectors.toList());
+        assertThat(written, contains(
+                "100000000", "100000001", "100000002", "100000003",
+                "100000004", "100000005", "100000006", "100000007"));
+
+        // The metrics are recorded before the numbers are written
+        assertThat(this.metricsCollector.getTotalUniqueNumsCount(), equalTo(8L));
+        assertThat(this.metricsCollector.getDuplicateNumCount(), equalTo(2L));
+        assertThat(this.connectionStats.getDuplicates(), equalTo(2L));
+
+        // The time from handing the numbers over to their write is recorded once per partition, once written
+        final Histogram latencies = new Histogram();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        do {
+            this.metricsCollector.getEndToEndLatencyRecorder().drainTo(latencies);
+        } while (latencies.getCount() < 4 && System.nanoTime() < deadline);
+        assertThat(latencies.getCount(), equalTo(4L));
+
+        // The numbers handed over are no longer charged, once deduplicated
+        assertThat(this.memoryBudget.getUsedBytes(), equalTo(0L));
+    }
+
+    @Test
+    @DisplayName("When many chunks are handed over, the arrays handed back are reused without mixing their numbers")
+    void whenBatchesAreRecycled() {
+        when(this.mockStream.write(Mockito.any(Buffer.class))).thenReturn(Future.succeededFuture());
+
+        final PartitionedDeduplicationHandler partitionedDeduplicationHandler = new PartitionedDeduplicationHandler(
+                this.vertx, this.metricsCollector, this.memoryBudget, this.outputFormat, 1, 300, 10, 16384, "ttl");
+        partitionedDeduplicationHandler.createPartitions();
+        final DecodedNumberHandler handler = partitionedDeduplicationHandler.newConnectionHandler(this.mockStream, this.connectionStats, this.readPauses);
+
+        for (int chunk = 0; chunk < 20; chunk++) {
+            for (int i = 0; i < 3; i++) {
+                handler.handle(100000000 + chunk * 3 + i);
+            }
+            handler.endOfChunk();
+        }
+
+        verify(this.mockStream, timeout(5000).times(20)).write(this.bufferCaptor.capture());
+        final List<Integer> written = this.bufferCaptor.getAllValues().stream()
+                .flatMap(buffer -> List.of(buffer.toString().split("\n")).stream())
+                .map(Integer::valueOf)
+                .collect(Collectors.toList());
+        assertThat(written, hasSize(60));
+        for (int i = 0; i < 60; i++) {
+            assertThat(written.get(i), equalTo(100000000 + i));
+        }
+        assertThat(this.metricsCollector.getDuplicateNumCount(), equalTo(0L));
+    }
+
+    @Test
+    @DisplayName("When each partition runs on an event loop of its own")
+    void whenPartitionsAreSpreadAcrossEventLoops() throws InterruptedException {
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+        when(this.mockStream.write(Mockito.any(Buffer.class))).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return Future.succeededFuture();
+        });
+
+        final Vertx eventLoops = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(4));
+        try {
+            final PartitionedDeduplicationHandler partitionedDeduplicationHandler = new PartitionedDeduplicationHandler(
+                    eventLoops, this.metricsCollector, this.memoryBudget, this.outputFormat, 4, 300, 10, 16384, "ttl");
+            partitionedDeduplicationHandler.createPartitions();
+            final DecodedNumberHandler handler = partitionedDeduplicationHandler.newConnectionHandler(this.mockStream, this.connectionStats, this.readPauses);
+
+            // One number for each partition
+            for (int number = 100000000; number < 100000004; number++) {
+                handler.handle(number);
+            }
+            handler.endOfChunk();
+
+            // The write is recorded by the mock before its answer runs, hence waiting for the threads themselves
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (threads.size() < 4 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(threads, hasSize(4));
+        } finally {
+            eventLoops.close();
+        }
+    }
+
+    @Test
+    @DisplayName("When recovered numbers are remembered by their partitions")
+    void whenRecoveredNumbersAreSeeded() throws InterruptedException {
+        when(this.mockStream.write(Mockito.any(Buffer.class))).thenReturn(Future.succeededFuture());
+
+        final PartitionedDeduplicationHandler partitionedDeduplicationHandler = new PartitionedDeduplicationHandler(
+                this.vertx, this.metricsCollector, this.memoryBudget, this.outputFormat, 4, 300, 10, 16384, "ttl");
+        partitionedDeduplicationHandler.createPartitions();
+
+        final DecodedNumberHandler recoveryHandler = partitionedDeduplicationHandler.newRecoveryHandler();
+        recoveryHandler.handle(100000000);
+        recoveryHandler.handle(100000001);
+        recoveryHandler.endOfChunk();
+
+        final DecodedNumberHandler handler = partitionedDeduplicationHandler.newConnectionHandler(this.mockStream, this.connectionStats, this.readPauses);
+        handler.handle(100000000);
+        handler.handle(100000001);
+        handler.handle(100000002);
+        handler.endOfChunk();
+
+        // Only the number which was not recovered is written
+        verify(this.mockStream, timeout(5000)).write(this.bufferCaptor.capture());
+        assertThat(this.bufferCaptor.getValue().toString(), equalTo("100000002\n"));
+        assertThat(this.metricsCollector.getTotalUniqueNumsCount(), equalTo(1L));
+
+        // The recovered numbers are found by the other partitions, which run on other event loops
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (this.metricsCollector.getDuplicateNumCount() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(this.metricsCollector.getDuplicateNumCount(), equalTo(2L));
+    }
+
+    @Test
+    @DisplayName("When too many numbers are pending, the connection is paused until half of them were written")
+    void whenTooManyNumbersArePending() {
+        final Promise<Void> written = Promise.promise();
+        when(this.mockStream.write(Mockito.any(Buffer.class))).thenAnswer(invocation -> {
+            // Holds the partition until the test lets the writes through
+            written.future().toCompletionStage().toCompletableFuture().join();
+            return Future.succeededFuture();
+        });
+
+        final PartitionedDeduplicationHandler partitionedDeduplicationHandler = new PartitionedDeduplicationHandler(
+                this.vertx, this.metricsCollector, this.memoryBudget, this.outputFormat, 1, 300, 10, 4, "ttl");
+        partitionedDeduplicationHandler.createPartitions();
+        final DecodedNumberHandler handler = partitionedDeduplicationHandler.newConnectionHandler(this.mockStream, this.connectionStats, this.readPauses);
+
+        for (int number = 100000000; number < 100000003; number++) {
+            handler.handle(number);
+        }
+        handler.endOfChunk();
+        verify(this.mockPauser, never()).run();
+
+        for (int number = 100000003; number < 100000006; number++) {
+            handler.handle(number);
+        }
+        handler.endOfChunk();
+        verify(this.mockPauser).run();
+        verify(this.mockResumer, never()).run();
+
+        written.complete();
+        verify(this.mockResumer, timeout(5000)).run();
+        assertThat(this.readPauses.isPaused(), equalTo(false));
+    }
+
+    @Test
+    @DisplayName("When the unique numbers cannot be written, the failure is not recorded as a latency")
+    void whenWriteFails() {
+        when(this.mockStream.write(Mockito.any(Buffer.class))).thenReturn(Future.failedFuture("Disk is full"));
+
+        final PartitionedDeduplicationHandler partitionedDeduplicationHandler = new PartitionedDeduplicationHandler(
+                this.vertx, this.metricsCollector, this.memoryBudget, this.outputFormat, 1, 300, 10, 16384, "ttl");
+        partitionedDeduplicationHandler.createPartitions();
+        final DecodedNumberHandler handler = partitionedDeduplicationHandler.newConnectionHandler(this.mockStream, this.connectionStats, this.readPauses);
+        assertThat(handler.writesOnItsOwn(), equalTo(true));
+
+        handler.handle(100000000);
+        handler.endOfChunk();
+
+        verify(this.mockStream, timeout(5000)).write(Mockito.any(Buffer.class));
+        final Histogram latencies = new Histogram();
+        this.metricsCollector.getEndToEndLatencyRecorder().drainTo(latencies);
+        assertThat(latencies.getCount(), equalTo(0L));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new PartitionedDeduplicationHandler(this.vertx, this.metricsCollector, this.memoryBudget, this.outputFormat, 0, 300, 10, 16384, "ttl");
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new PartitionedDeduplicationHandler(this.vertx, this.metricsCollector, this.memoryBudget, this.outputFormat, 4, 300, 10, 0, "ttl");
+        });
+        // A bitmap never forgets, unlike the partitions
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new PartitionedDeduplicationHandler(this.vertx, this.metricsCollector, this.memoryBudget, this.outputFormat, 4, 300, 10, 16384, "bitmap");
+        });
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.handlers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class ReadPausesTest {
+
+    private final List<String> events = new ArrayList<>();
+
+    private final ReadPauses readPauses = new ReadPauses(() -> this.events.add("pause"), () -> this.events.add("resume"));
+
+    @Test
+    @DisplayName("When held for several reasons, the connection is resumed once all of them are released")
+    void whenHeldTwice() {
+        this.readPauses.hold();
+        this.readPauses.hold();
+        assertThat(this.readPauses.isPaused(), equalTo(true));
+
+        this.readPauses.release();
+        assertThat(this.readPauses.isPaused(), equalTo(true));
+        assertThat(this.events, contains(equalTo("pause")));
+
+        this.readPauses.release();
+        assertThat(this.readPauses.isPaused(), equalTo(false));
+        assertThat(this.events, contains("pause", "resume"));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ReadPauses(null, () -> { }));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ReadPauses(() -> { }, null));
+        Assertions.assertThrows(IllegalStateException.class, this.readPauses::release);
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.handlers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.example.metrics.Histogram;
+import org.example.metrics.MetricsCollector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReadStampedWriteStreamTest {
+
+    @Mock
+    private WriteStream<Buffer> mockWriteStream;
+
+    private final MetricsCollector metricsCollector = new MetricsCollector();
+
+    @Test
+    @DisplayName("When chunks wait before being written, each write is matched with the time its chunk was read")
+    void whenWritesMatchTheirStamps() {
+        final Promise<Void> first = Promise.promise();
+        when(this.mockWriteStream.write(Mockito.any(Buffer.class)))
+                .thenReturn(first.future())
+                .thenReturn(Future.succeededFuture());
+
+        final ReadStampedWriteStream stampedStream =
+                new ReadStampedWriteStream(this.mockWriteStream, this.metricsCollector);
+        final long now = System.nanoTime();
+        // More chunks than the initial capacity of the ring, the oldest one read a second ago
+        stampedStream.read(now - TimeUnit.SECONDS.toNanos(1));
+        stampedStream.stamp();
+        stampedStream.read(now);
+        for (int i = 0; i < 20; i++) {
+            stampedStream.stamp();
+        }
+        assertThat(stampedStream.getPendingCount(), equalTo(21));
+
+        stampedStream.write(Buffer.buffer("123456789\n"));
+        stampedStream.write(Buffer.buffer("987654321\n"));
+        assertThat(stampedStream.getPendingCount(), equalTo(19));
+
+        // Only acknowledged writes are recorded
+        final Histogram latencies = new Histogram();
+        this.metricsCollector.getEndToEndLatencyRecorder().drainTo(latencies);
+        assertThat(latencies.getCount(), equalTo(1L));
+        assertThat(latencies.getMax(), lessThan(TimeUnit.SECONDS.toMicros(1)));
+
+        first.complete();
+        this.metricsCollector.getEndToEndLatencyRecorder().drainTo(latencies);
+        assertThat(latencies.getCount(), equalTo(2L));
+        assertThat(latencies.getMax(), greaterThanOrEqualTo(TimeUnit.SECONDS.toMicros(1)));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ReadStampedWriteStream(null, this.metricsCollector));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new ReadStampedWriteStream(this.mockWriteStream, null);
+        });
+    }
+}
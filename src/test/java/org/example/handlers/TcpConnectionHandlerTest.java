@@ -5,6 +5,12 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Optional;
 
+import org.example.admission.AdmissionController;
+import org.example.metrics.ConnectionStatsRegistry;
+import org.example.metrics.MetricsCollector;
+import org.example.output.TextOutputFormat;
+import org.example.ratelimit.RateLimiter;
+import org.example.reaper.ConnectionReaper;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -16,12 +22,14 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import io.reactivex.Flowable;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.reactivex.core.Vertx;
-import io.vertx.reactivex.core.file.AsyncFile;
 import io.vertx.reactivex.core.net.NetSocket;
 import io.vertx.reactivex.core.net.SocketAddress;
-import io.vertx.reactivex.core.parsetools.RecordParser;
+import io.vertx.reactivex.core.streams.WriteStream;
 
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.times;
@@ -38,15 +46,15 @@ class TcpConnectionHandlerTest {
     @Mock
     private TcpConnectionManager mockTcpConnectionManager;
 
-    @Mock
-    private BasicMessageSanityHandler mockBasicMessageSanityHandler;
-
     @Mock
     private DeduplicationHandler mockDeduplicationHandler;
 
     @Mock
     private TerminateConnRequestHandler mockTerminateConnRequestHandler;
 
+    @Mock
+    private DecodedNumberHandler mockDecodedNumberHandler;
+
     @Mock
     private NetSocket mockNetSocket;
 
@@ -54,11 +62,24 @@ class TcpConnectionHandlerTest {
     private SocketAddress mockSocketAddress;
 
     @Mock
-    private AsyncFile mockAsyncFile;
+    private WriteStream<Buffer> mockWriteStream;
 
     @Mock
     private Vertx mockVertx;
 
+    @Mock
+    private ConnectionReaper mockConnectionReaper;
+
+    private final BackpressureCoordinator backpressureCoordinator = new BackpressureCoordinator(1024, 8);
+
+    private final RateLimiter rateLimiter = new RateLimiter(0, 0, 0, 0, 100, "");
+
+    private final AdmissionController admissionController = new AdmissionController(new MetricsCollector(), 1000, 1, 100, "");
+
+    private final MetricsCollector metricsCollector = new MetricsCollector();
+
+    private final ConnectionStatsRegistry connectionStatsRegistry = new ConnectionStatsRegistry(false, 10000);
+
     private TcpConnectionHandler tcpConnectionHandler;
 
     private String destinationPath;
@@ -74,9 +95,16 @@ class TcpConnectionHandlerTest {
             this.mockCloseConnectionHandler,
             this.mockErrorHandler,
             this.mockTcpConnectionManager,
-            this.mockBasicMessageSanityHandler,
             this.mockDeduplicationHandler,
+            Optional.empty(),
             this.mockTerminateConnRequestHandler,
+            new TextOutputFormat(),
+            this.backpressureCoordinator,
+            this.rateLimiter,
+            this.admissionController,
+            this.mockConnectionReaper,
+            this.connectionStatsRegistry,
+            this.metricsCollector,
             this.mockVertx,
             this.destinationPath);
 
@@ -88,7 +116,8 @@ class TcpConnectionHandlerTest {
         when(this.mockSocketAddress.host()).thenReturn("localhost");
         when(this.mockSocketAddress.port()).thenReturn(4000);
 
-        if (testInfo.getTags().contains("handleTcpConnFailsWhenMaxReaches")) {
+        if (testInfo.getTags().contains("handleTcpConnFailsWhenMaxReaches")
+                || testInfo.getTags().contains("handleTcpConnFailsWhenOverloaded")) {
             return;
         }
 
@@ -99,27 +128,50 @@ class TcpConnectionHandlerTest {
     @Test
     @DisplayName("When tcp connection is handled successfully")
     void handleTcpConnSuccess() {
-        when(this.mockAsyncFile.getDelegate()).thenReturn(Mockito.mock(io.vertx.core.file.AsyncFile.class));
-        this.tcpConnectionHandler.handle(this.mockNetSocket, this.mockAsyncFile);
+        this.backpressureCoordinator.attach(Mockito.mock(io.vertx.core.streams.WriteStream.class));
+        when(this.mockNetSocket.toFlowable()).thenReturn(Flowable.empty());
+        when(this.mockTcpConnectionManager.tryAdd(any())).thenReturn(AdmissionResult.ADMITTED);
+        when(this.mockConnectionReaper.watch(any(), any(), any())).thenReturn(Mockito.mock(ConnectionReaper.Watch.class));
+        when(this.mockDeduplicationHandler.newConnectionHandler(any())).thenReturn(this.mockDecodedNumberHandler);
 
+        Assertions.assertEquals(AdmissionResult.ADMITTED, this.tcpConnectionHandler.handle(this.mockNetSocket, this.mockWriteStream));
         verify(this.mockNetSocket, times(0)).close();
         verify(this.mockNetSocket).closeHandler(any());
         verify(this.mockNetSocket).exceptionHandler(any());
+        Assertions.assertEquals(1, this.connectionStatsRegistry.getStats().size());
     }
 
     @Test
     @Tag("handleTcpConnFailsWhenMaxReaches")
     @DisplayName("When max tcp connection is reached, connectio should be rejected")
     void handleTcpConnFailsWhenMaxReaches() {
-        when(this.mockTcpConnectionManager.isMaxConnReached()).thenReturn(true);
-
-        Assertions.assertThrows(MaxTcpConnectionsReachedException.class, () -> {
-            this.tcpConnectionHandler.handle(this.mockNetSocket, this.mockAsyncFile);
-            verify(this.mockNetSocket, times(1)).close();
-            verify(this.mockNetSocket, times(0)).handler(any(RecordParser.class));
-            verify(this.mockNetSocket, times(0)).closeHandler(any());
-            verify(this.mockNetSocket, times(0)).exceptionHandler(any());
-        });
+        when(this.mockTcpConnectionManager.tryAdd(any())).thenReturn(AdmissionResult.MAX_CONNECTIONS_REACHED);
+
+        Assertions.assertEquals(AdmissionResult.MAX_CONNECTIONS_REACHED,
+                this.tcpConnectionHandler.handle(this.mockNetSocket, this.mockWriteStream));
+        verify(this.mockNetSocket, times(1)).close();
+        verify(this.mockNetSocket, times(0)).toFlowable();
+        verify(this.mockNetSocket, times(0)).closeHandler(any());
+        verify(this.mockNetSocket, times(0)).exceptionHandler(any());
+    }
+
+    @Test
+    @Tag("handleTcpConnFailsWhenOverloaded")
+    @DisplayName("When the server is overloaded, connection should be rejected")
+    @SuppressWarnings("unchecked")
+    void handleTcpConnFailsWhenOverloaded() {
+        // Two bytes never written, while at most one may be pending
+        final io.vertx.core.streams.WriteStream<Buffer> pendingWriteStream = Mockito.mock(io.vertx.core.streams.WriteStream.class);
+        when(pendingWriteStream.write(any(Buffer.class))).thenReturn(Promise.<Void>promise().future());
+        this.admissionController.track(pendingWriteStream).write(Buffer.buffer("12"));
+        this.admissionController.handle(0L);
+        when(this.mockTcpConnectionManager.tryAdd(any())).thenReturn(AdmissionResult.ADMITTED);
+
+        Assertions.assertEquals(AdmissionResult.OVERLOADED, this.tcpConnectionHandler.handle(this.mockNetSocket, this.mockWriteStream));
+        // The slot reserved is released at once
+        verify(this.mockTcpConnectionManager).remove(any());
+        verify(this.mockNetSocket, times(1)).close();
+        verify(this.mockNetSocket, times(0)).toFlowable();
     }
 
     @Test
@@ -127,7 +179,7 @@ class TcpConnectionHandlerTest {
     @Tag("handleTcpConnFailsForNullInput")
     void handleTcpConnFailsForNullInput() {
         Assertions.assertThrows(IllegalArgumentException.class, () -> {
-            this.tcpConnectionHandler.handle(null, this.mockAsyncFile);
+            this.tcpConnectionHandler.handle(null, this.mockWriteStream);
         });
         Assertions.assertThrows(IllegalArgumentException.class, () -> {
             this.tcpConnectionHandler.handle(this.mockNetSocket, null);
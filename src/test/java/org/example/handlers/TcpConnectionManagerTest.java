@@ -1,6 +1,15 @@
 package org.example.handlers;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.example.model.ConnectionInfo;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
@@ -12,16 +21,85 @@ class TcpConnectionManagerTest {
     @Test
     @DisplayName("When all connection handling succeeds")
     public void whenConnectionHandlingSucceeds() {
-        final TcpConnectionManager tcpConnectionManager = new TcpConnectionManager(2);
+        final TcpConnectionManager tcpConnectionManager = new TcpConnectionManager(2, 0);
         final ConnectionInfo connectionInfo = ConnectionInfo.builder()
                 .remoteHostName("localhost2")
                 .remotePort(4000)
                 .build();
-        tcpConnectionManager.add(ConnectionInfo.builder().remoteHostName("localhost1").remotePort(4000).build());
-        tcpConnectionManager.add(connectionInfo);
+        assertThat(tcpConnectionManager.tryAdd(connection("localhost1", 4000)), equalTo(AdmissionResult.ADMITTED));
+        assertThat(tcpConnectionManager.tryAdd(connectionInfo), equalTo(AdmissionResult.ADMITTED));
 
         assertThat(tcpConnectionManager.isMaxConnReached(), equalTo(true));
+        assertThat(tcpConnectionManager.tryAdd(connection("localhost3", 4000)), equalTo(AdmissionResult.MAX_CONNECTIONS_REACHED));
         tcpConnectionManager.remove(connectionInfo);
         assertThat(tcpConnectionManager.isMaxConnReached(), equalTo(false));
+
+        // Removing twice releases a single slot
+        tcpConnectionManager.remove(connectionInfo);
+        assertThat(tcpConnectionManager.getConnectionCount(), equalTo(1));
+    }
+
+    @Test
+    @DisplayName("When a remote host holds all its slots, its next connection is rejected while others are not")
+    public void whenMaxConnectionsPerHostReached() {
+        final TcpConnectionManager tcpConnectionManager = new TcpConnectionManager(10, 2);
+        final ConnectionInfo first = connection("10.0.0.1", 4001);
+        assertThat(tcpConnectionManager.tryAdd(first), equalTo(AdmissionResult.ADMITTED));
+        assertThat(tcpConnectionManager.tryAdd(connection("10.0.0.1", 4002)), equalTo(AdmissionResult.ADMITTED));
+        assertThat(tcpConnectionManager.tryAdd(connection("10.0.0.1", 4003)), equalTo(AdmissionResult.MAX_HOST_CONNECTIONS_REACHED));
+        assertThat(tcpConnectionManager.tryAdd(connection("10.0.0.2", 4001)), equalTo(AdmissionResult.ADMITTED));
+        assertThat(tcpConnectionManager.getConnectionCount(), equalTo(3));
+
+        tcpConnectionManager.remove(first);
+        assertThat(tcpConnectionManager.tryAdd(connection("10.0.0.1", 4003)), equalTo(AdmissionResult.ADMITTED));
+
+        // The same connection cannot be added twice
+        assertThat(tcpConnectionManager.tryAdd(connection("10.0.0.2", 4001)), equalTo(AdmissionResult.DUPLICATE_CONNECTION));
+        assertThat(tcpConnectionManager.getConnectionCount(), equalTo(3));
+    }
+
+    @Test
+    @DisplayName("When many threads connect at once, the max connections is never overshot")
+    public void whenConnectingConcurrently() throws InterruptedException {
+        final TcpConnectionManager tcpConnectionManager = new TcpConnectionManager(50, 3);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger admitted = new AtomicInteger();
+        final List<ConnectionInfo> connections = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            connections.add(connection("10.0.0." + (i % 40), 4000 + i));
+        }
+        for (final ConnectionInfo connectionInfo : connections) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (tcpConnectionManager.tryAdd(connectionInfo) == AdmissionResult.ADMITTED) {
+                    admitted.incrementAndGet();
+                    tcpConnectionManager.remove(connectionInfo);
+                    tcpConnectionManager.tryAdd(connectionInfo);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), equalTo(true));
+
+        assertThat(tcpConnectionManager.getConnectionCount(), lessThanOrEqualTo(50));
+        assertThat(admitted.get(), greaterThanOrEqualTo(tcpConnectionManager.getConnectionCount()));
+        connections.forEach(tcpConnectionManager::remove);
+        assertThat(tcpConnectionManager.getConnectionCount(), equalTo(0));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    public void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TcpConnectionManager(1, -1));
+    }
+
+    private static ConnectionInfo connection(final String host, final int port) {
+        return ConnectionInfo.builder().remoteHostName(host).remotePort(port).build();
     }
 }
@@ -0,0 +1,73 @@
+package org.example.jfr;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.example.metrics.ConnectionStats;
+import org.example.metrics.ConnectionStatsRegistry;
+import org.example.model.ConnectionInfo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class PipelineEventsTest {
+
+    @Test
+    @DisplayName("When the events are recorded, each stage emits its own with its fields")
+    void whenEventsRecorded() throws Exception {
+        final ConnectionInfo connectionInfo = ConnectionInfo.builder().remoteHostName("localhost").remotePort(4000).build();
+        final ConnectionStats connectionStats = new ConnectionStatsRegistry(false, 10000).register(connectionInfo);
+        final Path file = Files.createTempFile("pipeline", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            // Record the duration events whatever their duration, rather than above their default thresholds
+            recording.enable(ReadPauseEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(BatchFlushEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(ForceEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(ConnectionAcceptedEvent.class);
+            recording.enable(ConnectionClosedEvent.class);
+            recording.enable(DuplicatesFoundEvent.class);
+            recording.start();
+
+            ConnectionAcceptedEvent.emit(connectionInfo.getConnectionId(), "ADMITTED");
+            connectionStats.paused(System.nanoTime());
+            connectionStats.resumed(System.nanoTime());
+            connectionStats.recordDuplicates(3);
+            new BatchFlushEvent().commit(2, 20);
+            new ForceEvent().commit(20);
+            ConnectionClosedEvent.emit(connectionInfo.getConnectionId(), "closed");
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        final Map<String, RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .collect(Collectors.toMap(event -> event.getEventType().getName(), Function.identity()));
+        Files.delete(file);
+
+        assertThat(events.keySet(), containsInAnyOrder(
+                "org.example.ConnectionAccepted",
+                "org.example.ReadPause",
+                "org.example.DuplicatesFound",
+                "org.example.BatchFlush",
+                "org.example.Force",
+                "org.example.ConnectionClosed"));
+        assertThat(events.get("org.example.ConnectionAccepted").getString("result"), equalTo("ADMITTED"));
+        assertThat(events.get("org.example.ReadPause").getString("connectionId"), equalTo(connectionInfo.getConnectionId()));
+        assertThat(events.get("org.example.DuplicatesFound").getLong("duplicates"), equalTo(3L));
+        assertThat(events.get("org.example.BatchFlush").getInt("chunks"), equalTo(2));
+        assertThat(events.get("org.example.Force").getLong("bytes"), equalTo(20L));
+        assertThat(events.get("org.example.ConnectionClosed").getString("reason"), equalTo("closed"));
+        assertThat(events.get("org.example.Force").getStackTrace(), nullValue());
+    }
+}
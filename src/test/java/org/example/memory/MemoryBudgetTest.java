@@ -0,0 +1,103 @@
+package org.example.memory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.WriteStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.mockito.Mockito.*;
+
+class MemoryBudgetTest {
+
+    private final AtomicInteger drained = new AtomicInteger();
+
+    private MemoryBudget memoryBudget;
+
+    private WriteStream<Buffer> mockWriteStream;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void beforeEach() {
+        this.memoryBudget = new MemoryBudget(100);
+        this.mockWriteStream = Mockito.mock(WriteStream.class);
+    }
+
+    @Test
+    @DisplayName("When the budget is exhausted, waiting handlers are called once half of it is released")
+    void whenExhausted() {
+        this.memoryBudget.charge(100);
+        assertThat(this.memoryBudget.isExhausted(), equalTo(true));
+        this.memoryBudget.whenAvailable(event -> this.drained.incrementAndGet());
+
+        // No longer exhausted, but still above half of the budget
+        this.memoryBudget.release(40);
+        assertThat(this.memoryBudget.isExhausted(), equalTo(false));
+        assertThat(this.drained.get(), equalTo(0));
+
+        this.memoryBudget.release(10);
+        assertThat(this.drained.get(), equalTo(1));
+        assertThat(this.memoryBudget.getUsedBytes(), equalTo(50L));
+
+        // A handler is called once only, and at once if the budget is available
+        this.memoryBudget.release(50);
+        assertThat(this.drained.get(), equalTo(1));
+        this.memoryBudget.whenAvailable(event -> this.drained.incrementAndGet());
+        assertThat(this.drained.get(), equalTo(2));
+    }
+
+    @Test
+    @DisplayName("When bytes are written to an accounted stream, they are charged until written")
+    void whenWrittenThroughAccountedStream() {
+        final Promise<Void> promise = Promise.promise();
+        when(this.mockWriteStream.write(Mockito.any(Buffer.class))).thenReturn(promise.future());
+        final WriteStream<Buffer> writeStream = this.memoryBudget.account(this.mockWriteStream);
+
+        writeStream.write(Buffer.buffer(new byte[100]));
+        assertThat(this.memoryBudget.getUsedBytes(), equalTo(100L));
+        assertThat(writeStream.writeQueueFull(), equalTo(true));
+
+        writeStream.drainHandler(event -> this.drained.incrementAndGet());
+        assertThat(this.drained.get(), equalTo(0));
+
+        promise.complete();
+        assertThat(this.memoryBudget.getUsedBytes(), equalTo(0L));
+        assertThat(writeStream.writeQueueFull(), equalTo(false));
+        assertThat(this.drained.get(), equalTo(1));
+    }
+
+    @Test
+    @DisplayName("When the queue of the actual stream is full, the drain handler waits for it to drain first")
+    @SuppressWarnings("unchecked")
+    void whenActualQueueFull() {
+        when(this.mockWriteStream.writeQueueFull()).thenReturn(true);
+        final WriteStream<Buffer> writeStream = this.memoryBudget.account(this.mockWriteStream);
+        assertThat(writeStream.writeQueueFull(), equalTo(true));
+
+        writeStream.drainHandler(event -> this.drained.incrementAndGet());
+        assertThat(this.drained.get(), equalTo(0));
+
+        final ArgumentCaptor<Handler<Void>> captor = ArgumentCaptor.forClass(Handler.class);
+        verify(this.mockWriteStream).drainHandler(captor.capture());
+        captor.getValue().handle(null);
+        assertThat(this.drained.get(), equalTo(1));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new MemoryBudget(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.memoryBudget.account(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.memoryBudget.whenAvailable(null));
+    }
+}
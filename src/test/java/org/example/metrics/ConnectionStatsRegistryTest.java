@@ -0,0 +1,67 @@
+package org.example.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.example.model.ConnectionInfo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class ConnectionStatsRegistryTest {
+
+    private final ConnectionStatsRegistry connectionStatsRegistry = new ConnectionStatsRegistry(true, 10000);
+
+    @Test
+    @DisplayName("When a connection updates its stats, they are seen by the registry until it closes")
+    void whenStatsUpdated() {
+        final ConnectionInfo connectionInfo = ConnectionInfo.builder().remoteHostName("localhost").remotePort(4000).build();
+        final ConnectionStats connectionStats = this.connectionStatsRegistry.register(connectionInfo);
+
+        connectionStats.recordRead(20);
+        connectionStats.recordRead(10);
+        connectionStats.recordEvents(3);
+        connectionStats.recordDuplicates(1);
+        connectionStats.recordInvalid();
+
+        assertThat(this.connectionStatsRegistry.getStats(), contains(sameInstance(connectionStats)));
+        assertThat(connectionStats.getConnectionId(), equalTo(connectionInfo.getConnectionId()));
+        assertThat(connectionStats.getBytesIn(), equalTo(30L));
+        assertThat(connectionStats.getEvents(), equalTo(3L));
+        assertThat(connectionStats.getDuplicates(), equalTo(1L));
+        assertThat(connectionStats.getInvalids(), equalTo(1L));
+        this.connectionStatsRegistry.handle(1L);
+
+        // Closing twice, once reaped and once the socket closes, is harmless
+        this.connectionStatsRegistry.remove(connectionInfo);
+        this.connectionStatsRegistry.remove(connectionInfo);
+        assertThat(this.connectionStatsRegistry.getStats(), empty());
+    }
+
+    @Test
+    @DisplayName("When a connection is paused, the ongoing pause counts along with the past ones")
+    void whenConnectionPaused() {
+        final ConnectionStats connectionStats = this.connectionStatsRegistry.register(
+                ConnectionInfo.builder().remoteHostName("localhost").remotePort(4000).build());
+        final long start = TimeUnit.SECONDS.toNanos(1);
+
+        connectionStats.paused(start);
+        connectionStats.resumed(start + 100);
+        // A resume without a pause is ignored
+        connectionStats.resumed(start + 200);
+        connectionStats.paused(start + 300);
+
+        assertThat(connectionStats.getPausedNanos(start + 300), equalTo(100L));
+        assertThat(connectionStats.getPausedNanos(start + 350), equalTo(150L));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConnectionStatsRegistry(true, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.connectionStatsRegistry.register(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.connectionStatsRegistry.remove(null));
+    }
+}
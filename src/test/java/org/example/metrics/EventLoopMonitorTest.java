@@ -0,0 +1,122 @@
+package org.example.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.vertx.core.VertxOptions;
+import io.vertx.reactivex.core.Vertx;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class EventLoopMonitorTest {
+
+    private static final int EVENT_LOOPS = 2;
+    private static final long BUSY_MILLIS = 200;
+
+    private final Vertx vertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(EVENT_LOOPS));
+
+    private final EventLoopMonitor eventLoopMonitor = new EventLoopMonitor(this.vertx, 100, 10000, 1.5);
+
+    @AfterEach
+    void afterEach() {
+        this.vertx.close();
+    }
+
+    @Test
+    @DisplayName("When an event loop is busy, it is flagged as the hot one, and its probes wait")
+    void whenEventLoopBusy() throws InterruptedException {
+        assertThat(this.eventLoopMonitor.isEnabled(), equalTo(true));
+        assertThat(this.eventLoopMonitor.getLoopCount(), equalTo(EVENT_LOOPS));
+
+        // The first probes find out the threads of the loops, the next ones start sampling them
+        this.probe(1);
+        this.probe(2);
+        assertThat(this.eventLoopMonitor.isImbalanced(), equalTo(false));
+
+        this.busy().await();
+        this.probe(3);
+        assertThat(this.eventLoopMonitor.getUtilization(0), greaterThan(this.eventLoopMonitor.getUtilization(1)));
+        assertThat(this.eventLoopMonitor.getBusyNanos(0), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(BUSY_MILLIS)));
+        assertThat(this.eventLoopMonitor.getUtilizationHistogram(0).getCount(), equalTo(1L));
+
+        // A probe queued behind a busy loop shows its lag while still waiting
+        final CountDownLatch done = this.busy();
+        this.eventLoopMonitor.handle(4L);
+        Thread.sleep(BUSY_MILLIS / 2);
+        assertThat(this.eventLoopMonitor.getLag(0), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toMicros(BUSY_MILLIS / 2)));
+        done.await();
+        this.await(() -> this.eventLoopMonitor.getLagHistogram(0).getCount() == 4);
+        assertThat(this.eventLoopMonitor.getLagHistogram(0).getMax(), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toMicros(BUSY_MILLIS / 2)));
+
+        this.eventLoopMonitor.report();
+        assertThat(this.eventLoopMonitor.getLagHistogram(0).getCount(), equalTo(0L));
+        assertThat(this.eventLoopMonitor.getLagHistogram(0).getTotalCount(), equalTo(4L));
+    }
+
+    @Test
+    @DisplayName("When the busiest loop is hot and much busier than the average one, the loops are imbalanced")
+    void whenImbalanced() {
+        assertThat(EventLoopMonitor.isImbalanced(0.9, 1.0, 2, 1.5), equalTo(true));
+        assertThat(EventLoopMonitor.isImbalanced(0.9, 1.6, 2, 1.5), equalTo(false));
+        // Loops barely busy are never imbalanced
+        assertThat(EventLoopMonitor.isImbalanced(0.4, 0.4, 16, 2.0), equalTo(false));
+        assertThat(EventLoopMonitor.isImbalanced(0.9, 0.9, 1, 1.5), equalTo(false));
+    }
+
+    @Test
+    @DisplayName("When the probe interval is 0, the monitor is disabled")
+    void whenDisabled() {
+        final EventLoopMonitor disabled = new EventLoopMonitor(this.vertx, 0, 10000, 2.0);
+
+        assertThat(disabled.isEnabled(), equalTo(false));
+        assertThat(disabled.getLoopCount(), equalTo(0));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new EventLoopMonitor(this.vertx, -1, 10000, 2.0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new EventLoopMonitor(this.vertx, 100, 0, 2.0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new EventLoopMonitor(this.vertx, 100, 10000, 1.0));
+    }
+
+    private void probe(final long count) throws InterruptedException {
+        this.eventLoopMonitor.handle(count);
+        for (int i = 0; i < EVENT_LOOPS; i++) {
+            final int loop = i;
+            this.await(() -> this.eventLoopMonitor.getLagHistogram(loop).getCount() == count);
+        }
+    }
+
+    // Keeps the first loop busy, for a while of its own CPU time whatever the other threads do
+    private CountDownLatch busy() {
+        final CountDownLatch done = new CountDownLatch(1);
+        final EventExecutor first = this.vertx.getDelegate().nettyEventLoopGroup().iterator().next();
+        first.execute(() -> {
+            final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            final long until = threadMXBean.getCurrentThreadCpuTime() + TimeUnit.MILLISECONDS.toNanos(BUSY_MILLIS);
+            while (threadMXBean.getCurrentThreadCpuTime() < until) {
+                Thread.onSpinWait();
+            }
+            done.countDown();
+        });
+        return done;
+    }
+
+    private void await(final BooleanSupplier condition) throws InterruptedException {
+        for (int attempt = 0; !condition.getAsBoolean(); attempt++) {
+            assertThat("Timed out", attempt, lessThan(100));
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.Context;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.NetServer;
+import io.vertx.core.net.NetSocket;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class FrameworkMetricsTest {
+
+    private static final int EVENT_LOOPS = 2;
+    private static final long TIMEOUT_SECS = 10;
+
+    private final FrameworkMetrics frameworkMetrics = new FrameworkMetrics(10000);
+
+    private final Vertx vertx = Vertx.vertx(new VertxOptions()
+            .setEventLoopPoolSize(EVENT_LOOPS)
+            .setMetricsOptions(this.frameworkMetrics));
+
+    @AfterEach
+    void afterEach() throws Exception {
+        this.vertx.close().toCompletionStage().toCompletableFuture().get(TIMEOUT_SECS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("When a connection sends bytes, they are counted for the address listened on")
+    void whenConnectionSendsBytes() throws Exception {
+        final Promise<Buffer> received = Promise.promise();
+        final Promise<Void> closed = Promise.promise();
+        final NetServer server = this.vertx.createNetServer()
+                .connectHandler(socket -> socket.handler(received::tryComplete).closeHandler(closed::tryComplete))
+                .listen(0, "localhost")
+                .toCompletionStage().toCompletableFuture().get(TIMEOUT_SECS, TimeUnit.SECONDS);
+
+        final NetSocket client = this.vertx.createNetClient()
+                .connect(server.actualPort(), "localhost")
+                .toCompletionStage().toCompletableFuture().get(TIMEOUT_SECS, TimeUnit.SECONDS);
+        client.write("123456789\n");
+        received.future().toCompletionStage().toCompletableFuture().get(TIMEOUT_SECS, TimeUnit.SECONDS);
+
+        assertThat(this.frameworkMetrics.getNetServerMetrics(), hasSize(1));
+        final NetServerMetrics serverMetrics = this.frameworkMetrics.getNetServerMetrics().iterator().next();
+        assertThat(serverMetrics.getConnectedCount(), equalTo(1L));
+        assertThat(serverMetrics.getOpenCount(), equalTo(1L));
+
+        // Vert.x reports the bytes read in batches, the last one as the connection closes
+        client.close();
+        closed.future().toCompletionStage().toCompletableFuture().get(TIMEOUT_SECS, TimeUnit.SECONDS);
+        assertThat(serverMetrics.getOpenCount(), equalTo(0L));
+        assertThat(serverMetrics.getBytesRead(), equalTo(10L));
+        assertThat(serverMetrics.getErrorCount(), equalTo(0L));
+        this.frameworkMetrics.handle(1L);
+    }
+
+    @Test
+    @DisplayName("When messages go through the event bus, they are counted")
+    void whenMessagesSent() throws Exception {
+        final Promise<Void> delivered = Promise.promise();
+        this.vertx.eventBus().<String>localConsumer("metrics", message -> delivered.tryComplete());
+        this.vertx.eventBus().send("metrics", "event");
+        delivered.future().toCompletionStage().toCompletableFuture().get(TIMEOUT_SECS, TimeUnit.SECONDS);
+
+        final EventBusMessageMetrics eventBusMetrics = this.frameworkMetrics.getEventBusMetrics();
+        assertThat(eventBusMetrics.getHandlerCount(), equalTo(1L));
+        assertThat(eventBusMetrics.getSentCount(), equalTo(1L));
+        assertThat(eventBusMetrics.getReceivedCount(), equalTo(1L));
+        assertThat(eventBusMetrics.getDeliveredCount(), equalTo(1L));
+        this.frameworkMetrics.handle(1L);
+    }
+
+    @Test
+    @DisplayName("When blocking tasks run, their queueing and execution times are recorded")
+    void whenBlockingTasksRun() throws Exception {
+        // The tasks of a context run in order, hence the first one has ended once the second one is done
+        final Context context = this.vertx.getOrCreateContext();
+        context.executeBlocking(promise -> promise.complete());
+        context.executeBlocking(promise -> promise.complete())
+                .toCompletionStage().toCompletableFuture().get(TIMEOUT_SECS, TimeUnit.SECONDS);
+
+        final WorkerPoolMetrics pool = this.frameworkMetrics.getWorkerPoolMetrics().stream()
+                .filter(metrics -> metrics.getExecutionLatencyHistogram().getCount() > 0)
+                .findFirst()
+                .orElseThrow();
+        assertThat(pool.getQueueLatencyHistogram().getCount(), equalTo(2L));
+        assertThat(pool.getPendingCount(), equalTo(0L));
+        assertThat(pool.getMaxSize(), greaterThan(0));
+
+        // Each event loop reports its queue
+        assertThat(this.frameworkMetrics.getPendingTasks(), hasSize(EVENT_LOOPS));
+        this.frameworkMetrics.handle(1L);
+        assertThat(pool.getExecutionLatencyHistogram().getCount(), equalTo(0L));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new FrameworkMetrics(0));
+    }
+}
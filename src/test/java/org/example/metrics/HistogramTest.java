@@ -0,0 +1,137 @@
+package org.example.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class HistogramTest {
+
+    @Test
+    @DisplayName("When percentiles are read back within the bucket precision")
+    void whenPercentilesAreRead() {
+        final Histogram histogram = new Histogram();
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        assertThat(histogram.getCount(), equalTo(1000L));
+        assertThat(histogram.getMax(), equalTo(1000L));
+        assertThat((double)histogram.getValueAtPercentile(50), closeTo(500, 500 * 0.125));
+        assertThat((double)histogram.getValueAtPercentile(99), closeTo(990, 990 * 0.125));
+        assertThat(histogram.getValueAtPercentile(100), equalTo(1000L));
+        assertThat(histogram.getValueAtPercentile(0), equalTo(1L));
+    }
+
+    @Test
+    @DisplayName("When every value falls in a bucket which holds it")
+    void whenBucketsHoldTheirValues() {
+        final long[] values = {0, 1, 7, 8, 9, 15, 16, 1000, 123456789, Long.MAX_VALUE};
+        for (final long value : values) {
+            final int bucket = Histogram.bucketOf(value);
+            assertThat(Histogram.highestValueOf(bucket), greaterThanOrEqualTo(value));
+            if (bucket > 0) {
+                assertThat(Histogram.highestValueOf(bucket - 1), lessThan(value));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("When the histogram is reset or empty")
+    void whenReset() {
+        final Histogram histogram = new Histogram();
+        assertThat(histogram.getValueAtPercentile(99), equalTo(0L));
+
+        histogram.record(42);
+        histogram.reset();
+
+        assertThat(histogram.getCount(), equalTo(0L));
+        assertThat(histogram.getMax(), equalTo(0L));
+        assertThat(histogram.getValueAtPercentile(99), equalTo(0L));
+    }
+
+    @Test
+    @DisplayName("When the histogram is reset, its totals are kept")
+    void whenTotalsAreKept() {
+        final Histogram histogram = new Histogram();
+        histogram.record(10);
+        histogram.record(100);
+        histogram.reset();
+        histogram.record(1000);
+
+        assertThat(histogram.getCount(), equalTo(1L));
+        assertThat(histogram.getValueAtPercentile(0), equalTo(1000L));
+        assertThat(histogram.getTotalCount(), equalTo(3L));
+        assertThat(histogram.getTotalSum(), equalTo(1110L));
+
+        final long[] counts = new long[4];
+        histogram.getTotalCountsAtOrBelow(new long[] {5, 10, 500, 5000}, counts);
+        assertThat(counts[0], equalTo(0L));
+        assertThat(counts[1], equalTo(1L));
+        assertThat(counts[2], equalTo(2L));
+        assertThat(counts[3], equalTo(3L));
+    }
+
+    @Test
+    @DisplayName("When the interval is drained, its values move to the target and the totals are kept")
+    void whenIntervalIsDrained() {
+        final Histogram histogram = new Histogram();
+        histogram.record(10);
+        histogram.record(100);
+
+        final Histogram drained = new Histogram();
+        histogram.drainIntervalTo(drained);
+        histogram.record(1000);
+
+        assertThat(drained.getCount(), equalTo(2L));
+        assertThat(drained.getMax(), equalTo(100L));
+        assertThat(drained.getTotalSum(), equalTo(110L));
+        assertThat(histogram.getCount(), equalTo(1L));
+        assertThat(histogram.getMax(), equalTo(1000L));
+        assertThat(histogram.getValueAtPercentile(0), equalTo(1000L));
+        assertThat(histogram.getTotalCount(), equalTo(3L));
+    }
+
+    @Test
+    @DisplayName("When the recorders of several threads are drained, their values are merged once")
+    void whenRecordersAreDrained() throws InterruptedException {
+        final LatencyRecorder recorder = new LatencyRecorder();
+        final Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final long latency = (i + 1) * 1000L;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 250; j++) {
+                    recorder.record(latency);
+                }
+            });
+            threads[i].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        final Histogram merged = new Histogram();
+        recorder.drainTo(merged);
+        assertThat(merged.getCount(), equalTo(1000L));
+        assertThat(merged.getMax(), equalTo(4000L));
+        assertThat((double)merged.getValueAtPercentile(50), closeTo(2000, 2000 * 0.125));
+
+        final Histogram next = new Histogram();
+        recorder.drainTo(next);
+        assertThat(next.getCount(), equalTo(0L));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        final Histogram histogram = new Histogram();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            histogram.record(-1);
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            histogram.getValueAtPercentile(101);
+        });
+    }
+}
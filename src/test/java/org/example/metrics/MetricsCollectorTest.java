@@ -28,7 +28,8 @@ class MetricsCollectorTest {
     void beforeEach(final TestInfo info) {
 
         // Stubbing not needed
-        if (info.getTags().contains("whenMetricsCollectedFailsAsInputNull")) {
+        if (info.getTags().contains("whenMetricsCollectedFailsAsInputNull")
+                || info.getTags().contains("whenMetricsRecordedConcurrently")) {
             return;
         }
 
@@ -54,7 +55,7 @@ class MetricsCollectorTest {
     }
 
     @Test
-    @DisplayName("When the handler is invoked to collect metrics successfully")
+    @DisplayName("When the interval is rotated, its counts move to the window")
     void whenMetricsCollectedResetWorks() {
 
         this.metricsCollector.handle(this.mockMessage);
@@ -65,14 +66,76 @@ class MetricsCollectorTest {
         assertThat(this.metricsCollector.getUniqueNumsCountForTimePeriod(), equalTo(1L));
         assertThat(this.metricsCollector.getTotalUniqueNumsCount(), equalTo(1L));
 
-        this.metricsCollector.resetDuplicateNumCounter();
-        this.metricsCollector.resetUniqueNumCounter();
+        final MetricsInterval interval = this.metricsCollector.rotate();
+        assertThat(interval.getDuplicateCount(), equalTo(2L));
+        assertThat(interval.getUniqueCount(), equalTo(1L));
+        assertThat(this.metricsCollector.getWindow().getIntervals(), contains(interval));
 
         assertThat(this.metricsCollector.getDuplicateNumCount(), equalTo(0L));
         assertThat(this.metricsCollector.getUniqueNumsCountForTimePeriod(), equalTo(0L));
         assertThat(this.metricsCollector.getTotalUniqueNumsCount(), equalTo(1L));
     }
 
+    @Test
+    @DisplayName("When the counts are recorded directly from many threads")
+    @Tag("whenMetricsRecordedConcurrently")
+    void whenMetricsRecordedConcurrently() throws InterruptedException {
+        final MetricsCollector metricsCollect = new MetricsCollector();
+        final Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    metricsCollect.recordUnique(1);
+                    metricsCollect.recordDuplicate(2);
+                }
+            });
+            threads[i].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(metricsCollect.getUniqueNumsCountForTimePeriod(), equalTo(80000L));
+        assertThat(metricsCollect.getDuplicateNumCount(), equalTo(160000L));
+        assertThat(metricsCollect.getTotalUniqueNumsCount(), equalTo(80000L));
+    }
+
+    @Test
+    @DisplayName("When the intervals are rotated while counting, no count is lost")
+    @Tag("whenMetricsRecordedConcurrently")
+    void whenRotatedConcurrently() throws InterruptedException {
+        final MetricsCollector metricsCollect = new MetricsCollector(1000);
+        final Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 50000; j++) {
+                    metricsCollect.recordUnique(1);
+                    metricsCollect.recordDuplicate(1);
+                    metricsCollect.recordEndToEnd(j);
+                }
+            });
+            threads[i].start();
+        }
+
+        long unique = 0;
+        long duplicates = 0;
+        long latencies = 0;
+        for (final Thread thread : threads) {
+            while (thread.isAlive()) {
+                final MetricsInterval interval = metricsCollect.rotate();
+                unique += interval.getUniqueCount();
+                duplicates += interval.getDuplicateCount();
+                latencies += interval.getEndToEndLatencyHistogram().getCount();
+            }
+            thread.join();
+        }
+        final MetricsInterval last = metricsCollect.rotate();
+
+        assertThat(unique + last.getUniqueCount(), equalTo(200000L));
+        assertThat(duplicates + last.getDuplicateCount(), equalTo(200000L));
+        assertThat(latencies + last.getEndToEndLatencyHistogram().getCount(), equalTo(200000L));
+    }
+
     @Test
     @DisplayName("When the handler is invoked to collect metrics successfully")
     @Tag("whenMetricsCollectedFailsAsInputNull")
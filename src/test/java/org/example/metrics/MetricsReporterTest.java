@@ -2,25 +2,40 @@ package org.example.metrics;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
 
-import static org.mockito.Mockito.*;
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
 
-@ExtendWith(MockitoExtension.class)
 class MetricsReporterTest {
 
-    @Mock
-    private MetricsCollector mockMetricsCollector;
+    private final MetricsCollector metricsCollector = new MetricsCollector(2);
 
     @Test
     @DisplayName("When it displays metrics report successfully")
     void whenMetricsReportedSuccess() {
-        final MetricsReporter metricsReporter = new MetricsReporter(mockMetricsCollector);
+        this.metricsCollector.recordUnique(3);
+        this.metricsCollector.recordDuplicate(1);
+        this.metricsCollector.recordBatch(4096);
+        this.metricsCollector.recordEndToEnd(1500);
+
+        final MetricsReporter metricsReporter = new MetricsReporter(this.metricsCollector);
         metricsReporter.handle(1000L);
 
-        verify(this.mockMetricsCollector).resetUniqueNumCounter();
-        verify(this.mockMetricsCollector).resetDuplicateNumCounter();
+        // The interval is closed, hence reported once only
+        assertThat(this.metricsCollector.getUniqueNumsCountForTimePeriod(), equalTo(0L));
+        assertThat(this.metricsCollector.getDuplicateNumCount(), equalTo(0L));
+        assertThat(this.metricsCollector.getBatchSizeHistogram().getCount(), equalTo(0L));
+        assertThat(this.metricsCollector.getTotalUniqueNumsCount(), equalTo(3L));
+
+        final MetricsInterval interval = this.metricsCollector.getWindow().getIntervals().get(0);
+        assertThat(interval.getUniqueCount(), equalTo(3L));
+        assertThat(interval.getDuplicateCount(), equalTo(1L));
+        assertThat(interval.getBatchSizeHistogram().getCount(), equalTo(1L));
+        assertThat(interval.getEndToEndLatencyHistogram().getCount(), equalTo(1L));
+
+        // Then over the window too
+        this.metricsCollector.recordEndToEnd(2500);
+        metricsReporter.handle(1000L);
+        assertThat(this.metricsCollector.getWindow().getEndToEndLatencyHistogram().getCount(), equalTo(2L));
     }
 }
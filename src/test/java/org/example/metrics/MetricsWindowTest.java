@@ -0,0 +1,64 @@
+package org.example.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class MetricsWindowTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("When the window is full, the oldest interval is dropped")
+    void whenWindowIsFull() {
+        final MetricsWindow window = new MetricsWindow(2);
+        final MetricsInterval first = interval(0, 10, 1000);
+        final MetricsInterval second = interval(1, 20, 2000);
+        final MetricsInterval third = interval(2, 40, 3000);
+        window.add(first);
+        window.add(second);
+        assertThat(window.getIntervals(), contains(first, second));
+
+        window.add(third);
+        assertThat(window.getIntervals(), contains(second, third));
+        assertThat(window.getCapacity(), equalTo(2));
+    }
+
+    @Test
+    @DisplayName("When rates and percentiles are computed over the window")
+    void whenComputedOverWindow() {
+        final MetricsWindow window = new MetricsWindow(3);
+        assertThat(window.getUniqueRate(), equalTo(0.0));
+
+        window.add(interval(0, 10, 1000));
+        window.add(interval(1, 30, 3000));
+
+        assertThat(window.getUniqueRate(), equalTo(20.0));
+        assertThat(window.getDuplicateRate(), equalTo(2.0));
+
+        final Histogram latencies = window.getEndToEndLatencyHistogram();
+        assertThat(latencies.getCount(), equalTo(2L));
+        assertThat(latencies.getMax(), equalTo(3000L));
+        assertThat((double)latencies.getValueAtPercentile(50), closeTo(1000, 1000 * 0.125));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new MetricsWindow(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new MetricsInterval(
+                SECOND, 0, 0, 0, new Histogram(), new Histogram(), new Histogram(), new Histogram()));
+    }
+
+    private static MetricsInterval interval(final int index, final long unique, final long latency) {
+        final Histogram endToEndLatencies = new Histogram();
+        endToEndLatencies.record(latency);
+        return new MetricsInterval(index * SECOND, (index + 1) * SECOND, unique, 2,
+                new Histogram(), new Histogram(), new Histogram(), endToEndLatencies);
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class PrometheusWriterTest {
+
+    @Test
+    @DisplayName("When metrics are written in the text exposition format")
+    void whenMetricsAreWritten() {
+        final Histogram histogram = new Histogram();
+        histogram.record(500);
+        histogram.record(2000);
+        // Totals are exposed, whatever was reset for reporting
+        histogram.reset();
+
+        final String text = new PrometheusWriter(new StringBuilder())
+                .counter("events_total", "Events received.", 42)
+                .gauge("connections", "Connections open.", 3)
+                .histogram("latency_seconds", "Latencies.", histogram, new long[] {1000, 10000}, 1_000_000)
+                .toString();
+
+        assertThat(text, equalTo(String.join("\n",
+                "# HELP events_total Events received.",
+                "# TYPE events_total counter",
+                "events_total 42",
+                "# HELP connections Connections open.",
+                "# TYPE connections gauge",
+                "connections 3",
+                "# HELP latency_seconds Latencies.",
+                "# TYPE latency_seconds histogram",
+                "latency_seconds_bucket{le=\"0.001\"} 1",
+                "latency_seconds_bucket{le=\"0.01\"} 2",
+                "latency_seconds_bucket{le=\"+Inf\"} 2",
+                "latency_seconds_sum 0.0025",
+                "latency_seconds_count 2",
+                "")));
+    }
+
+    @Test
+    @DisplayName("When metrics have a sample per value of a label")
+    void whenLabeledMetricsAreWritten() {
+        final Histogram first = new Histogram();
+        first.record(500);
+
+        final String text = new PrometheusWriter(new StringBuilder())
+                .gauges("utilization", "Utilization.", "loop", new String[] {"0", "1"}, new double[] {0.5, 0.25})
+                .histograms("lag_seconds", "Lags.", "loop", new String[] {"0", "1"},
+                        new Histogram[] {first, new Histogram()}, new long[] {1000}, 1_000_000)
+                .toString();
+
+        assertThat(text, equalTo(String.join("\n",
+                "# HELP utilization Utilization.",
+                "# TYPE utilization gauge",
+                "utilization{loop=\"0\"} 0.5",
+                "utilization{loop=\"1\"} 0.25",
+                "# HELP lag_seconds Lags.",
+                "# TYPE lag_seconds histogram",
+                "lag_seconds_bucket{loop=\"0\",le=\"0.001\"} 1",
+                "lag_seconds_bucket{loop=\"0\",le=\"+Inf\"} 1",
+                "lag_seconds_sum{loop=\"0\"} 5.0E-4",
+                "lag_seconds_count{loop=\"0\"} 1",
+                "lag_seconds_bucket{loop=\"1\",le=\"0.001\"} 0",
+                "lag_seconds_bucket{loop=\"1\",le=\"+Inf\"} 0",
+                "lag_seconds_sum{loop=\"1\"} 0.0",
+                "lag_seconds_count{loop=\"1\"} 0",
+                "")));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new PrometheusWriter(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new PrometheusWriter(new StringBuilder()).histogram("name", "help", new Histogram(), new long[0], 0);
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new PrometheusWriter(new StringBuilder()).gauges("name", "help", "loop", new String[] {"0"}, new double[0]);
+        });
+    }
+}
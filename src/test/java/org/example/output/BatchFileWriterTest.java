@@ -0,0 +1,197 @@
+package org.example.output;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.example.metrics.MetricsCollector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.buffer.Buffer;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class BatchFileWriterTest {
+
+    private final MetricsCollector metricsCollector = new MetricsCollector();
+
+    private Path destinationPath;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        final Optional<String> targetBuildDir = Optional.ofNullable(System.getProperty("build.dir"));
+        this.destinationPath = Paths.get(targetBuildDir.orElseThrow(() -> new RuntimeException()), "batch-numbers.log");
+        Files.deleteIfExists(this.destinationPath);
+    }
+
+    @Test
+    @DisplayName("When buffers larger than the batch are written in order")
+    void whenBuffersOverflowTheBatch() throws Exception {
+        // Each buffer spans several direct buffers, and the batch overflows while copying it
+        final BatchFileWriter writer = this.newWriter(4, 2);
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            final String line = String.format("%09d%n", i * 1000);
+            writer.write(Buffer.buffer(line));
+            expected.append(line);
+        }
+        this.end(writer);
+
+        assertThat(Files.readString(this.destinationPath), equalTo(expected.toString()));
+    }
+
+    @Test
+    @DisplayName("When many threads write at the same time")
+    void whenWrittenConcurrently() throws Exception {
+        final BatchFileWriter writer = this.newWriter(1024, 4);
+        final int threads = 8;
+        final int writesPerThread = 1000;
+        final CountDownLatch written = new CountDownLatch(threads * writesPerThread);
+
+        final List<Thread> producers = IntStream.range(0, threads)
+                .mapToObj(thread -> new Thread(() -> {
+                    for (int i = 0; i < writesPerThread; i++) {
+                        writer.write(Buffer.buffer(String.format("%09d%n", thread * writesPerThread + i)), result -> {
+                            if (result.succeeded()) {
+                                written.countDown();
+                            }
+                        });
+                    }
+                }))
+                .collect(Collectors.toList());
+        producers.forEach(Thread::start);
+
+        assertThat(written.await(10, TimeUnit.SECONDS), equalTo(true));
+        assertThat(writer.writeQueueFull(), equalTo(false));
+        this.end(writer);
+
+        final List<String> lines = Files.readAllLines(this.destinationPath, StandardCharsets.UTF_8);
+        assertThat(lines, hasSize(threads * writesPerThread));
+        assertThat(lines.stream().distinct().count(), equalTo((long)threads * writesPerThread));
+    }
+
+    @Test
+    @DisplayName("When every batch is forced before it is acknowledged")
+    void whenForcedPerBatch() throws Exception {
+        final BatchFileWriter writer = this.newWriter(1024, 1, Durability.perBatch());
+
+        writer.write(Buffer.buffer("123456789\n")).toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+        // The force is recorded before the write is acknowledged
+        assertThat(this.metricsCollector.getForceLatencyHistogram().getCount(), equalTo(1L));
+        assertThat(this.metricsCollector.getBatchSizeHistogram().getCount(), equalTo(1L));
+        assertThat(this.metricsCollector.getBatchSizeHistogram().getMax(), equalTo(10L));
+        this.end(writer);
+    }
+
+    @Test
+    @DisplayName("When the file is forced once the interval elapses")
+    void whenForcedEveryInterval() throws Exception {
+        final BatchFileWriter writer = this.newWriter(1024, 1, Durability.everyMillis(50));
+
+        writer.write(Buffer.buffer("123456789\n"));
+
+        // The writer wakes up on its own, even though nothing else is written
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (this.metricsCollector.getForceLatencyHistogram().getCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(this.metricsCollector.getForceLatencyHistogram().getCount(), equalTo(1L));
+        this.end(writer);
+    }
+
+    @Test
+    @DisplayName("When the file is forced once enough bytes are written, and when ended")
+    void whenForcedEveryBytes() throws Exception {
+        final BatchFileWriter writer = this.newWriter(1024, 1, Durability.everyBytes(20));
+
+        writer.write(Buffer.buffer("123456789\n")).toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        assertThat(this.metricsCollector.getForceLatencyHistogram().getCount(), equalTo(0L));
+
+        writer.write(Buffer.buffer("987654321\n")).toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        writer.write(Buffer.buffer("555555555\n")).toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        this.end(writer);
+
+        // Once for the first 20 bytes, and once more for the remaining ones on end
+        assertThat(this.metricsCollector.getForceLatencyHistogram().getCount(), equalTo(2L));
+    }
+
+    @Test
+    @DisplayName("When the drain handler is set while the queue is empty")
+    void whenDrainHandlerSetOnEmptyQueue() throws Exception {
+        final BatchFileWriter writer = this.newWriter(1024, 1);
+        final CountDownLatch drained = new CountDownLatch(1);
+
+        writer.setWriteQueueMaxSize(10);
+        writer.drainHandler(v -> drained.countDown());
+
+        assertThat(drained.await(1, TimeUnit.SECONDS), equalTo(true));
+        this.end(writer);
+    }
+
+    @Test
+    @DisplayName("When a buffer is written after the writer is ended")
+    void whenWrittenAfterEnd() throws Exception {
+        final BatchFileWriter writer = this.newWriter(1024, 1);
+        this.end(writer);
+
+        final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> {
+            writer.write(Buffer.buffer("123456789\n")).toCompletionStage().toCompletableFuture().get(1, TimeUnit.SECONDS);
+        });
+        assertThat(exception.getCause(), instanceOf(IllegalStateException.class));
+        assertThat(Files.size(this.destinationPath), equalTo(0L));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() throws IOException {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new BatchFileWriter(null, 1024, 1, Durability.none(), this.metricsCollector);
+        });
+        try (FileChannel fileChannel = this.openChannel()) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> {
+                new BatchFileWriter(new SingleOutputFile(fileChannel), 0, 1, Durability.none(), this.metricsCollector);
+            });
+            Assertions.assertThrows(IllegalArgumentException.class, () -> {
+                new BatchFileWriter(new SingleOutputFile(fileChannel), 1024, 0, Durability.none(), this.metricsCollector);
+            });
+            Assertions.assertThrows(IllegalArgumentException.class, () -> {
+                new BatchFileWriter(new SingleOutputFile(fileChannel), 1024, 1, null, this.metricsCollector);
+            });
+        }
+    }
+
+    private BatchFileWriter newWriter(final int bufferSize, final int buffers) throws IOException {
+        return this.newWriter(bufferSize, buffers, Durability.none());
+    }
+
+    private BatchFileWriter newWriter(final int bufferSize, final int buffers, final Durability durability)
+            throws IOException {
+        return new BatchFileWriter(new SingleOutputFile(this.openChannel()), bufferSize, buffers, durability, this.metricsCollector);
+    }
+
+    private FileChannel openChannel() throws IOException {
+        return FileChannel.open(this.destinationPath,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void end(final BatchFileWriter writer) throws InterruptedException, ExecutionException, TimeoutException {
+        writer.end().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.output;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.buffer.Buffer;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class BinaryOutputFormatTest {
+
+    private final BinaryOutputFormat outputFormat = new BinaryOutputFormat();
+
+    @Test
+    @DisplayName("When text frames are encoded into records and decoded back")
+    void whenEncodedAndDecoded() {
+        final Buffer records = this.outputFormat.encode(Buffer.buffer("000000000\n123456789\n999999999\n"));
+
+        assertThat(records.length(), equalTo(3 * BinaryOutputFormat.RECORD_SIZE));
+        final ByteBuffer buffer = records.getByteBuf().nioBuffer();
+        assertThat(this.outputFormat.decode(buffer, 0), equalTo(0));
+        assertThat(this.outputFormat.decode(buffer, 4), equalTo(123456789));
+        assertThat(this.outputFormat.decode(buffer, 8), equalTo(999999999));
+
+        // Big endian, with the highest bit marking the record as present
+        assertThat(records.getInt(4), equalTo(0x80000000 | 123456789));
+    }
+
+    @Test
+    @DisplayName("When numbers are appended as records, they are the same as the encoded text frames")
+    void whenRecordsAppended() {
+        final Buffer records = Buffer.buffer();
+        this.outputFormat.appendRecord(records, 0);
+        this.outputFormat.appendRecord(records, 123456789);
+
+        assertThat(records, equalTo(this.outputFormat.encode(Buffer.buffer("000000000\n123456789\n"))));
+    }
+
+    @Test
+    @DisplayName("When records are not valid")
+    void whenRecordsAreInvalid() {
+        final ByteBuffer buffer = ByteBuffer.allocate(12)
+                .putInt(0)
+                .putInt(0x40000000 | 5)
+                .putInt(0x80000000 | 1_000_000_000);
+
+        assertThat(this.outputFormat.decode(buffer, 0), lessThan(0));
+        assertThat(this.outputFormat.decode(buffer, 4), lessThan(0));
+        assertThat(this.outputFormat.decode(buffer, 8), lessThan(0));
+    }
+
+    @Test
+    @DisplayName("When the format of a file is told from its header")
+    void whenFormatDetected() {
+        final byte[] header = this.outputFormat.getHeader();
+        assertThat(header.length, equalTo(BinaryOutputFormat.HEADER_SIZE));
+
+        assertThat(OutputFormat.detect(ByteBuffer.wrap(header)), instanceOf(BinaryOutputFormat.class));
+        assertThat(OutputFormat.detect(ByteBuffer.wrap("123456789\n".getBytes())), instanceOf(TextOutputFormat.class));
+        assertThat(OutputFormat.detect(ByteBuffer.allocate(0)), instanceOf(TextOutputFormat.class));
+    }
+
+    @Test
+    @DisplayName("When frames are not whole")
+    void whenFramesAreNotWhole() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            this.outputFormat.encode(Buffer.buffer("12345"));
+        });
+    }
+}
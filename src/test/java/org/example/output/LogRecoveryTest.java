@@ -0,0 +1,154 @@
+package org.example.output;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+import org.example.dedup.TtlDeduplicationStore;
+import org.example.metrics.MetricsCollector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.buffer.Buffer;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class LogRecoveryTest {
+
+    private final MetricsCollector metricsCollector = new MetricsCollector();
+
+    private final TtlDeduplicationStore deduplicationStore = new TtlDeduplicationStore(300);
+
+    private Path destinationPath;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        final Optional<String> targetBuildDir = Optional.ofNullable(System.getProperty("build.dir"));
+        this.destinationPath = Paths.get(targetBuildDir.orElseThrow(() -> new RuntimeException()), "recovered-numbers.log");
+        Files.deleteIfExists(this.destinationPath);
+    }
+
+    @Test
+    @DisplayName("When the file is scanned in parallel ranges and its torn last line is truncated")
+    void whenRecoveredFromTornFile() throws IOException {
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.append(String.format("%09d%n", 100000000 + i));
+        }
+        Files.writeString(this.destinationPath, content + "12345", StandardCharsets.US_ASCII);
+
+        // Ranges of at most 64 frames, scanned by 4 threads
+        final LogRecovery logRecovery = new LogRecovery(
+                this.deduplicationStore, Optional.empty(), this.metricsCollector, new TextOutputFormat(), 4, 64, 1000000);
+
+        assertThat(logRecovery.recover(this.destinationPath), equalTo(1000L));
+        assertThat(Files.size(this.destinationPath), equalTo(10000L));
+        assertThat(this.metricsCollector.getTotalUniqueNumsCount(), equalTo(1000L));
+        assertThat(this.metricsCollector.getUniqueNumsCountForTimePeriod(), equalTo(0L));
+
+        // All recovered numbers are duplicates from now on
+        assertThat(this.deduplicationStore.add(100000000), equalTo(false));
+        assertThat(this.deduplicationStore.add(100000999), equalTo(false));
+        assertThat(this.deduplicationStore.add(100001000), equalTo(true));
+    }
+
+    @Test
+    @DisplayName("When an invalid frame is followed by valid ones, it is skipped and only the invalid tail is truncated")
+    void whenRecoveredFromCorruptFile() throws IOException {
+        final String valid = "123456789\n987654321\n" + "\0".repeat(10) + "555555555\n";
+        Files.writeString(this.destinationPath, valid + "\0".repeat(10) + "12345", StandardCharsets.US_ASCII);
+
+        final LogRecovery logRecovery = new LogRecovery(
+                this.deduplicationStore, Optional.empty(), this.metricsCollector, new TextOutputFormat(), 2, 1, 1000000);
+
+        assertThat(logRecovery.recover(this.destinationPath), equalTo(3L));
+        assertThat(Files.readString(this.destinationPath), equalTo(valid));
+        assertThat(this.metricsCollector.getTotalUniqueNumsCount(), equalTo(3L));
+
+        // The number after the invalid frame is kept, hence is still a duplicate if sent again
+        assertThat(this.deduplicationStore.add(555555555), equalTo(false));
+        assertThat(this.deduplicationStore.add(987654321), equalTo(false));
+    }
+
+    @Test
+    @DisplayName("When the TTL cache is seeded, only the last records of the files recovered are remembered")
+    void whenTtlSeedsAreLimited() throws IOException {
+        final Path olderPath = this.destinationPath.resolveSibling("recovered-numbers-older.log");
+        Files.deleteIfExists(olderPath);
+        Files.writeString(olderPath, "111111111\n", StandardCharsets.US_ASCII);
+        Files.writeString(this.destinationPath, "222222222\n333333333\n444444444\n", StandardCharsets.US_ASCII);
+
+        final LogRecovery logRecovery = new LogRecovery(
+                this.deduplicationStore, Optional.empty(), this.metricsCollector, new TextOutputFormat(), 2, 1, 2);
+
+        // The latest file first, all numbers are counted while only the last two are remembered
+        assertThat(logRecovery.recover(this.destinationPath), equalTo(3L));
+        assertThat(logRecovery.recover(olderPath), equalTo(1L));
+        assertThat(this.metricsCollector.getTotalUniqueNumsCount(), equalTo(4L));
+        assertThat(this.deduplicationStore.size(), equalTo(2L));
+        assertThat(this.deduplicationStore.add(444444444), equalTo(false));
+        assertThat(this.deduplicationStore.add(333333333), equalTo(false));
+        assertThat(this.deduplicationStore.add(222222222), equalTo(true));
+        assertThat(this.deduplicationStore.add(111111111), equalTo(true));
+        Files.delete(olderPath);
+    }
+
+    @Test
+    @DisplayName("When a binary file is scanned after its header and its zero filled tail is truncated")
+    void whenRecoveredFromBinaryFile() throws IOException {
+        final BinaryOutputFormat outputFormat = new BinaryOutputFormat();
+        final Buffer content = Buffer.buffer(outputFormat.getHeader())
+                .appendBuffer(outputFormat.encode(Buffer.buffer("000000000\n123456789\n999999999\n")))
+                .appendBytes(new byte[64]);
+        Files.write(this.destinationPath, content.getBytes());
+
+        final LogRecovery logRecovery = new LogRecovery(
+                this.deduplicationStore, Optional.empty(), this.metricsCollector, outputFormat, 2, 1, 1000000);
+
+        assertThat(logRecovery.recover(this.destinationPath), equalTo(3L));
+        assertThat(Files.size(this.destinationPath), equalTo(8L + 3 * 4));
+        assertThat(this.deduplicationStore.add(0), equalTo(false));
+        assertThat(this.deduplicationStore.add(999999999), equalTo(false));
+    }
+
+    @Test
+    @DisplayName("When the file is not in the configured format")
+    void whenRecoveredFromFileInOtherFormat() throws IOException {
+        Files.writeString(this.destinationPath, "123456789\n", StandardCharsets.US_ASCII);
+
+        final LogRecovery logRecovery = new LogRecovery(
+                this.deduplicationStore, Optional.empty(), this.metricsCollector, new BinaryOutputFormat(), 0, 1000000);
+
+        Assertions.assertThrows(IllegalStateException.class, () -> logRecovery.recover(this.destinationPath));
+        assertThat(Files.size(this.destinationPath), equalTo(10L));
+    }
+
+    @Test
+    @DisplayName("When the file is empty")
+    void whenRecoveredFromEmptyFile() throws IOException {
+        Files.createFile(this.destinationPath);
+
+        final LogRecovery logRecovery = new LogRecovery(
+                this.deduplicationStore, Optional.empty(), this.metricsCollector, new TextOutputFormat(), 0, 1000000);
+
+        assertThat(logRecovery.recover(this.destinationPath), equalTo(0L));
+        assertThat(Files.size(this.destinationPath), equalTo(0L));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new LogRecovery(this.deduplicationStore, Optional.empty(), this.metricsCollector, new TextOutputFormat(), -1, 1000000);
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new LogRecovery(this.deduplicationStore, Optional.empty(), this.metricsCollector, new TextOutputFormat(), 0, 1000000).recover(null);
+        });
+    }
+}
@@ -0,0 +1,220 @@
+package org.example.output;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.example.metrics.MetricsCollector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class MappedFileWriterTest {
+
+    private final MetricsCollector metricsCollector = new MetricsCollector();
+
+    private Path destinationPath;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        final Optional<String> targetBuildDir = Optional.ofNullable(System.getProperty("build.dir"));
+        this.destinationPath = Paths.get(targetBuildDir.orElseThrow(() -> new RuntimeException()), "mapped-numbers.log");
+        Files.deleteIfExists(this.destinationPath);
+    }
+
+    @Test
+    @DisplayName("When buffers straddling windows are written in order, and the file is truncated on end")
+    void whenBuffersStraddleWindows() throws Exception {
+        // Windows are not a multiple of the frame size, hence most buffers span two of them
+        final MappedFileWriter writer = this.newWriter(64, Durability.none());
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            final String line = String.format("%09d%n", i * 1000);
+            assertThat(writer.write(Buffer.buffer(line)).succeeded(), equalTo(true));
+            expected.append(line);
+        }
+        assertThat(Files.size(this.destinationPath), greaterThanOrEqualTo(1000L));
+        this.end(writer);
+
+        assertThat(Files.readString(this.destinationPath), equalTo(expected.toString()));
+    }
+
+    @Test
+    @DisplayName("When many threads write at the same time, every write completes once the bytes before it are copied")
+    void whenWrittenConcurrently() throws Exception {
+        final MappedFileWriter writer = this.newWriter(4096, Durability.none());
+        final int threads = 8;
+        final int writesPerThread = 1000;
+        final Queue<Future<Void>> results = new ConcurrentLinkedQueue<>();
+
+        final List<Thread> producers = IntStream.range(0, threads)
+                .mapToObj(thread -> new Thread(() -> {
+                    for (int i = 0; i < writesPerThread; i++) {
+                        results.add(writer.write(Buffer.buffer(String.format("%09d%n", thread * writesPerThread + i))));
+                    }
+                }))
+                .collect(Collectors.toList());
+        producers.forEach(Thread::start);
+        for (final Thread producer : producers) {
+            producer.join();
+        }
+        assertThat(writer.writeQueueFull(), equalTo(false));
+
+        // All the ranges are copied, hence no write is left waiting for a gap to be filled
+        assertThat(results, hasSize(threads * writesPerThread));
+        assertThat(results.stream().allMatch(Future::succeeded), equalTo(true));
+        this.end(writer);
+
+        final List<String> lines = Files.readAllLines(this.destinationPath, StandardCharsets.UTF_8);
+        assertThat(lines, hasSize(threads * writesPerThread));
+        assertThat(lines.stream().distinct().count(), equalTo((long)threads * writesPerThread));
+    }
+
+    @Test
+    @DisplayName("When the file already holds numbers, new ones are appended")
+    void whenAppendingToExistingFile() throws Exception {
+        Files.writeString(this.destinationPath, "111111111\n");
+
+        final MappedFileWriter writer = this.newWriter(64, Durability.none());
+        writer.write(Buffer.buffer("222222222\n"));
+        this.end(writer);
+
+        assertThat(Files.readString(this.destinationPath), equalTo("111111111\n222222222\n"));
+    }
+
+    @Test
+    @DisplayName("When the file is forced once the interval elapses")
+    void whenForcedEveryInterval() throws Exception {
+        final MappedFileWriter writer = this.newWriter(4096, Durability.everyMillis(50));
+
+        writer.write(Buffer.buffer("123456789\n"));
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (this.metricsCollector.getForceLatencyHistogram().getCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(this.metricsCollector.getForceLatencyHistogram().getCount(), greaterThanOrEqualTo(1L));
+        this.end(writer);
+    }
+
+    @Test
+    @DisplayName("When the file is forced once enough bytes are written, and when ended")
+    void whenForcedEveryBytes() throws Exception {
+        final MappedFileWriter writer = this.newWriter(4096, Durability.everyBytes(20));
+
+        writer.write(Buffer.buffer("123456789\n"));
+        Thread.sleep(MappedFileWriter.BYTES_CHECK_MILLIS * 5);
+        assertThat(this.metricsCollector.getForceLatencyHistogram().getCount(), equalTo(0L));
+
+        writer.write(Buffer.buffer("987654321\n"));
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (this.metricsCollector.getForceLatencyHistogram().getCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(this.metricsCollector.getForceLatencyHistogram().getCount(), equalTo(1L));
+
+        this.end(writer);
+        assertThat(this.metricsCollector.getForceLatencyHistogram().getCount(), equalTo(2L));
+    }
+
+    @Test
+    @DisplayName("When windows are no longer written to, they are dropped")
+    void whenWindowsAreDropped() throws Exception {
+        final MappedFileWriter writer = this.newWriter(64, Durability.none());
+        for (int i = 0; i < 100; i++) {
+            writer.write(Buffer.buffer(String.format("%09d%n", i)));
+        }
+
+        // 1000 bytes span 16 windows, only the one being written to and the one before it are left
+        assertThat(writer.getMappedWindows(), lessThanOrEqualTo(2));
+        this.end(writer);
+        assertThat(Files.size(this.destinationPath), equalTo(1000L));
+    }
+
+    @Test
+    @DisplayName("When a window cannot be mapped, the write and all the subsequent ones fail")
+    void whenWindowCannotBeMapped() throws Exception {
+        final FileChannel fileChannel = this.openChannel();
+        final MappedFileWriter writer = new MappedFileWriter(fileChannel, 64, Durability.none(), this.metricsCollector);
+        final CompletableFuture<Throwable> reported = new CompletableFuture<>();
+        writer.exceptionHandler(reported::complete);
+
+        assertThat(writer.write(Buffer.buffer("123456789\n")).succeeded(), equalTo(true));
+        fileChannel.close();
+
+        // The next window cannot be mapped once the channel is closed
+        final Future<Void> failed = writer.write(Buffer.buffer("9".repeat(100)));
+        assertThat(failed.failed(), equalTo(true));
+        assertThat(reported.get(1, TimeUnit.SECONDS), instanceOf(IOException.class));
+
+        final Future<Void> next = writer.write(Buffer.buffer("987654321\n"));
+        assertThat(next.failed(), equalTo(true));
+        assertThat(next.cause(), instanceOf(IllegalStateException.class));
+    }
+
+    @Test
+    @DisplayName("When a buffer is written after the writer is ended")
+    void whenWrittenAfterEnd() throws Exception {
+        final MappedFileWriter writer = this.newWriter(64, Durability.none());
+        this.end(writer);
+
+        final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> {
+            writer.write(Buffer.buffer("123456789\n")).toCompletionStage().toCompletableFuture().get(1, TimeUnit.SECONDS);
+        });
+        assertThat(exception.getCause(), instanceOf(IllegalStateException.class));
+        assertThat(Files.size(this.destinationPath), equalTo(0L));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() throws IOException {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new MappedFileWriter(null, 64, Durability.none(), this.metricsCollector);
+        });
+        try (FileChannel fileChannel = this.openChannel()) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> {
+                new MappedFileWriter(fileChannel, 0, Durability.none(), this.metricsCollector);
+            });
+            Assertions.assertThrows(IllegalArgumentException.class, () -> {
+                new MappedFileWriter(fileChannel, 64, null, this.metricsCollector);
+            });
+            Assertions.assertThrows(IllegalArgumentException.class, () -> {
+                new MappedFileWriter(fileChannel, 64, Durability.perBatch(), this.metricsCollector);
+            });
+        }
+    }
+
+    private MappedFileWriter newWriter(final int windowSize, final Durability durability) throws IOException {
+        return new MappedFileWriter(this.openChannel(), windowSize, durability, this.metricsCollector);
+    }
+
+    private FileChannel openChannel() throws IOException {
+        return FileChannel.open(this.destinationPath,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+    }
+
+    private void end(final MappedFileWriter writer) throws InterruptedException, ExecutionException, TimeoutException {
+        writer.end().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+}
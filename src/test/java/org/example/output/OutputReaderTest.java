@@ -0,0 +1,71 @@
+package org.example.output;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.buffer.Buffer;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class OutputReaderTest {
+
+    private Path destinationPath;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        final Optional<String> targetBuildDir = Optional.ofNullable(System.getProperty("build.dir"));
+        this.destinationPath = Paths.get(targetBuildDir.orElseThrow(() -> new RuntimeException()), "read-numbers.log");
+        Files.deleteIfExists(this.destinationPath);
+    }
+
+    @Test
+    @DisplayName("When a binary file spanning several chunks is read, up to its zero filled tail")
+    void whenBinaryFileRead() throws IOException {
+        final BinaryOutputFormat outputFormat = new BinaryOutputFormat();
+        final StringBuilder frames = new StringBuilder();
+        for (int i = 0; i < 50000; i++) {
+            frames.append(String.format("%09d%n", i * 7));
+        }
+        final Buffer content = Buffer.buffer(outputFormat.getHeader())
+                .appendBuffer(outputFormat.encode(Buffer.buffer(frames.toString())))
+                .appendBytes(new byte[16]);
+        Files.write(this.destinationPath, content.getBytes());
+
+        final List<Integer> numbers = new ArrayList<>();
+        assertThat(OutputReader.read(this.destinationPath, numbers::add), equalTo(50000L));
+        assertThat(numbers, hasSize(50000));
+        assertThat(numbers.get(0), equalTo(0));
+        assertThat(numbers.get(49999), equalTo(49999 * 7));
+    }
+
+    @Test
+    @DisplayName("When a text file with a torn last line is read")
+    void whenTextFileRead() throws IOException {
+        Files.writeString(this.destinationPath, "123456789\n987654321\n5555", StandardCharsets.US_ASCII);
+
+        final List<Integer> numbers = new ArrayList<>();
+        assertThat(OutputReader.read(this.destinationPath, numbers::add), equalTo(2L));
+        assertThat(numbers, contains(123456789, 987654321));
+    }
+
+    @Test
+    @DisplayName("When the file is empty, or holds a partial header")
+    void whenFileHoldsNoRecord() throws IOException {
+        Files.createFile(this.destinationPath);
+        assertThat(OutputReader.read(this.destinationPath, number -> { }), equalTo(0L));
+
+        Files.write(this.destinationPath, new byte[] {'N', 'U'});
+        assertThat(OutputReader.read(this.destinationPath, number -> { }), equalTo(0L));
+    }
+}
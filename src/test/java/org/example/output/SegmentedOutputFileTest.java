@@ -0,0 +1,133 @@
+package org.example.output;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.example.metrics.MetricsCollector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.buffer.Buffer;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class SegmentedOutputFileTest {
+
+    private static final long NEVER = TimeUnit.HOURS.toMillis(1);
+
+    private final MetricsCollector metricsCollector = new MetricsCollector();
+
+    private Path basePath;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        final Optional<String> targetBuildDir = Optional.ofNullable(System.getProperty("build.dir"));
+        this.basePath = Paths.get(targetBuildDir.orElseThrow(() -> new RuntimeException()), "segmented-numbers.log");
+        SegmentedOutputFile.delete(this.basePath);
+    }
+
+    @Test
+    @DisplayName("When a new segment is created once the size is reached")
+    void whenSegmentsRollOnSize() throws Exception {
+        final BatchFileWriter writer = this.newWriter(new SegmentedOutputFile(this.basePath, new TextOutputFormat(), 20, 0, 0, 0, NEVER));
+        for (int i = 0; i < 5; i++) {
+            this.write(writer, String.format("%09d%n", i));
+        }
+        this.end(writer);
+
+        final List<Path> segments = SegmentedOutputFile.listSegments(this.basePath);
+        assertThat(segments, hasSize(3));
+        assertThat(this.read(segments), equalTo(List.of(
+                "000000000\n000000001\n",
+                "000000002\n000000003\n",
+                "000000004\n")));
+    }
+
+    @Test
+    @DisplayName("When old segments are deleted beyond the retention count")
+    void whenSegmentsAreRetainedByCount() throws Exception {
+        final BatchFileWriter writer = this.newWriter(new SegmentedOutputFile(this.basePath, new TextOutputFormat(), 10, 0, 2, 0, NEVER));
+        for (int i = 0; i < 5; i++) {
+            this.write(writer, String.format("%09d%n", i));
+        }
+
+        // Retention is applied in the background
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (SegmentedOutputFile.listSegments(this.basePath).size() > 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        this.end(writer);
+
+        final List<Path> segments = SegmentedOutputFile.listSegments(this.basePath);
+        assertThat(this.read(segments), equalTo(List.of("000000003\n", "000000004\n")));
+        assertThat(Files.exists(this.basePath.resolveSibling("segmented-numbers.log.00000000000000000001")), equalTo(false));
+    }
+
+    @Test
+    @DisplayName("When reopened, the writer appends to the last segment")
+    void whenReopened() throws Exception {
+        BatchFileWriter writer = this.newWriter(new SegmentedOutputFile(this.basePath, new TextOutputFormat(), 100, 0, 0, 0, NEVER));
+        this.write(writer, "123456789\n");
+        this.end(writer);
+
+        writer = this.newWriter(new SegmentedOutputFile(this.basePath, new TextOutputFormat(), 100, 0, 0, 0, NEVER));
+        this.write(writer, "987654321\n");
+        this.end(writer);
+
+        final List<Path> segments = SegmentedOutputFile.listSegments(this.basePath);
+        assertThat(this.read(segments), equalTo(List.of("123456789\n987654321\n")));
+
+        SegmentedOutputFile.delete(this.basePath);
+        assertThat(SegmentedOutputFile.listSegments(this.basePath), empty());
+        assertThat(Files.exists(segments.get(0)), equalTo(false));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new SegmentedOutputFile(null, new TextOutputFormat(), 10, 0, 0, 0, NEVER);
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new SegmentedOutputFile(this.basePath, new TextOutputFormat(), 0, 0, 0, 0, NEVER);
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new SegmentedOutputFile(this.basePath, new TextOutputFormat(), 10, 0, -1, 0, NEVER);
+        });
+    }
+
+    private BatchFileWriter newWriter(final SegmentedOutputFile outputFile) {
+        return new BatchFileWriter(outputFile, 1024, 1, Durability.none(), this.metricsCollector);
+    }
+
+    private void write(final BatchFileWriter writer, final String data) throws Exception {
+        // One batch per write, so that the segments roll at known places
+        writer.write(Buffer.buffer(data)).toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    private void end(final BatchFileWriter writer) throws Exception {
+        writer.end().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    private List<String> read(final List<Path> segments) {
+        return segments.stream()
+                .map(segment -> {
+                    try {
+                        return Files.readString(segment, StandardCharsets.US_ASCII);
+                    } catch (final IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .collect(Collectors.toList());
+    }
+}
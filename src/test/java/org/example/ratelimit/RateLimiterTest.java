@@ -0,0 +1,96 @@
+package org.example.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.example.model.ConnectionInfo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class RateLimiterTest {
+
+    private static final long NOW = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("When no limit is configured, connections are never paused")
+    void whenUnlimited() {
+        final RateLimiter rateLimiter = new RateLimiter(0, 0, 0, 0, 100, "");
+        final RateLimiter.ConnectionLimit limit = rateLimiter.open(connection("10.0.0.1", 1));
+
+        assertThat(limit.acquire(1_000_000, 10_000_000, NOW), equalTo(0L));
+    }
+
+    @Test
+    @DisplayName("When a connection exceeds its events or bytes rate, it is paused")
+    void whenConnectionLimited() {
+        // 100 events per second hence 10 in a burst of 100 ms, 1000 bytes per second hence 100 in a burst
+        final RateLimiter rateLimiter = new RateLimiter(100, 1000, 0, 0, 100, "");
+        final RateLimiter.ConnectionLimit limit = rateLimiter.open(connection("10.0.0.1", 1));
+
+        assertThat(limit.acquire(10, 100, NOW), equalTo(0L));
+        // One event above the burst takes 10 ms, 20 bytes above it take 20 ms
+        assertThat(limit.acquire(1, 20, NOW), equalTo(TimeUnit.MILLISECONDS.toNanos(20)));
+
+        // Another connection of the same host has its own limits
+        assertThat(rateLimiter.open(connection("10.0.0.1", 2)).acquire(10, 100, NOW), equalTo(0L));
+    }
+
+    @Test
+    @DisplayName("When the connections of a host exceed its rate together, they are paused")
+    void whenHostLimited() {
+        final RateLimiter rateLimiter = new RateLimiter(0, 0, 100, 0, 100, "");
+        final RateLimiter.ConnectionLimit first = rateLimiter.open(connection("10.0.0.1", 1));
+        final RateLimiter.ConnectionLimit second = rateLimiter.open(connection("10.0.0.1", 2));
+        final RateLimiter.ConnectionLimit other = rateLimiter.open(connection("10.0.0.2", 1));
+
+        assertThat(first.acquire(10, 0, NOW), equalTo(0L));
+        assertThat(second.acquire(1, 0, NOW), equalTo(TimeUnit.MILLISECONDS.toNanos(10)));
+        assertThat(other.acquire(10, 0, NOW), equalTo(0L));
+    }
+
+    @Test
+    @DisplayName("When a host is weighted, its limits are multiplied by its weight")
+    void whenWeighted() {
+        final RateLimiter rateLimiter = new RateLimiter(100, 0, 0, 0, 100, "10.0.0.1=4, 10.0.0.2 = 0.5");
+
+        assertThat(rateLimiter.open(connection("10.0.0.1", 1)).acquire(40, 0, NOW), equalTo(0L));
+        assertThat(rateLimiter.open(connection("10.0.0.2", 1)).acquire(5, 0, NOW), equalTo(0L));
+        assertThat(rateLimiter.open(connection("10.0.0.3", 1)).acquire(11, 0, NOW), equalTo(TimeUnit.MILLISECONDS.toNanos(10)));
+    }
+
+    @Test
+    @DisplayName("When the last connection of a host is closed, the host is dropped along with its limits")
+    void whenClosed() {
+        final RateLimiter rateLimiter = new RateLimiter(0, 0, 100, 0, 100, "");
+        final RateLimiter.ConnectionLimit first = rateLimiter.open(connection("10.0.0.1", 1));
+        final RateLimiter.ConnectionLimit second = rateLimiter.open(connection("10.0.0.1", 2));
+        assertThat(rateLimiter.getHostCount(), equalTo(1));
+
+        first.acquire(20, 0, NOW);
+        first.close();
+        assertThat(rateLimiter.getHostCount(), equalTo(1));
+        second.close();
+        assertThat(rateLimiter.getHostCount(), equalTo(0));
+
+        // A host connecting again starts with a full bucket
+        assertThat(rateLimiter.open(connection("10.0.0.1", 3)).acquire(10, 0, NOW), equalTo(0L));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RateLimiter(-1, 0, 0, 0, 100, ""));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0, 0, 0, 0, -1, ""));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0, 0, 0, 0, 100, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0, 0, 0, 0, 100, "10.0.0.1=0"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0, 0, 0, 0, 100, "10.0.0.1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0, 0, 0, 0, 100, "").open(null));
+    }
+
+    private static ConnectionInfo connection(final String host, final int port) {
+        return ConnectionInfo.builder().remoteHostName(host).remotePort(port).writeHandlerId("handler" + port).build();
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("When consuming within the burst, no wait is needed")
+    void whenWithinBurst() {
+        // 1000 tokens per second, 100 ms of burst hence 100 tokens
+        final TokenBucket bucket = new TokenBucket(1000, 100);
+
+        assertThat(bucket.consume(60, SECOND), equalTo(0L));
+        assertThat(bucket.consume(40, SECOND), equalTo(0L));
+    }
+
+    @Test
+    @DisplayName("When consuming above the burst, the wait pays the debt back")
+    void whenAboveBurst() {
+        final TokenBucket bucket = new TokenBucket(1000, 100);
+
+        // 50 tokens above the burst take 50 ms to refill
+        assertThat(bucket.consume(150, SECOND), equalTo(TimeUnit.MILLISECONDS.toNanos(50)));
+
+        // Once waited for, the bucket is empty but no longer in debt
+        assertThat(bucket.consume(0, SECOND + TimeUnit.MILLISECONDS.toNanos(50)), equalTo(0L));
+        assertThat(bucket.consume(10, SECOND + TimeUnit.MILLISECONDS.toNanos(50)), equalTo(TimeUnit.MILLISECONDS.toNanos(10)));
+    }
+
+    @Test
+    @DisplayName("When idle for long, the bucket holds no more than a burst")
+    void whenIdle() {
+        final TokenBucket bucket = new TokenBucket(1000, 100);
+
+        assertThat(bucket.consume(100, SECOND), equalTo(0L));
+        assertThat(bucket.consume(101, 10 * SECOND), equalTo(TimeUnit.MILLISECONDS.toNanos(1)));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 100));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, -1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 1).consume(-1, 0));
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.reaper;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.example.handlers.CloseConnectionHandler;
+import org.example.handlers.ReadPauses;
+import org.example.model.ConnectionInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.vertx.reactivex.core.Vertx;
+import io.vertx.reactivex.core.net.NetSocket;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConnectionReaperTest {
+
+    private static final ConnectionInfo CONNECTION_INFO = ConnectionInfo.builder()
+            .remoteHostName("localhost").remotePort(4000).writeHandlerId("handler").build();
+
+    @Mock
+    private CloseConnectionHandler mockCloseConnectionHandler;
+
+    @Mock
+    private NetSocket mockNetSocket;
+
+    private final Vertx vertx = Vertx.vertx();
+
+    private final ReadPauses readPauses = new ReadPauses(() -> { }, () -> { });
+
+    @AfterEach
+    void afterEach() {
+        this.vertx.close();
+    }
+
+    @Test
+    @DisplayName("When a connection sends nothing for the idle timeout, it is reaped")
+    void whenIdle() throws Exception {
+        final ConnectionReaper connectionReaper = new ConnectionReaper(
+                this.mockCloseConnectionHandler, this.vertx, 50, 0, 10000, 10, 8);
+        this.watch(connectionReaper);
+
+        verify(this.mockCloseConnectionHandler, timeout(5000)).reap(this.mockNetSocket, CONNECTION_INFO, "idle");
+    }
+
+    @Test
+    @DisplayName("When a connection keeps sending, it is not reaped as idle")
+    void whenActive() throws Exception {
+        final ConnectionReaper connectionReaper = new ConnectionReaper(
+                this.mockCloseConnectionHandler, this.vertx, 100, 0, 10000, 10, 8);
+        final ConnectionReaper.Watch watch = this.watch(connectionReaper);
+        this.vertx.setPeriodic(20, timerId -> watch.onRead(10));
+
+        verify(this.mockCloseConnectionHandler, after(500).never()).reap(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("When a connection sends less than the minimum throughput, it is reaped")
+    void whenTooSlow() throws Exception {
+        final ConnectionReaper connectionReaper = new ConnectionReaper(
+                this.mockCloseConnectionHandler, this.vertx, 0, 1000, 50, 10, 8);
+        final ConnectionReaper.Watch watch = this.watch(connectionReaper);
+        // 10 bytes every 20 ms is 500 bytes per second
+        this.vertx.setPeriodic(20, timerId -> watch.onRead(10));
+
+        verify(this.mockCloseConnectionHandler, timeout(5000)).reap(this.mockNetSocket, CONNECTION_INFO, "too slow");
+    }
+
+    @Test
+    @DisplayName("When a connection is paused, or closed, it is never reaped")
+    void whenPausedOrClosed() throws Exception {
+        final ConnectionReaper connectionReaper = new ConnectionReaper(
+                this.mockCloseConnectionHandler, this.vertx, 50, 1000, 50, 10, 8);
+        this.readPauses.hold();
+        this.watch(connectionReaper);
+        this.watch(connectionReaper).close();
+
+        verify(this.mockCloseConnectionHandler, after(500).never()).reap(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new ConnectionReaper(this.mockCloseConnectionHandler, this.vertx, -1, 0, 1, 1, 8);
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new ConnectionReaper(this.mockCloseConnectionHandler, this.vertx, 0, 0, 1, 1, 7);
+        });
+        Assertions.assertThrows(IllegalStateException.class, () -> {
+            new ConnectionReaper(this.mockCloseConnectionHandler, this.vertx, 0, 0, 1, 1, 8)
+                    .watch(this.mockNetSocket, CONNECTION_INFO, this.readPauses);
+        });
+    }
+
+    private ConnectionReaper.Watch watch(final ConnectionReaper connectionReaper) throws Exception {
+        final CompletableFuture<ConnectionReaper.Watch> watch = new CompletableFuture<>();
+        final io.vertx.core.Context context = ((io.vertx.core.Vertx)this.vertx.getDelegate()).getOrCreateContext();
+        context.runOnContext(event -> watch.complete(connectionReaper.watch(this.mockNetSocket, CONNECTION_INFO, this.readPauses)));
+        return watch.get(5, TimeUnit.SECONDS);
+    }
+}
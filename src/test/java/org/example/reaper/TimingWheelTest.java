@@ -0,0 +1,98 @@
+package org.example.reaper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class TimingWheelTest {
+
+    private final List<String> expired = new ArrayList<>();
+
+    private final TimingWheel timingWheel = new TimingWheel(4);
+
+    @Test
+    @DisplayName("When timeouts are due, they expire on their tick, even past a turn of the wheel")
+    void whenTimeoutsExpire() {
+        this.timingWheel.schedule(this.timeout("first"), 1);
+        this.timingWheel.schedule(this.timeout("second"), 2);
+        // Shares the slot of the first, on the next turn of the wheel
+        this.timingWheel.schedule(this.timeout("fifth"), 5);
+        assertThat(this.timingWheel.size(), equalTo(3));
+
+        this.timingWheel.tick();
+        assertThat(this.expired, contains(equalTo("first")));
+
+        this.timingWheel.tick();
+        this.timingWheel.tick();
+        this.timingWheel.tick();
+        assertThat(this.expired, contains("first", "second"));
+
+        this.timingWheel.tick();
+        assertThat(this.expired, contains("first", "second", "fifth"));
+        assertThat(this.timingWheel.size(), equalTo(0));
+    }
+
+    @Test
+    @DisplayName("When timeouts are cancelled, they never expire, and the others in their slot still do")
+    void whenTimeoutsCancelled() {
+        final TimingWheel.AbstractTimeout first = this.timeout("first");
+        final TimingWheel.AbstractTimeout second = this.timeout("second");
+        final TimingWheel.AbstractTimeout third = this.timeout("third");
+        this.timingWheel.schedule(first, 1);
+        this.timingWheel.schedule(second, 1);
+        this.timingWheel.schedule(third, 1);
+
+        this.timingWheel.cancel(second);
+        this.timingWheel.cancel(second);
+        this.timingWheel.tick();
+
+        assertThat(this.expired, containsInAnyOrder("first", "third"));
+        assertThat(this.timingWheel.size(), equalTo(0));
+    }
+
+    @Test
+    @DisplayName("When a timeout schedules itself again as it expires, it expires again later")
+    void whenTimeoutRescheduled() {
+        final TimingWheel.AbstractTimeout timeout = new TimingWheel.AbstractTimeout() {
+            @Override
+            protected void expire() {
+                expired.add("tick " + timingWheel.getCurrentTick());
+                if (expired.size() < 3) {
+                    timingWheel.schedule(this, 2);
+                }
+            }
+        };
+        this.timingWheel.schedule(timeout, 2);
+        for (int i = 0; i < 10; i++) {
+            this.timingWheel.tick();
+        }
+
+        assertThat(this.expired, contains("tick 2", "tick 4", "tick 6"));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TimingWheel(3));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.timingWheel.schedule(this.timeout("now"), 0));
+
+        final TimingWheel.AbstractTimeout timeout = this.timeout("twice");
+        this.timingWheel.schedule(timeout, 1);
+        Assertions.assertThrows(IllegalStateException.class, () -> this.timingWheel.schedule(timeout, 1));
+    }
+
+    private TimingWheel.AbstractTimeout timeout(final String name) {
+        return new TimingWheel.AbstractTimeout() {
+            @Override
+            protected void expire() {
+                expired.add(name);
+            }
+        };
+    }
+}
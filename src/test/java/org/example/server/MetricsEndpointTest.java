@@ -0,0 +1,118 @@
+package org.example.server;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Optional;
+
+import org.example.admission.AdmissionController;
+import org.example.dedup.TtlDeduplicationStore;
+import org.example.handlers.BackpressureCoordinator;
+import org.example.handlers.TcpConnectionManager;
+import org.example.memory.MemoryBudget;
+import org.example.metrics.EventLoopMonitor;
+import org.example.metrics.MetricsCollector;
+import org.example.model.ConnectionInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.reactivex.core.Vertx;
+
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
+
+class MetricsEndpointTest {
+
+    private final Vertx vertx = Vertx.vertx();
+
+    private final MetricsCollector metricsCollector = new MetricsCollector();
+
+    private final TcpConnectionManager tcpConnectionManager = new TcpConnectionManager(5, 0);
+
+    private final TtlDeduplicationStore deduplicationStore = new TtlDeduplicationStore(10);
+
+    private final EventLoopMonitor eventLoopMonitor = new EventLoopMonitor(this.vertx, 100, 10000, 2.0);
+
+    @AfterEach
+    void afterEach() {
+        this.vertx.close();
+    }
+
+    @Test
+    @DisplayName("When the metrics are scraped, they are served in the Prometheus text format")
+    void whenMetricsScraped() throws IOException, InterruptedException {
+        this.metricsCollector.recordUnique(3);
+        this.metricsCollector.recordDuplicate(1);
+        this.metricsCollector.rotate();
+        this.metricsCollector.recordWrite(1500);
+        this.metricsCollector.recordEndToEnd(2500);
+        this.tcpConnectionManager.tryAdd(ConnectionInfo.builder().remoteHostName("localhost").remotePort(4000).build());
+        this.deduplicationStore.add(123456789);
+        this.eventLoopMonitor.handle(1L);
+
+        final int port = freePort();
+        this.newEndpoint(port).listen();
+
+        final HttpResponse<String> response = this.get(port, "/metrics");
+        assertThat(response.statusCode(), equalTo(200));
+        assertThat(response.headers().firstValue("Content-Type").orElse(""), startsWith("text/plain; version=0.0.4"));
+        assertThat(response.body(), allOf(
+                containsString("tcp_server_unique_numbers_total 3\n"),
+                containsString("tcp_server_duplicate_numbers_total 1\n"),
+                containsString("tcp_server_active_connections 1\n"),
+                containsString("tcp_server_dedup_entries 1\n"),
+                containsString("tcp_server_write_latency_seconds_bucket{le=\"0.0025\"} 1\n"),
+                containsString("tcp_server_end_to_end_latency_seconds_count 1\n"),
+                containsString("tcp_server_event_loop_utilization{loop=\"0\"} "),
+                containsString("tcp_server_event_loops_imbalanced 0\n")));
+
+        assertThat(this.get(port, "/").statusCode(), equalTo(404));
+    }
+
+    @Test
+    @DisplayName("When inputs are invalid")
+    void whenInputsAreInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.newEndpoint(-1));
+    }
+
+    private MetricsEndpoint newEndpoint(final int port) {
+        return new MetricsEndpoint(
+                this.vertx,
+                this.metricsCollector,
+                this.tcpConnectionManager,
+                new BackpressureCoordinator(1024, 8),
+                new AdmissionController(this.metricsCollector, 1000, 1024, 100, ""),
+                new MemoryBudget(1024),
+                this.deduplicationStore,
+                Optional.empty(),
+                this.eventLoopMonitor,
+                port);
+    }
+
+    private HttpResponse<String> get(final int port, final String path) throws IOException, InterruptedException {
+        final HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+        // The server is listening once the event loop got to it
+        for (int attempt = 0;; attempt++) {
+            try {
+                return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+            } catch (final ConnectException e) {
+                if (attempt == 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}